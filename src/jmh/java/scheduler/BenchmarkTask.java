@@ -0,0 +1,25 @@
+package scheduler;
+
+import scheduler.task.AbstractTask;
+
+/**
+ * Task doing no work, so that benchmarks measure the scheduler overhead only
+ *
+ */
+final class BenchmarkTask extends AbstractTask {
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Object call() {
+        return getId();
+    }
+
+    @Override
+    public String toString() {
+        return "[BenchmarkTask=" + getId() + "]";
+    }
+}
@@ -0,0 +1,93 @@
+package scheduler;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import scheduler.exception.SchedulerException;
+
+/**
+ * Latency distribution from <code>submitTask</code> to the result, with one,
+ * four and as many producers as processors, each waiting for its own result
+ *
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EndToEndLatencyBenchmark {
+
+    /**
+     * Maximum number of retained results
+     */
+    private static final int MAX_RESULTS = 65536;
+
+    /**
+     * Scheduler under test
+     */
+    private TaskScheduler taskScheduler;
+
+    /**
+     * Creates the scheduler
+     */
+    @Setup
+    public void setUp() {
+        taskScheduler = new TaskScheduler(SchedulerConfig.builder()
+                .retentionPolicy(ResultRetentionPolicy.builder().maxResults(MAX_RESULTS).build()).build());
+    }
+
+    /**
+     * Closes the scheduler
+     */
+    @TearDown
+    public void tearDown() {
+        taskScheduler.close();
+    }
+
+    /**
+     * Submits a task and waits for its result
+     * 
+     * @return Task result
+     * @throws SchedulerException
+     *             If the task cannot be submitted
+     * @throws InterruptedException
+     *             If interrupted while waiting for the result
+     * @throws ExecutionException
+     *             If the task failed
+     */
+    private Object submitAndGet() throws SchedulerException, InterruptedException, ExecutionException {
+        return taskScheduler.submitTask(new BenchmarkTask()).get();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object submitToResult1() throws SchedulerException, InterruptedException, ExecutionException {
+        return submitAndGet();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object submitToResult4() throws SchedulerException, InterruptedException, ExecutionException {
+        return submitAndGet();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object submitToResultMax() throws SchedulerException, InterruptedException, ExecutionException {
+        return submitAndGet();
+    }
+}
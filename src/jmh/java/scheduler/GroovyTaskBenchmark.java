@@ -0,0 +1,109 @@
+package scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import scheduler.task.impl.CompiledGroovyTask;
+import scheduler.task.impl.GroovyTask;
+import scheduler.task.impl.LambdaTask;
+
+/**
+ * Cost of running a Groovy script: <code>GroovyTask.call</code> with a script
+ * seen for the first time (compiled) and with a cached one, a plain
+ * <code>ScriptEngine.eval</code> against a precompiled script, a
+ * <code>CompiledGroovyTask</code> running its compiled class directly, and the
+ * same work as a Java lambda.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GroovyTaskBenchmark {
+
+    /**
+     * Script run by the benchmarks
+     */
+    private static final String SCRIPT = "(1..10).sum()";
+
+    /**
+     * Engine used directly, outside of the engine pool
+     */
+    private ScriptEngine engine;
+
+    /**
+     * Script precompiled by the engine
+     */
+    private CompiledScript compiledScript;
+
+    /**
+     * Suffix making each cold script unique
+     */
+    private long coldScriptNumber;
+
+    /**
+     * Creates the engine and compiles the script
+     * 
+     * @throws ScriptException
+     *             If the script does not compile
+     */
+    @Setup
+    public void setUp() throws ScriptException {
+        engine = new ScriptEngineManager().getEngineByName("groovy");
+        compiledScript = ((Compilable) engine).compile(SCRIPT);
+    }
+
+    @Benchmark
+    public Object callCold() throws Exception {
+        return new GroovyTask(SCRIPT + " + " + coldScriptNumber++).call();
+    }
+
+    @Benchmark
+    public Object callWarm() throws Exception {
+        return new GroovyTask(SCRIPT).call();
+    }
+
+    @Benchmark
+    public Object engineEval() throws ScriptException {
+        return engine.eval(SCRIPT);
+    }
+
+    @Benchmark
+    public Object compiledEval() throws ScriptException {
+        return compiledScript.eval();
+    }
+
+    @Benchmark
+    public Object compiledTaskCall() throws Exception {
+        return new CompiledGroovyTask(SCRIPT).call();
+    }
+
+    @Benchmark
+    public Object lambdaTaskCall() throws Exception {
+        return new LambdaTask(() -> {
+            int sum = 0;
+            for (int i = 1; i <= 10; i++) {
+                sum += i;
+            }
+            return sum;
+        }).call();
+    }
+}
@@ -0,0 +1,112 @@
+package scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import scheduler.task.impl.GroovyTask;
+
+/**
+ * Groovy evaluation throughput with one, four and as many threads as
+ * processors: a single <code>ScriptEngine</code> shared by all the threads and
+ * evaluating the script text, as <code>GroovyTask</code> used to do, against
+ * <code>GroovyTask.call</code> and its engine pool.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScriptEngineBenchmark {
+
+    /**
+     * Evaluated scripts, in turn
+     */
+    private static final String[] SCRIPTS = { "[].sum(1)", "[].sum(10)", "[].sum(100)", "(1..10).sum()" };
+
+    /**
+     * Engine shared by all the threads
+     */
+    private ScriptEngine sharedEngine;
+
+    /**
+     * Next script evaluated by a thread
+     */
+    @State(Scope.Thread)
+    public static class ScriptIndex {
+
+        /**
+         * Index of the next script
+         */
+        private int next;
+
+        /**
+         * Gets the next script to evaluate
+         *
+         * @return Script
+         */
+        String nextScript() {
+            return SCRIPTS[next++ & (SCRIPTS.length - 1)];
+        }
+    }
+
+    /**
+     * Creates the shared engine
+     */
+    @Setup
+    public void setUp() {
+        sharedEngine = new ScriptEngineManager().getEngineByName("groovy");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object sharedEngineEval1(ScriptIndex scriptIndex) throws ScriptException {
+        return sharedEngine.eval(scriptIndex.nextScript());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object sharedEngineEval4(ScriptIndex scriptIndex) throws ScriptException {
+        return sharedEngine.eval(scriptIndex.nextScript());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object sharedEngineEvalMax(ScriptIndex scriptIndex) throws ScriptException {
+        return sharedEngine.eval(scriptIndex.nextScript());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object groovyTaskCall1(ScriptIndex scriptIndex) throws Exception {
+        return new GroovyTask(scriptIndex.nextScript()).call();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object groovyTaskCall4(ScriptIndex scriptIndex) throws Exception {
+        return new GroovyTask(scriptIndex.nextScript()).call();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object groovyTaskCallMax(ScriptIndex scriptIndex) throws Exception {
+        return new GroovyTask(scriptIndex.nextScript()).call();
+    }
+}
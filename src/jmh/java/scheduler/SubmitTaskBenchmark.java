@@ -0,0 +1,85 @@
+package scheduler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import scheduler.exception.SchedulerException;
+
+/**
+ * Throughput of <code>submitTask</code> with one, four and as many producers
+ * as processors. The queue is bounded with the blocking policy and the
+ * retained results are capped, so that the benchmark measures the sustained
+ * rate rather than the growth of the queue.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubmitTaskBenchmark {
+
+    /**
+     * Submission queue capacity
+     */
+    private static final int QUEUE_CAPACITY = 4096;
+
+    /**
+     * Maximum number of retained results
+     */
+    private static final int MAX_RESULTS = 65536;
+
+    /**
+     * Scheduler under test
+     */
+    private TaskScheduler taskScheduler;
+
+    /**
+     * Creates the scheduler
+     */
+    @Setup
+    public void setUp() {
+        taskScheduler = new TaskScheduler(SchedulerConfig.builder().queueCapacity(QUEUE_CAPACITY)
+                .retentionPolicy(ResultRetentionPolicy.builder().maxResults(MAX_RESULTS).build()).build());
+    }
+
+    /**
+     * Closes the scheduler
+     */
+    @TearDown
+    public void tearDown() {
+        taskScheduler.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public CompletableFuture<Object> submitTask1() throws SchedulerException {
+        return taskScheduler.submitTask(new BenchmarkTask());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public CompletableFuture<Object> submitTask4() throws SchedulerException {
+        return taskScheduler.submitTask(new BenchmarkTask());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public CompletableFuture<Object> submitTaskMax() throws SchedulerException {
+        return taskScheduler.submitTask(new BenchmarkTask());
+    }
+}
@@ -0,0 +1,110 @@
+package scheduler;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import scheduler.exception.SchedulerException;
+import scheduler.task.Task;
+
+/**
+ * Cost of the task status queries as the number of tracked tasks grows: the
+ * per-task lookups should stay flat, the full scans grow linearly.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskLookupBenchmark {
+
+    /**
+     * Number of finished tasks tracked by the scheduler
+     */
+    @Param({ "1000", "100000", "1000000" })
+    private int trackedTaskCount;
+
+    /**
+     * Scheduler under test
+     */
+    private TaskScheduler taskScheduler;
+
+    /**
+     * Tracked tasks
+     */
+    private Task[] tasks;
+
+    /**
+     * Creates the scheduler and runs the tracked tasks
+     * 
+     * @throws SchedulerException
+     *             If a task cannot be submitted
+     */
+    @Setup
+    public void setUp() throws SchedulerException {
+        taskScheduler = new TaskScheduler(SchedulerConfig.builder().build());
+        tasks = new Task[trackedTaskCount];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[trackedTaskCount];
+        for (int i = 0; i < trackedTaskCount; i++) {
+            tasks[i] = new BenchmarkTask();
+            futures[i] = taskScheduler.submitTask(tasks[i]);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    /**
+     * Closes the scheduler
+     */
+    @TearDown
+    public void tearDown() {
+        taskScheduler.close();
+    }
+
+    /**
+     * Picks a tracked task
+     * 
+     * @return Random tracked task
+     */
+    private Task randomTask() {
+        return tasks[ThreadLocalRandom.current().nextInt(trackedTaskCount)];
+    }
+
+    @Benchmark
+    public boolean isTaskDone() throws SchedulerException {
+        return taskScheduler.isTaskDone(randomTask());
+    }
+
+    @Benchmark
+    public Object getTaskResult() throws SchedulerException, ExecutionException {
+        return taskScheduler.getTaskResult(randomTask());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Task> getTasksDone() throws SchedulerException {
+        return taskScheduler.getTasksDone();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Task> getTasksRunning() throws SchedulerException {
+        return taskScheduler.getTasksRunning();
+    }
+}
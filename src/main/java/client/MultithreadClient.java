@@ -37,7 +37,7 @@ public class MultithreadClient {
     }
 
     /**
-     * Add task result to total
+     * Add the summed task results of a thread to total
      * 
      * @param value
      *            Value to add to the total
@@ -2,11 +2,12 @@ package client;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import scheduler.TaskBatch;
 import scheduler.TaskScheduler;
 import scheduler.exception.SchedulerException;
 import scheduler.task.Task;
@@ -49,6 +50,11 @@ public class SequentialClient {
      */
     private List<Task> listSum100;
 
+    /**
+     * Submitted task batches
+     */
+    private List<TaskBatch> taskBatches;
+
     /**
      * Default constructor
      */
@@ -56,6 +62,7 @@ public class SequentialClient {
         this.listSum1 = new ArrayList<Task>();
         this.listSum10 = new ArrayList<Task>();
         this.listSum100 = new ArrayList<Task>();
+        this.taskBatches = new ArrayList<TaskBatch>();
 
         init();
     }
@@ -73,7 +80,7 @@ public class SequentialClient {
     }
 
     /**
-     * Submits the tasks to the task scheduler
+     * Submits the tasks to the task scheduler, one batch per task list
      * 
      * @throws SchedulerException
      *             If something wrong happend in the scheduler
@@ -81,11 +88,9 @@ public class SequentialClient {
     public void submitTasks() throws SchedulerException {
         TaskScheduler taskScheduler = TaskScheduler.getInstance();
 
-        for (int i = 0; i < TASK_POOL; i++) {
-            taskScheduler.submitTask(listSum1.get(i));
-            taskScheduler.submitTask(listSum10.get(i));
-            taskScheduler.submitTask(listSum100.get(i));
-        }
+        taskBatches.add(taskScheduler.submitAll(listSum1));
+        taskBatches.add(taskScheduler.submitAll(listSum10));
+        taskBatches.add(taskScheduler.submitAll(listSum100));
     }
 
     /**
@@ -95,42 +100,29 @@ public class SequentialClient {
      *             If something wrong happened in the scheduler
      */
     public void retrieveAllResults() throws SchedulerException {
-        int remainingTasks = TASK_POOL * 3;
-        while (remainingTasks > 0) {
-            remainingTasks = remainingTasks - retrieveResults(listSum1);
-            remainingTasks = remainingTasks - retrieveResults(listSum10);
-            remainingTasks = remainingTasks - retrieveResults(listSum100);
+        for (TaskBatch taskBatch : taskBatches) {
+            retrieveResults(taskBatch);
         }
-
+        taskBatches.clear();
     }
 
     /**
-     * Tries to retrieves the results of a task list
+     * Waits for a task batch and retrieves its results
      * 
-     * @param taskList
-     *            Task list to check
-     * @return The number of results retrieved
+     * @param taskBatch
+     *            Task batch to retrieve
      * @throws SchedulerException
      *             If something wrong happened in the scheduler
      */
-    private int retrieveResults(List<Task> taskList) throws SchedulerException {
-        TaskScheduler taskScheduler = TaskScheduler.getInstance();
-
-        int taskFinished = 0;
-        for (Task task : taskList) {
-
-            if (taskScheduler.isTaskDone(task)) {
-                try {
-                    SequentialClient.total += (Integer) taskScheduler.getTaskResult(task);
-                } catch (ExecutionException e) {
-                    LOGGER.error("Task " + task + " failed executing", e);
-                }
-                taskScheduler.removeTask(task);
-                taskFinished++;
-            }
+    private void retrieveResults(TaskBatch taskBatch) throws SchedulerException {
+        taskBatch.awaitAll();
+        for (Object result : taskBatch.getResults().values()) {
+            SequentialClient.total += (Integer) result;
         }
-        return taskFinished;
-
+        for (Map.Entry<Task, Throwable> failure : taskBatch.getFailures().entrySet()) {
+            LOGGER.error("Task " + failure.getKey() + " failed executing", failure.getValue());
+        }
+        taskBatch.removeAll();
     }
 
     public static void main(String[] args) {
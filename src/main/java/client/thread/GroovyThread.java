@@ -2,6 +2,8 @@ package client.thread;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 import org.slf4j.Logger;
@@ -69,29 +71,40 @@ public abstract class GroovyThread implements Runnable {
         TaskScheduler taskScheduler = TaskScheduler.getInstance();
 
         try {
-            // Submit tasks
+            // Submit tasks, keeping a future per task so that a failing
+            // script only loses its own result
+            List<CompletableFuture<Object>> futures = new ArrayList<CompletableFuture<Object>>();
             for (Task task : groovyTaskList) {
-                taskScheduler.submitTask(task);
+                futures.add(taskScheduler.submitTask(task));
             }
 
-            // Get results
+            // Sum the results of the tasks which succeeded
             LOGGER.info(threadName + " >>> handling results");
-            int remainingTask = groovyTaskList.size();
-            while (remainingTask > 0) {
-                for (Task task : groovyTaskList) {
-                    if (taskScheduler.isTaskDone(task)) {
-                        try {
-                            updateResults((Integer) taskScheduler.getTaskResult(task));
-                        } catch (ExecutionException e) {
-                            LOGGER.error("Task " + task + " failed executing", e);
-                        }
-                        taskScheduler.removeTask(task);
-                        remainingTask--;
-                    }
+            int total = 0;
+            int failedTasks = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                Task task = groovyTaskList.get(i);
+                try {
+                    total += (Integer) futures.get(i).get();
+                } catch (ExecutionException ee) {
+                    LOGGER.error("Task " + task + " failed executing", ee.getCause());
+                    failedTasks++;
+                } catch (CancellationException ce) {
+                    LOGGER.error("Task " + task + " has been cancelled", ce);
+                    failedTasks++;
                 }
+                taskScheduler.removeTask(task);
             }
+            if (failedTasks > 0) {
+                LOGGER.warn(threadName + " >>> " + failedTasks + " task(s) failed, left out of the results");
+            }
+
+            // A single update for the whole list
+            updateResults(total);
         } catch (SchedulerException se) {
             LOGGER.error("An error occured with the task scheduler", se);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
         } finally {
             LOGGER.info(threadName + " >>> finished");
         }
@@ -101,7 +114,7 @@ public abstract class GroovyThread implements Runnable {
      * Updates the result of a main thread
      * 
      * @param value
-     *            Result computed by a task
+     *            Sum of the results computed by the tasks which succeeded
      */
     public abstract void updateResults(int value);
 }
@@ -0,0 +1,32 @@
+package scheduler;
+
+/**
+ * Defines what happens to a task submitted while the TaskScheduler submission
+ * queue is full
+ *
+ */
+public enum AdmissionPolicy {
+
+    /**
+     * Waits for room in the queue, up to the configured admission timeout,
+     * then rejects the task with a <code>TaskRejectedException</code>
+     */
+    BLOCK,
+
+    /**
+     * Rejects the task at once with a <code>TaskRejectedException</code>
+     */
+    REJECT,
+
+    /**
+     * Runs the task on the submitting thread, which slows the producer down
+     */
+    CALLER_RUNS,
+
+    /**
+     * Drops the oldest waiting task of the lowest priority lane to make room.
+     * The dropped task future is completed with a
+     * <code>TaskRejectedException</code>.
+     */
+    DROP_OLDEST
+}
@@ -0,0 +1,113 @@
+package scheduler;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import scheduler.exception.SchedulerException;
+import scheduler.task.Task;
+
+/**
+ * Queue receiving the tasks submitted through
+ * {@link TaskScheduler#submitTask(Task, CompletionQueue)} in the order they
+ * finish. Every accepted task is handed back once in a final state, so a
+ * consumer may take one task per successful submission: done and failed
+ * tasks once their result has been recorded by the scheduler, so
+ * {@link TaskScheduler#getTaskResult(Task)} never returns a stale value for
+ * them, and cancelled, timed out or dropped tasks once in their final state,
+ * their future telling why. Tasks whose submission is rejected are not handed back.
+ *
+ * Each consumer should own its queue: tasks are not shared between queues.
+ */
+public class CompletionQueue {
+
+    /**
+     * Finished tasks, in completion order
+     */
+    private final BlockingQueue<Task> completedTasks;
+
+    /**
+     * Constructs a new CompletionQueue
+     */
+    public CompletionQueue() {
+        this.completedTasks = new LinkedBlockingQueue<Task>();
+    }
+
+    /**
+     * Adds a finished task. Called by the scheduler workers.
+     * 
+     * @param task
+     *            Finished task
+     */
+    void add(Task task) {
+        completedTasks.add(task);
+    }
+
+    /**
+     * Retrieves and removes the next finished task, waiting if none is
+     * available yet
+     * 
+     * @return The next finished task
+     * @throws SchedulerException
+     *             If the current thread has been interrupted while waiting
+     */
+    public Task takeCompleted() throws SchedulerException {
+        try {
+            return completedTasks.take();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SchedulerException("Interrupted while waiting for a finished task", ie);
+        }
+    }
+
+    /**
+     * Retrieves and removes the next finished task, waiting up to the given
+     * time if none is available yet
+     * 
+     * @param timeout
+     *            Maximum time to wait
+     * @param unit
+     *            Time unit of the timeout
+     * @return The next finished task, <code>null</code> if the timeout elapsed
+     * @throws SchedulerException
+     *             If the current thread has been interrupted while waiting
+     */
+    public Task pollCompleted(long timeout, TimeUnit unit) throws SchedulerException {
+        try {
+            return completedTasks.poll(timeout, unit);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SchedulerException("Interrupted while waiting for a finished task", ie);
+        }
+    }
+
+    /**
+     * Waits until at least one task is finished, then moves up to
+     * <code>maxTasks</code> finished tasks to the given collection
+     * 
+     * @param tasks
+     *            Collection receiving the finished tasks
+     * @param maxTasks
+     *            Maximum number of tasks to move
+     * @return The number of tasks moved
+     * @throws SchedulerException
+     *             If the current thread has been interrupted while waiting
+     */
+    public int drainCompleted(Collection<? super Task> tasks, int maxTasks) throws SchedulerException {
+        if (maxTasks <= 0) {
+            return 0;
+        }
+        tasks.add(takeCompleted());
+        return 1 + completedTasks.drainTo(tasks, maxTasks - 1);
+    }
+
+    /**
+     * Gets the number of finished tasks waiting to be retrieved
+     * 
+     * @return Number of finished tasks in the queue
+     */
+    public int size() {
+        return completedTasks.size();
+    }
+}
@@ -0,0 +1,23 @@
+package scheduler;
+
+/**
+ * Reasons for the TaskScheduler to evict a finished task result
+ *
+ */
+public enum EvictionCause {
+
+    /**
+     * Too many results retained
+     */
+    SIZE,
+
+    /**
+     * Retained results too large
+     */
+    BYTES,
+
+    /**
+     * Result retained longer than its time to live
+     */
+    EXPIRED
+}
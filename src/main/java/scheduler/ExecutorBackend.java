@@ -0,0 +1,86 @@
+package scheduler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Defines the executors able to run the TaskScheduler tasks
+ *
+ */
+public enum ExecutorBackend {
+
+    /**
+     * Fixed size thread pool sharing a single queue
+     */
+    FIXED {
+        @Override
+        public ExecutorService create(int parallelism) {
+            return Executors.newFixedThreadPool(parallelism, new WorkerThreadFactory());
+        }
+    },
+
+    /**
+     * Work stealing <code>ForkJoinPool</code>, in FIFO mode
+     */
+    WORK_STEALING {
+        @Override
+        public ExecutorService create(int parallelism) {
+            return new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        }
+    },
+
+    /**
+     * One virtual thread per task, for tasks blocking on I/O. The parallelism
+     * is ignored. Requires Java 21 or later.
+     */
+    VIRTUAL_THREADS {
+        @Override
+        public ExecutorService create(int parallelism) {
+            try {
+                // Looked up at runtime so that the scheduler still runs on
+                // older JVMs when this backend is not used
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException roe) {
+                throw new IllegalStateException("Virtual threads are not supported by this JVM", roe);
+            }
+        }
+    };
+
+    /**
+     * Creates the executor
+     * 
+     * @param parallelism
+     *            Number of tasks allowed to run at the same time
+     * @return New executor
+     */
+    public abstract ExecutorService create(int parallelism);
+
+    /**
+     * Names the scheduler worker threads
+     */
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        /**
+         * Pool number generator
+         */
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger(1);
+
+        /**
+         * Pool number
+         */
+        private final int poolNumber = POOL_NUMBER.getAndIncrement();
+
+        /**
+         * Thread number generator
+         */
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "scheduler-" + poolNumber + "-worker-" + threadNumber.getAndIncrement());
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package scheduler;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * FIFO lanes, one per {@link TaskPriority}, holding the tasks waiting for a
+ * worker. The head of a higher priority lane is polled first, but waiting ages
+ * tasks: each aging period spent in its lane counts as one priority level, so
+ * low priority tasks cannot starve.
+ * <p>
+ * Each lane is split into shards, and producers append to the shard of their
+ * thread, so that concurrent producers rarely share a queue tail or a depth
+ * counter. Consumers poll the shard of their own thread first, and only
+ * compare the heads of the other shards once it is empty, taking the work
+ * queued by the others: priorities and aging hold within a shard, and across
+ * shards for a consumer out of work. Elements of a given producer keep their
+ * FIFO order.
+ *
+ * @param <E>
+ *            Element type
+ */
+class PriorityLanes<E> {
+
+    /**
+     * Number of depth counters per shard, so that each shard has its own
+     * cache line
+     */
+    private static final int DEPTH_STRIDE = 16;
+
+    /**
+     * Lanes, by shard then priority ordinal
+     */
+    private final Queue<E>[][] lanes;
+
+    /**
+     * Number of elements in each lane of each shard, the counters of a shard
+     * starting at <code>(shard + 1) * DEPTH_STRIDE</code>
+     */
+    private final AtomicIntegerArray depths;
+
+    /**
+     * Mask giving a shard from a thread hash, the number of shards minus one
+     */
+    private final int shardMask;
+
+    /**
+     * Gives the shard of the calling thread, before masking
+     */
+    private final IntSupplier shardSelector;
+
+    /**
+     * Gives the enqueue time of an element, from <code>System.nanoTime()</code>
+     */
+    private final ToLongFunction<E> enqueueTime;
+
+    /**
+     * Waiting time worth one priority level, in nanoseconds
+     */
+    private final long agingNanos;
+
+    /**
+     * Constructs new PriorityLanes with a single shard
+     * 
+     * @param enqueueTime
+     *            Gives the enqueue time of an element, from
+     *            <code>System.nanoTime()</code>
+     * @param agingNanos
+     *            Waiting time worth one priority level, in nanoseconds
+     */
+    PriorityLanes(ToLongFunction<E> enqueueTime, long agingNanos) {
+        this(enqueueTime, agingNanos, 1);
+    }
+
+    /**
+     * Constructs new PriorityLanes
+     * 
+     * @param enqueueTime
+     *            Gives the enqueue time of an element, from
+     *            <code>System.nanoTime()</code>
+     * @param agingNanos
+     *            Waiting time worth one priority level, in nanoseconds
+     * @param shards
+     *            Minimum number of shards, rounded up to a power of two,
+     *            typically the number of processors
+     */
+    PriorityLanes(ToLongFunction<E> enqueueTime, long agingNanos, int shards) {
+        this(enqueueTime, agingNanos, shards, PriorityLanes::threadShard);
+    }
+
+    /**
+     * Constructs new PriorityLanes choosing the shards with a given selector,
+     * e.g. to control the shard of each element in tests
+     * 
+     * @param enqueueTime
+     *            Gives the enqueue time of an element, from
+     *            <code>System.nanoTime()</code>
+     * @param agingNanos
+     *            Waiting time worth one priority level, in nanoseconds
+     * @param shards
+     *            Minimum number of shards, rounded up to a power of two
+     * @param shardSelector
+     *            Gives the shard of the calling thread, masked by the number
+     *            of shards
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    PriorityLanes(ToLongFunction<E> enqueueTime, long agingNanos, int shards, IntSupplier shardSelector) {
+        TaskPriority[] priorities = TaskPriority.values();
+        int shardCount = Integer.highestOneBit(Math.max(1, Math.min(shards, 1 << 16)) * 2 - 1);
+        this.lanes = new Queue[shardCount][priorities.length];
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int i = 0; i < priorities.length; i++) {
+                lanes[shard][i] = new ConcurrentLinkedQueue<E>();
+            }
+        }
+        this.depths = new AtomicIntegerArray((shardCount + 2) * DEPTH_STRIDE);
+        this.shardMask = shardCount - 1;
+        this.shardSelector = shardSelector;
+        this.enqueueTime = enqueueTime;
+        // Keeps the scores from overflowing
+        this.agingNanos = Math.min(agingNanos, Long.MAX_VALUE / (2 * priorities.length));
+    }
+
+    /**
+     * Hashes the id of the current thread, the default shard selector
+     * 
+     * @return Thread hash
+     */
+    static int threadShard() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Gets the shard of the current thread
+     * 
+     * @return Shard index
+     */
+    private int currentShard() {
+        return shardSelector.getAsInt() & shardMask;
+    }
+
+    /**
+     * Gets the index of a depth counter
+     * 
+     * @param shard
+     *            Shard
+     * @param lane
+     *            Priority ordinal
+     * @return Index in {@link #depths}
+     */
+    private static int depthIndex(int shard, int lane) {
+        return (shard + 1) * DEPTH_STRIDE + lane;
+    }
+
+    /**
+     * Tells whether a shard has no element, as far as its counters know
+     * 
+     * @param shard
+     *            Shard
+     * @return <code>true</code> if every lane of the shard is empty
+     */
+    private boolean isShardEmpty(int shard) {
+        for (int lane = 0; lane < lanes[shard].length; lane++) {
+            if (0 != depths.get(depthIndex(shard, lane))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends an element to a lane, in the shard of the current thread
+     * 
+     * @param element
+     *            Element
+     * @param priority
+     *            Lane
+     */
+    void offer(E element, TaskPriority priority) {
+        int shard = currentShard();
+        lanes[shard][priority.ordinal()].offer(element);
+        depths.incrementAndGet(depthIndex(shard, priority.ordinal()));
+    }
+
+    /**
+     * Removes a given element, typically one the executor refused to run
+     * 
+     * @param element
+     *            Element
+     * @param priority
+     *            Lane holding the element
+     * @return <code>true</code> if the element has been removed,
+     *         <code>false</code> if it was already polled
+     */
+    boolean remove(E element, TaskPriority priority) {
+        // Usually removed by the thread which has queued it
+        int firstShard = currentShard();
+        for (int i = 0; i <= shardMask; i++) {
+            int shard = (firstShard + i) & shardMask;
+            if (lanes[shard][priority.ordinal()].remove(element)) {
+                depths.decrementAndGet(depthIndex(shard, priority.ordinal()));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the element to run next: the head with the best priority once
+     * aged in the shard of the current thread, or over all the shards if that
+     * one is empty
+     * 
+     * @return Next element, <code>null</code> if every lane is empty
+     */
+    E poll() {
+        int firstShard = currentShard();
+        E element = pollShard(firstShard);
+        if (null != element) {
+            return element;
+        }
+        while (true) {
+            long now = System.nanoTime();
+            int bestShard = -1;
+            int bestLane = -1;
+            long bestScore = Long.MAX_VALUE;
+            for (int i = 0; i <= shardMask; i++) {
+                int shard = (firstShard + i) & shardMask;
+                if (isShardEmpty(shard)) {
+                    continue;
+                }
+                for (int lane = 0; lane < lanes[shard].length; lane++) {
+                    E head = lanes[shard][lane].peek();
+                    if (null != head) {
+                        long waited = now - enqueueTime.applyAsLong(head);
+                        // Lower is better: the lane level minus the levels
+                        // gained by waiting, both in aging periods
+                        long score = lane * agingNanos - waited;
+                        if (score < bestScore) {
+                            bestScore = score;
+                            bestShard = shard;
+                            bestLane = lane;
+                        }
+                    }
+                }
+            }
+            if (bestLane < 0) {
+                return null;
+            }
+            element = lanes[bestShard][bestLane].poll();
+            if (null != element) {
+                depths.decrementAndGet(depthIndex(bestShard, bestLane));
+                return element;
+            }
+            // Another worker took the head meanwhile, look again
+        }
+    }
+
+    /**
+     * Removes the head with the best priority once aged in a given shard
+     * 
+     * @param shard
+     *            Shard
+     * @return Next element of the shard, <code>null</code> if it is empty
+     */
+    private E pollShard(int shard) {
+        while (!isShardEmpty(shard)) {
+            long now = System.nanoTime();
+            int bestLane = -1;
+            long bestScore = Long.MAX_VALUE;
+            for (int lane = 0; lane < lanes[shard].length; lane++) {
+                E head = lanes[shard][lane].peek();
+                if (null != head) {
+                    long score = lane * agingNanos - (now - enqueueTime.applyAsLong(head));
+                    if (score < bestScore) {
+                        bestScore = score;
+                        bestLane = lane;
+                    }
+                }
+            }
+            if (bestLane < 0) {
+                // Taken by another worker, not uncounted yet
+                return null;
+            }
+            E element = lanes[shard][bestLane].poll();
+            if (null != element) {
+                depths.decrementAndGet(depthIndex(shard, bestLane));
+                return element;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the oldest head of the lowest priority lane holding an element,
+     * over all the shards
+     * 
+     * @return Removed element, <code>null</code> if every lane is empty
+     */
+    E pollLowest() {
+        for (int lane = lanes[0].length - 1; lane >= 0; lane--) {
+            while (true) {
+                int oldestShard = -1;
+                long oldestTime = 0;
+                for (int shard = 0; shard <= shardMask; shard++) {
+                    E head = lanes[shard][lane].peek();
+                    if (null != head) {
+                        long time = enqueueTime.applyAsLong(head);
+                        if (oldestShard < 0 || time - oldestTime < 0) {
+                            oldestShard = shard;
+                            oldestTime = time;
+                        }
+                    }
+                }
+                if (oldestShard < 0) {
+                    break;
+                }
+                E element = lanes[oldestShard][lane].poll();
+                if (null != element) {
+                    depths.decrementAndGet(depthIndex(oldestShard, lane));
+                    return element;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number of elements waiting in a lane
+     * 
+     * @param priority
+     *            Lane
+     * @return Lane depth
+     */
+    int getDepth(TaskPriority priority) {
+        int depth = 0;
+        for (int shard = 0; shard <= shardMask; shard++) {
+            depth += depths.get(depthIndex(shard, priority.ordinal()));
+        }
+        return depth;
+    }
+
+    /**
+     * Gets the number of elements waiting in all the lanes
+     * 
+     * @return Total depth
+     */
+    int size() {
+        int size = 0;
+        for (int shard = 0; shard <= shardMask; shard++) {
+            for (int lane = 0; lane < lanes[shard].length; lane++) {
+                size += depths.get(depthIndex(shard, lane));
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Gets the number of shards
+     * 
+     * @return Shard count, a power of two
+     */
+    int getShardCount() {
+        return shardMask + 1;
+    }
+}
@@ -0,0 +1,185 @@
+package scheduler;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import scheduler.task.AbstractScriptTask;
+import scheduler.task.Task;
+import scheduler.util.LruCache;
+
+/**
+ * Bookkeeping of the pure task mode: script tasks are assumed to only depend on
+ * their script text, so identical scripts share one execution while it runs,
+ * and their successful results are memoized in a bounded cache.
+ *
+ * @param <E>
+ *            Execution type
+ */
+class PureTaskCache<E> {
+
+    /**
+     * Executions in progress, by script
+     */
+    private final ConcurrentMap<ScriptKey, E> executions;
+
+    /**
+     * Successful outcomes, by script
+     */
+    private final LruCache<ScriptKey, Object> outcomes;
+
+    /**
+     * Number of tasks attached to the execution of an identical script
+     */
+    private final AtomicLong deduplicatedCount;
+
+    /**
+     * Constructs a new PureTaskCache
+     * 
+     * @param memoCacheSize
+     *            Maximum number of memoized outcomes, must be positive
+     */
+    PureTaskCache(int memoCacheSize) {
+        this.executions = new ConcurrentHashMap<ScriptKey, E>();
+        this.outcomes = new LruCache<ScriptKey, Object>(memoCacheSize);
+        this.deduplicatedCount = new AtomicLong();
+    }
+
+    /**
+     * Gets the key of a task
+     * 
+     * @param task
+     *            Task
+     * @return Script key, <code>null</code> if the task is not a script task
+     *         or has bound variables
+     */
+    static ScriptKey keyOf(Task task) {
+        if (task instanceof AbstractScriptTask && null != ((AbstractScriptTask) task).getScript()
+                && !((AbstractScriptTask) task).hasBindings()) {
+            return new ScriptKey(task.getClass(), ((AbstractScriptTask) task).getScript());
+        }
+        return null;
+    }
+
+    /**
+     * Gets a memoized outcome
+     * 
+     * @param key
+     *            Script key
+     * @return Outcome, <code>null</code> if none
+     */
+    Object getOutcome(ScriptKey key) {
+        return outcomes.get(key);
+    }
+
+    /**
+     * Registers an execution, unless one is already in progress for the same
+     * script
+     * 
+     * @param key
+     *            Script key
+     * @param execution
+     *            New execution
+     * @return The execution in progress to attach to, <code>null</code> if the
+     *         new one has been registered
+     */
+    E register(ScriptKey key, E execution) {
+        E current = executions.putIfAbsent(key, execution);
+        if (null != current) {
+            deduplicatedCount.incrementAndGet();
+        }
+        return current;
+    }
+
+    /**
+     * Unregisters a finished execution and memoizes its outcome
+     * 
+     * @param key
+     *            Script key
+     * @param execution
+     *            Finished execution
+     * @param outcome
+     *            Outcome to memoize, <code>null</code> if it must not be
+     *            (failure, cancellation)
+     */
+    void completed(ScriptKey key, E execution, Object outcome) {
+        // Memoized first, so that an identical script submitted meanwhile
+        // finds either the execution or its outcome
+        if (null != outcome) {
+            outcomes.putIfAbsent(key, outcome);
+        }
+        executions.remove(key, execution);
+    }
+
+    /**
+     * Gets the number of tasks attached to the execution of an identical
+     * script
+     * 
+     * @return Deduplicated task count
+     */
+    long getDeduplicatedCount() {
+        return deduplicatedCount.get();
+    }
+
+    /**
+     * Gets the memoized outcomes cache, mainly for monitoring its counters
+     * 
+     * @return Memoized outcomes
+     */
+    LruCache<ScriptKey, Object> getOutcomes() {
+        return outcomes;
+    }
+
+    /**
+     * Identifies a script run by a given task class
+     */
+    static final class ScriptKey {
+
+        /**
+         * Task class, so that scripts of different languages never match
+         */
+        private final Class<?> taskClass;
+
+        /**
+         * Script text
+         */
+        private final String script;
+
+        /**
+         * Cached hash
+         */
+        private final int hash;
+
+        /**
+         * Constructs a new ScriptKey
+         * 
+         * @param taskClass
+         *            Task class
+         * @param script
+         *            Script text
+         */
+        ScriptKey(Class<?> taskClass, String script) {
+            this.taskClass = taskClass;
+            this.script = script;
+            this.hash = 31 * taskClass.hashCode() + script.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ScriptKey)) {
+                return false;
+            }
+            ScriptKey other = (ScriptKey) obj;
+            // Full text comparison, hash collisions never share a result
+            return hash == other.hash && taskClass == other.taskClass && script.equals(other.script);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package scheduler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+
+/**
+ * Free slots of a bounded submission queue, split into stripes so that
+ * concurrent producers rarely update the same counter. A producer takes a
+ * permit from the stripe of its thread, or from another stripe once its own
+ * is empty, and the permit goes back to the stripe it came from. The total
+ * number of permits never exceeds the capacity: a producer racing with a
+ * release may only see the queue full slightly early.
+ * <p>
+ * Producers waiting for a permit block on a lock, which the releases only
+ * take while someone waits.
+ *
+ */
+class QueuePermits {
+
+    /**
+     * Stripe of a task holding no permit
+     */
+    static final int NO_PERMIT = -1;
+
+    /**
+     * Number of counters per stripe, so that each stripe has its own cache
+     * line
+     */
+    private static final int STRIDE = 16;
+
+    /**
+     * Free permits of each stripe, the counter of a stripe at
+     * <code>(stripe + 1) * STRIDE</code>
+     */
+    private final AtomicIntegerArray freePermits;
+
+    /**
+     * Mask giving a stripe from a thread hash, the number of stripes minus one
+     */
+    private final int stripeMask;
+
+    /**
+     * Gives the stripe of the calling thread, before masking
+     */
+    private final IntSupplier stripeSelector;
+
+    /**
+     * Number of producers waiting for a permit
+     */
+    private final AtomicInteger waiters;
+
+    /**
+     * Guards the waits for a permit
+     */
+    private final ReentrantLock lock;
+
+    /**
+     * Signaled when a permit is released while producers wait
+     */
+    private final Condition released;
+
+    /**
+     * Constructs new QueuePermits
+     *
+     * @param capacity
+     *            Total number of permits, the queue capacity
+     * @param stripes
+     *            Minimum number of stripes, rounded up to a power of two
+     * @param stripeSelector
+     *            Gives the stripe of the calling thread, masked by the
+     *            number of stripes
+     */
+    QueuePermits(int capacity, int stripes, IntSupplier stripeSelector) {
+        int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(stripes, 1 << 16)) * 2 - 1);
+        this.freePermits = new AtomicIntegerArray((stripeCount + 2) * STRIDE);
+        for (int stripe = 0; stripe < stripeCount; stripe++) {
+            // Spread evenly, the first stripes getting the remainder
+            freePermits.set(index(stripe), capacity / stripeCount + (stripe < capacity % stripeCount ? 1 : 0));
+        }
+        this.stripeMask = stripeCount - 1;
+        this.stripeSelector = stripeSelector;
+        this.waiters = new AtomicInteger();
+        this.lock = new ReentrantLock();
+        this.released = lock.newCondition();
+    }
+
+    /**
+     * Gets the index of the counter of a stripe
+     *
+     * @param stripe
+     *            Stripe
+     * @return Index in {@link #freePermits}
+     */
+    private static int index(int stripe) {
+        return (stripe + 1) * STRIDE;
+    }
+
+    /**
+     * Takes a permit if one is free, starting with the stripe of the current
+     * thread
+     *
+     * @return Stripe of the permit, {@link #NO_PERMIT} if none is free
+     */
+    int tryAcquire() {
+        int firstStripe = stripeSelector.getAsInt() & stripeMask;
+        for (int i = 0; i <= stripeMask; i++) {
+            int stripe = (firstStripe + i) & stripeMask;
+            int free = freePermits.get(index(stripe));
+            while (free > 0) {
+                if (freePermits.compareAndSet(index(stripe), free, free - 1)) {
+                    return stripe;
+                }
+                free = freePermits.get(index(stripe));
+            }
+        }
+        return NO_PERMIT;
+    }
+
+    /**
+     * Takes a permit, waiting at most the given time for one to be released
+     *
+     * @param timeout
+     *            Maximum waiting time
+     * @param unit
+     *            Time unit of the timeout
+     * @return Stripe of the permit, {@link #NO_PERMIT} if none was released in
+     *         time
+     * @throws InterruptedException
+     *             If the current thread has been interrupted while waiting
+     */
+    int tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        int stripe = tryAcquire();
+        if (NO_PERMIT != stripe) {
+            return stripe;
+        }
+        long remainingNanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            // Counted before looking again, so that a release either leaves a
+            // permit to find or signals
+            waiters.incrementAndGet();
+            try {
+                while (NO_PERMIT == (stripe = tryAcquire())) {
+                    if (remainingNanos <= 0) {
+                        return NO_PERMIT;
+                    }
+                    remainingNanos = released.awaitNanos(remainingNanos);
+                }
+                return stripe;
+            } finally {
+                waiters.decrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back a permit to its stripe
+     *
+     * @param stripe
+     *            Stripe of the permit, as returned when it was taken
+     */
+    void release(int stripe) {
+        freePermits.incrementAndGet(index(stripe));
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of free permits
+     *
+     * @return Free permit count
+     */
+    int availablePermits() {
+        int available = 0;
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            available += freePermits.get(index(stripe));
+        }
+        return available;
+    }
+}
@@ -0,0 +1,25 @@
+package scheduler;
+
+import scheduler.task.Task;
+
+/**
+ * Listener notified when the TaskScheduler evicts a finished task result
+ * according to its {@link ResultRetentionPolicy}
+ *
+ */
+public interface ResultEvictionListener {
+
+    /**
+     * Called once a task has been evicted, from the thread which evicted it
+     * 
+     * @param task
+     *            Evicted task
+     * @param result
+     *            Task result, the <code>ExecutionException</code> if the task
+     *            failed, or <code>null</code> if it was cancelled or timed out
+     * @param cause
+     *            Eviction reason
+     */
+    public void resultEvicted(Task task, Object result, EvictionCause cause);
+
+}
@@ -0,0 +1,275 @@
+package scheduler;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable policy bounding the finished task results kept by the
+ * TaskScheduler until clients remove them. The oldest results are evicted
+ * first once the number of results or their estimated size exceeds the limits,
+ * or once they outlived their time to live.
+ *
+ */
+public final class ResultRetentionPolicy {
+
+    /**
+     * Policy keeping every result until removed
+     */
+    private static final ResultRetentionPolicy UNBOUNDED = builder().build();
+
+    /**
+     * Maximum number of retained results
+     */
+    private final int maxResults;
+
+    /**
+     * Maximum estimated size of the retained results, in bytes
+     */
+    private final long maxRetainedBytes;
+
+    /**
+     * Time to live of a result after its task finished, in nanoseconds
+     */
+    private final long timeToLiveNanos;
+
+    /**
+     * Listener notified of evictions, may be <code>null</code>
+     */
+    private final ResultEvictionListener evictionListener;
+
+    /**
+     * Constructs a new ResultRetentionPolicy
+     * 
+     * @param builder
+     *            Builder holding the policy
+     */
+    private ResultRetentionPolicy(Builder builder) {
+        this.maxResults = builder.maxResults;
+        this.maxRetainedBytes = builder.maxRetainedBytes;
+        this.timeToLiveNanos = builder.timeToLiveNanos;
+        this.evictionListener = builder.evictionListener;
+    }
+
+    /**
+     * Gets the policy keeping every result until removed
+     * 
+     * @return Unbounded policy
+     */
+    public static ResultRetentionPolicy unbounded() {
+        return UNBOUNDED;
+    }
+
+    /**
+     * Creates a builder initialized with an unbounded policy
+     * 
+     * @return New builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Checks if the policy sets at least one limit
+     * 
+     * @return <code>true</code> if results may be evicted, <code>false</code>
+     *         otherwise
+     */
+    public boolean isBounded() {
+        return Integer.MAX_VALUE != maxResults || Long.MAX_VALUE != maxRetainedBytes
+                || Long.MAX_VALUE != timeToLiveNanos;
+    }
+
+    /**
+     * Gets the maximum number of retained results
+     * 
+     * @return Maximum number of results
+     */
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * Gets the maximum estimated size of the retained results
+     * 
+     * @return Maximum size in bytes
+     */
+    public long getMaxRetainedBytes() {
+        return maxRetainedBytes;
+    }
+
+    /**
+     * Gets the time to live of a result after its task finished
+     * 
+     * @param unit
+     *            Time unit of the returned value
+     * @return Time to live
+     */
+    public long getTimeToLive(TimeUnit unit) {
+        return unit.convert(timeToLiveNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the listener notified of evictions
+     * 
+     * @return Eviction listener, <code>null</code> if none
+     */
+    public ResultEvictionListener getEvictionListener() {
+        return evictionListener;
+    }
+
+    /**
+     * Checks if a result finished at the given time outlived its time to live
+     * 
+     * @param completionNanos
+     *            Task completion time, from <code>System.nanoTime()</code>
+     * @param nowNanos
+     *            Current time, from <code>System.nanoTime()</code>
+     * @return <code>true</code> if the result expired, <code>false</code>
+     *         otherwise
+     */
+    boolean isExpired(long completionNanos, long nowNanos) {
+        return nowNanos - completionNanos > timeToLiveNanos;
+    }
+
+    /**
+     * Roughly estimates the memory retained by a result. Only the result
+     * itself and the direct content of strings, arrays, collections and maps
+     * are accounted.
+     * 
+     * @param result
+     *            Task result
+     * @return Estimated size in bytes
+     */
+    static long estimateBytes(Object result) {
+        if (null == result) {
+            return 0;
+        }
+        if (result instanceof CharSequence) {
+            return 40 + 2L * ((CharSequence) result).length();
+        }
+        if (result instanceof Number || result instanceof Boolean || result instanceof Character) {
+            return 24;
+        }
+        if (result.getClass().isArray()) {
+            return 16 + 8L * Array.getLength(result);
+        }
+        if (result instanceof Collection) {
+            return 48 + 32L * ((Collection<?>) result).size();
+        }
+        if (result instanceof Map) {
+            return 64 + 48L * ((Map<?, ?>) result).size();
+        }
+        if (result instanceof Throwable) {
+            return 512;
+        }
+        return 64;
+    }
+
+    @Override
+    public String toString() {
+        return "[ResultRetentionPolicy maxResults=" + maxResults + ", maxRetainedBytes=" + maxRetainedBytes
+                + ", timeToLive=" + TimeUnit.NANOSECONDS.toMillis(timeToLiveNanos) + "ms]";
+    }
+
+    /**
+     * ResultRetentionPolicy builder
+     */
+    public static final class Builder {
+
+        /**
+         * Maximum number of retained results
+         */
+        private int maxResults = Integer.MAX_VALUE;
+
+        /**
+         * Maximum estimated size of the retained results, in bytes
+         */
+        private long maxRetainedBytes = Long.MAX_VALUE;
+
+        /**
+         * Time to live of a result after its task finished, in nanoseconds
+         */
+        private long timeToLiveNanos = Long.MAX_VALUE;
+
+        /**
+         * Listener notified of evictions
+         */
+        private ResultEvictionListener evictionListener;
+
+        /**
+         * Use the builder() factory method
+         */
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum number of retained results
+         * 
+         * @param maxResults
+         *            Maximum number of results, must be positive
+         * @return This builder
+         */
+        public Builder maxResults(int maxResults) {
+            if (maxResults <= 0) {
+                throw new IllegalArgumentException("Maximum number of results must be positive: " + maxResults);
+            }
+            this.maxResults = maxResults;
+            return this;
+        }
+
+        /**
+         * Sets the maximum estimated size of the retained results
+         * 
+         * @param maxRetainedBytes
+         *            Maximum size in bytes, must be positive
+         * @return This builder
+         */
+        public Builder maxRetainedBytes(long maxRetainedBytes) {
+            if (maxRetainedBytes <= 0) {
+                throw new IllegalArgumentException("Maximum retained bytes must be positive: " + maxRetainedBytes);
+            }
+            this.maxRetainedBytes = maxRetainedBytes;
+            return this;
+        }
+
+        /**
+         * Sets the time to live of a result after its task finished
+         * 
+         * @param timeToLive
+         *            Time to live, must be positive
+         * @param unit
+         *            Time unit of the time to live
+         * @return This builder
+         */
+        public Builder timeToLive(long timeToLive, TimeUnit unit) {
+            if (timeToLive <= 0) {
+                throw new IllegalArgumentException("Time to live must be positive: " + timeToLive);
+            }
+            this.timeToLiveNanos = unit.toNanos(timeToLive);
+            return this;
+        }
+
+        /**
+         * Sets the listener notified of evictions
+         * 
+         * @param evictionListener
+         *            Eviction listener, may be <code>null</code>
+         * @return This builder
+         */
+        public Builder evictionListener(ResultEvictionListener evictionListener) {
+            this.evictionListener = evictionListener;
+            return this;
+        }
+
+        /**
+         * Builds the policy
+         * 
+         * @return New policy
+         */
+        public ResultRetentionPolicy build() {
+            return new ResultRetentionPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,970 @@
+package scheduler;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable TaskScheduler configuration, built through {@link #builder()}
+ *
+ */
+public final class SchedulerConfig {
+
+    /**
+     * System property selecting the executor backend of the default scheduler
+     */
+    public static final String EXECUTOR_PROPERTY = "scheduler.executor";
+
+    /**
+     * System property setting the parallelism of the default scheduler
+     */
+    public static final String PARALLELISM_PROPERTY = "scheduler.parallelism";
+
+    /**
+     * System property bounding the number of results retained by the default
+     * scheduler
+     */
+    public static final String RETENTION_MAX_RESULTS_PROPERTY = "scheduler.retention.maxResults";
+
+    /**
+     * System property bounding the estimated size in bytes of the results
+     * retained by the default scheduler
+     */
+    public static final String RETENTION_MAX_BYTES_PROPERTY = "scheduler.retention.maxBytes";
+
+    /**
+     * System property setting the time to live in milliseconds of the results
+     * retained by the default scheduler
+     */
+    public static final String RETENTION_TTL_PROPERTY = "scheduler.retention.ttlMillis";
+
+    /**
+     * System property setting the aging period in milliseconds of the default
+     * scheduler priority lanes
+     */
+    public static final String AGING_PROPERTY = "scheduler.agingMillis";
+
+    /**
+     * Default waiting time worth one priority level, in milliseconds
+     */
+    public static final long DEFAULT_AGING_MILLIS = 100;
+
+    /**
+     * System property setting the timer tick in milliseconds of the default
+     * scheduler
+     */
+    public static final String TIMER_TICK_PROPERTY = "scheduler.timerTickMillis";
+
+    /**
+     * Default timer tick, in milliseconds
+     */
+    public static final long DEFAULT_TIMER_TICK_MILLIS = 1;
+
+    /**
+     * System property enabling the pure task mode of the default scheduler,
+     * with the given number of memoized results
+     */
+    public static final String PURE_TASKS_MEMO_SIZE_PROPERTY = "scheduler.pureTasks.memoSize";
+
+    /**
+     * System property bounding the number of tasks waiting for a worker in the
+     * default scheduler
+     */
+    public static final String QUEUE_CAPACITY_PROPERTY = "scheduler.queueCapacity";
+
+    /**
+     * System property selecting the admission policy of the default scheduler
+     */
+    public static final String ADMISSION_POLICY_PROPERTY = "scheduler.admissionPolicy";
+
+    /**
+     * System property setting how long the default scheduler blocks a
+     * submission, in milliseconds
+     */
+    public static final String ADMISSION_TIMEOUT_PROPERTY = "scheduler.admissionTimeoutMillis";
+
+    /**
+     * System property setting the default execution timeout of the tasks run
+     * by the default scheduler, in milliseconds
+     */
+    public static final String TASK_TIMEOUT_PROPERTY = "scheduler.taskTimeoutMillis";
+
+    /**
+     * System property enabling the task journal of the default scheduler, in
+     * the given directory
+     */
+    public static final String JOURNAL_DIRECTORY_PROPERTY = "scheduler.journal.directory";
+
+    /**
+     * System property setting the journal segment size in bytes of the
+     * default scheduler
+     */
+    public static final String JOURNAL_SEGMENT_BYTES_PROPERTY = "scheduler.journal.segmentBytes";
+
+    /**
+     * System property making the default scheduler wait for its submissions
+     * to be journaled on disk
+     */
+    public static final String JOURNAL_SYNC_PROPERTY = "scheduler.journal.sync";
+
+    /**
+     * Default journal segment size, in bytes
+     */
+    public static final long DEFAULT_JOURNAL_SEGMENT_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * System property running the script tasks of the default scheduler on
+     * the given number of worker processes
+     */
+    public static final String REMOTE_WORKERS_PROPERTY = "scheduler.remoteWorkers";
+
+    /**
+     * System property setting the worker heartbeat timeout of the default
+     * scheduler, in milliseconds
+     */
+    public static final String REMOTE_HEARTBEAT_TIMEOUT_PROPERTY = "scheduler.remoteWorkers.heartbeatTimeoutMillis";
+
+    /**
+     * Default worker heartbeat timeout, in milliseconds
+     */
+    public static final long DEFAULT_REMOTE_HEARTBEAT_TIMEOUT_MILLIS = 3000;
+
+    /**
+     * System property keeping the compiled Groovy scripts of the default
+     * scheduler on disk, in the given directory
+     */
+    public static final String BYTECODE_CACHE_PROPERTY = "scheduler.groovy.bytecodeCache";
+
+    /**
+     * Capacity of an unbounded submission queue
+     */
+    public static final int UNBOUNDED_QUEUE_CAPACITY = Integer.MAX_VALUE;
+
+    /**
+     * Executor backend
+     */
+    private final ExecutorBackend executorBackend;
+
+    /**
+     * Number of tasks allowed to run at the same time
+     */
+    private final int parallelism;
+
+    /**
+     * Finished task results retention policy
+     */
+    private final ResultRetentionPolicy retentionPolicy;
+
+    /**
+     * Waiting time worth one priority level, in nanoseconds
+     */
+    private final long agingNanos;
+
+    /**
+     * Timer tick, in nanoseconds
+     */
+    private final long timerTickNanos;
+
+    /**
+     * Maximum number of memoized script results, 0 out of pure task mode
+     */
+    private final int memoCacheSize;
+
+    /**
+     * Maximum number of tasks waiting for a worker
+     */
+    private final int queueCapacity;
+
+    /**
+     * Policy applied to the tasks submitted while the queue is full
+     */
+    private final AdmissionPolicy admissionPolicy;
+
+    /**
+     * Maximum time a submission blocks, in nanoseconds
+     */
+    private final long admissionTimeoutNanos;
+
+    /**
+     * Default execution timeout of the tasks, in nanoseconds, 0 if none
+     */
+    private final long taskTimeoutNanos;
+
+    /**
+     * Task journal directory, <code>null</code> if not journaled
+     */
+    private final Path journalDirectory;
+
+    /**
+     * Size beyond which a journal segment is rolled, in bytes
+     */
+    private final long journalSegmentBytes;
+
+    /**
+     * Whether submissions wait for their journal record to be on disk
+     */
+    private final boolean journalSync;
+
+    /**
+     * Number of worker processes running the script tasks, 0 to run them in
+     * process
+     */
+    private final int remoteWorkers;
+
+    /**
+     * Time without news from a worker process after which it is replaced, in
+     * nanoseconds
+     */
+    private final long remoteHeartbeatTimeoutNanos;
+
+    /**
+     * Extra arguments of the worker process JVMs
+     */
+    private final List<String> remoteWorkerJvmArguments;
+
+    /**
+     * Directory of the compiled Groovy scripts kept on disk, <code>null</code>
+     * if none
+     */
+    private final Path bytecodeCacheDirectory;
+
+    /**
+     * Constructs a new SchedulerConfig
+     * 
+     * @param builder
+     *            Builder holding the configuration
+     */
+    private SchedulerConfig(Builder builder) {
+        this.executorBackend = builder.executorBackend;
+        this.parallelism = builder.parallelism;
+        this.retentionPolicy = builder.retentionPolicy;
+        this.agingNanos = builder.agingNanos;
+        this.timerTickNanos = builder.timerTickNanos;
+        this.memoCacheSize = builder.memoCacheSize;
+        this.queueCapacity = builder.queueCapacity;
+        this.admissionPolicy = builder.admissionPolicy;
+        this.admissionTimeoutNanos = builder.admissionTimeoutNanos;
+        this.taskTimeoutNanos = builder.taskTimeoutNanos;
+        this.journalDirectory = builder.journalDirectory;
+        this.journalSegmentBytes = builder.journalSegmentBytes;
+        this.journalSync = builder.journalSync;
+        this.remoteWorkers = builder.remoteWorkers;
+        this.remoteHeartbeatTimeoutNanos = builder.remoteHeartbeatTimeoutNanos;
+        this.remoteWorkerJvmArguments = Collections.unmodifiableList(new ArrayList<String>(
+                builder.remoteWorkerJvmArguments));
+        this.bytecodeCacheDirectory = builder.bytecodeCacheDirectory;
+    }
+
+    /**
+     * Creates a builder initialized with the default configuration: a fixed
+     * thread pool sized to the number of processors
+     * 
+     * @return New builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates the configuration of the default scheduler from the system
+     * properties, falling back to the default configuration
+     * 
+     * @return Default scheduler configuration
+     * @throws IllegalArgumentException
+     *             If a system property holds an invalid value
+     */
+    public static SchedulerConfig fromSystemProperties() {
+        Builder builder = builder();
+        String executorBackend = System.getProperty(EXECUTOR_PROPERTY);
+        if (null != executorBackend) {
+            builder.executorBackend(ExecutorBackend.valueOf(executorBackend.trim().toUpperCase()));
+        }
+        Integer parallelism = Integer.getInteger(PARALLELISM_PROPERTY);
+        if (null != parallelism) {
+            builder.parallelism(parallelism);
+        }
+
+        ResultRetentionPolicy.Builder retentionPolicy = ResultRetentionPolicy.builder();
+        Integer maxResults = Integer.getInteger(RETENTION_MAX_RESULTS_PROPERTY);
+        if (null != maxResults) {
+            retentionPolicy.maxResults(maxResults);
+        }
+        Long maxRetainedBytes = Long.getLong(RETENTION_MAX_BYTES_PROPERTY);
+        if (null != maxRetainedBytes) {
+            retentionPolicy.maxRetainedBytes(maxRetainedBytes);
+        }
+        Long timeToLive = Long.getLong(RETENTION_TTL_PROPERTY);
+        if (null != timeToLive) {
+            retentionPolicy.timeToLive(timeToLive, TimeUnit.MILLISECONDS);
+        }
+        builder.retentionPolicy(retentionPolicy.build());
+
+        Long aging = Long.getLong(AGING_PROPERTY);
+        if (null != aging) {
+            builder.aging(aging, TimeUnit.MILLISECONDS);
+        }
+        Long timerTick = Long.getLong(TIMER_TICK_PROPERTY);
+        if (null != timerTick) {
+            builder.timerTick(timerTick, TimeUnit.MILLISECONDS);
+        }
+        Integer memoCacheSize = Integer.getInteger(PURE_TASKS_MEMO_SIZE_PROPERTY);
+        if (null != memoCacheSize) {
+            builder.pureTasks(memoCacheSize);
+        }
+
+        Integer queueCapacity = Integer.getInteger(QUEUE_CAPACITY_PROPERTY);
+        if (null != queueCapacity) {
+            builder.queueCapacity(queueCapacity);
+        }
+        String admissionPolicy = System.getProperty(ADMISSION_POLICY_PROPERTY);
+        if (null != admissionPolicy) {
+            builder.admissionPolicy(AdmissionPolicy.valueOf(admissionPolicy.trim().toUpperCase()));
+        }
+        Long admissionTimeout = Long.getLong(ADMISSION_TIMEOUT_PROPERTY);
+        if (null != admissionTimeout) {
+            builder.admissionTimeout(admissionTimeout, TimeUnit.MILLISECONDS);
+        }
+
+        Long taskTimeout = Long.getLong(TASK_TIMEOUT_PROPERTY);
+        if (null != taskTimeout) {
+            builder.taskTimeout(taskTimeout, TimeUnit.MILLISECONDS);
+        }
+
+        String journalDirectory = System.getProperty(JOURNAL_DIRECTORY_PROPERTY);
+        if (null != journalDirectory) {
+            builder.journal(Paths.get(journalDirectory.trim()));
+        }
+        Long journalSegmentBytes = Long.getLong(JOURNAL_SEGMENT_BYTES_PROPERTY);
+        if (null != journalSegmentBytes) {
+            builder.journalSegmentBytes(journalSegmentBytes);
+        }
+        builder.journalSync(Boolean.getBoolean(JOURNAL_SYNC_PROPERTY));
+
+        Integer remoteWorkers = Integer.getInteger(REMOTE_WORKERS_PROPERTY);
+        if (null != remoteWorkers) {
+            builder.remoteWorkers(remoteWorkers);
+        }
+        Long remoteHeartbeatTimeout = Long.getLong(REMOTE_HEARTBEAT_TIMEOUT_PROPERTY);
+        if (null != remoteHeartbeatTimeout) {
+            builder.remoteHeartbeatTimeout(remoteHeartbeatTimeout, TimeUnit.MILLISECONDS);
+        }
+
+        String bytecodeCacheDirectory = System.getProperty(BYTECODE_CACHE_PROPERTY);
+        if (null != bytecodeCacheDirectory) {
+            builder.bytecodeCache(Paths.get(bytecodeCacheDirectory.trim()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Gets the executor backend
+     * 
+     * @return Executor backend
+     */
+    public ExecutorBackend getExecutorBackend() {
+        return executorBackend;
+    }
+
+    /**
+     * Gets the number of tasks allowed to run at the same time
+     * 
+     * @return Parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Gets the finished task results retention policy
+     * 
+     * @return Retention policy
+     */
+    public ResultRetentionPolicy getRetentionPolicy() {
+        return retentionPolicy;
+    }
+
+    /**
+     * Gets the waiting time worth one priority level
+     * 
+     * @param unit
+     *            Time unit of the returned value
+     * @return Aging period
+     */
+    public long getAging(TimeUnit unit) {
+        return unit.convert(agingNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the tick of the timer running the delayed and periodic tasks
+     * 
+     * @param unit
+     *            Time unit of the returned value
+     * @return Timer tick
+     */
+    public long getTimerTick(TimeUnit unit) {
+        return unit.convert(timerTickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Tells whether script tasks are considered pure: identical scripts share
+     * their execution and their results are memoized
+     * 
+     * @return <code>true</code> in pure task mode
+     */
+    public boolean isPureTasks() {
+        return memoCacheSize > 0;
+    }
+
+    /**
+     * Gets the maximum number of memoized script results
+     * 
+     * @return Memo cache size, 0 out of pure task mode
+     */
+    public int getMemoCacheSize() {
+        return memoCacheSize;
+    }
+
+    /**
+     * Gets the maximum number of tasks waiting for a worker
+     * 
+     * @return Queue capacity, <code>UNBOUNDED_QUEUE_CAPACITY</code> if
+     *         unbounded
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Tells whether the number of tasks waiting for a worker is bounded
+     * 
+     * @return <code>true</code> if the queue is bounded
+     */
+    public boolean isQueueBounded() {
+        return UNBOUNDED_QUEUE_CAPACITY != queueCapacity;
+    }
+
+    /**
+     * Gets the policy applied to the tasks submitted while the queue is full
+     * 
+     * @return Admission policy
+     */
+    public AdmissionPolicy getAdmissionPolicy() {
+        return admissionPolicy;
+    }
+
+    /**
+     * Gets the maximum time a submission blocks with the
+     * {@link AdmissionPolicy#BLOCK} policy
+     * 
+     * @param unit
+     *            Time unit of the returned value
+     * @return Admission timeout
+     */
+    public long getAdmissionTimeout(TimeUnit unit) {
+        return unit.convert(admissionTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the default execution timeout of the tasks, applied to the tasks
+     * submitted without a timeout of their own
+     * 
+     * @param unit
+     *            Time unit of the returned value
+     * @return Task timeout, 0 if the tasks run without limit
+     */
+    public long getTaskTimeout(TimeUnit unit) {
+        return unit.convert(taskTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Tells whether the submitted tasks are journaled, so that a restarted
+     * scheduler recovers them
+     * 
+     * @return <code>true</code> if a journal directory is set
+     */
+    public boolean isJournaled() {
+        return null != journalDirectory;
+    }
+
+    /**
+     * Gets the task journal directory
+     * 
+     * @return Journal directory, <code>null</code> if not journaled
+     */
+    public Path getJournalDirectory() {
+        return journalDirectory;
+    }
+
+    /**
+     * Gets the size beyond which a journal segment is rolled
+     * 
+     * @return Segment size, in bytes
+     */
+    public long getJournalSegmentBytes() {
+        return journalSegmentBytes;
+    }
+
+    /**
+     * Tells whether submissions wait for their journal record to be on disk
+     * 
+     * @return <code>true</code> if submissions are durable once accepted
+     */
+    public boolean isJournalSync() {
+        return journalSync;
+    }
+
+    /**
+     * Gets the number of worker processes running the script tasks
+     * 
+     * @return Worker process count, 0 if script tasks run in process
+     */
+    public int getRemoteWorkers() {
+        return remoteWorkers;
+    }
+
+    /**
+     * Gets the time without news from a worker process after which it is
+     * replaced
+     * 
+     * @param unit
+     *            Time unit of the returned value
+     * @return Heartbeat timeout
+     */
+    public long getRemoteHeartbeatTimeout(TimeUnit unit) {
+        return unit.convert(remoteHeartbeatTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the extra arguments of the worker process JVMs
+     * 
+     * @return Unmodifiable list of JVM arguments
+     */
+    public List<String> getRemoteWorkerJvmArguments() {
+        return remoteWorkerJvmArguments;
+    }
+
+    /**
+     * Gets the directory of the compiled Groovy scripts kept on disk
+     * 
+     * @return Bytecode cache directory, <code>null</code> if none
+     */
+    public Path getBytecodeCacheDirectory() {
+        return bytecodeCacheDirectory;
+    }
+
+    @Override
+    public String toString() {
+        return "[SchedulerConfig executor=" + executorBackend + ", parallelism=" + parallelism + ", retention="
+                + retentionPolicy + ", aging=" + TimeUnit.NANOSECONDS.toMillis(agingNanos) + "ms, timerTick="
+                + TimeUnit.NANOSECONDS.toMillis(timerTickNanos) + "ms, memoCacheSize=" + memoCacheSize
+                + ", queueCapacity=" + queueCapacity + ", admission=" + admissionPolicy + ", taskTimeout="
+                + TimeUnit.NANOSECONDS.toMillis(taskTimeoutNanos) + "ms, journal=" + journalDirectory
+                + ", remoteWorkers=" + remoteWorkers + ", bytecodeCache=" + bytecodeCacheDirectory + "]";
+    }
+
+    /**
+     * SchedulerConfig builder
+     */
+    public static final class Builder {
+
+        /**
+         * Executor backend
+         */
+        private ExecutorBackend executorBackend = ExecutorBackend.FIXED;
+
+        /**
+         * Number of tasks allowed to run at the same time
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Finished task results retention policy
+         */
+        private ResultRetentionPolicy retentionPolicy = ResultRetentionPolicy.unbounded();
+
+        /**
+         * Waiting time worth one priority level, in nanoseconds
+         */
+        private long agingNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_AGING_MILLIS);
+
+        /**
+         * Timer tick, in nanoseconds
+         */
+        private long timerTickNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIMER_TICK_MILLIS);
+
+        /**
+         * Maximum number of memoized script results, 0 out of pure task mode
+         */
+        private int memoCacheSize;
+
+        /**
+         * Maximum number of tasks waiting for a worker
+         */
+        private int queueCapacity = UNBOUNDED_QUEUE_CAPACITY;
+
+        /**
+         * Policy applied to the tasks submitted while the queue is full
+         */
+        private AdmissionPolicy admissionPolicy = AdmissionPolicy.BLOCK;
+
+        /**
+         * Maximum time a submission blocks, in nanoseconds
+         */
+        private long admissionTimeoutNanos = Long.MAX_VALUE;
+
+        /**
+         * Default execution timeout of the tasks, in nanoseconds, 0 if none
+         */
+        private long taskTimeoutNanos;
+
+        /**
+         * Task journal directory, <code>null</code> if not journaled
+         */
+        private Path journalDirectory;
+
+        /**
+         * Size beyond which a journal segment is rolled, in bytes
+         */
+        private long journalSegmentBytes = DEFAULT_JOURNAL_SEGMENT_BYTES;
+
+        /**
+         * Whether submissions wait for their journal record to be on disk
+         */
+        private boolean journalSync;
+
+        /**
+         * Number of worker processes running the script tasks, 0 to run them
+         * in process
+         */
+        private int remoteWorkers;
+
+        /**
+         * Time without news from a worker process after which it is replaced,
+         * in nanoseconds
+         */
+        private long remoteHeartbeatTimeoutNanos = TimeUnit.MILLISECONDS
+                .toNanos(DEFAULT_REMOTE_HEARTBEAT_TIMEOUT_MILLIS);
+
+        /**
+         * Extra arguments of the worker process JVMs
+         */
+        private List<String> remoteWorkerJvmArguments = Collections.emptyList();
+
+        /**
+         * Directory of the compiled Groovy scripts kept on disk,
+         * <code>null</code> if none
+         */
+        private Path bytecodeCacheDirectory;
+
+        /**
+         * Use the builder() factory method
+         */
+        private Builder() {
+        }
+
+        /**
+         * Sets the executor backend
+         * 
+         * @param executorBackend
+         *            Executor backend
+         * @return This builder
+         */
+        public Builder executorBackend(ExecutorBackend executorBackend) {
+            if (null == executorBackend) {
+                throw new IllegalArgumentException("Executor backend is null");
+            }
+            this.executorBackend = executorBackend;
+            return this;
+        }
+
+        /**
+         * Sets the number of tasks allowed to run at the same time
+         * 
+         * @param parallelism
+         *            Parallelism, must be positive
+         * @return This builder
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Sets the finished task results retention policy
+         * 
+         * @param retentionPolicy
+         *            Retention policy
+         * @return This builder
+         */
+        public Builder retentionPolicy(ResultRetentionPolicy retentionPolicy) {
+            if (null == retentionPolicy) {
+                throw new IllegalArgumentException("Retention policy is null");
+            }
+            this.retentionPolicy = retentionPolicy;
+            return this;
+        }
+
+        /**
+         * Sets the waiting time worth one priority level: a task waiting that
+         * long in its lane is started before the newer tasks of the lane just
+         * above
+         * 
+         * @param aging
+         *            Aging period, must be positive
+         * @param unit
+         *            Time unit of the aging period
+         * @return This builder
+         */
+        public Builder aging(long aging, TimeUnit unit) {
+            if (aging <= 0) {
+                throw new IllegalArgumentException("Aging period must be positive: " + aging);
+            }
+            this.agingNanos = unit.toNanos(aging);
+            return this;
+        }
+
+        /**
+         * Sets the tick of the timer running the delayed and periodic tasks:
+         * their start time is rounded up to the next tick
+         * 
+         * @param timerTick
+         *            Timer tick, must be positive
+         * @param unit
+         *            Time unit of the timer tick
+         * @return This builder
+         */
+        public Builder timerTick(long timerTick, TimeUnit unit) {
+            if (timerTick <= 0) {
+                throw new IllegalArgumentException("Timer tick must be positive: " + timerTick);
+            }
+            this.timerTickNanos = unit.toNanos(timerTick);
+            return this;
+        }
+
+        /**
+         * Enables the pure task mode: script tasks are assumed to only depend
+         * on their script text. A script task submitted while an identical
+         * script is running shares that execution, and successful results are
+         * memoized in a cache evicting the least recently used first.
+         * 
+         * @param memoCacheSize
+         *            Maximum number of memoized results, must be positive
+         * @return This builder
+         */
+        public Builder pureTasks(int memoCacheSize) {
+            if (memoCacheSize <= 0) {
+                throw new IllegalArgumentException("Memo cache size must be positive: " + memoCacheSize);
+            }
+            this.memoCacheSize = memoCacheSize;
+            return this;
+        }
+
+        /**
+         * Bounds the number of tasks waiting for a worker. Running tasks, and
+         * tasks sharing the execution of an identical pure script, do not
+         * count.
+         * 
+         * @param queueCapacity
+         *            Queue capacity, must be positive
+         * @return This builder
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Sets the policy applied to the tasks submitted while the queue is
+         * full
+         * 
+         * @param admissionPolicy
+         *            Admission policy
+         * @return This builder
+         */
+        public Builder admissionPolicy(AdmissionPolicy admissionPolicy) {
+            if (null == admissionPolicy) {
+                throw new IllegalArgumentException("Admission policy is null");
+            }
+            this.admissionPolicy = admissionPolicy;
+            return this;
+        }
+
+        /**
+         * Sets the maximum time a submission blocks with the
+         * {@link AdmissionPolicy#BLOCK} policy. Blocks without limit by
+         * default.
+         * 
+         * @param admissionTimeout
+         *            Admission timeout, must be positive
+         * @param unit
+         *            Time unit of the admission timeout
+         * @return This builder
+         */
+        public Builder admissionTimeout(long admissionTimeout, TimeUnit unit) {
+            if (admissionTimeout <= 0) {
+                throw new IllegalArgumentException("Admission timeout must be positive: " + admissionTimeout);
+            }
+            this.admissionTimeoutNanos = unit.toNanos(admissionTimeout);
+            return this;
+        }
+
+        /**
+         * Sets the default execution timeout of the tasks, measured from the
+         * time a worker starts the task. A task still running at its timeout
+         * is interrupted and ends in the {@link TaskState#TIMED_OUT} state.
+         * Tasks run without limit by default.
+         * 
+         * @param taskTimeout
+         *            Task timeout, must be positive
+         * @param unit
+         *            Time unit of the task timeout
+         * @return This builder
+         */
+        public Builder taskTimeout(long taskTimeout, TimeUnit unit) {
+            if (taskTimeout <= 0) {
+                throw new IllegalArgumentException("Task timeout must be positive: " + taskTimeout);
+            }
+            this.taskTimeoutNanos = unit.toNanos(taskTimeout);
+            return this;
+        }
+
+        /**
+         * Journals the submitted tasks in the given directory. A scheduler
+         * opening a journal rebuilds the tasks it holds: finished tasks with
+         * their result, and pending tasks which are run again. Only
+         * serializable tasks are journaled; delayed, periodic and graph tasks
+         * are not.
+         * 
+         * @param journalDirectory
+         *            Journal directory, created if needed
+         * @return This builder
+         */
+        public Builder journal(Path journalDirectory) {
+            if (null == journalDirectory) {
+                throw new IllegalArgumentException("Journal directory is null");
+            }
+            this.journalDirectory = journalDirectory;
+            return this;
+        }
+
+        /**
+         * Sets the size beyond which a journal segment is rolled. Sealed
+         * segments are compacted in the background.
+         * 
+         * @param journalSegmentBytes
+         *            Segment size, in bytes, must be positive
+         * @return This builder
+         */
+        public Builder journalSegmentBytes(long journalSegmentBytes) {
+            if (journalSegmentBytes <= 0) {
+                throw new IllegalArgumentException("Journal segment size must be positive: " + journalSegmentBytes);
+            }
+            this.journalSegmentBytes = journalSegmentBytes;
+            return this;
+        }
+
+        /**
+         * Makes the submissions wait for their journal record to be on disk.
+         * Records are written by batches with a single disk sync, so
+         * concurrent submissions share the wait. By default, submissions do
+         * not wait and a crash loses the last few milliseconds of them.
+         * 
+         * @param journalSync
+         *            <code>true</code> to wait for the disk
+         * @return This builder
+         */
+        public Builder journalSync(boolean journalSync) {
+            this.journalSync = journalSync;
+            return this;
+        }
+
+        /**
+         * Runs the script tasks on the given number of worker processes
+         * instead of the scheduler JVM. The scheduler parallelism is spread
+         * over the workers. A worker which exits or stops sending heartbeats
+         * is replaced, and its tasks are run again on the other workers.
+         * Script tasks run in process by default.
+         * 
+         * @param remoteWorkers
+         *            Number of worker processes, 0 to run the script tasks in
+         *            process
+         * @return This builder
+         */
+        public Builder remoteWorkers(int remoteWorkers) {
+            if (remoteWorkers < 0) {
+                throw new IllegalArgumentException("Remote worker count must not be negative: " + remoteWorkers);
+            }
+            this.remoteWorkers = remoteWorkers;
+            return this;
+        }
+
+        /**
+         * Sets the time without news from a worker process after which it is
+         * replaced. Workers send a heartbeat four times per timeout.
+         * 
+         * @param heartbeatTimeout
+         *            Heartbeat timeout, must be positive
+         * @param unit
+         *            Time unit of the heartbeat timeout
+         * @return This builder
+         */
+        public Builder remoteHeartbeatTimeout(long heartbeatTimeout, TimeUnit unit) {
+            if (heartbeatTimeout <= 0) {
+                throw new IllegalArgumentException("Heartbeat timeout must be positive: " + heartbeatTimeout);
+            }
+            this.remoteHeartbeatTimeoutNanos = unit.toNanos(heartbeatTimeout);
+            return this;
+        }
+
+        /**
+         * Sets the extra arguments of the worker process JVMs, e.g. their heap
+         * size. Workers use the class path of the scheduler JVM.
+         * 
+         * @param jvmArguments
+         *            JVM arguments
+         * @return This builder
+         */
+        public Builder remoteWorkerJvmArguments(String... jvmArguments) {
+            this.remoteWorkerJvmArguments = Arrays.asList(jvmArguments.clone());
+            return this;
+        }
+
+        /**
+         * Keeps the classes compiled from the Groovy scripts of the
+         * {@link scheduler.task.impl.CompiledGroovyTask} tasks in the given
+         * directory, shared by the whole JVM. A starting scheduler loads the
+         * scripts found there in the background, so that a restarted process
+         * neither compiles nor loads them on its first tasks.
+         * 
+         * @param bytecodeCacheDirectory
+         *            Bytecode cache directory, created if needed
+         * @return This builder
+         */
+        public Builder bytecodeCache(Path bytecodeCacheDirectory) {
+            if (null == bytecodeCacheDirectory) {
+                throw new IllegalArgumentException("Bytecode cache directory is null");
+            }
+            this.bytecodeCacheDirectory = bytecodeCacheDirectory;
+            return this;
+        }
+
+        /**
+         * Builds the configuration
+         * 
+         * @return New configuration
+         */
+        public SchedulerConfig build() {
+            return new SchedulerConfig(this);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.stream.Collector;
+
+import scheduler.task.Task;
+
+/**
+ * Reduction of the results of the tasks submitted through
+ * {@link TaskScheduler#submitReduce(java.util.Collection, Collector)}. Each
+ * worker folds the results it computes into a container of its own stripe,
+ * so that workers rarely contend, and the stripes are combined once the last
+ * task has finished.
+ *
+ * @param <A>
+ *            Mutable accumulation type of the collector
+ * @param <R>
+ *            Reduced value type
+ */
+class StripedReduction<A, R> {
+
+    /**
+     * Scheduler running the tasks
+     */
+    private final TaskScheduler taskScheduler;
+
+    /**
+     * Collector folding the task results
+     */
+    private final Collector<Object, A, R> collector;
+
+    /**
+     * Accumulator of the collector
+     */
+    private final BiConsumer<A, Object> accumulator;
+
+    /**
+     * Containers, indexed by worker thread id. Each one is guarded by its
+     * stripe.
+     */
+    private final Stripe<A>[] stripes;
+
+    /**
+     * Tasks of the reduction, to cancel them on failure
+     */
+    private final List<Task> tasks;
+
+    /**
+     * Futures of the tasks, in the same order
+     */
+    private final List<CompletableFuture<Object>> futures;
+
+    /**
+     * Number of tasks not finished yet
+     */
+    private final AtomicInteger pendingCount;
+
+    /**
+     * Future completed with the reduced value, or with the first task failure
+     */
+    private final CompletableFuture<R> future;
+
+    /**
+     * Constructs a new StripedReduction
+     *
+     * @param taskScheduler
+     *            Scheduler running the tasks
+     * @param collector
+     *            Collector folding the task results
+     * @param stripeCount
+     *            Number of stripes, usually the number of workers
+     * @param size
+     *            Number of tasks
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    StripedReduction(TaskScheduler taskScheduler, Collector<Object, A, R> collector, int stripeCount, int size) {
+        this.taskScheduler = taskScheduler;
+        this.collector = collector;
+        this.accumulator = collector.accumulator();
+        this.stripes = new Stripe[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe<A>();
+        }
+        this.tasks = new ArrayList<Task>(size);
+        this.futures = new ArrayList<CompletableFuture<Object>>(size);
+        this.pendingCount = new AtomicInteger(size);
+        this.future = new CompletableFuture<R>();
+        this.future.whenComplete((result, failure) -> {
+            if (null != failure) {
+                cancelTasks();
+            }
+        });
+        if (0 == size) {
+            complete();
+        }
+    }
+
+    /**
+     * Adds a task to the reduction. Must be called for every task before any
+     * of them is executed.
+     *
+     * @param task
+     *            Task
+     * @param taskFuture
+     *            Task future
+     */
+    void add(Task task, CompletableFuture<Object> taskFuture) {
+        tasks.add(task);
+        futures.add(taskFuture);
+    }
+
+    /**
+     * Folds the outcome of a task, on the worker which has run it
+     *
+     * @param result
+     *            Task result
+     * @param failure
+     *            Task failure, <code>null</code> if it succeeded
+     */
+    void finished(Object result, Throwable failure) {
+        if (null != failure) {
+            future.completeExceptionally(failure);
+            return;
+        }
+        if (future.isDone()) {
+            return;
+        }
+        Stripe<A> stripe = stripes[(int) (Thread.currentThread().getId() % stripes.length)];
+        try {
+            synchronized (stripe) {
+                if (null == stripe.container) {
+                    stripe.container = collector.supplier().get();
+                }
+                accumulator.accept(stripe.container, result);
+            }
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            return;
+        }
+        if (0 == pendingCount.decrementAndGet()) {
+            complete();
+        }
+    }
+
+    /**
+     * Combines the stripes and completes the future, once every task has
+     * been folded
+     */
+    private void complete() {
+        try {
+            A merged = null;
+            for (Stripe<A> stripe : stripes) {
+                synchronized (stripe) {
+                    if (null != stripe.container) {
+                        merged = null == merged ? stripe.container : collector.combiner().apply(merged,
+                                stripe.container);
+                    }
+                }
+            }
+            future.complete(collector.finisher().apply(null == merged ? collector.supplier().get() : merged));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Cancels the tasks not finished yet
+     */
+    private void cancelTasks() {
+        for (int i = 0; i < tasks.size(); i++) {
+            if (!futures.get(i).isDone()) {
+                taskScheduler.cancel(tasks.get(i), futures.get(i));
+            }
+        }
+    }
+
+    /**
+     * Gets the future of the reduced value
+     *
+     * @return Future completed with the reduced value
+     */
+    CompletableFuture<R> getFuture() {
+        return future;
+    }
+
+    /**
+     * Container of a stripe
+     *
+     * @param <A>
+     *            Mutable accumulation type of the collector
+     */
+    private static final class Stripe<A> {
+
+        /**
+         * Partial result, <code>null</code> until the stripe receives a
+         * result
+         */
+        private A container;
+    }
+}
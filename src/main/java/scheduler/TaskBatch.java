@@ -0,0 +1,283 @@
+package scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import scheduler.exception.SchedulerException;
+import scheduler.task.Task;
+
+/**
+ * Handle on a group of tasks submitted together through
+ * {@link TaskScheduler#submitAll(java.util.Collection)}. Allows to follow the
+ * progress of the whole group, wait for it, collect its results and remove or
+ * cancel it in one call.
+ *
+ */
+public class TaskBatch {
+
+    /**
+     * Scheduler running the tasks
+     */
+    private final TaskScheduler taskScheduler;
+
+    /**
+     * Futures of the tasks, in submission order
+     */
+    private final Map<Task, CompletableFuture<Object>> futures;
+
+    /**
+     * Number of finished tasks
+     */
+    private final AtomicInteger completedCount;
+
+    /**
+     * Released once every task is finished
+     */
+    private final CountDownLatch allDone;
+
+    /**
+     * Completed with the first finished task
+     */
+    private final CompletableFuture<Task> anyDone;
+
+    /**
+     * Constructs a new TaskBatch
+     * 
+     * @param taskScheduler
+     *            Scheduler running the tasks
+     * @param size
+     *            Number of tasks in the batch
+     */
+    TaskBatch(TaskScheduler taskScheduler, int size) {
+        this.taskScheduler = taskScheduler;
+        this.futures = new LinkedHashMap<Task, CompletableFuture<Object>>(size * 4 / 3 + 1);
+        this.completedCount = new AtomicInteger();
+        this.allDone = new CountDownLatch(size);
+        this.anyDone = new CompletableFuture<Task>();
+    }
+
+    /**
+     * Adds a task to the batch. Must be called for every task before any of
+     * them is executed.
+     * 
+     * @param task
+     *            Task
+     * @param future
+     *            Task future
+     */
+    void add(final Task task, CompletableFuture<Object> future) {
+        futures.put(task, future);
+        future.whenComplete((result, error) -> {
+            completedCount.incrementAndGet();
+            anyDone.complete(task);
+            allDone.countDown();
+        });
+    }
+
+    /**
+     * Gets the tasks of the batch
+     * 
+     * @return Tasks, in submission order
+     */
+    public List<Task> getTasks() {
+        return Collections.unmodifiableList(new ArrayList<Task>(futures.keySet()));
+    }
+
+    /**
+     * Gets the number of tasks in the batch
+     * 
+     * @return Number of tasks
+     */
+    public int size() {
+        return futures.size();
+    }
+
+    /**
+     * Gets the number of finished tasks, including the failed and cancelled
+     * ones
+     * 
+     * @return Number of finished tasks
+     */
+    public int getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * Checks if every task of the batch is finished
+     * 
+     * @return <code>true</code> if every task is finished, <code>false</code>
+     *         otherwise
+     */
+    public boolean isDone() {
+        return 0 == allDone.getCount();
+    }
+
+    /**
+     * Waits until every task of the batch is finished
+     * 
+     * @throws SchedulerException
+     *             If the current thread has been interrupted while waiting
+     */
+    public void awaitAll() throws SchedulerException {
+        try {
+            allDone.await();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SchedulerException("Interrupted while waiting for the batch", ie);
+        }
+    }
+
+    /**
+     * Waits until every task of the batch is finished or the timeout elapsed
+     * 
+     * @param timeout
+     *            Maximum time to wait
+     * @param unit
+     *            Time unit of the timeout
+     * @return <code>true</code> if every task is finished, <code>false</code>
+     *         if the timeout elapsed
+     * @throws SchedulerException
+     *             If the current thread has been interrupted while waiting
+     */
+    public boolean awaitAll(long timeout, TimeUnit unit) throws SchedulerException {
+        try {
+            return allDone.await(timeout, unit);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SchedulerException("Interrupted while waiting for the batch", ie);
+        }
+    }
+
+    /**
+     * Waits until a task of the batch is finished
+     * 
+     * @return The first finished task, <code>null</code> if the batch is empty
+     * @throws SchedulerException
+     *             If the current thread has been interrupted while waiting
+     */
+    public Task awaitAny() throws SchedulerException {
+        if (futures.isEmpty()) {
+            return null;
+        }
+        try {
+            return anyDone.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SchedulerException("Interrupted while waiting for the batch", ie);
+        } catch (ExecutionException ee) {
+            throw new SchedulerException("Failed to wait for the batch", ee);
+        }
+    }
+
+    /**
+     * Waits until a task of the batch is finished or the timeout elapsed
+     * 
+     * @param timeout
+     *            Maximum time to wait
+     * @param unit
+     *            Time unit of the timeout
+     * @return The first finished task, <code>null</code> if the batch is empty
+     *         or the timeout elapsed
+     * @throws SchedulerException
+     *             If the current thread has been interrupted while waiting
+     */
+    public Task awaitAny(long timeout, TimeUnit unit) throws SchedulerException {
+        if (futures.isEmpty()) {
+            return null;
+        }
+        try {
+            return anyDone.get(timeout, unit);
+        } catch (TimeoutException te) {
+            return null;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SchedulerException("Interrupted while waiting for the batch", ie);
+        } catch (ExecutionException ee) {
+            throw new SchedulerException("Failed to wait for the batch", ee);
+        }
+    }
+
+    /**
+     * Collects the results of the tasks which finished successfully
+     * 
+     * @return Results by task, in submission order
+     */
+    public Map<Task, Object> getResults() {
+        Map<Task, Object> results = new LinkedHashMap<Task, Object>();
+        for (Map.Entry<Task, CompletableFuture<Object>> entry : futures.entrySet()) {
+            CompletableFuture<Object> future = entry.getValue();
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                results.put(entry.getKey(), future.join());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Collects the failures of the tasks which finished in error or have been
+     * cancelled
+     * 
+     * @return Failures by task, in submission order
+     */
+    public Map<Task, Throwable> getFailures() {
+        Map<Task, Throwable> failures = new LinkedHashMap<Task, Throwable>();
+        for (Map.Entry<Task, CompletableFuture<Object>> entry : futures.entrySet()) {
+            CompletableFuture<Object> future = entry.getValue();
+            if (future.isCompletedExceptionally()) {
+                try {
+                    future.join();
+                } catch (RuntimeException re) {
+                    failures.put(entry.getKey(), null == re.getCause() ? re : re.getCause());
+                }
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Removes the finished tasks of the batch from the scheduler
+     * 
+     * @return The number of tasks removed
+     * @throws SchedulerException
+     *             If something bad happened in the scheduler
+     */
+    public int removeAll() throws SchedulerException {
+        int removed = 0;
+        for (Task task : futures.keySet()) {
+            if (taskScheduler.removeTask(task)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Cancels the tasks of the batch which are not finished yet. Running tasks
+     * are not interrupted but their outcome is discarded.
+     * 
+     * @return The number of tasks cancelled
+     */
+    public int cancelAll() {
+        int cancelled = 0;
+        for (Map.Entry<Task, CompletableFuture<Object>> entry : futures.entrySet()) {
+            if (taskScheduler.cancel(entry.getKey(), entry.getValue())) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    @Override
+    public String toString() {
+        return "[TaskBatch " + getCompletedCount() + "/" + size() + "]";
+    }
+}
@@ -0,0 +1,95 @@
+package scheduler;
+
+import scheduler.task.Task;
+
+/**
+ * Finished task published by {@link TaskScheduler#getCompletionPublisher()},
+ * with its result or the failure it has thrown
+ *
+ */
+public final class TaskCompletion {
+
+    /**
+     * Finished task
+     */
+    private final Task task;
+
+    /**
+     * Task result, <code>null</code> if the task failed
+     */
+    private final Object result;
+
+    /**
+     * Task failure, <code>null</code> if the task succeeded
+     */
+    private final Throwable failure;
+
+    /**
+     * Constructs a new TaskCompletion
+     * 
+     * @param task
+     *            Finished task
+     * @param result
+     *            Task result, <code>null</code> if the task failed
+     * @param failure
+     *            Task failure, <code>null</code> if the task succeeded
+     */
+    TaskCompletion(Task task, Object result, Throwable failure) {
+        this.task = task;
+        this.result = result;
+        this.failure = failure;
+    }
+
+    /**
+     * Gets the finished task
+     * 
+     * @return Task
+     */
+    public Task getTask() {
+        return task;
+    }
+
+    /**
+     * Tells whether the task failed
+     * 
+     * @return <code>true</code> if the task has thrown an exception
+     */
+    public boolean isFailed() {
+        return null != failure;
+    }
+
+    /**
+     * Gets the task result
+     * 
+     * @return Task result, possibly <code>null</code>, <code>null</code> if
+     *         the task failed
+     */
+    public Object getResult() {
+        return result;
+    }
+
+    /**
+     * Gets the task failure
+     * 
+     * @return Exception thrown by the task, <code>null</code> if the task
+     *         succeeded
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Gets the final state of the task
+     * 
+     * @return {@link TaskState#FAILED} if the task failed,
+     *         {@link TaskState#DONE} otherwise
+     */
+    public TaskState getState() {
+        return isFailed() ? TaskState.FAILED : TaskState.DONE;
+    }
+
+    @Override
+    public String toString() {
+        return "[TaskCompletion task=" + task + ", " + (isFailed() ? "failure=" + failure : "result=" + result) + "]";
+    }
+}
@@ -0,0 +1,271 @@
+package scheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import scheduler.exception.SchedulerException;
+import scheduler.task.AbstractScriptTask;
+import scheduler.task.Task;
+
+/**
+ * Directed acyclic graph of tasks, submitted at once through
+ * {@link TaskScheduler#submitGraph(TaskGraph)}. A task starts as soon as all
+ * the tasks it depends on have finished, and the result of an upstream task
+ * can be bound as a variable of a downstream script task. If a task fails or
+ * is cancelled, the tasks depending on it, directly or not, are not run and
+ * complete with the same failure.
+ *
+ */
+public class TaskGraph {
+
+    /**
+     * Nodes by task, in insertion order
+     */
+    private final Map<Task, Node> nodes;
+
+    /**
+     * Constructs an empty TaskGraph
+     */
+    public TaskGraph() {
+        this.nodes = new LinkedHashMap<Task, Node>();
+    }
+
+    /**
+     * Adds a task without dependency. Adding a task twice has no effect.
+     * 
+     * @param task
+     *            Task
+     * @return This graph
+     * @throws SchedulerException
+     *             If the task is <code>null</code>
+     */
+    public TaskGraph addTask(Task task) throws SchedulerException {
+        node(task);
+        return this;
+    }
+
+    /**
+     * Makes a task wait for another one, adding them to the graph if needed
+     * 
+     * @param upstream
+     *            Task to wait for
+     * @param downstream
+     *            Task started once the upstream task has finished
+     * @return This graph
+     * @throws SchedulerException
+     *             If a task is <code>null</code>
+     */
+    public TaskGraph addDependency(Task upstream, Task downstream) throws SchedulerException {
+        return addDependency(upstream, downstream, null);
+    }
+
+    /**
+     * Makes a script task wait for another task, and binds the result of the
+     * latter as a variable of the script
+     * 
+     * @param upstream
+     *            Task to wait for
+     * @param downstream
+     *            Script task started once the upstream task has finished
+     * @param binding
+     *            Name of the script variable receiving the upstream result,
+     *            <code>null</code> for an ordering dependency only
+     * @return This graph
+     * @throws SchedulerException
+     *             If a task is <code>null</code>, or if a binding is given for
+     *             a task which is not a script task
+     */
+    public TaskGraph addDependency(Task upstream, Task downstream, String binding) throws SchedulerException {
+        if (null != binding && !(downstream instanceof AbstractScriptTask)) {
+            throw new SchedulerException("Task " + downstream + " is not a script task, it cannot bind " + binding);
+        }
+        Node upstreamNode = node(upstream);
+        Node downstreamNode = node(downstream);
+        downstreamNode.dependencies.add(new Dependency(upstreamNode.task, binding));
+        return this;
+    }
+
+    /**
+     * Gets the node of a task, creating it if needed
+     * 
+     * @param task
+     *            Task
+     * @return Task node
+     * @throws SchedulerException
+     *             If the task is <code>null</code>
+     */
+    private Node node(Task task) throws SchedulerException {
+        if (null == task) {
+            throw new SchedulerException("Task graph cannot contain a null task");
+        }
+        Node node = nodes.get(task);
+        if (null == node) {
+            node = new Node(task);
+            nodes.put(task, node);
+        }
+        return node;
+    }
+
+    /**
+     * Gets the tasks of the graph
+     * 
+     * @return Tasks, in insertion order
+     */
+    public List<Task> getTasks() {
+        return Collections.unmodifiableList(new ArrayList<Task>(nodes.keySet()));
+    }
+
+    /**
+     * Gets the number of tasks in the graph
+     * 
+     * @return Task count
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Gets the dependencies of a task
+     * 
+     * @param task
+     *            Task of the graph
+     * @return Dependencies, empty if the task has none
+     */
+    List<Dependency> getDependencies(Task task) {
+        return nodes.get(task).dependencies;
+    }
+
+    /**
+     * Sorts the tasks so that each task comes after the tasks it depends on
+     * 
+     * @return Tasks in dependency order
+     * @throws SchedulerException
+     *             If the graph contains a cycle
+     */
+    List<Task> sort() throws SchedulerException {
+        Map<Task, Integer> pendingCounts = new IdentityHashMap<Task, Integer>();
+        Map<Task, List<Task>> dependents = new IdentityHashMap<Task, List<Task>>();
+        Deque<Task> ready = new ArrayDeque<Task>();
+        for (Node node : nodes.values()) {
+            pendingCounts.put(node.task, node.dependencies.size());
+            if (node.dependencies.isEmpty()) {
+                ready.add(node.task);
+            }
+            for (Dependency dependency : node.dependencies) {
+                List<Task> upstreamDependents = dependents.get(dependency.upstream);
+                if (null == upstreamDependents) {
+                    upstreamDependents = new ArrayList<Task>();
+                    dependents.put(dependency.upstream, upstreamDependents);
+                }
+                upstreamDependents.add(node.task);
+            }
+        }
+        List<Task> sorted = new ArrayList<Task>(nodes.size());
+        while (!ready.isEmpty()) {
+            Task task = ready.poll();
+            sorted.add(task);
+            List<Task> taskDependents = dependents.get(task);
+            if (null == taskDependents) {
+                continue;
+            }
+            for (Task dependent : taskDependents) {
+                int pendingCount = pendingCounts.get(dependent) - 1;
+                pendingCounts.put(dependent, pendingCount);
+                if (0 == pendingCount) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (sorted.size() < nodes.size()) {
+            throw new SchedulerException("Task graph contains a cycle");
+        }
+        return sorted;
+    }
+
+    @Override
+    public String toString() {
+        return "[TaskGraph size=" + nodes.size() + "]";
+    }
+
+    /**
+     * Task of the graph with the tasks it depends on
+     */
+    private static final class Node {
+
+        /**
+         * Task
+         */
+        private final Task task;
+
+        /**
+         * Tasks to wait for
+         */
+        private final List<Dependency> dependencies;
+
+        /**
+         * Constructs a new Node
+         * 
+         * @param task
+         *            Task
+         */
+        Node(Task task) {
+            this.task = task;
+            this.dependencies = new ArrayList<Dependency>();
+        }
+    }
+
+    /**
+     * Edge of the graph, from the task to wait for
+     */
+    static final class Dependency {
+
+        /**
+         * Task to wait for
+         */
+        private final Task upstream;
+
+        /**
+         * Script variable receiving the upstream result, <code>null</code> if
+         * none
+         */
+        private final String binding;
+
+        /**
+         * Constructs a new Dependency
+         * 
+         * @param upstream
+         *            Task to wait for
+         * @param binding
+         *            Script variable receiving the upstream result,
+         *            <code>null</code> if none
+         */
+        Dependency(Task upstream, String binding) {
+            this.upstream = upstream;
+            this.binding = binding;
+        }
+
+        /**
+         * Gets the task to wait for
+         * 
+         * @return Upstream task
+         */
+        Task getUpstream() {
+            return upstream;
+        }
+
+        /**
+         * Gets the script variable receiving the upstream result
+         * 
+         * @return Variable name, <code>null</code> if none
+         */
+        String getBinding() {
+            return binding;
+        }
+    }
+}
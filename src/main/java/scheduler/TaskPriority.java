@@ -0,0 +1,24 @@
+package scheduler;
+
+/**
+ * Priority lanes of the TaskScheduler. Tasks of a higher priority lane are
+ * started first, unless a lower priority task waited for too long.
+ *
+ */
+public enum TaskPriority {
+
+    /**
+     * Latency sensitive tasks
+     */
+    HIGH,
+
+    /**
+     * Default priority
+     */
+    NORMAL,
+
+    /**
+     * Bulk tasks
+     */
+    LOW
+}
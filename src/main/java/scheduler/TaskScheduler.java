@@ -1,105 +1,1515 @@
 package scheduler;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.stream.Collector;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import scheduler.PureTaskCache.ScriptKey;
 import scheduler.exception.SchedulerException;
+import scheduler.exception.TaskRejectedException;
+import scheduler.exception.TaskTimeoutException;
+import scheduler.journal.RecoveredTask;
+import scheduler.journal.TaskJournal;
+import scheduler.metrics.SchedulerMetrics;
+import scheduler.metrics.SchedulerMetrics.TaskTypeMetrics;
+import scheduler.remote.RemoteWorkerPool;
+import scheduler.script.BytecodeCache;
+import scheduler.task.AbstractScriptTask;
 import scheduler.task.Task;
+import scheduler.task.impl.CompiledGroovyTask;
+import scheduler.timer.Timeout;
+import scheduler.timer.TimingWheel;
+import scheduler.util.ConcurrentIntMap;
 
 /**
- * Task scheduler which allows to submit task and retrieve results
+ * Task scheduler which allows to submit task and retrieve results. Each
+ * instance owns its executor, task registry, timer and metrics, so that
+ * workloads can be isolated and sized separately; {@link #getInstance()} gives
+ * a shared default instance configured from the system properties.
  *
  */
-public class TaskScheduler {
+public class TaskScheduler implements AutoCloseable {
+
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskScheduler.class);
+
+    /**
+     * Scheduler number generator, names the JMX beans
+     */
+    private static final AtomicInteger SCHEDULER_NUMBER = new AtomicInteger(1);
+
+    /**
+     * Outcome recorded for tasks returning <code>null</code>, since a
+     * <code>null</code> outcome means the task is not finished
+     */
+    private static final Object NULL_RESULT = new Object();
+
+    /**
+     * State updater of the scheduled tasks, avoids an atomic object per task
+     */
+    private static final AtomicReferenceFieldUpdater<ScheduledTask, TaskState> TASK_STATE = AtomicReferenceFieldUpdater
+            .newUpdater(ScheduledTask.class, TaskState.class, "state");
+
+    /**
+     * Maximum number of results evicted by a single submission or completion,
+     * so that eviction cost is spread over the calls
+     */
+    private static final int EVICTIONS_PER_CALL = 4;
+
+    /**
+     * Tasks submitted to the TaskScheduler, running or finished, by task id
+     */
+    private final ConcurrentIntMap<ScheduledTask> tasks;
+
+    /**
+     * Scheduler configuration
+     */
+    private final SchedulerConfig config;
+
+    /**
+     * Executor for handling parallel task execution
+     */
+    private final ExecutorService executorService;
+
+    /**
+     * Tasks waiting for a worker, by priority
+     */
+    private final PriorityLanes<ScheduledTask> priorityLanes;
+
+    /**
+     * Handed to the executor when a task is queued while fewer than
+     * {@link #maxLaneWorkers} workers are draining the priority lanes, runs
+     * their tasks until they are empty
+     */
+    private final Runnable laneWorker;
+
+    /**
+     * Number of lane workers handed to the executor and not done draining the
+     * lanes yet
+     */
+    private final AtomicInteger activeLaneWorkers;
+
+    /**
+     * Maximum number of lane workers, the executor parallelism
+     */
+    private final int maxLaneWorkers;
+
+    /**
+     * One permit per free slot of the submission queue, striped like the
+     * priority lanes, <code>null</code> if the queue is unbounded
+     */
+    private final QueuePermits queuePermits;
+
+    /**
+     * Hot path metrics
+     */
+    private final SchedulerMetrics metrics;
+
+    /**
+     * Name of the metrics JMX bean, <code>null</code> if not registered
+     */
+    private final ObjectName metricsName;
+
+    /**
+     * Number of tasks rejected or dropped because the queue was full
+     */
+    private final AtomicLong rejectedCount;
+
+    /**
+     * Timer starting the delayed and periodic tasks
+     */
+    private final TimingWheel timingWheel;
+
+    /**
+     * Executions and memoized outcomes of the pure script tasks,
+     * <code>null</code> out of pure task mode
+     */
+    private final PureTaskCache<ScheduledTask> pureTaskCache;
+
+    /**
+     * Finished task results retention policy
+     */
+    private final ResultRetentionPolicy retentionPolicy;
+
+    /**
+     * Lock guarding the retained results list and its totals
+     */
+    private final Object retentionLock;
+
+    /**
+     * Oldest retained result, when the retention policy is bounded
+     */
+    private ScheduledTask oldestRetained;
+
+    /**
+     * Newest retained result, when the retention policy is bounded
+     */
+    private ScheduledTask newestRetained;
+
+    /**
+     * Number of retained results
+     */
+    private int retainedResults;
+
+    /**
+     * Estimated size of the retained results, in bytes
+     */
+    private long retainedBytes;
+
+    /**
+     * Number of evicted results, by eviction cause
+     */
+    private final AtomicLongArray evictionCounts;
+
+    /**
+     * Set once the scheduler has been closed
+     */
+    private final AtomicBoolean closed;
+
+    /**
+     * Journal of the submitted tasks, <code>null</code> if not journaled
+     */
+    private final TaskJournal journal;
+
+    /**
+     * Worker processes running the script tasks, <code>null</code> if they
+     * run in process
+     */
+    private final RemoteWorkerPool workerPool;
+
+    /**
+     * Publisher of the finished tasks, in completion order
+     */
+    private final SubmissionPublisher<TaskCompletion> completionPublisher;
+
+    /**
+     * Constructs a scheduler configured from the system properties
+     * 
+     * @throws UncheckedIOException
+     *             If the configured task journal or worker pool cannot be
+     *             opened
+     */
+    public TaskScheduler() {
+        this(SchedulerConfig.fromSystemProperties());
+    }
+
+    /**
+     * Constructs a scheduler running its tasks on the configured executor
+     * 
+     * @param config
+     *            Scheduler configuration, see {@link SchedulerConfig#builder()}
+     * @throws UncheckedIOException
+     *             If the configured task journal or worker pool cannot be
+     *             opened
+     */
+    public TaskScheduler(SchedulerConfig config) {
+        if (null == config) {
+            throw new IllegalArgumentException("Scheduler configuration is null");
+        }
+        this.config = config;
+        this.journal = openJournal(config);
+        this.workerPool = openWorkerPool(config, journal);
+        this.executorService = config.getExecutorBackend().create(config.getParallelism());
+        openBytecodeCache(config, executorService);
+        this.tasks = new ConcurrentIntMap<ScheduledTask>();
+        this.priorityLanes = new PriorityLanes<ScheduledTask>(scheduledTask -> scheduledTask.submitNanos,
+                config.getAging(TimeUnit.NANOSECONDS), Runtime.getRuntime().availableProcessors());
+        this.queuePermits = config.isQueueBounded() ? new QueuePermits(config.getQueueCapacity(), priorityLanes
+                .getShardCount(), PriorityLanes::threadShard) : null;
+        this.rejectedCount = new AtomicLong();
+        this.metrics = new SchedulerMetrics(priorityLanes::size);
+        this.activeLaneWorkers = new AtomicInteger();
+        // Virtual threads ignore the parallelism
+        this.maxLaneWorkers = ExecutorBackend.VIRTUAL_THREADS == config.getExecutorBackend() ? Integer.MAX_VALUE
+                : config.getParallelism();
+        this.laneWorker = this::drainLanes;
+        this.timingWheel = new TimingWheel(config.getTimerTick(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        this.pureTaskCache = config.isPureTasks() ? new PureTaskCache<ScheduledTask>(config.getMemoCacheSize())
+                : null;
+        this.retentionPolicy = config.getRetentionPolicy();
+        this.retentionLock = new Object();
+        this.evictionCounts = new AtomicLongArray(EvictionCause.values().length);
+        this.closed = new AtomicBoolean();
+        this.completionPublisher = new SubmissionPublisher<TaskCompletion>();
+        this.metricsName = registerMetrics(metrics);
+        LOGGER.debug("Task scheduler created with " + config);
+        if (null != journal) {
+            recover(journal.getRecoveredTasks());
+        }
+    }
+
+    /**
+     * Opens the task journal, replaying its existing segments
+     * 
+     * @param config
+     *            Scheduler configuration
+     * @return Task journal, <code>null</code> if not journaled
+     * @throws UncheckedIOException
+     *             If the journal cannot be opened
+     */
+    private static TaskJournal openJournal(SchedulerConfig config) {
+        if (!config.isJournaled()) {
+            return null;
+        }
+        try {
+            return new TaskJournal(config.getJournalDirectory(), config.getJournalSegmentBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the task journal in " + config.getJournalDirectory(), e);
+        }
+    }
+
+    /**
+     * Opens the bytecode cache of the compiled Groovy tasks, and loads the
+     * scripts it holds on a worker, without delaying the construction
+     * 
+     * @param config
+     *            Scheduler configuration
+     * @param executorService
+     *            Executor running the warm up
+     */
+    private static void openBytecodeCache(SchedulerConfig config, ExecutorService executorService) {
+        if (null == config.getBytecodeCacheDirectory()) {
+            return;
+        }
+        BytecodeCache bytecodeCache = CompiledGroovyTask.openBytecodeCache(config.getBytecodeCacheDirectory());
+        if (null != bytecodeCache) {
+            CompiledGroovyTask.setBytecodeCache(bytecodeCache);
+            executorService.execute(CompiledGroovyTask::warmUp);
+        }
+    }
+
+    /**
+     * Starts the worker processes running the script tasks, spreading the
+     * scheduler parallelism over them
+     * 
+     * @param config
+     *            Scheduler configuration
+     * @param journal
+     *            Task journal, closed if the pool cannot be started
+     * @return Worker pool, <code>null</code> if script tasks run in process
+     * @throws UncheckedIOException
+     *             If the pool cannot be started
+     */
+    private static RemoteWorkerPool openWorkerPool(SchedulerConfig config, TaskJournal journal) {
+        int workerCount = config.getRemoteWorkers();
+        if (0 == workerCount) {
+            return null;
+        }
+        int threadsPerWorker = (config.getParallelism() + workerCount - 1) / workerCount;
+        try {
+            return new RemoteWorkerPool(workerCount, threadsPerWorker, config.getRemoteHeartbeatTimeout(
+                    TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS, config.getRemoteWorkerJvmArguments());
+        } catch (IOException e) {
+            if (null != journal) {
+                journal.close();
+            }
+            throw new UncheckedIOException("Failed to start the remote worker pool", e);
+        }
+    }
+
+    /**
+     * Registers the tasks recovered from the journal: finished tasks get their
+     * journaled outcome, pending tasks are run again
+     * 
+     * @param recoveredTasks
+     *            Recovered tasks, in submission order
+     */
+    private void recover(List<RecoveredTask> recoveredTasks) {
+        for (RecoveredTask recoveredTask : recoveredTasks) {
+            ScheduledTask scheduledTask = new ScheduledTask(recoveredTask.getTask(), TaskPriority.NORMAL, null);
+            scheduledTask.journaled = true;
+            tasks.put(recoveredTask.getTask().getId(), scheduledTask);
+            if (recoveredTask.isFinished()) {
+                Object outcome = recoveredTask.getOutcome();
+                scheduledTask.restore(null == outcome ? NULL_RESULT : outcome);
+                continue;
+            }
+            try {
+                start(scheduledTask, null);
+            } catch (TaskRejectedException tre) {
+                // Never thrown, the admission control is bypassed
+                scheduledTask.abandon(tre);
+            }
+        }
+        if (!recoveredTasks.isEmpty()) {
+            LOGGER.info("Recovered " + recoveredTasks.size() + " tasks from the journal " + journal);
+        }
+    }
+
+    /**
+     * Registers the metrics of a scheduler as a JMX bean. A failure is logged
+     * only, the scheduler works without JMX.
+     * 
+     * @param metrics
+     *            Scheduler metrics
+     * @return Bean name, <code>null</code> if not registered
+     */
+    private static ObjectName registerMetrics(SchedulerMetrics metrics) {
+        try {
+            ObjectName name = new ObjectName("scheduler:type=TaskScheduler,name=scheduler-"
+                    + SCHEDULER_NUMBER.getAndIncrement());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            return name;
+        } catch (JMException | SecurityException e) {
+            LOGGER.warn("Failed to register the scheduler metrics in JMX", e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the default task scheduler instance, created on first use and
+     * configured from the system properties
+     * 
+     * @return Default TaskScheduler instance
+     */
+    public static TaskScheduler getInstance() {
+        return DefaultInstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Shutdowns the default scheduler. Schedulers created through a
+     * constructor are not affected, they are closed through {@link #close()}.
+     */
+    public static synchronized void shutdown() {
+        DefaultInstanceHolder.INSTANCE.close();
+    }
+
+    /**
+     * Shutdowns the executor and the timer of this scheduler. Delayed and
+     * periodic tasks which have not started yet are completed exceptionally,
+     * and further submissions throw a <code>SchedulerException</code>. The
+     * task journal is closed too: journaled tasks still pending, or finishing
+     * afterwards, are run again by the next scheduler opening it. Script tasks
+     * still running on worker processes fail with a
+     * <code>SchedulerException</code>. Closing twice has no effect.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (null != metricsName) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+            } catch (JMException | SecurityException e) {
+                LOGGER.debug("Scheduler metrics already unregistered from JMX", e);
+            }
+        }
+        executorService.shutdown();
+        for (Runnable timerAction : timingWheel.stop()) {
+            // Rejected by the executor, completes the task future
+            timerAction.run();
+        }
+        // Subscribers complete once they consumed the tasks published so far
+        completionPublisher.close();
+        if (null != journal) {
+            // Tasks still pending are recovered by the next scheduler
+            journal.close();
+        }
+        if (null != workerPool) {
+            // After the journal, so that the aborted tasks are recovered
+            workerPool.close();
+        }
+    }
+
+    /**
+     * Tells whether the scheduler has been closed
+     * 
+     * @return <code>true</code> if closed
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Gets the scheduler configuration
+     * 
+     * @return Scheduler configuration
+     */
+    public SchedulerConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Gets the scheduler metrics, also registered in JMX under
+     * <code>scheduler:type=TaskScheduler</code>
+     * 
+     * @return Scheduler metrics
+     */
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the task journal, mainly for monitoring its counters
+     * 
+     * @return Task journal, <code>null</code> if not journaled
+     */
+    public TaskJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Gets the publisher of the finished tasks. Each subscriber receives the
+     * tasks finishing after its subscription, done or failed, in completion
+     * order; cancelled and timed out tasks are not published. Subscribers are
+     * called from a common pool thread and control the flow through
+     * <code>Subscription.request()</code>: once a subscriber has
+     * {@link Flow#defaultBufferSize()} tasks waiting, the workers finishing
+     * tasks block until it requests more or cancels its subscription. A slow
+     * subscriber thus slows the scheduler down rather than piling results up.
+     * Subscriptions complete when the scheduler is closed.
+     * 
+     * @return Publisher of the finished tasks
+     */
+    public Flow.Publisher<TaskCompletion> getCompletionPublisher() {
+        return completionPublisher;
+    }
+
+    /**
+     * Gets the worker processes running the script tasks, mainly for
+     * monitoring their counters
+     * 
+     * @return Worker pool, <code>null</code> if script tasks run in process
+     */
+    public RemoteWorkerPool getWorkerPool() {
+        return workerPool;
+    }
+
+    /**
+     * Submits a task to the executor. The returned future is completed by the
+     * worker thread once the task result has been recorded, so callbacks
+     * attached to it can safely call {@link #getTaskResult(Task)} or
+     * {@link #removeTask(Task)}.
+     * 
+     * @param task
+     *            Task to be executed
+     * @return <code>CompletableFuture</code> completed with the task result,
+     *         or exceptionally with the task failure
+     * @throws SchedulerException
+     *             If the submitted task is <code>null</code> or the scheduler
+     *             has been shutdown
+     */
+    public CompletableFuture<Object> submitTask(Task task) throws SchedulerException {
+        return submitTask(task, TaskPriority.NORMAL, null);
+    }
+
+    /**
+     * Submits a task to the executor. Once finished, the task is added to the
+     * given completion queue, whether done, failed, cancelled or timed out.
+     * 
+     * @param task
+     *            Task to be executed
+     * @param completionQueue
+     *            Queue receiving the task once finished, may be
+     *            <code>null</code>
+     * @return <code>CompletableFuture</code> completed with the task result,
+     *         or exceptionally with the task failure
+     * @throws SchedulerException
+     *             If the submitted task is <code>null</code> or the scheduler
+     *             has been shutdown
+     */
+    public CompletableFuture<Object> submitTask(Task task, CompletionQueue completionQueue) throws SchedulerException {
+        return submitTask(task, TaskPriority.NORMAL, completionQueue);
+    }
+
+    /**
+     * Submits a task to the executor in the given priority lane
+     * 
+     * @param task
+     *            Task to be executed
+     * @param priority
+     *            Priority lane
+     * @return <code>CompletableFuture</code> completed with the task result,
+     *         or exceptionally with the task failure
+     * @throws SchedulerException
+     *             If the submitted task or the priority is <code>null</code>,
+     *             or if the scheduler has been shutdown
+     */
+    public CompletableFuture<Object> submitTask(Task task, TaskPriority priority) throws SchedulerException {
+        return submitTask(task, priority, null);
+    }
+
+    /**
+     * Submits a task to the executor in the given priority lane. Once
+     * finished, the task is added to the given completion queue, whether done,
+     * failed, cancelled, timed out or dropped from the full submission queue.
+     * A task rejected by this call is not added to it.
+     * 
+     * @param task
+     *            Task to be executed
+     * @param priority
+     *            Priority lane
+     * @param completionQueue
+     *            Queue receiving the task once finished, may be
+     *            <code>null</code>
+     * @return <code>CompletableFuture</code> completed with the task result,
+     *         or exceptionally with the task failure
+     * @throws TaskRejectedException
+     *             If the submission queue is full and the admission policy
+     *             refuses the task
+     * @throws SchedulerException
+     *             If the submitted task or the priority is <code>null</code>,
+     *             or if the scheduler has been shutdown
+     */
+    public CompletableFuture<Object> submitTask(Task task, TaskPriority priority, CompletionQueue completionQueue)
+            throws SchedulerException {
+        return submit(task, priority, completionQueue, config.getAdmissionPolicy(), config
+                .getTaskTimeout(TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Submits a task to the executor with its own execution timeout, measured
+     * from the time a worker starts it. A task still running at its timeout
+     * is interrupted, its future is completed with a
+     * <code>TaskTimeoutException</code> and it ends in the
+     * {@link TaskState#TIMED_OUT} state.
+     * 
+     * @param task
+     *            Task to be executed
+     * @param timeout
+     *            Execution timeout, must be positive
+     * @param unit
+     *            Time unit of the timeout
+     * @return <code>CompletableFuture</code> completed with the task result,
+     *         or exceptionally with the task failure
+     * @throws SchedulerException
+     *             If the submitted task or the unit is <code>null</code>, if
+     *             the timeout is not positive, or if the scheduler has been
+     *             shutdown
+     */
+    public CompletableFuture<Object> submitTask(Task task, long timeout, TimeUnit unit) throws SchedulerException {
+        if (null == unit) {
+            throw new SchedulerException("Submitted task timeout unit is null");
+        }
+        if (timeout <= 0) {
+            throw new SchedulerException("Submitted task timeout must be positive: " + timeout);
+        }
+        return submit(task, TaskPriority.NORMAL, null, config.getAdmissionPolicy(), unit.toNanos(timeout));
+    }
+
+    /**
+     * Submits a task to the executor unless the submission queue is full.
+     * Never blocks, whatever the admission policy.
+     * 
+     * @param task
+     *            Task to be executed
+     * @return <code>true</code> if the task has been accepted,
+     *         <code>false</code> if the queue is full
+     * @throws SchedulerException
+     *             If the submitted task is <code>null</code> or the scheduler
+     *             has been shutdown
+     */
+    public boolean trySubmit(Task task) throws SchedulerException {
+        return trySubmit(task, TaskPriority.NORMAL, null);
+    }
+
+    /**
+     * Submits a task to the executor in the given priority lane unless the
+     * submission queue is full. Never blocks, whatever the admission policy.
+     * Once finished, an accepted task is added to the given completion queue,
+     * whatever its final state; a rejected task is not.
+     * 
+     * @param task
+     *            Task to be executed
+     * @param priority
+     *            Priority lane
+     * @param completionQueue
+     *            Queue receiving the task once finished, may be
+     *            <code>null</code>
+     * @return <code>true</code> if the task has been accepted,
+     *         <code>false</code> if the queue is full
+     * @throws SchedulerException
+     *             If the submitted task or the priority is <code>null</code>,
+     *             or if the scheduler has been shutdown
+     */
+    public boolean trySubmit(Task task, TaskPriority priority, CompletionQueue completionQueue)
+            throws SchedulerException {
+        try {
+            submit(task, priority, completionQueue, AdmissionPolicy.REJECT, config
+                    .getTaskTimeout(TimeUnit.NANOSECONDS));
+            return true;
+        } catch (TaskRejectedException tre) {
+            return false;
+        }
+    }
+
+    /**
+     * Registers and starts a task
+     * 
+     * @param task
+     *            Task to be executed
+     * @param priority
+     *            Priority lane
+     * @param completionQueue
+     *            Queue receiving the task once finished, may be
+     *            <code>null</code>
+     * @param admissionPolicy
+     *            Policy applied if the submission queue is full
+     * @param timeoutNanos
+     *            Execution timeout, in nanoseconds, 0 if none
+     * @return Task future
+     * @throws SchedulerException
+     *             If the task is rejected, a parameter is <code>null</code>
+     *             or the scheduler has been shutdown
+     */
+    private CompletableFuture<Object> submit(Task task, TaskPriority priority, CompletionQueue completionQueue,
+            AdmissionPolicy admissionPolicy, long timeoutNanos) throws SchedulerException {
+        if (null == task) {
+            throw new SchedulerException("Submitted task is null");
+        }
+        if (null == priority) {
+            throw new SchedulerException("Submitted task priority is null");
+        }
+        evictResults(EVICTIONS_PER_CALL);
+        ScheduledTask scheduledTask = new ScheduledTask(task, priority, completionQueue);
+        scheduledTask.timeoutNanos = timeoutNanos;
+        long journalSequence = journal(scheduledTask);
+        tasks.put(task.getId(), scheduledTask);
+        try {
+            start(scheduledTask, admissionPolicy);
+        } catch (TaskRejectedException tre) {
+            // Not accepted, the caller knows it without its completion queue
+            scheduledTask.abandon(tre, TaskState.CANCELLED, false);
+            throw tre;
+        } catch (RejectedExecutionException ree) {
+            SchedulerException se = new SchedulerException("Scheduler has been shutdown", ree);
+            scheduledTask.abandon(se, TaskState.CANCELLED, false);
+            throw se;
+        }
+        awaitJournal(journalSequence);
+        return scheduledTask.future;
+    }
+
+    /**
+     * Journals the submission of a task, before it is registered
+     * 
+     * @param scheduledTask
+     *            Submitted task
+     * @return Journal record sequence, -1 if the task is not journaled
+     */
+    private long journal(ScheduledTask scheduledTask) {
+        if (null == journal) {
+            return -1;
+        }
+        long journalSequence = journal.submitted(scheduledTask.task);
+        scheduledTask.journaled = journalSequence > 0;
+        return journalSequence;
+    }
+
+    /**
+     * Waits for a submission to be journaled on disk, if the configuration
+     * requires it
+     * 
+     * @param journalSequence
+     *            Journal record sequence, -1 if the task is not journaled
+     */
+    private void awaitJournal(long journalSequence) {
+        if (journalSequence > 0 && config.isJournalSync()) {
+            journal.awaitFlushed(journalSequence);
+        }
+    }
+
+    /**
+     * Submits a group of tasks to the executor
+     * 
+     * @param tasks
+     *            Tasks to be executed
+     * @return <code>TaskBatch</code> handle on the submitted tasks
+     * @throws SchedulerException
+     *             If the collection or one of the tasks is <code>null</code>
+     *             (no task is submitted then), or if the scheduler has been
+     *             shutdown
+     */
+    public TaskBatch submitAll(Collection<? extends Task> tasks) throws SchedulerException {
+        return submitAll(tasks, TaskPriority.NORMAL);
+    }
+
+    /**
+     * Submits a group of tasks to the executor in the given priority lane
+     * 
+     * @param tasks
+     *            Tasks to be executed
+     * @param priority
+     *            Priority lane
+     * @return <code>TaskBatch</code> handle on the submitted tasks
+     * @throws SchedulerException
+     *             If the collection, one of the tasks or the priority is
+     *             <code>null</code> (no task is submitted then), or if the
+     *             scheduler has been shutdown
+     */
+    public TaskBatch submitAll(Collection<? extends Task> tasks, TaskPriority priority) throws SchedulerException {
+        if (null == tasks) {
+            throw new SchedulerException("Submitted task collection is null");
+        }
+        if (null == priority) {
+            throw new SchedulerException("Submitted tasks priority is null");
+        }
+        List<ScheduledTask> scheduledTasks = new ArrayList<ScheduledTask>(tasks.size());
+        for (Task task : tasks) {
+            if (null == task) {
+                throw new SchedulerException("Submitted task collection contains a null task");
+            }
+            scheduledTasks.add(new ScheduledTask(task, priority, null));
+        }
+
+        // Register the whole batch before any task can finish
+        evictResults(EVICTIONS_PER_CALL);
+        TaskBatch taskBatch = new TaskBatch(this, scheduledTasks.size());
+        long journalSequence = -1;
+        for (ScheduledTask scheduledTask : scheduledTasks) {
+            journalSequence = Math.max(journalSequence, journal(scheduledTask));
+            this.tasks.put(scheduledTask.task.getId(), scheduledTask);
+            taskBatch.add(scheduledTask.task, scheduledTask.future);
+        }
+        for (int i = 0; i < scheduledTasks.size(); i++) {
+            try {
+                start(scheduledTasks.get(i), config.getAdmissionPolicy());
+            } catch (TaskRejectedException tre) {
+                for (ScheduledTask rejected : scheduledTasks.subList(i, scheduledTasks.size())) {
+                    cancel(rejected.task, rejected.future);
+                }
+                throw tre;
+            } catch (RejectedExecutionException ree) {
+                for (ScheduledTask rejected : scheduledTasks.subList(i, scheduledTasks.size())) {
+                    cancel(rejected.task, rejected.future);
+                }
+                throw new SchedulerException("Scheduler has been shutdown", ree);
+            }
+        }
+        // A single wait, the whole batch is usually written by one commit
+        awaitJournal(journalSequence);
+        return taskBatch;
+    }
+
+    /**
+     * Submits a group of tasks and reduces their results with a collector,
+     * e.g. <code>Collectors.summingLong()</code> or
+     * <code>Collectors.counting()</code>. Each worker folds the results it
+     * computes into a container of its own, and the containers are combined
+     * once the last task has finished: the collector must be associative, as
+     * for a parallel stream, and its result does not depend on the
+     * completion order only if it is commutative too. The tasks are not
+     * retained once folded, and are not journaled.
+     * 
+     * @param tasks
+     *            Tasks to be executed
+     * @param collector
+     *            Collector folding the task results
+     * @param <A>
+     *            Mutable accumulation type of the collector
+     * @param <R>
+     *            Reduced value type
+     * @return <code>CompletableFuture</code> completed with the reduced value,
+     *         or exceptionally with the first task failure, which cancels the
+     *         other tasks. Cancelling it cancels the tasks not finished yet.
+     * @throws SchedulerException
+     *             If the collection, one of the tasks or the collector is
+     *             <code>null</code> (no task is submitted then), or if the
+     *             scheduler has been shutdown
+     */
+    public <A, R> CompletableFuture<R> submitReduce(Collection<? extends Task> tasks, Collector<Object, A, R> collector)
+            throws SchedulerException {
+        if (null == tasks) {
+            throw new SchedulerException("Submitted task collection is null");
+        }
+        if (null == collector) {
+            throw new SchedulerException("Reduction collector is null");
+        }
+        List<ScheduledTask> scheduledTasks = new ArrayList<ScheduledTask>(tasks.size());
+        for (Task task : tasks) {
+            if (null == task) {
+                throw new SchedulerException("Submitted task collection contains a null task");
+            }
+            scheduledTasks.add(new ScheduledTask(task, TaskPriority.NORMAL, null));
+        }
+
+        // Register and wire the whole reduction before any task can finish
+        evictResults(EVICTIONS_PER_CALL);
+        StripedReduction<A, R> reduction = new StripedReduction<A, R>(this, collector, config.getParallelism(),
+                scheduledTasks.size());
+        for (ScheduledTask scheduledTask : scheduledTasks) {
+            this.tasks.put(scheduledTask.task.getId(), scheduledTask);
+            reduction.add(scheduledTask.task, scheduledTask.future);
+            scheduledTask.future.whenComplete((result, failure) -> {
+                reduction.finished(result, failure);
+                unregister(scheduledTask);
+            });
+        }
+        for (int i = 0; i < scheduledTasks.size(); i++) {
+            try {
+                start(scheduledTasks.get(i), config.getAdmissionPolicy());
+            } catch (TaskRejectedException tre) {
+                reduction.getFuture().completeExceptionally(tre);
+                throw tre;
+            } catch (RejectedExecutionException ree) {
+                SchedulerException se = new SchedulerException("Scheduler has been shutdown", ree);
+                reduction.getFuture().completeExceptionally(se);
+                throw se;
+            }
+        }
+        return reduction.getFuture();
+    }
+
+    /**
+     * Unregisters a finished task whose result has been consumed
+     * 
+     * @param scheduledTask
+     *            Finished task
+     */
+    private void unregister(ScheduledTask scheduledTask) {
+        if (tasks.remove(scheduledTask.task.getId(), scheduledTask)) {
+            release(scheduledTask);
+            scheduledTask.unregistered();
+        }
+    }
+
+    /**
+     * Submits a graph of tasks. The tasks without dependency are submitted
+     * right away, under the admission policy; each other task is started as
+     * soon as the tasks it depends on have finished, with their results bound
+     * in its script if requested. Those later starts bypass the admission
+     * policy, so that a worker finishing a task never blocks on a full queue.
+     * All the tasks are registered right away: they are running until their
+     * results are recorded.
+     * 
+     * @param graph
+     *            Task graph
+     * @return <code>TaskBatch</code> handle on the tasks of the graph. A task
+     *         which is not run because a task it depends on failed or was
+     *         cancelled completes with the same failure.
+     * @throws SchedulerException
+     *             If the graph is <code>null</code> or contains a cycle (no
+     *             task is submitted then), or if the scheduler has been
+     *             shutdown
+     */
+    public TaskBatch submitGraph(TaskGraph graph) throws SchedulerException {
+        if (null == graph) {
+            throw new SchedulerException("Submitted task graph is null");
+        }
+        List<Task> sortedTasks = graph.sort();
+        Map<Task, ScheduledTask> scheduledTasks = new IdentityHashMap<Task, ScheduledTask>(sortedTasks.size());
+        for (Task task : sortedTasks) {
+            scheduledTasks.put(task, new ScheduledTask(task, TaskPriority.NORMAL, null));
+        }
+
+        // Register and wire the whole graph before any task can finish
+        evictResults(EVICTIONS_PER_CALL);
+        TaskBatch taskBatch = new TaskBatch(this, sortedTasks.size());
+        List<ScheduledTask> roots = new ArrayList<ScheduledTask>();
+        for (Task task : sortedTasks) {
+            ScheduledTask scheduledTask = scheduledTasks.get(task);
+            this.tasks.put(task.getId(), scheduledTask);
+            taskBatch.add(task, scheduledTask.future);
+            List<TaskGraph.Dependency> dependencies = graph.getDependencies(task);
+            if (dependencies.isEmpty()) {
+                roots.add(scheduledTask);
+                continue;
+            }
+            AtomicInteger pendingCount = new AtomicInteger(dependencies.size());
+            for (TaskGraph.Dependency dependency : dependencies) {
+                scheduledTasks.get(dependency.getUpstream()).future.whenComplete((result, failure) -> upstreamFinished(
+                        scheduledTask, dependency.getBinding(), result, failure, pendingCount));
+            }
+        }
+        for (int i = 0; i < roots.size(); i++) {
+            try {
+                start(roots.get(i), config.getAdmissionPolicy());
+            } catch (TaskRejectedException tre) {
+                // Not started roots and their dependents are abandoned
+                for (ScheduledTask rejected : roots.subList(i, roots.size())) {
+                    rejected.abandon(tre);
+                }
+                throw tre;
+            } catch (RejectedExecutionException ree) {
+                SchedulerException se = new SchedulerException("Scheduler has been shutdown", ree);
+                for (ScheduledTask rejected : roots.subList(i, roots.size())) {
+                    rejected.abandon(se);
+                }
+                throw se;
+            }
+        }
+        return taskBatch;
+    }
+
+    /**
+     * Handles the end of a task another task of its graph depends on, and
+     * starts the latter once all its dependencies have finished
+     * 
+     * @param scheduledTask
+     *            Dependent task
+     * @param binding
+     *            Script variable receiving the upstream result,
+     *            <code>null</code> if none
+     * @param result
+     *            Upstream result
+     * @param failure
+     *            Upstream failure, <code>null</code> if it succeeded
+     * @param pendingCount
+     *            Number of dependencies of the task not finished yet
+     */
+    private void upstreamFinished(ScheduledTask scheduledTask, String binding, Object result, Throwable failure,
+            AtomicInteger pendingCount) {
+        if (null != failure) {
+            // Completing the future short-circuits the dependents in turn
+            scheduledTask.abandon(failure);
+            return;
+        }
+        if (null != binding) {
+            ((AbstractScriptTask) scheduledTask.task).setBinding(binding, result);
+        }
+        if (0 == pendingCount.decrementAndGet() && !scheduledTask.state.isFinished()) {
+            try {
+                start(scheduledTask, null);
+            } catch (RejectedExecutionException | TaskRejectedException e) {
+                scheduledTask.abandon(startFailure(e));
+            }
+        }
+    }
+
+    /**
+     * Submits a task to the executor once the given delay has elapsed. The
+     * task is registered right away: it is running until its result is
+     * recorded.
+     * 
+     * @param task
+     *            Task to be executed
+     * @param delay
+     *            Delay before submitting the task
+     * @param unit
+     *            Time unit of the delay
+     * @return <code>CompletableFuture</code> completed with the task result,
+     *         or exceptionally with the task failure. Cancelling it before the
+     *         delay has elapsed prevents the task from running.
+     * @throws SchedulerException
+     *             If the submitted task or the unit is <code>null</code>, or
+     *             if the scheduler has been shutdown
+     */
+    public CompletableFuture<Object> schedule(Task task, long delay, TimeUnit unit) throws SchedulerException {
+        if (null == task) {
+            throw new SchedulerException("Submitted task is null");
+        }
+        if (null == unit) {
+            throw new SchedulerException("Submitted task delay unit is null");
+        }
+        evictResults(EVICTIONS_PER_CALL);
+        final ScheduledTask scheduledTask = new ScheduledTask(task, TaskPriority.NORMAL, null);
+        tasks.put(task.getId(), scheduledTask);
+        Timeout timeout;
+        try {
+            timeout = timingWheel.schedule(() -> {
+                try {
+                    start(scheduledTask, null);
+                } catch (RejectedExecutionException | TaskRejectedException e) {
+                    scheduledTask.abandon(startFailure(e));
+                }
+            }, delay, unit);
+        } catch (IllegalStateException ise) {
+            SchedulerException se = new SchedulerException("Scheduler has been shutdown", ise);
+            scheduledTask.abandon(se);
+            throw se;
+        }
+        scheduledTask.future.whenComplete((result, failure) -> timeout.cancel());
+        return scheduledTask.future;
+    }
+
+    /**
+     * Gives the failure of a task which could not be started later on, e.g.
+     * by the timer
+     * 
+     * @param e
+     *            Exception thrown by {@link #start(ScheduledTask, AdmissionPolicy)}
+     * @return The <code>TaskRejectedException</code> itself, or a
+     *         <code>SchedulerException</code> caused by the executor
+     *         rejection
+     */
+    private static SchedulerException startFailure(Exception e) {
+        if (e instanceof TaskRejectedException) {
+            return (TaskRejectedException) e;
+        }
+        return new SchedulerException("Scheduler has been shutdown", e);
+    }
+
+    /**
+     * Submits a task to the executor periodically, starting after the initial
+     * delay then every period. Runs never overlap: a run starting late delays
+     * the next one, and missed runs are caught up in a row. Each run records
+     * its result as a regular task, so {@link #getTaskResult(Task)} and
+     * {@link #getTasksDone()} give the result of the last run.
+     * 
+     * @param task
+     *            Task to be executed
+     * @param initialDelay
+     *            Delay before the first run
+     * @param period
+     *            Time between the starts of two runs, must be positive
+     * @param unit
+     *            Time unit of the delay and the period
+     * @return <code>CompletableFuture</code> never completed normally:
+     *         cancelling it stops the runs, and it is completed exceptionally
+     *         with the failure of a run, which stops the runs too
+     * @throws SchedulerException
+     *             If the submitted task or the unit is <code>null</code>, if
+     *             the period is not positive, or if the scheduler has been
+     *             shutdown
+     */
+    public CompletableFuture<Object> scheduleAtFixedRate(Task task, long initialDelay, long period, TimeUnit unit)
+            throws SchedulerException {
+        return schedulePeriodic(task, initialDelay, period, unit, true);
+    }
+
+    /**
+     * Submits a task to the executor periodically, starting after the initial
+     * delay then waiting the given delay between the end of a run and the
+     * start of the next one. Each run records its result as a regular task, so
+     * {@link #getTaskResult(Task)} and {@link #getTasksDone()} give the result
+     * of the last run.
+     * 
+     * @param task
+     *            Task to be executed
+     * @param initialDelay
+     *            Delay before the first run
+     * @param delay
+     *            Time between the end of a run and the start of the next one,
+     *            must be positive
+     * @param unit
+     *            Time unit of the delays
+     * @return <code>CompletableFuture</code> never completed normally:
+     *         cancelling it stops the runs, and it is completed exceptionally
+     *         with the failure of a run, which stops the runs too
+     * @throws SchedulerException
+     *             If the submitted task or the unit is <code>null</code>, if
+     *             the delay is not positive, or if the scheduler has been
+     *             shutdown
+     */
+    public CompletableFuture<Object> scheduleWithFixedDelay(Task task, long initialDelay, long delay, TimeUnit unit)
+            throws SchedulerException {
+        return schedulePeriodic(task, initialDelay, delay, unit, false);
+    }
+
+    /**
+     * Schedules the first run of a periodic task
+     * 
+     * @param task
+     *            Task to be executed
+     * @param initialDelay
+     *            Delay before the first run
+     * @param period
+     *            Period or delay between the runs
+     * @param unit
+     *            Time unit of the delay and the period
+     * @param fixedRate
+     *            <code>true</code> to measure the period between the starts
+     *            of the runs, <code>false</code> to measure it from the end of
+     *            the previous run
+     * @return Periodic task future
+     * @throws SchedulerException
+     *             If a parameter is invalid or if the scheduler has been
+     *             shutdown
+     */
+    private CompletableFuture<Object> schedulePeriodic(Task task, long initialDelay, long period, TimeUnit unit,
+            boolean fixedRate) throws SchedulerException {
+        if (null == task) {
+            throw new SchedulerException("Submitted task is null");
+        }
+        if (null == unit) {
+            throw new SchedulerException("Submitted task period unit is null");
+        }
+        if (period <= 0) {
+            throw new SchedulerException("Submitted task period must be positive: " + period);
+        }
+        PeriodicTask periodicTask = new PeriodicTask(task, unit.toNanos(period), fixedRate);
+        try {
+            periodicTask.arm(System.nanoTime() + unit.toNanos(Math.max(0, initialDelay)));
+        } catch (IllegalStateException ise) {
+            throw new SchedulerException("Scheduler has been shutdown", ise);
+        }
+        return periodicTask.future;
+    }
+
+    /**
+     * Gets the number of delayed task starts and periodic task runs waiting
+     * for their time
+     * 
+     * @return Number of pending timers
+     */
+    public int getPendingTimerCount() {
+        return timingWheel.size();
+    }
+
+    /**
+     * Starts a registered task. In pure task mode, a script task gets the
+     * memoized outcome of its script, or shares the execution in progress of
+     * an identical script, instead of running again.
+     * 
+     * @param scheduledTask
+     *            Registered task
+     * @param admissionPolicy
+     *            Policy applied if the submission queue is full,
+     *            <code>null</code> to bypass the admission control
+     * @throws TaskRejectedException
+     *             If the queue is full and the admission policy refuses the
+     *             task
+     * @throws RejectedExecutionException
+     *             If the executor has been shutdown
+     */
+    private void start(final ScheduledTask scheduledTask, AdmissionPolicy admissionPolicy)
+            throws TaskRejectedException {
+        final ScriptKey key = null == pureTaskCache ? null : PureTaskCache.keyOf(scheduledTask.task);
+        if (null == key || executorService.isShutdown()) {
+            dispatch(scheduledTask, admissionPolicy);
+            return;
+        }
+        Object memoizedOutcome = pureTaskCache.getOutcome(key);
+        if (null != memoizedOutcome) {
+            scheduledTask.finish(memoizedOutcome);
+            return;
+        }
+        final ScheduledTask execution = pureTaskCache.register(key, scheduledTask);
+        if (null == execution) {
+            // Only successful outcomes are memoized
+            scheduledTask.future.whenComplete((result, failure) -> pureTaskCache.completed(key, scheduledTask,
+                    null == failure ? scheduledTask.outcome : null));
+            try {
+                dispatch(scheduledTask, admissionPolicy);
+            } catch (TaskRejectedException | RejectedExecutionException e) {
+                pureTaskCache.completed(key, scheduledTask, null);
+                throw e;
+            }
+            return;
+        }
+        execution.future.whenComplete((result, failure) -> {
+            if (TaskState.TIMED_OUT == execution.state) {
+                // Would time out again
+                scheduledTask.abandon(failure, TaskState.TIMED_OUT);
+            } else if (!execution.isDone()) {
+                // The shared execution did not run, run this one instead
+                try {
+                    dispatch(scheduledTask, null);
+                } catch (RejectedExecutionException | TaskRejectedException e) {
+                    cancel(scheduledTask.task, scheduledTask.future);
+                }
+            } else {
+                scheduledTask.finish(execution.outcome);
+            }
+        });
+    }
+
+    /**
+     * Gets the number of script tasks which shared the execution of an
+     * identical script, in pure task mode
+     * 
+     * @return Deduplicated task count, always 0 out of pure task mode
+     */
+    public long getDeduplicatedTaskCount() {
+        return null == pureTaskCache ? 0 : pureTaskCache.getDeduplicatedCount();
+    }
 
     /**
-     * Class logger
+     * Gets the number of script tasks which got a memoized outcome, in pure
+     * task mode
+     * 
+     * @return Memoized outcome hit count, always 0 out of pure task mode
      */
-    private static final Logger LOGGER = LoggerFactory.getLogger(TaskScheduler.class);
+    public long getMemoHitCount() {
+        return null == pureTaskCache ? 0 : pureTaskCache.getOutcomes().getHitCount();
+    }
 
     /**
-     * Task scheduler instance
+     * Queues a task in its priority lane and asks the executor for a worker,
+     * unless enough workers are already draining the lanes. The workers run
+     * whichever task comes first in the lanes, so that a busy scheduler
+     * queues its tasks without going through the executor queue.
+     * 
+     * @param scheduledTask
+     *            Task to queue
+     * @param admissionPolicy
+     *            Policy applied if the submission queue is full,
+     *            <code>null</code> to bypass the admission control
+     * @throws TaskRejectedException
+     *             If the queue is full and the admission policy refuses the
+     *             task
+     * @throws RejectedExecutionException
+     *             If the executor has been shutdown, the task is not queued
+     *             then
      */
-    private static final TaskScheduler INSTANCE = new TaskScheduler();
+    private void dispatch(ScheduledTask scheduledTask, AdmissionPolicy admissionPolicy)
+            throws TaskRejectedException {
+        if (executorService.isShutdown()) {
+            // The lane workers still running would not reject it
+            throw new RejectedExecutionException("Executor has been shutdown");
+        }
+        if (null != queuePermits && null != admissionPolicy && !admit(scheduledTask, admissionPolicy)) {
+            return;
+        }
+        scheduledTask.submitNanos = System.nanoTime();
+        priorityLanes.offer(scheduledTask, scheduledTask.priority);
+        if (!reserveLaneWorker()) {
+            // The lane workers recheck the lanes before leaving
+            return;
+        }
+        try {
+            executorService.execute(laneWorker);
+        } catch (RejectedExecutionException ree) {
+            activeLaneWorkers.decrementAndGet();
+            if (priorityLanes.remove(scheduledTask, scheduledTask.priority)) {
+                releasePermit(scheduledTask);
+            }
+            throw ree;
+        }
+    }
 
     /**
-     * Tasks submitted to the TaskScheduler
+     * Counts one more lane worker, unless the maximum is reached. Only reads
+     * the count once every worker is busy, so that the submissions to a
+     * saturated scheduler do not write it.
+     * 
+     * @return <code>true</code> if the caller must start a lane worker
      */
-    private ConcurrentMap<Task, Future<Object>> tasksRunning;
+    private boolean reserveLaneWorker() {
+        while (true) {
+            int active = activeLaneWorkers.get();
+            if (active >= maxLaneWorkers) {
+                return false;
+            }
+            if (activeLaneWorkers.compareAndSet(active, active + 1)) {
+                return true;
+            }
+        }
+    }
 
     /**
-     * Tasks terminated
+     * Runs the tasks of the priority lanes until they are empty, on an
+     * executor thread
      */
-    private ConcurrentMap<Task, Object> tasksDone;
+    private void drainLanes() {
+        do {
+            try {
+                ScheduledTask scheduledTask;
+                while (null != (scheduledTask = priorityLanes.poll())) {
+                    releasePermit(scheduledTask);
+                    metrics.taskDequeued(scheduledTask.typeMetrics, System.nanoTime() - scheduledTask.submitNanos);
+                    scheduledTask.run();
+                }
+            } finally {
+                activeLaneWorkers.decrementAndGet();
+            }
+            // A task queued meanwhile may have found every worker active
+        } while (priorityLanes.size() > 0 && reserveLaneWorker());
+    }
 
     /**
-     * Executor for handling parallel task execution
+     * Takes a submission queue permit for a task, applying the admission
+     * policy if the queue is full
+     * 
+     * @param scheduledTask
+     *            Task to queue
+     * @param admissionPolicy
+     *            Policy applied if the queue is full
+     * @return <code>true</code> if the task can be queued, <code>false</code>
+     *         if it has already been run by the caller
+     * @throws TaskRejectedException
+     *             If the admission policy refuses the task
      */
-    private static final ExecutorService EXECUTORSERVICE;
-    static {
-        EXECUTORSERVICE = Executors.newFixedThreadPool(4);
+    private boolean admit(ScheduledTask scheduledTask, AdmissionPolicy admissionPolicy)
+            throws TaskRejectedException {
+        scheduledTask.permitStripe = queuePermits.tryAcquire();
+        if (QueuePermits.NO_PERMIT != scheduledTask.permitStripe) {
+            return true;
+        }
+        switch (admissionPolicy) {
+        case BLOCK:
+            try {
+                scheduledTask.permitStripe = queuePermits.tryAcquire(config.getAdmissionTimeout(
+                        TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+                if (QueuePermits.NO_PERMIT != scheduledTask.permitStripe) {
+                    return true;
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                rejectedCount.incrementAndGet();
+                throw new TaskRejectedException("Interrupted while waiting for room in the submission queue", ie);
+            }
+            rejectedCount.incrementAndGet();
+            throw new TaskRejectedException("Submission queue still full after "
+                    + config.getAdmissionTimeout(TimeUnit.MILLISECONDS) + "ms");
+        case CALLER_RUNS:
+            scheduledTask.run();
+            return false;
+        case DROP_OLDEST:
+            while (true) {
+                ScheduledTask dropped = priorityLanes.pollLowest();
+                if (null != dropped) {
+                    if (dropped.abandon(new TaskRejectedException("Task " + dropped.task
+                            + " dropped from the full submission queue"))) {
+                        rejectedCount.incrementAndGet();
+                    }
+                    if (QueuePermits.NO_PERMIT != dropped.permitStripe) {
+                        // Handed over to the new task
+                        scheduledTask.permitStripe = dropped.permitStripe;
+                        dropped.permitStripe = QueuePermits.NO_PERMIT;
+                        return true;
+                    }
+                }
+                scheduledTask.permitStripe = queuePermits.tryAcquire();
+                if (QueuePermits.NO_PERMIT != scheduledTask.permitStripe) {
+                    return true;
+                }
+                // Workers are emptying the queue, their permits come back
+                Thread.yield();
+            }
+        case REJECT:
+        default:
+            rejectedCount.incrementAndGet();
+            throw new TaskRejectedException("Submission queue is full");
+        }
     }
 
     /**
-     * Lock used when updating the tasks status
+     * Gives back the submission queue permit of a task leaving the queue
+     * 
+     * @param scheduledTask
+     *            Task leaving the queue
      */
-    private Lock updateLock;
+    private void releasePermit(ScheduledTask scheduledTask) {
+        if (QueuePermits.NO_PERMIT != scheduledTask.permitStripe) {
+            queuePermits.release(scheduledTask.permitStripe);
+            scheduledTask.permitStripe = QueuePermits.NO_PERMIT;
+        }
+    }
 
     /**
-     * Private constructor
+     * Gets the number of tasks which can still be queued before the admission
+     * policy applies. Producers can slow down as it gets close to 0.
+     * 
+     * @return Remaining queue capacity, <code>Integer.MAX_VALUE</code> if the
+     *         queue is unbounded
      */
-    private TaskScheduler() {
-        this.tasksRunning = new ConcurrentHashMap<Task, Future<Object>>();
-        this.tasksDone = new ConcurrentHashMap<Task, Object>();
-        this.updateLock = new ReentrantLock();
+    public int getRemainingQueueCapacity() {
+        return null == queuePermits ? Integer.MAX_VALUE : queuePermits.availablePermits();
     }
 
     /**
-     * Gets the task scheduler instance
+     * Gets the number of tasks rejected or dropped because the submission
+     * queue was full
      * 
-     * @return TaskScheduler instance
+     * @return Rejected task count
      */
-    public static TaskScheduler getInstance() {
-        return INSTANCE;
+    public long getRejectedTaskCount() {
+        return rejectedCount.get();
     }
 
     /**
-     * Shutdowns the scheduler
+     * Gets the number of tasks waiting for a worker in a priority lane
+     * 
+     * @param priority
+     *            Priority lane
+     * @return Number of waiting tasks
      */
-    public static synchronized void shutdown() {
-        EXECUTORSERVICE.shutdown();
+    public int getQueueDepth(TaskPriority priority) {
+        return priorityLanes.getDepth(priority);
     }
 
     /**
-     * Submits a task to the executor
+     * Cancels a task which is not finished yet. A task waiting for a worker
+     * is taken out of the queue; a running task is interrupted, which stops
+     * Groovy scripts at their next loop iteration, method or closure call.
+     * Either way, the task ends in the {@link TaskState#CANCELLED} state and
+     * its future is cancelled. The task stays registered like a finished task,
+     * until removed or evicted.
      * 
      * @param task
-     *            Task to be executed
+     *            Task to cancel
+     * @return <code>true</code> if the task has been cancelled,
+     *         <code>false</code> if it is unknown or already finished
      * @throws SchedulerException
-     *             If the submitted task is <code>null</code>
+     *             If the provided task is <code>null</code>
      */
-    public void submitTask(Task task) throws SchedulerException {
+    public boolean cancelTask(Task task) throws SchedulerException {
         if (null == task) {
-            throw new SchedulerException("Submitted task is null");
+            throw new SchedulerException("Provided task is null");
+        }
+        ScheduledTask scheduledTask = lookup(task);
+        return null != scheduledTask && scheduledTask.cancel();
+    }
+
+    /**
+     * Cancels a task which is not finished yet, see {@link #cancelTask(Task)}
+     * 
+     * @param task
+     *            Task to cancel
+     * @param future
+     *            Task future
+     * @return <code>true</code> if the task has been cancelled,
+     *         <code>false</code> if it was already finished
+     */
+    boolean cancel(Task task, CompletableFuture<Object> future) {
+        // Unlike cancel(), only succeeds for the call which cancels the task
+        ScheduledTask scheduledTask = lookup(task);
+        if (null != scheduledTask && scheduledTask.future == future) {
+            return scheduledTask.cancel();
+        }
+        // No longer registered: finished and removed, or rejected
+        return future.completeExceptionally(new CancellationException("Task " + task + " has been cancelled"));
+    }
+
+    /**
+     * Gets a registered task by id, e.g. to get hold of a task recovered from
+     * the journal
+     * 
+     * @param taskId
+     *            Task id
+     * @return Task, <code>null</code> if unknown
+     */
+    public Task getTask(int taskId) {
+        ScheduledTask scheduledTask = tasks.get(taskId);
+        return null == scheduledTask ? null : scheduledTask.task;
+    }
+
+    /**
+     * Finds the scheduled task of a task
+     * 
+     * @param task
+     *            Task
+     * @return Scheduled task, <code>null</code> if the task is unknown
+     */
+    private ScheduledTask lookup(Task task) {
+        ScheduledTask scheduledTask = tasks.get(task.getId());
+        if (null == scheduledTask || scheduledTask.task != task) {
+            return null;
         }
-        Future<Object> future = EXECUTORSERVICE.submit(task);
-        tasksRunning.put(task, future);
+        return scheduledTask;
     }
 
     /**
-     * Updates the tasks status and then removes the task if finished
+     * Removes the task if finished
      * 
      * @param task
      *            Task to be removed
@@ -107,39 +1517,73 @@ public class TaskScheduler {
      *         <code>false</code> otherwise (task is not finished or task does
      *         not exists)
      * @throws SchedulerException
-     *             If the provided task is <code>null</code> or something bad
-     *             happened when updating the tasks status
+     *             If the provided task is <code>null</code>
      */
     public boolean removeTask(Task task) throws SchedulerException {
         if (null == task) {
             throw new SchedulerException("Provided task is null");
         }
-        updateTasksStatus();
-        return null != tasksDone.remove(task);
+        ScheduledTask scheduledTask = lookup(task);
+        if (null != scheduledTask && scheduledTask.state.isFinished()
+                && tasks.remove(task.getId(), scheduledTask)) {
+            release(scheduledTask);
+            scheduledTask.unregistered();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the state of a task. A lock-free read of the task state, whatever
+     * the number of tracked tasks.
+     * 
+     * @param task
+     *            Task
+     * @return Task state, <code>null</code> if the task is unknown (never
+     *         submitted, rejected, removed or evicted)
+     * @throws SchedulerException
+     *             If the provided task is <code>null</code>
+     */
+    public TaskState getTaskState(Task task) throws SchedulerException {
+        if (null == task) {
+            throw new SchedulerException("Provided task is null");
+        }
+        ScheduledTask scheduledTask = lookup(task);
+        return null == scheduledTask ? null : scheduledTask.state;
     }
 
     /**
-     * Updates the tasks status and then retrieves the running tasks
+     * Retrieves the running tasks, submitted or started, not finished yet
      * 
      * @return <code>List</code> object containing the running tasks
      * @throws SchedulerException
-     *             If something bad happened when updating the tasks status
+     *             If something bad happened in the scheduler
      */
     public List<Task> getTasksRunning() throws SchedulerException {
-        updateTasksStatus();
-        return new ArrayList<Task>(tasksRunning.keySet());
+        List<Task> tasksRunning = new ArrayList<Task>();
+        for (ScheduledTask scheduledTask : tasks.values()) {
+            if (!scheduledTask.state.isFinished()) {
+                tasksRunning.add(scheduledTask.task);
+            }
+        }
+        return tasksRunning;
     }
 
     /**
-     * Updates the tasks status and then retrieves the finished tasks
+     * Retrieves the finished tasks
      * 
      * @return <code>List</code> object containing the finished tasks
      * @throws SchedulerException
-     *             If something bad happened when updating the tasks status
+     *             If something bad happened in the scheduler
      */
     public List<Task> getTasksDone() throws SchedulerException {
-        updateTasksStatus();
-        return new ArrayList<Task>(tasksDone.keySet());
+        List<Task> tasksDone = new ArrayList<Task>();
+        for (ScheduledTask scheduledTask : tasks.values()) {
+            if (scheduledTask.isDone()) {
+                tasksDone.add(scheduledTask.task);
+            }
+        }
+        return tasksDone;
     }
 
     /**
@@ -150,15 +1594,14 @@ public class TaskScheduler {
      * @return <code>true</code> if the task is finished, <code>false</code>
      *         otherwise
      * @throws SchedulerException
-     *             If the provided task is <code>null</code> or something bad
-     *             happened when updating the tasks status
+     *             If the provided task is <code>null</code>
      */
     public boolean isTaskDone(Task task) throws SchedulerException {
         if (null == task) {
             throw new SchedulerException("Provided task is null");
         }
-        updateTasksStatus();
-        return tasksDone.containsKey(task);
+        ScheduledTask scheduledTask = lookup(task);
+        return null != scheduledTask && scheduledTask.isDone();
     }
 
     /**
@@ -169,8 +1612,7 @@ public class TaskScheduler {
      * @return <code>Object</code> containing the result, <code>null</code>
      *         otherwise (task is not finished or does not exists)
      * @throws SchedulerException
-     *             If the provided task is <code>null</code> or something bad
-     *             happened when updating the tasks status
+     *             If the provided task is <code>null</code>
      * @throws ExecutionException
      *             If the task failed to execute properly
      */
@@ -178,8 +1620,11 @@ public class TaskScheduler {
         if (null == task) {
             throw new SchedulerException("Provided task is null");
         }
-        updateTasksStatus();
-        Object result = tasksDone.get(task);
+        ScheduledTask scheduledTask = lookup(task);
+        Object result = null == scheduledTask || !scheduledTask.isDone() ? null : scheduledTask.outcome;
+        if (NULL_RESULT == result) {
+            return null;
+        }
         if (null != result && result instanceof ExecutionException) {
             throw (ExecutionException) result;
         }
@@ -187,32 +1632,738 @@ public class TaskScheduler {
     }
 
     /**
-     * Checks if new results are ready and updates the status accordingly
+     * Evicts right away every result exceeding the retention policy. Eviction
+     * otherwise happens a few results at a time on task submission and
+     * completion, so an idle scheduler may keep expired results until called.
      * 
-     * @throws SchedulerException
-     *             If the thread pool has been interrupted
+     * @return The number of results evicted
+     */
+    public int evictResults() {
+        return evictResults(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the number of results retained under the retention policy. Always
+     * 0 if the policy is unbounded.
+     * 
+     * @return Number of retained results
+     */
+    public int getRetainedResultCount() {
+        synchronized (retentionLock) {
+            return retainedResults;
+        }
+    }
+
+    /**
+     * Gets the estimated size of the results retained under the retention
+     * policy. Always 0 if the policy is unbounded.
+     * 
+     * @return Estimated size in bytes
+     */
+    public long getRetainedResultBytes() {
+        synchronized (retentionLock) {
+            return retainedBytes;
+        }
+    }
+
+    /**
+     * Gets the number of results evicted for a given cause
+     * 
+     * @param cause
+     *            Eviction cause
+     * @return Number of evicted results
+     */
+    public long getEvictionCount(EvictionCause cause) {
+        return evictionCounts.get(cause.ordinal());
+    }
+
+    /**
+     * Appends a finished task to the retained results, unless it has been
+     * removed meanwhile
+     * 
+     * @param scheduledTask
+     *            Finished task
+     * @param outcome
+     *            Task outcome
+     */
+    private void retain(ScheduledTask scheduledTask, Object outcome) {
+        if (!retentionPolicy.isBounded()) {
+            return;
+        }
+        scheduledTask.completionNanos = System.nanoTime();
+        scheduledTask.retainedBytes = ResultRetentionPolicy.estimateBytes(outcome);
+        synchronized (retentionLock) {
+            // Removed from the tasks before being released, under this lock
+            if (tasks.get(scheduledTask.task.getId()) != scheduledTask) {
+                return;
+            }
+            scheduledTask.olderRetained = newestRetained;
+            if (null == newestRetained) {
+                oldestRetained = scheduledTask;
+            } else {
+                newestRetained.newerRetained = scheduledTask;
+            }
+            newestRetained = scheduledTask;
+            scheduledTask.retained = true;
+            retainedResults++;
+            retainedBytes += scheduledTask.retainedBytes;
+        }
+    }
+
+    /**
+     * Removes a task from the retained results
+     * 
+     * @param scheduledTask
+     *            Task removed from the scheduler
+     */
+    private void release(ScheduledTask scheduledTask) {
+        if (!retentionPolicy.isBounded()) {
+            return;
+        }
+        synchronized (retentionLock) {
+            unlink(scheduledTask);
+        }
+    }
+
+    /**
+     * Unlinks a task from the retained results, if linked. Requires the
+     * retention lock.
+     * 
+     * @param scheduledTask
+     *            Task to unlink
+     */
+    private void unlink(ScheduledTask scheduledTask) {
+        if (!scheduledTask.retained) {
+            return;
+        }
+        if (null == scheduledTask.olderRetained) {
+            oldestRetained = scheduledTask.newerRetained;
+        } else {
+            scheduledTask.olderRetained.newerRetained = scheduledTask.newerRetained;
+        }
+        if (null == scheduledTask.newerRetained) {
+            newestRetained = scheduledTask.olderRetained;
+        } else {
+            scheduledTask.newerRetained.olderRetained = scheduledTask.olderRetained;
+        }
+        scheduledTask.olderRetained = null;
+        scheduledTask.newerRetained = null;
+        scheduledTask.retained = false;
+        retainedResults--;
+        retainedBytes -= scheduledTask.retainedBytes;
+    }
+
+    /**
+     * Evicts the oldest results while the retention policy is exceeded
+     * 
+     * @param maxEvictions
+     *            Maximum number of results to evict
+     * @return The number of results evicted
+     */
+    private int evictResults(int maxEvictions) {
+        if (!retentionPolicy.isBounded()) {
+            return 0;
+        }
+        int evicted = 0;
+        long now = System.nanoTime();
+        while (evicted < maxEvictions) {
+            ScheduledTask victim;
+            EvictionCause cause;
+            synchronized (retentionLock) {
+                victim = oldestRetained;
+                if (null == victim) {
+                    break;
+                }
+                if (retainedResults > retentionPolicy.getMaxResults()) {
+                    cause = EvictionCause.SIZE;
+                } else if (retainedBytes > retentionPolicy.getMaxRetainedBytes()) {
+                    cause = EvictionCause.BYTES;
+                } else if (retentionPolicy.isExpired(victim.completionNanos, now)) {
+                    cause = EvictionCause.EXPIRED;
+                } else {
+                    break;
+                }
+                unlink(victim);
+            }
+            if (tasks.remove(victim.task.getId(), victim)) {
+                victim.unregistered();
+                evicted++;
+                evictionCounts.incrementAndGet(cause.ordinal());
+                ResultEvictionListener evictionListener = retentionPolicy.getEvictionListener();
+                if (null != evictionListener) {
+                    Object result = victim.isDone() ? victim.outcome : null;
+                    evictionListener.resultEvicted(victim.task, NULL_RESULT == result ? null : result, cause);
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Registry entry of a submitted task. Runs the task on a worker thread,
+     * records its outcome and then notifies the completion queue and the
+     * future handed back to the caller. Its state only moves forward, through
+     * compare-and-set: the first of the worker finishing the task and of a
+     * cancellation wins.
      */
-    private void updateTasksStatus() throws SchedulerException {
-        if (updateLock.tryLock()) {
+    private class ScheduledTask implements Runnable {
+
+        /**
+         * Task to run
+         */
+        private final Task task;
+
+        /**
+         * Future to complete once the task is finished
+         */
+        private final CompletableFuture<Object> future;
+
+        /**
+         * Queue receiving the task once finished, may be <code>null</code>
+         */
+        private final CompletionQueue completionQueue;
+
+        /**
+         * Priority lane
+         */
+        private final TaskPriority priority;
+
+        /**
+         * Metrics of the task type
+         */
+        private final TaskTypeMetrics typeMetrics;
+
+        /**
+         * Stripe of the submission queue permit held by the task,
+         * <code>QueuePermits.NO_PERMIT</code> if none. Only accessed by the
+         * thread queuing the task, then by the thread taking it out of the
+         * lanes.
+         */
+        private int permitStripe = QueuePermits.NO_PERMIT;
+
+        /**
+         * Time the task entered its priority lane, from
+         * <code>System.nanoTime()</code>
+         */
+        private long submitNanos;
+
+        /**
+         * Execution timeout, in nanoseconds, 0 if none. Set before the task
+         * is started.
+         */
+        private long timeoutNanos;
+
+        /**
+         * Thread running the task, <code>null</code> when not running. Guarded
+         * by the task, so that an interruption never reaches the next task of
+         * the worker.
+         */
+        private Thread runner;
+
+        /**
+         * Timer of the execution timeout, <code>null</code> if none
+         */
+        private volatile Timeout timeout;
+
+        /**
+         * Whether the task submission has been journaled, its outcome and its
+         * removal are then journaled too. Set before the task is registered.
+         */
+        private boolean journaled;
+
+        /**
+         * Current state, updated through <code>TASK_STATE</code>
+         */
+        volatile TaskState state;
+
+        /**
+         * Task result, <code>ExecutionException</code> if it failed, or
+         * <code>null</code> while it is not finished. Written before the state
+         * becomes DONE or FAILED, meaningless if the task has been given up.
+         */
+        private volatile Object outcome;
+
+        /**
+         * Completion time, from <code>System.nanoTime()</code>. Only set when
+         * the retention policy is bounded.
+         */
+        private long completionNanos;
+
+        /**
+         * Estimated size of the outcome, in bytes. Only set when the retention
+         * policy is bounded.
+         */
+        private long retainedBytes;
+
+        /**
+         * Whether the task is linked in the retained results. Guarded by the
+         * retention lock.
+         */
+        private boolean retained;
+
+        /**
+         * Previous task in the retained results. Guarded by the retention lock.
+         */
+        private ScheduledTask olderRetained;
+
+        /**
+         * Next task in the retained results. Guarded by the retention lock.
+         */
+        private ScheduledTask newerRetained;
+
+        /**
+         * Constructs a new ScheduledTask
+         * 
+         * @param task
+         *            Task to run
+         * @param priority
+         *            Priority lane
+         * @param completionQueue
+         *            Queue receiving the task once finished, may be
+         *            <code>null</code>
+         */
+        ScheduledTask(Task task, TaskPriority priority, CompletionQueue completionQueue) {
+            this.task = task;
+            this.future = new CompletableFuture<Object>() {
+                @Override
+                public boolean cancel(boolean mayInterruptIfRunning) {
+                    return ScheduledTask.this.cancel() || isCancelled();
+                }
+            };
+            this.state = TaskState.SUBMITTED;
+            this.timeoutNanos = config.getTaskTimeout(TimeUnit.NANOSECONDS);
+            this.priority = priority;
+            this.completionQueue = completionQueue;
+            this.typeMetrics = metrics.getTaskTypeMetrics(task);
+            metrics.taskSubmitted();
+        }
+
+        /**
+         * Checks if the task outcome has been recorded
+         * 
+         * @return <code>true</code> if the task is DONE or FAILED,
+         *         <code>false</code> otherwise
+         */
+        boolean isDone() {
+            TaskState currentState = state;
+            return TaskState.DONE == currentState || TaskState.FAILED == currentState;
+        }
+
+        /**
+         * Moves the task to a final state, unless it already is in one
+         * 
+         * @param finalState
+         *            DONE, FAILED or CANCELLED
+         * @return <code>true</code> if the state has been changed,
+         *         <code>false</code> if the task was already finished
+         */
+        private boolean enterFinalState(TaskState finalState) {
+            TaskState currentState = state;
+            while (!currentState.isFinished()) {
+                if (TASK_STATE.compareAndSet(this, currentState, finalState)) {
+                    return true;
+                }
+                currentState = state;
+            }
+            return false;
+        }
+
+        /**
+         * Gives up a task which is not finished: its future is completed
+         * exceptionally
+         * 
+         * @param reason
+         *            Failure completing the future
+         * @return <code>true</code> if the task has been given up,
+         *         <code>false</code> if it was already finished
+         */
+        boolean abandon(Throwable reason) {
+            return abandon(reason, TaskState.CANCELLED);
+        }
+
+        /**
+         * Gives up a task which is not finished: the task is added to its
+         * completion queue, its future completed exceptionally and its worker
+         * interrupted
+         * 
+         * @param reason
+         *            Failure completing the future
+         * @param finalState
+         *            CANCELLED or TIMED_OUT
+         * @return <code>true</code> if the task has been given up,
+         *         <code>false</code> if it was already finished
+         */
+        private boolean abandon(Throwable reason, TaskState finalState) {
+            return abandon(reason, finalState, true);
+        }
+
+        /**
+         * Gives up a task which is not finished: its future is completed
+         * exceptionally and its worker interrupted. The task stays registered
+         * in its final state, like a finished task, but is journaled as
+         * removed: it is not run again on recovery.
+         * 
+         * @param reason
+         *            Failure completing the future
+         * @param finalState
+         *            CANCELLED or TIMED_OUT
+         * @param accepted
+         *            <code>false</code> if the submission of the task is
+         *            rejected, the task is then unregistered instead, and not
+         *            added to its completion queue
+         * @return <code>true</code> if the task has been given up,
+         *         <code>false</code> if it was already finished
+         */
+        private boolean abandon(Throwable reason, TaskState finalState, boolean accepted) {
+            if (!enterFinalState(finalState)) {
+                return false;
+            }
+            if (journaled) {
+                journal.removed(task.getId());
+            }
+            if (accepted) {
+                retain(this, null);
+            } else {
+                tasks.remove(task.getId(), this);
+            }
+            future.completeExceptionally(reason);
+            if (accepted && null != completionQueue) {
+                completionQueue.add(task);
+            }
+            synchronized (this) {
+                if (null != runner) {
+                    runner.interrupt();
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Journals the removal of the task, once unregistered, unless it has
+         * been given up and journaled as removed already
+         */
+        void unregistered() {
+            if (journaled && isDone()) {
+                journal.removed(task.getId());
+            }
+        }
+
+        /**
+         * Cancels the task if not finished yet, and frees its place in the
+         * submission queue if it is still waiting for a worker
+         * 
+         * @return <code>true</code> if the task has been cancelled,
+         *         <code>false</code> if it was already finished
+         */
+        boolean cancel() {
+            if (!abandon(new CancellationException("Task " + task + " has been cancelled"))) {
+                return false;
+            }
+            if (priorityLanes.remove(this, priority)) {
+                releasePermit(this);
+            }
+            return true;
+        }
+
+        /**
+         * Gives up the task at its execution timeout, called by the timer
+         */
+        private void timedOut() {
+            if (abandon(new TaskTimeoutException("Task " + task + " still running after "
+                    + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + "ms"), TaskState.TIMED_OUT)) {
+                LOGGER.warn("Task " + task + " timed out");
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!TASK_STATE.compareAndSet(this, TaskState.SUBMITTED, TaskState.RUNNING)) {
+                // Cancelled meanwhile
+                return;
+            }
+            synchronized (this) {
+                runner = Thread.currentThread();
+            }
+            if (timeoutNanos > 0) {
+                try {
+                    timeout = timingWheel.schedule(this::timedOut, timeoutNanos, TimeUnit.NANOSECONDS);
+                } catch (IllegalStateException ise) {
+                    // Timer stopped by close(), the task runs without limit
+                }
+            }
+            Object result;
+            metrics.taskStarted();
+            long startNanos = System.nanoTime();
             try {
-                for (Map.Entry<Task, Future<Object>> taskRunning : tasksRunning.entrySet()) {
-                    Future<Object> taskFuture = taskRunning.getValue();
-                    if (taskFuture.isDone()) {
-                        tasksRunning.remove(taskRunning.getKey());
-                        try {
-                            tasksDone.put(taskRunning.getKey(), taskFuture.get());
-                        } catch (ExecutionException e) {
-                            tasksDone.put(taskRunning.getKey(), e);
-                            LOGGER.error("Failed to execute task " + taskRunning.getKey(), e);
-                        } catch (InterruptedException ie) {
-                            LOGGER.error("Scheduler has been interrupted", ie);
-                            throw new SchedulerException("Scheduler service has been interrupted", ie);
-                        }
-                    }
+                result = null != workerPool && task instanceof AbstractScriptTask ? workerPool
+                        .call((AbstractScriptTask) task) : task.call();
+            } catch (Throwable e) {
+                // Errors too, e.g. a failed Groovy assert, or the task would
+                // stay running and its future would never complete
+                metrics.taskStopped(typeMetrics, System.nanoTime() - startNanos);
+                stopped();
+                if (!state.isFinished()) {
+                    LOGGER.error("Failed to execute task " + task, e);
                 }
-            } finally {
-                updateLock.unlock();
+                finish(new ExecutionException(e));
+                return;
+            }
+            metrics.taskStopped(typeMetrics, System.nanoTime() - startNanos);
+            stopped();
+            finish(null == result ? NULL_RESULT : result);
+        }
+
+        /**
+         * Detaches the task from its worker once it has returned
+         */
+        private void stopped() {
+            Timeout currentTimeout = timeout;
+            if (null != currentTimeout) {
+                currentTimeout.cancel();
+            }
+            synchronized (this) {
+                runner = null;
+            }
+            if (state.isFinished()) {
+                // Cancelled or timed out: clears the interruption aimed at this
+                // task, so that it does not hit the next task of the worker
+                Thread.interrupted();
+            }
+        }
+
+        /**
+         * Records the task outcome and completes the future, unless the task
+         * has been cancelled meanwhile
+         * 
+         * @param taskOutcome
+         *            Task result, <code>NULL_RESULT</code> or failure
+         */
+        void finish(Object taskOutcome) {
+            if (!record(taskOutcome)) {
+                return;
+            }
+            if (journaled) {
+                journal.completed(task.getId(), NULL_RESULT == taskOutcome ? null : taskOutcome);
+            }
+            metrics.taskFinished(taskOutcome instanceof ExecutionException);
+            complete(taskOutcome);
+            publish(taskOutcome);
+        }
+
+        /**
+         * Hands the finished task to the completion subscribers, blocking
+         * while one of them lags behind
+         * 
+         * @param taskOutcome
+         *            Task result, <code>NULL_RESULT</code> or failure
+         */
+        private void publish(Object taskOutcome) {
+            if (!completionPublisher.hasSubscribers()) {
+                return;
+            }
+            TaskCompletion completion = taskOutcome instanceof ExecutionException ? new TaskCompletion(task, null,
+                    ((ExecutionException) taskOutcome).getCause()) : new TaskCompletion(task,
+                    NULL_RESULT == taskOutcome ? null : taskOutcome, null);
+            try {
+                completionPublisher.submit(completion);
+            } catch (IllegalStateException ise) {
+                // Finished after close(), the subscriptions are over
+            }
+        }
+
+        /**
+         * Records the outcome of a task recovered from the journal, without
+         * journaling it again
+         * 
+         * @param taskOutcome
+         *            Journaled result, <code>NULL_RESULT</code> or failure
+         */
+        void restore(Object taskOutcome) {
+            if (record(taskOutcome)) {
+                complete(taskOutcome);
+            }
+        }
+
+        /**
+         * Completes the future with a recorded outcome
+         * 
+         * @param taskOutcome
+         *            Task result, <code>NULL_RESULT</code> or failure
+         */
+        private void complete(Object taskOutcome) {
+            if (taskOutcome instanceof ExecutionException) {
+                future.completeExceptionally(((ExecutionException) taskOutcome).getCause());
+            } else {
+                future.complete(NULL_RESULT == taskOutcome ? null : taskOutcome);
+            }
+        }
+
+        /**
+         * Records the task outcome, unless the task has been cancelled
+         * meanwhile
+         * 
+         * @param taskOutcome
+         *            Task result or failure
+         * @return <code>true</code> if the outcome has been recorded,
+         *         <code>false</code> if the task has been cancelled
+         */
+        private boolean record(Object taskOutcome) {
+            if (state.isFinished()) {
+                return false;
+            }
+            outcome = taskOutcome;
+            if (!enterFinalState(taskOutcome instanceof ExecutionException ? TaskState.FAILED : TaskState.DONE)) {
+                return false;
+            }
+            retain(this, taskOutcome);
+            if (null != completionQueue) {
+                completionQueue.add(task);
+            }
+            evictResults(EVICTIONS_PER_CALL);
+            return true;
+        }
+    }
+
+    /**
+     * Periodic task: each run is a new scheduled task, started by the timer
+     * and armed again once finished
+     */
+    private class PeriodicTask implements Runnable {
+
+        /**
+         * Task to run
+         */
+        private final Task task;
+
+        /**
+         * Future completed exceptionally when the runs stop
+         */
+        private final CompletableFuture<Object> future;
+
+        /**
+         * Period or delay between the runs, in nanoseconds
+         */
+        private final long periodNanos;
+
+        /**
+         * <code>true</code> to measure the period between the starts of the
+         * runs, <code>false</code> to measure it from the end of the previous
+         * run
+         */
+        private final boolean fixedRate;
+
+        /**
+         * Start time of the next run, from <code>System.nanoTime()</code>
+         */
+        private volatile long deadlineNanos;
+
+        /**
+         * Timer of the next run
+         */
+        private volatile Timeout timeout;
+
+        /**
+         * Constructs a new PeriodicTask
+         * 
+         * @param task
+         *            Task to run
+         * @param periodNanos
+         *            Period or delay between the runs, in nanoseconds
+         * @param fixedRate
+         *            <code>true</code> for a fixed rate, <code>false</code>
+         *            for a fixed delay
+         */
+        PeriodicTask(Task task, long periodNanos, boolean fixedRate) {
+            this.task = task;
+            this.future = new CompletableFuture<Object>();
+            this.periodNanos = periodNanos;
+            this.fixedRate = fixedRate;
+            future.whenComplete((result, failure) -> {
+                Timeout pendingTimeout = timeout;
+                if (null != pendingTimeout) {
+                    pendingTimeout.cancel();
+                }
+            });
+        }
+
+        /**
+         * Schedules the next run
+         * 
+         * @param deadlineNanos
+         *            Start time of the next run, from
+         *            <code>System.nanoTime()</code>
+         * @throws IllegalStateException
+         *             If the timer has been stopped
+         */
+        void arm(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+            timeout = timingWheel.schedule(this, deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (future.isDone()) {
+                // Cancelled meanwhile
+                timeout.cancel();
+            }
+        }
+
+        /**
+         * Starts a run, called by the timer
+         */
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
             }
+            evictResults(EVICTIONS_PER_CALL);
+            final ScheduledTask scheduledTask = new ScheduledTask(task, TaskPriority.NORMAL, null);
+            ScheduledTask previousRun = tasks.put(task.getId(), scheduledTask);
+            if (null != previousRun) {
+                release(previousRun);
+            }
+            scheduledTask.future.whenComplete((result, failure) -> finished(failure));
+            try {
+                start(scheduledTask, null);
+            } catch (RejectedExecutionException | TaskRejectedException e) {
+                SchedulerException se = startFailure(e);
+                scheduledTask.abandon(se);
+                future.completeExceptionally(se);
+            }
+        }
+
+        /**
+         * Arms the next run once a run is finished, unless it failed or the
+         * runs have been cancelled
+         * 
+         * @param failure
+         *            Failure of the run, <code>null</code> if it succeeded
+         */
+        private void finished(Throwable failure) {
+            if (null != failure) {
+                future.completeExceptionally(failure);
+                return;
+            }
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                arm(fixedRate ? deadlineNanos + periodNanos : System.nanoTime() + periodNanos);
+            } catch (IllegalStateException ise) {
+                future.completeExceptionally(new SchedulerException("Scheduler has been shutdown", ise));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "[PeriodicTask task=" + task + ", periodNanos=" + periodNanos + ", fixedRate=" + fixedRate + "]";
         }
     }
+
+    /**
+     * Holds the default instance, so that it is only created if used
+     */
+    private static final class DefaultInstanceHolder {
+
+        /**
+         * Default task scheduler instance
+         */
+        private static final TaskScheduler INSTANCE = new TaskScheduler();
+    }
 }
@@ -0,0 +1,64 @@
+package scheduler;
+
+/**
+ * Lifecycle of a task submitted to the TaskScheduler. A task only moves
+ * forward, from SUBMITTED to RUNNING, then to one of the final states.
+ *
+ */
+public enum TaskState {
+
+    /**
+     * Waiting for a worker, or for its delay to elapse
+     */
+    SUBMITTED(false),
+
+    /**
+     * Running on a worker
+     */
+    RUNNING(false),
+
+    /**
+     * Finished with a result
+     */
+    DONE(true),
+
+    /**
+     * Finished with an exception
+     */
+    FAILED(true),
+
+    /**
+     * Cancelled or rejected before it finished, its outcome is discarded
+     */
+    CANCELLED(true),
+
+    /**
+     * Still running at its execution timeout, interrupted and its outcome
+     * discarded
+     */
+    TIMED_OUT(true);
+
+    /**
+     * Whether the state is final
+     */
+    private final boolean finished;
+
+    /**
+     * Constructs a TaskState
+     * 
+     * @param finished
+     *            Whether the state is final
+     */
+    private TaskState(boolean finished) {
+        this.finished = finished;
+    }
+
+    /**
+     * Tells whether the state is final
+     * 
+     * @return <code>true</code> for DONE, FAILED, CANCELLED and TIMED_OUT
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+}
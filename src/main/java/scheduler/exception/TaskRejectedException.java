@@ -0,0 +1,38 @@
+package scheduler.exception;
+
+/**
+ * 
+ * Exception thrown when the TaskScheduler submission queue is full and its
+ * admission policy refuses a task
+ *
+ */
+public class TaskRejectedException extends SchedulerException {
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = 4807245163934183062L;
+
+    /**
+     * Constructs a new TaskRejectedException
+     * 
+     * @param message
+     *            Exception message
+     */
+    public TaskRejectedException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructs a new TaskRejectedException
+     * 
+     * @param message
+     *            Exception message
+     * @param cause
+     *            Root exception
+     */
+    public TaskRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
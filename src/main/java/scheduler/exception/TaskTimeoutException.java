@@ -0,0 +1,38 @@
+package scheduler.exception;
+
+/**
+ * 
+ * Exception completing the future of a task still running at its execution
+ * timeout
+ *
+ */
+public class TaskTimeoutException extends SchedulerException {
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = -2284601358923391046L;
+
+    /**
+     * Constructs a new TaskTimeoutException
+     * 
+     * @param message
+     *            Exception message
+     */
+    public TaskTimeoutException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructs a new TaskTimeoutException
+     * 
+     * @param message
+     *            Exception message
+     * @param cause
+     *            Root exception
+     */
+    public TaskTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,77 @@
+package scheduler.journal;
+
+import scheduler.task.Task;
+
+/**
+ * Task rebuilt from a {@link TaskJournal} on restart: either still pending,
+ * in which case it has to run again, or finished with its recorded outcome.
+ *
+ */
+public final class RecoveredTask {
+
+    /**
+     * Recovered task, with its original id
+     */
+    private final Task task;
+
+    /**
+     * Whether the task outcome has been journaled
+     */
+    private final boolean finished;
+
+    /**
+     * Task outcome: result, <code>null</code> result, or the
+     * <code>ExecutionException</code> of a failed task
+     */
+    private final Object outcome;
+
+    /**
+     * Constructs a new RecoveredTask
+     * 
+     * @param task
+     *            Recovered task
+     * @param finished
+     *            Whether the task outcome has been journaled
+     * @param outcome
+     *            Task outcome, <code>null</code> if not finished
+     */
+    RecoveredTask(Task task, boolean finished, Object outcome) {
+        this.task = task;
+        this.finished = finished;
+        this.outcome = outcome;
+    }
+
+    /**
+     * Gets the recovered task
+     * 
+     * @return Task, with its original id
+     */
+    public Task getTask() {
+        return task;
+    }
+
+    /**
+     * Tells whether the task finished before the restart
+     * 
+     * @return <code>true</code> if the task outcome has been journaled,
+     *         <code>false</code> if the task has to run again
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Gets the journaled outcome of a finished task
+     * 
+     * @return Task result, possibly <code>null</code>, or the
+     *         <code>ExecutionException</code> of a failed task
+     */
+    public Object getOutcome() {
+        return outcome;
+    }
+
+    @Override
+    public String toString() {
+        return "[RecoveredTask task=" + task + ", finished=" + finished + "]";
+    }
+}
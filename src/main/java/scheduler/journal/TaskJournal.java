@@ -0,0 +1,1024 @@
+package scheduler.journal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import scheduler.task.Task;
+
+/**
+ * Append-only journal of the tasks submitted to a TaskScheduler, so that a
+ * restarted scheduler can rebuild its pending and finished tasks. Events are
+ * serialized by the calling threads and queued; a single writer thread drains
+ * the queue and writes whatever has accumulated with one
+ * <code>FileChannel</code> write and one <code>force()</code> (group commit),
+ * so the cost of a disk sync is shared by all the events of the batch.
+ * <p>
+ * The journal is a sequence of segment files, rolled once the active one
+ * exceeds the segment size. Once enough segments are sealed, a compactor
+ * thread rewrites them into one holding only the live tasks, so the journal
+ * stays bounded by the size of the live tasks. A compacted segment supersedes
+ * the older ones, even if a crash kept them from being deleted. A record torn by a crash is
+ * detected through its checksum and ignored, along with the rest of its
+ * segment.
+ * <p>
+ * Only <code>Serializable</code> tasks are journaled. A task whose outcome is
+ * not serializable, or which finished after the journal was closed, is run
+ * again on recovery. The journal deserializes its own files, so its directory
+ * must only be writable by the scheduler.
+ *
+ */
+public class TaskJournal implements AutoCloseable {
+
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskJournal.class);
+
+    /**
+     * Journal number generator, names the journal threads
+     */
+    private static final AtomicInteger JOURNAL_NUMBER = new AtomicInteger(1);
+
+    /**
+     * Number of sealed segments triggering a compaction
+     */
+    public static final int COMPACTION_THRESHOLD = 4;
+
+    /**
+     * Segment file name prefix
+     */
+    private static final String SEGMENT_PREFIX = "journal-";
+
+    /**
+     * Segment file name suffix
+     */
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * Suffix of a compacted segment being written
+     */
+    private static final String COMPACTION_SUFFIX = ".compact";
+
+    /**
+     * Record header size: payload length, checksum, type and task id
+     */
+    private static final int HEADER_BYTES = 4 + 4 + 1 + 4;
+
+    /**
+     * Queued by close() behind the last record, never written
+     */
+    private static final byte CLOSE = 0;
+
+    /**
+     * Task submission, the payload is the serialized task
+     */
+    private static final byte SUBMITTED = 1;
+
+    /**
+     * Task completion, the payload is the serialized outcome
+     */
+    private static final byte COMPLETED = 2;
+
+    /**
+     * Task removal, without payload
+     */
+    private static final byte REMOVED = 3;
+
+    /**
+     * First record of a compacted segment, without payload: the segment holds
+     * every live task of the older segments, which are replayed no further
+     */
+    private static final byte COMPACTED = 4;
+
+    /**
+     * Payload of the records without one
+     */
+    private static final byte[] NO_PAYLOAD = new byte[0];
+
+    /**
+     * Journal directory
+     */
+    private final Path directory;
+
+    /**
+     * Size beyond which the active segment is rolled, in bytes
+     */
+    private final long segmentBytes;
+
+    /**
+     * Tasks rebuilt from the existing segments
+     */
+    private final List<RecoveredTask> recoveredTasks;
+
+    /**
+     * Records waiting for the writer thread
+     */
+    private final BlockingQueue<Record> pendingRecords;
+
+    /**
+     * Lock ordering the record sequences with the queue
+     */
+    private final Object appendLock;
+
+    /**
+     * Sequence of the last queued record. Guarded by the append lock.
+     */
+    private long appendedSequence;
+
+    /**
+     * Lock notified on each commit
+     */
+    private final Object flushLock;
+
+    /**
+     * Sequence of the last record forced to disk. Guarded by the flush lock.
+     */
+    private long flushedSequence;
+
+    /**
+     * Set once the writer thread is over. Guarded by the flush lock.
+     */
+    private boolean writerStopped;
+
+    /**
+     * Sealed segments, oldest first. Guarded by the list.
+     */
+    private final List<Path> sealedSegments;
+
+    /**
+     * Writer thread
+     */
+    private final Thread writer;
+
+    /**
+     * Runs the compactions, one at a time
+     */
+    private final ExecutorService compactor;
+
+    /**
+     * Set while a compaction is queued or running
+     */
+    private final AtomicBoolean compacting;
+
+    /**
+     * Number of group commits
+     */
+    private final AtomicLong commitCount;
+
+    /**
+     * Number of records forced to disk
+     */
+    private final AtomicLong flushedRecordCount;
+
+    /**
+     * Number of compactions
+     */
+    private final AtomicLong compactionCount;
+
+    /**
+     * Active segment. Only accessed by the writer thread once constructed.
+     */
+    private Path activeSegment;
+
+    /**
+     * Channel of the active segment. Only accessed by the writer thread once
+     * constructed.
+     */
+    private FileChannel activeChannel;
+
+    /**
+     * Size of the active segment, in bytes. Only accessed by the writer
+     * thread once constructed.
+     */
+    private long activeBytes;
+
+    /**
+     * Number of the next segment. Only accessed by the writer thread once
+     * constructed.
+     */
+    private long nextSegmentNumber;
+
+    /**
+     * Write buffer, grown as needed. Only accessed by the writer thread.
+     */
+    private ByteBuffer writeBuffer;
+
+    /**
+     * Set once the journal has been closed. Guarded by the append lock.
+     */
+    private boolean closed;
+
+    /**
+     * Set once a write failed, the journal then ignores the new records
+     */
+    private volatile boolean failed;
+
+    /**
+     * Opens a journal, replaying its existing segments, and starts its writer
+     * thread. New records go to a new segment.
+     * 
+     * @param directory
+     *            Journal directory, created if needed
+     * @param segmentBytes
+     *            Size beyond which a segment is rolled, in bytes, must be
+     *            positive
+     * @throws IOException
+     *             If the directory or its segments cannot be read, or a new
+     *             segment cannot be created
+     */
+    public TaskJournal(Path directory, long segmentBytes) throws IOException {
+        if (segmentBytes <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        this.sealedSegments = listSegments(directory);
+        deleteSupersededSegments(sealedSegments);
+        this.recoveredTasks = Collections.unmodifiableList(recover(readSegments(sealedSegments)));
+        this.nextSegmentNumber = sealedSegments.isEmpty() ? 0 : segmentNumber(sealedSegments.get(sealedSegments
+                .size() - 1)) + 1;
+        openSegment();
+        this.pendingRecords = new LinkedBlockingQueue<Record>();
+        this.appendLock = new Object();
+        this.flushLock = new Object();
+        this.compacting = new AtomicBoolean();
+        this.commitCount = new AtomicLong();
+        this.flushedRecordCount = new AtomicLong();
+        this.compactionCount = new AtomicLong();
+        this.writeBuffer = ByteBuffer.allocate(64 * 1024);
+        int journalNumber = JOURNAL_NUMBER.getAndIncrement();
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scheduler-journal-compactor-" + journalNumber);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer = new Thread(this::write, "scheduler-journal-writer-" + journalNumber);
+        this.writer.setDaemon(true);
+        this.writer.start();
+        if (sealedSegments.size() >= COMPACTION_THRESHOLD) {
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * Lists the segments of a journal directory, deleting the compactions
+     * interrupted by a crash
+     * 
+     * @param directory
+     *            Journal directory
+     * @return Segments, oldest first
+     * @throws IOException
+     *             If the directory cannot be read
+     */
+    private static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<Path>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(COMPACTION_SUFFIX)) {
+                    Files.delete(file);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(file);
+                }
+            }
+        }
+        // Zero padded numbers, the names sort in segment order
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Deletes the segments older than the last compacted one, left behind by
+     * a crash during their compaction
+     * 
+     * @param segments
+     *            Segments, oldest first, updated
+     * @throws IOException
+     *             If a segment cannot be read or deleted
+     */
+    private static void deleteSupersededSegments(List<Path> segments) throws IOException {
+        for (int i = segments.size() - 1; i > 0; i--) {
+            if (isCompacted(segments.get(i))) {
+                List<Path> supersededSegments = segments.subList(0, i);
+                for (Path segment : supersededSegments) {
+                    Files.delete(segment);
+                }
+                supersededSegments.clear();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tells whether a segment has been written by a compaction
+     * 
+     * @param segment
+     *            Segment
+     * @return <code>true</code> if the segment starts with a compaction
+     *         record
+     * @throws IOException
+     *             If the segment cannot be read
+     */
+    private static boolean isCompacted(Path segment) throws IOException {
+        if (Files.size(segment) < HEADER_BYTES) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            byte type = in.readByte();
+            int taskId = in.readInt();
+            return 0 == length && COMPACTED == type && checksum == checksum(type, taskId, NO_PAYLOAD);
+        }
+    }
+
+    /**
+     * Gets the number of a segment
+     * 
+     * @param segment
+     *            Segment file
+     * @return Segment number
+     */
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Rebuilds the live tasks
+     * 
+     * @param liveEntries
+     *            Records of the live tasks, by task id
+     * @return Recovered tasks, in submission order
+     */
+    private static List<RecoveredTask> recover(Map<Integer, LiveEntry> liveEntries) {
+        List<RecoveredTask> tasks = new ArrayList<RecoveredTask>(liveEntries.size());
+        for (Map.Entry<Integer, LiveEntry> liveEntry : liveEntries.entrySet()) {
+            try {
+                Task task = (Task) deserialize(liveEntry.getValue().submission);
+                byte[] outcome = liveEntry.getValue().outcome;
+                tasks.add(new RecoveredTask(task, null != outcome, null == outcome ? null : deserialize(outcome)));
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                LOGGER.warn("Failed to recover journaled task " + liveEntry.getKey(), e);
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Replays segments
+     * 
+     * @param segments
+     *            Segments, oldest first
+     * @return Records of the live tasks, by task id in submission order
+     * @throws IOException
+     *             If a segment cannot be read
+     */
+    private static Map<Integer, LiveEntry> readSegments(List<Path> segments) throws IOException {
+        Map<Integer, LiveEntry> liveEntries = new LinkedHashMap<Integer, LiveEntry>();
+        for (Path segment : segments) {
+            readSegment(segment, liveEntries);
+        }
+        return liveEntries;
+    }
+
+    /**
+     * Replays a segment, up to its first torn record
+     * 
+     * @param segment
+     *            Segment
+     * @param liveEntries
+     *            Records of the live tasks, by task id, updated
+     * @throws IOException
+     *             If the segment cannot be read
+     */
+    private static void readSegment(Path segment, Map<Integer, LiveEntry> liveEntries) throws IOException {
+        long size = Files.size(segment);
+        long position = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+            while (position < size) {
+                if (size - position < HEADER_BYTES) {
+                    break;
+                }
+                int length = in.readInt();
+                int checksum = in.readInt();
+                byte type = in.readByte();
+                int taskId = in.readInt();
+                if (length < 0 || length > size - position - HEADER_BYTES) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (checksum != checksum(type, taskId, payload)
+                        || (SUBMITTED != type && COMPLETED != type && REMOVED != type && COMPACTED != type)) {
+                    break;
+                }
+                position += HEADER_BYTES + length;
+                switch (type) {
+                case SUBMITTED:
+                    // Moved to the end, a task id may be submitted again
+                    liveEntries.remove(taskId);
+                    liveEntries.put(taskId, new LiveEntry(payload));
+                    break;
+                case COMPLETED:
+                    LiveEntry liveEntry = liveEntries.get(taskId);
+                    if (null != liveEntry) {
+                        liveEntry.outcome = payload;
+                    }
+                    break;
+                case REMOVED:
+                    liveEntries.remove(taskId);
+                    break;
+                case COMPACTED:
+                    // Supersedes the older segments, if their deletion was
+                    // interrupted
+                    liveEntries.clear();
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            // Shorter than announced, torn like a bad checksum
+        }
+        if (position != size) {
+            LOGGER.warn("Ignoring the torn end of journal segment " + segment + " from offset " + position);
+        }
+    }
+
+    /**
+     * Computes the checksum of a record
+     * 
+     * @param type
+     *            Record type
+     * @param taskId
+     *            Task id
+     * @param payload
+     *            Record payload
+     * @return CRC32 of the record, without its length
+     */
+    private static int checksum(byte type, int taskId, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(taskId >>> 24);
+        crc.update(taskId >>> 16);
+        crc.update(taskId >>> 8);
+        crc.update(taskId);
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Appends a record to a buffer
+     * 
+     * @param buffer
+     *            Buffer with enough room
+     * @param type
+     *            Record type
+     * @param taskId
+     *            Task id
+     * @param payload
+     *            Record payload
+     */
+    private static void putRecord(ByteBuffer buffer, byte type, int taskId, byte[] payload) {
+        buffer.putInt(payload.length).putInt(checksum(type, taskId, payload)).put(type).putInt(taskId).put(payload);
+    }
+
+    /**
+     * Writes a whole buffer
+     * 
+     * @param channel
+     *            Segment channel
+     * @param buffer
+     *            Flipped buffer
+     * @throws IOException
+     *             If the write fails
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Serializes an object
+     * 
+     * @param object
+     *            Object, may be <code>null</code>
+     * @return Serialized object, <code>null</code> if it is not serializable
+     */
+    private static byte[] serialize(Object object) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        } catch (IOException e) {
+            LOGGER.debug("Not journaled, failed to serialize " + object, e);
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes an object
+     * 
+     * @param bytes
+     *            Serialized object
+     * @return Object, may be <code>null</code>
+     * @throws IOException
+     *             If the object cannot be read
+     * @throws ClassNotFoundException
+     *             If the object class is not available
+     */
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    /**
+     * Gets the tasks rebuilt from the segments existing when the journal was
+     * opened
+     * 
+     * @return Recovered tasks, in submission order
+     */
+    public List<RecoveredTask> getRecoveredTasks() {
+        return recoveredTasks;
+    }
+
+    /**
+     * Journals a task submission
+     * 
+     * @param task
+     *            Submitted task
+     * @return Record sequence, for {@link #awaitFlushed(long)}; -1 if the
+     *         task is not serializable or the journal is closed
+     */
+    public long submitted(Task task) {
+        if (!(task instanceof Serializable)) {
+            return -1;
+        }
+        byte[] payload = serialize(task);
+        return null == payload ? -1 : append(SUBMITTED, task.getId(), payload);
+    }
+
+    /**
+     * Journals a task outcome
+     * 
+     * @param taskId
+     *            Id of the journaled task
+     * @param outcome
+     *            Task result, possibly <code>null</code>, or the
+     *            <code>ExecutionException</code> of a failed task
+     * @return Record sequence, -1 if the outcome is not serializable or the
+     *         journal is closed
+     */
+    public long completed(int taskId, Object outcome) {
+        byte[] payload = serialize(outcome);
+        return null == payload ? -1 : append(COMPLETED, taskId, payload);
+    }
+
+    /**
+     * Journals a task removal: removed, evicted or cancelled
+     * 
+     * @param taskId
+     *            Id of the journaled task
+     * @return Record sequence, -1 if the journal is closed
+     */
+    public long removed(int taskId) {
+        return append(REMOVED, taskId, NO_PAYLOAD);
+    }
+
+    /**
+     * Queues a record for the writer thread
+     * 
+     * @param type
+     *            Record type
+     * @param taskId
+     *            Task id
+     * @param payload
+     *            Record payload
+     * @return Record sequence, -1 if the journal is closed or failed
+     */
+    private long append(byte type, int taskId, byte[] payload) {
+        synchronized (appendLock) {
+            if (closed || failed) {
+                return -1;
+            }
+            long sequence = ++appendedSequence;
+            pendingRecords.add(new Record(sequence, type, taskId, payload));
+            return sequence;
+        }
+    }
+
+    /**
+     * Waits until a record has been forced to disk, along with all the
+     * records queued before it
+     * 
+     * @param sequence
+     *            Record sequence
+     * @return <code>true</code> if the record is durable, <code>false</code>
+     *         if it was not journaled, the journal failed or the calling
+     *         thread has been interrupted
+     */
+    public boolean awaitFlushed(long sequence) {
+        if (sequence <= 0) {
+            return false;
+        }
+        synchronized (flushLock) {
+            while (flushedSequence < sequence) {
+                if (writerStopped) {
+                    return false;
+                }
+                try {
+                    flushLock.wait();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writer thread loop: commits the queued records by batches until closed
+     */
+    private void write() {
+        List<Record> batch = new ArrayList<Record>();
+        try {
+            while (true) {
+                batch.add(pendingRecords.take());
+                pendingRecords.drainTo(batch);
+                commit(batch);
+                if (CLOSE == batch.get(batch.size() - 1).type) {
+                    break;
+                }
+                batch.clear();
+            }
+        } catch (IOException e) {
+            failed = true;
+            LOGGER.error("Failed to write the task journal in " + directory + ", tasks are no longer journaled", e);
+        } catch (InterruptedException ie) {
+            failed = true;
+            LOGGER.error("Task journal writer interrupted, tasks are no longer journaled", ie);
+        } finally {
+            try {
+                activeChannel.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close journal segment " + activeSegment, e);
+            }
+            synchronized (flushLock) {
+                writerStopped = true;
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes a batch of records with a single write and a single disk sync,
+     * then rolls the segment if it is full
+     * 
+     * @param batch
+     *            Records, in sequence order
+     * @throws IOException
+     *             If the write fails
+     */
+    private void commit(List<Record> batch) throws IOException {
+        int batchBytes = 0;
+        int recordCount = 0;
+        for (Record record : batch) {
+            if (CLOSE != record.type) {
+                batchBytes += HEADER_BYTES + record.payload.length;
+                recordCount++;
+            }
+        }
+        if (recordCount > 0) {
+            if (writeBuffer.capacity() < batchBytes) {
+                writeBuffer = ByteBuffer.allocate(Math.max(batchBytes, 2 * writeBuffer.capacity()));
+            }
+            writeBuffer.clear();
+            for (Record record : batch) {
+                if (CLOSE != record.type) {
+                    putRecord(writeBuffer, record.type, record.taskId, record.payload);
+                }
+            }
+            writeBuffer.flip();
+            writeFully(activeChannel, writeBuffer);
+            activeChannel.force(false);
+            activeBytes += batchBytes;
+            commitCount.incrementAndGet();
+            flushedRecordCount.addAndGet(recordCount);
+        }
+        synchronized (flushLock) {
+            flushedSequence = batch.get(batch.size() - 1).sequence;
+            flushLock.notifyAll();
+        }
+        if (activeBytes >= segmentBytes) {
+            roll();
+        }
+    }
+
+    /**
+     * Opens a new active segment
+     * 
+     * @throws IOException
+     *             If the segment cannot be created
+     */
+    private void openSegment() throws IOException {
+        activeSegment = directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, nextSegmentNumber++,
+                SEGMENT_SUFFIX));
+        activeChannel = FileChannel.open(activeSegment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        activeBytes = 0;
+        syncDirectory();
+    }
+
+    /**
+     * Seals the active segment, opens a new one and starts a compaction if
+     * enough segments are sealed
+     * 
+     * @throws IOException
+     *             If the new segment cannot be created
+     */
+    private void roll() throws IOException {
+        activeChannel.close();
+        int sealedCount;
+        synchronized (sealedSegments) {
+            sealedSegments.add(activeSegment);
+            sealedCount = sealedSegments.size();
+        }
+        openSegment();
+        if (sealedCount >= COMPACTION_THRESHOLD) {
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * Makes the creations and renamings of segments durable. Not supported
+     * on every platform, a failure is ignored.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            LOGGER.trace("Journal directory sync not supported", e);
+        }
+    }
+
+    /**
+     * Queues a compaction, unless one is already queued or running
+     */
+    private void scheduleCompaction() {
+        if (compacting.compareAndSet(false, true)) {
+            compactor.execute(this::compact);
+        }
+    }
+
+    /**
+     * Rewrites the sealed segments into the newest of them, keeping only the
+     * records of the live tasks, then deletes the others. The rewritten
+     * segment starts with a compaction record superseding the older segments,
+     * so a crash at any point leaves a journal replaying to the same tasks.
+     */
+    synchronized void compact() {
+        try {
+            List<Path> segments;
+            synchronized (sealedSegments) {
+                segments = new ArrayList<Path>(sealedSegments);
+            }
+            if (segments.size() < 2) {
+                return;
+            }
+            Map<Integer, LiveEntry> liveEntries = readSegments(segments);
+            Path target = segments.get(segments.size() - 1);
+            Path compacted = target.resolveSibling(target.getFileName() + COMPACTION_SUFFIX);
+            try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer marker = ByteBuffer.allocate(HEADER_BYTES);
+                putRecord(marker, COMPACTED, 0, NO_PAYLOAD);
+                marker.flip();
+                writeFully(channel, marker);
+                for (Map.Entry<Integer, LiveEntry> liveEntry : liveEntries.entrySet()) {
+                    LiveEntry entry = liveEntry.getValue();
+                    int entryBytes = HEADER_BYTES + entry.submission.length;
+                    if (null != entry.outcome) {
+                        entryBytes += HEADER_BYTES + entry.outcome.length;
+                    }
+                    ByteBuffer buffer = ByteBuffer.allocate(entryBytes);
+                    putRecord(buffer, SUBMITTED, liveEntry.getKey(), entry.submission);
+                    if (null != entry.outcome) {
+                        putRecord(buffer, COMPLETED, liveEntry.getKey(), entry.outcome);
+                    }
+                    buffer.flip();
+                    writeFully(channel, buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(compacted, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory();
+            List<Path> obsoleteSegments = segments.subList(0, segments.size() - 1);
+            // Already superseded by the target, deleted by the next opening
+            // if interrupted
+            for (Path segment : obsoleteSegments) {
+                Files.deleteIfExists(segment);
+            }
+            synchronized (sealedSegments) {
+                sealedSegments.removeAll(obsoleteSegments);
+            }
+            compactionCount.incrementAndGet();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to compact the task journal in " + directory, e);
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    /**
+     * Gets the number of group commits, each one being a single write and
+     * disk sync
+     * 
+     * @return Commit count
+     */
+    public long getCommitCount() {
+        return commitCount.get();
+    }
+
+    /**
+     * Gets the number of records forced to disk
+     * 
+     * @return Flushed record count
+     */
+    public long getFlushedRecordCount() {
+        return flushedRecordCount.get();
+    }
+
+    /**
+     * Gets the number of compactions
+     * 
+     * @return Compaction count
+     */
+    public long getCompactionCount() {
+        return compactionCount.get();
+    }
+
+    /**
+     * Gets the number of segments, including the active one
+     * 
+     * @return Segment count
+     */
+    public int getSegmentCount() {
+        synchronized (sealedSegments) {
+            return sealedSegments.size() + 1;
+        }
+    }
+
+    /**
+     * Tells whether a write failed, in which case the journal ignores the
+     * new records
+     * 
+     * @return <code>true</code> if failed
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Commits the queued records and stops the journal threads. Further
+     * records are ignored. Closing twice has no effect.
+     */
+    @Override
+    public void close() {
+        synchronized (appendLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pendingRecords.add(new Record(++appendedSequence, CLOSE, 0, NO_PAYLOAD));
+        }
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        compactor.shutdown();
+        while (!compactor.isTerminated()) {
+            try {
+                compactor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[TaskJournal directory=" + directory + ", segments=" + getSegmentCount() + ", commits="
+                + getCommitCount() + ", records=" + getFlushedRecordCount() + "]";
+    }
+
+    /**
+     * Record waiting for the writer thread
+     */
+    private static final class Record {
+
+        /**
+         * Record sequence
+         */
+        private final long sequence;
+
+        /**
+         * Record type
+         */
+        private final byte type;
+
+        /**
+         * Task id
+         */
+        private final int taskId;
+
+        /**
+         * Record payload
+         */
+        private final byte[] payload;
+
+        /**
+         * Constructs a new Record
+         * 
+         * @param sequence
+         *            Record sequence
+         * @param type
+         *            Record type
+         * @param taskId
+         *            Task id
+         * @param payload
+         *            Record payload
+         */
+        Record(long sequence, byte type, int taskId, byte[] payload) {
+            this.sequence = sequence;
+            this.type = type;
+            this.taskId = taskId;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Records of a live task, replayed from the segments
+     */
+    private static final class LiveEntry {
+
+        /**
+         * Serialized task
+         */
+        private final byte[] submission;
+
+        /**
+         * Serialized outcome, <code>null</code> if not finished
+         */
+        private byte[] outcome;
+
+        /**
+         * Constructs a new LiveEntry
+         * 
+         * @param submission
+         *            Serialized task
+         */
+        LiveEntry(byte[] submission) {
+            this.submission = submission;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package scheduler.metrics;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable summary of a {@link LatencyHistogram}, in nanoseconds. Percentiles
+ * are rounded up to their bucket, so they may exceed the real value by about
+ * 3%.
+ *
+ */
+public final class HistogramSnapshot {
+
+    /**
+     * Number of values
+     */
+    private final long count;
+
+    /**
+     * Mean value
+     */
+    private final double mean;
+
+    /**
+     * Median
+     */
+    private final long p50;
+
+    /**
+     * 90th percentile
+     */
+    private final long p90;
+
+    /**
+     * 99th percentile
+     */
+    private final long p99;
+
+    /**
+     * 99.9th percentile
+     */
+    private final long p999;
+
+    /**
+     * Highest value
+     */
+    private final long max;
+
+    /**
+     * Constructs a new HistogramSnapshot
+     * 
+     * @param count
+     *            Number of values
+     * @param mean
+     *            Mean value
+     * @param p50
+     *            Median
+     * @param p90
+     *            90th percentile
+     * @param p99
+     *            99th percentile
+     * @param p999
+     *            99.9th percentile
+     * @param max
+     *            Highest value
+     */
+    @ConstructorProperties({ "count", "mean", "p50", "p90", "p99", "p999", "max" })
+    public HistogramSnapshot(long count, double mean, long p50, long p90, long p99, long p999, long max) {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    /**
+     * Gets the number of values
+     * 
+     * @return Value count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean value
+     * 
+     * @return Mean, in nanoseconds
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Gets the median
+     * 
+     * @return Median, in nanoseconds
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * Gets the 90th percentile
+     * 
+     * @return 90th percentile, in nanoseconds
+     */
+    public long getP90() {
+        return p90;
+    }
+
+    /**
+     * Gets the 99th percentile
+     * 
+     * @return 99th percentile, in nanoseconds
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * Gets the 99.9th percentile
+     * 
+     * @return 99.9th percentile, in nanoseconds
+     */
+    public long getP999() {
+        return p999;
+    }
+
+    /**
+     * Gets the highest value
+     * 
+     * @return Highest value, in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "[count=" + count + ", mean=" + TimeUnit.NANOSECONDS.toMicros((long) mean) + "us, p50="
+                + TimeUnit.NANOSECONDS.toMicros(p50) + "us, p99=" + TimeUnit.NANOSECONDS.toMicros(p99) + "us, max="
+                + TimeUnit.NANOSECONDS.toMicros(max) + "us]";
+    }
+}
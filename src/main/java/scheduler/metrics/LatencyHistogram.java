@@ -0,0 +1,182 @@
+package scheduler.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations, with log-linear buckets in the spirit of
+ * HdrHistogram: each power of two is split into a fixed number of linear
+ * sub-buckets, so values are recorded with a bounded relative error (about 3%)
+ * over the whole <code>long</code> range, in a fixed amount of memory.
+ * Recording a value is a few atomic increments and never allocates.
+ *
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of sub-buckets per power of two, as a power of two
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * Number of sub-buckets per power of two
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Sub-bucket index mask
+     */
+    private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+
+    /**
+     * Number of buckets: values below the sub-bucket count are exact, then one
+     * group of sub-buckets per power of two
+     */
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    /**
+     * Number of values by bucket
+     */
+    private final AtomicLongArray counts;
+
+    /**
+     * Number of recorded values
+     */
+    private final LongAdder totalCount;
+
+    /**
+     * Sum of the recorded values
+     */
+    private final LongAdder totalSum;
+
+    /**
+     * Highest recorded value
+     */
+    private final AtomicLong maxValue;
+
+    /**
+     * Constructs a new LatencyHistogram
+     */
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.totalCount = new LongAdder();
+        this.totalSum = new LongAdder();
+        this.maxValue = new AtomicLong();
+    }
+
+    /**
+     * Gets the bucket of a value
+     * 
+     * @param value
+     *            Positive value
+     * @return Bucket index
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & SUB_BUCKET_MASK;
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Gets the highest value falling into a bucket
+     * 
+     * @param index
+     *            Bucket index
+     * @return Highest value of the bucket
+     */
+    static long highestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lowest = (long) (SUB_BUCKET_COUNT + (index & SUB_BUCKET_MASK)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Records a value
+     * 
+     * @param value
+     *            Value, negative values are recorded as 0
+     */
+    public void record(long value) {
+        long positiveValue = Math.max(0, value);
+        counts.incrementAndGet(bucketIndex(positiveValue));
+        totalCount.increment();
+        totalSum.add(positiveValue);
+        long max = maxValue.get();
+        while (positiveValue > max && !maxValue.compareAndSet(max, positiveValue)) {
+            max = maxValue.get();
+        }
+    }
+
+    /**
+     * Takes a consistent enough copy of the histogram: values recorded while
+     * copying may or may not be included
+     * 
+     * @return Histogram snapshot
+     */
+    public HistogramSnapshot snapshot() {
+        long[] bucketCounts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            bucketCounts[i] = counts.get(i);
+            count += bucketCounts[i];
+        }
+        long max = maxValue.get();
+        double mean = 0 == count ? 0 : (double) totalSum.sum() / totalCount.sum();
+        return new HistogramSnapshot(count, mean, valueAt(bucketCounts, count, 50, max), valueAt(bucketCounts,
+                count, 90, max), valueAt(bucketCounts, count, 99, max), valueAt(bucketCounts, count, 99.9, max), max);
+    }
+
+    /**
+     * Gets the value below which a percentage of the values fall
+     * 
+     * @param bucketCounts
+     *            Number of values by bucket
+     * @param count
+     *            Number of values
+     * @param percentile
+     *            Percentage, from 0 to 100
+     * @param max
+     *            Highest recorded value
+     * @return Highest value of the bucket reaching the percentile, at most the
+     *         highest recorded value
+     */
+    private static long valueAt(long[] bucketCounts, long count, double percentile, long max) {
+        if (0 == count) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Gets the number of recorded values
+     * 
+     * @return Value count
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * Gets the highest recorded value
+     * 
+     * @return Highest value, 0 if none
+     */
+    public long getMax() {
+        return maxValue.get();
+    }
+}
@@ -0,0 +1,198 @@
+package scheduler.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable copy of the TaskScheduler metrics, taken through
+ * {@link SchedulerMetrics#snapshot()}. Durations are in nanoseconds.
+ *
+ */
+public final class MetricsSnapshot {
+
+    /**
+     * Number of submitted tasks
+     */
+    private final long submittedCount;
+
+    /**
+     * Number of started tasks
+     */
+    private final long startedCount;
+
+    /**
+     * Number of tasks which returned a result
+     */
+    private final long completedCount;
+
+    /**
+     * Number of tasks which threw an exception
+     */
+    private final long failedCount;
+
+    /**
+     * Number of tasks waiting for a worker
+     */
+    private final int queueDepth;
+
+    /**
+     * Number of running tasks
+     */
+    private final int activeWorkerCount;
+
+    /**
+     * Queue wait time of all the tasks
+     */
+    private final HistogramSnapshot waitTime;
+
+    /**
+     * Execution time of all the tasks
+     */
+    private final HistogramSnapshot executionTime;
+
+    /**
+     * Queue wait time by task type
+     */
+    private final Map<String, HistogramSnapshot> waitTimeByTaskType;
+
+    /**
+     * Execution time by task type
+     */
+    private final Map<String, HistogramSnapshot> executionTimeByTaskType;
+
+    /**
+     * Constructs a new MetricsSnapshot
+     * 
+     * @param submittedCount
+     *            Number of submitted tasks
+     * @param startedCount
+     *            Number of started tasks
+     * @param completedCount
+     *            Number of tasks which returned a result
+     * @param failedCount
+     *            Number of tasks which threw an exception
+     * @param queueDepth
+     *            Number of tasks waiting for a worker
+     * @param activeWorkerCount
+     *            Number of running tasks
+     * @param waitTime
+     *            Queue wait time of all the tasks
+     * @param executionTime
+     *            Execution time of all the tasks
+     * @param waitTimeByTaskType
+     *            Queue wait time by task type
+     * @param executionTimeByTaskType
+     *            Execution time by task type
+     */
+    MetricsSnapshot(long submittedCount, long startedCount, long completedCount, long failedCount, int queueDepth,
+            int activeWorkerCount, HistogramSnapshot waitTime, HistogramSnapshot executionTime,
+            Map<String, HistogramSnapshot> waitTimeByTaskType, Map<String, HistogramSnapshot> executionTimeByTaskType) {
+        this.submittedCount = submittedCount;
+        this.startedCount = startedCount;
+        this.completedCount = completedCount;
+        this.failedCount = failedCount;
+        this.queueDepth = queueDepth;
+        this.activeWorkerCount = activeWorkerCount;
+        this.waitTime = waitTime;
+        this.executionTime = executionTime;
+        this.waitTimeByTaskType = Collections.unmodifiableMap(waitTimeByTaskType);
+        this.executionTimeByTaskType = Collections.unmodifiableMap(executionTimeByTaskType);
+    }
+
+    /**
+     * Gets the number of submitted tasks, periodic runs included
+     * 
+     * @return Submitted task count
+     */
+    public long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    /**
+     * Gets the number of started tasks
+     * 
+     * @return Started task count
+     */
+    public long getStartedCount() {
+        return startedCount;
+    }
+
+    /**
+     * Gets the number of tasks which returned a result
+     * 
+     * @return Completed task count
+     */
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * Gets the number of tasks which threw an exception
+     * 
+     * @return Failed task count
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Gets the number of tasks waiting for a worker
+     * 
+     * @return Queue depth
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Gets the number of running tasks
+     * 
+     * @return Active worker count
+     */
+    public int getActiveWorkerCount() {
+        return activeWorkerCount;
+    }
+
+    /**
+     * Gets the queue wait time of all the tasks
+     * 
+     * @return Queue wait time histogram
+     */
+    public HistogramSnapshot getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * Gets the execution time of all the tasks
+     * 
+     * @return Execution time histogram
+     */
+    public HistogramSnapshot getExecutionTime() {
+        return executionTime;
+    }
+
+    /**
+     * Gets the queue wait time by task type
+     * 
+     * @return Queue wait time histograms, by task type
+     */
+    public Map<String, HistogramSnapshot> getWaitTimeByTaskType() {
+        return waitTimeByTaskType;
+    }
+
+    /**
+     * Gets the execution time by task type
+     * 
+     * @return Execution time histograms, by task type
+     */
+    public Map<String, HistogramSnapshot> getExecutionTimeByTaskType() {
+        return executionTimeByTaskType;
+    }
+
+    @Override
+    public String toString() {
+        return "[MetricsSnapshot submitted=" + submittedCount + ", started=" + startedCount + ", completed="
+                + completedCount + ", failed=" + failedCount + ", queueDepth=" + queueDepth + ", active="
+                + activeWorkerCount + ", wait=" + waitTime + ", execution=" + executionTime + "]";
+    }
+}
@@ -0,0 +1,337 @@
+package scheduler.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import scheduler.task.AbstractScriptTask;
+import scheduler.task.Task;
+
+/**
+ * Metrics recorded by a TaskScheduler on its hot path. Counters are striped
+ * <code>LongAdder</code>s and histograms are lock-free, so recording never
+ * blocks the workers. Read them through {@link #snapshot()} or JMX.
+ *
+ */
+public class SchedulerMetrics implements SchedulerMetricsMXBean {
+
+    /**
+     * Maximum number of task types tracked separately, so that scripts built
+     * on the fly cannot grow the metrics without limit
+     */
+    public static final int MAX_TASK_TYPES = 256;
+
+    /**
+     * Task type gathering the task types beyond the maximum
+     */
+    public static final String OTHER_TASK_TYPE = "other";
+
+    /**
+     * Number of submitted tasks
+     */
+    private final LongAdder submittedCount;
+
+    /**
+     * Number of started tasks
+     */
+    private final LongAdder startedCount;
+
+    /**
+     * Number of tasks which returned a result
+     */
+    private final LongAdder completedCount;
+
+    /**
+     * Number of tasks which threw an exception
+     */
+    private final LongAdder failedCount;
+
+    /**
+     * Number of running tasks
+     */
+    private final LongAdder activeWorkerCount;
+
+    /**
+     * Gives the number of tasks waiting for a worker
+     */
+    private final IntSupplier queueDepth;
+
+    /**
+     * Statistics of all the tasks
+     */
+    private final TaskTypeMetrics allTasks;
+
+    /**
+     * Statistics by task class, then by script hash (0 for tasks which are
+     * not script tasks)
+     */
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Integer, TaskTypeMetrics>> taskTypes;
+
+    /**
+     * Number of task types tracked separately
+     */
+    private final AtomicInteger taskTypeCount;
+
+    /**
+     * Statistics of the task types beyond the maximum
+     */
+    private final TaskTypeMetrics otherTasks;
+
+    /**
+     * Constructs new SchedulerMetrics
+     * 
+     * @param queueDepth
+     *            Gives the number of tasks waiting for a worker
+     */
+    public SchedulerMetrics(IntSupplier queueDepth) {
+        this.submittedCount = new LongAdder();
+        this.startedCount = new LongAdder();
+        this.completedCount = new LongAdder();
+        this.failedCount = new LongAdder();
+        this.activeWorkerCount = new LongAdder();
+        this.queueDepth = queueDepth;
+        this.allTasks = new TaskTypeMetrics("all");
+        this.taskTypes = new ConcurrentHashMap<Class<?>, ConcurrentMap<Integer, TaskTypeMetrics>>();
+        this.taskTypeCount = new AtomicInteger();
+        this.otherTasks = new TaskTypeMetrics(OTHER_TASK_TYPE);
+    }
+
+    /**
+     * Gets the statistics of a task type, creating them on first use. Called
+     * once per submitted task.
+     * 
+     * @param task
+     *            Task
+     * @return Statistics of the task type
+     */
+    public TaskTypeMetrics getTaskTypeMetrics(Task task) {
+        int scriptHash = 0;
+        if (task instanceof AbstractScriptTask && null != ((AbstractScriptTask) task).getScript()) {
+            scriptHash = ((AbstractScriptTask) task).getScript().hashCode();
+        }
+        ConcurrentMap<Integer, TaskTypeMetrics> byScript = taskTypes.get(task.getClass());
+        if (null == byScript) {
+            byScript = new ConcurrentHashMap<Integer, TaskTypeMetrics>();
+            ConcurrentMap<Integer, TaskTypeMetrics> current = taskTypes.putIfAbsent(task.getClass(), byScript);
+            if (null != current) {
+                byScript = current;
+            }
+        }
+        TaskTypeMetrics typeMetrics = byScript.get(scriptHash);
+        if (null != typeMetrics) {
+            return typeMetrics;
+        }
+        if (taskTypeCount.incrementAndGet() > MAX_TASK_TYPES) {
+            taskTypeCount.decrementAndGet();
+            return otherTasks;
+        }
+        String name = task.getClass().getName();
+        if (task instanceof AbstractScriptTask) {
+            name += "#" + Integer.toHexString(scriptHash);
+        }
+        typeMetrics = new TaskTypeMetrics(name);
+        TaskTypeMetrics current = byScript.putIfAbsent(scriptHash, typeMetrics);
+        if (null != current) {
+            taskTypeCount.decrementAndGet();
+            return current;
+        }
+        return typeMetrics;
+    }
+
+    /**
+     * Records a task submission
+     */
+    public void taskSubmitted() {
+        submittedCount.increment();
+    }
+
+    /**
+     * Records the time a task waited for a worker
+     * 
+     * @param typeMetrics
+     *            Statistics of the task type
+     * @param waitNanos
+     *            Queue wait time, in nanoseconds
+     */
+    public void taskDequeued(TaskTypeMetrics typeMetrics, long waitNanos) {
+        allTasks.waitTime.record(waitNanos);
+        typeMetrics.waitTime.record(waitNanos);
+    }
+
+    /**
+     * Records a task start
+     */
+    public void taskStarted() {
+        startedCount.increment();
+        activeWorkerCount.increment();
+    }
+
+    /**
+     * Records the end of a task started through {@link #taskStarted()}
+     * 
+     * @param typeMetrics
+     *            Statistics of the task type
+     * @param executionNanos
+     *            Execution time, in nanoseconds
+     */
+    public void taskStopped(TaskTypeMetrics typeMetrics, long executionNanos) {
+        activeWorkerCount.decrement();
+        allTasks.executionTime.record(executionNanos);
+        typeMetrics.executionTime.record(executionNanos);
+    }
+
+    /**
+     * Records a task outcome
+     * 
+     * @param failed
+     *            <code>true</code> if the task threw an exception
+     */
+    public void taskFinished(boolean failed) {
+        if (failed) {
+            failedCount.increment();
+        } else {
+            completedCount.increment();
+        }
+    }
+
+    /**
+     * Takes a snapshot of all the metrics
+     * 
+     * @return Metrics snapshot
+     */
+    public MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(getSubmittedCount(), getStartedCount(), getCompletedCount(), getFailedCount(),
+                getQueueDepth(), getActiveWorkerCount(), getWaitTime(), getExecutionTime(), getWaitTimeByTaskType(),
+                getExecutionTimeByTaskType());
+    }
+
+    @Override
+    public long getSubmittedCount() {
+        return submittedCount.sum();
+    }
+
+    @Override
+    public long getStartedCount() {
+        return startedCount.sum();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public int getActiveWorkerCount() {
+        return activeWorkerCount.intValue();
+    }
+
+    @Override
+    public HistogramSnapshot getWaitTime() {
+        return allTasks.waitTime.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getExecutionTime() {
+        return allTasks.executionTime.snapshot();
+    }
+
+    @Override
+    public Map<String, HistogramSnapshot> getWaitTimeByTaskType() {
+        Map<String, HistogramSnapshot> waitTimes = new TreeMap<String, HistogramSnapshot>();
+        for (TaskTypeMetrics typeMetrics : getTaskTypeMetrics()) {
+            waitTimes.put(typeMetrics.name, typeMetrics.waitTime.snapshot());
+        }
+        return waitTimes;
+    }
+
+    @Override
+    public Map<String, HistogramSnapshot> getExecutionTimeByTaskType() {
+        Map<String, HistogramSnapshot> executionTimes = new TreeMap<String, HistogramSnapshot>();
+        for (TaskTypeMetrics typeMetrics : getTaskTypeMetrics()) {
+            executionTimes.put(typeMetrics.name, typeMetrics.executionTime.snapshot());
+        }
+        return executionTimes;
+    }
+
+    /**
+     * Gets the statistics of the task types which recorded something
+     * 
+     * @return Task type statistics
+     */
+    private List<TaskTypeMetrics> getTaskTypeMetrics() {
+        List<TaskTypeMetrics> typeMetricsList = new ArrayList<TaskTypeMetrics>();
+        for (ConcurrentMap<Integer, TaskTypeMetrics> byScript : taskTypes.values()) {
+            typeMetricsList.addAll(byScript.values());
+        }
+        if (otherTasks.waitTime.getCount() > 0 || otherTasks.executionTime.getCount() > 0) {
+            typeMetricsList.add(otherTasks);
+        }
+        return typeMetricsList;
+    }
+
+    @Override
+    public String toString() {
+        return "[SchedulerMetrics submitted=" + getSubmittedCount() + ", completed=" + getCompletedCount()
+                + ", failed=" + getFailedCount() + ", queueDepth=" + getQueueDepth() + ", active="
+                + getActiveWorkerCount() + "]";
+    }
+
+    /**
+     * Statistics of one task type
+     */
+    public static final class TaskTypeMetrics {
+
+        /**
+         * Task type name
+         */
+        private final String name;
+
+        /**
+         * Queue wait time
+         */
+        private final LatencyHistogram waitTime;
+
+        /**
+         * Execution time
+         */
+        private final LatencyHistogram executionTime;
+
+        /**
+         * Constructs new TaskTypeMetrics
+         * 
+         * @param name
+         *            Task type name
+         */
+        private TaskTypeMetrics(String name) {
+            this.name = name;
+            this.waitTime = new LatencyHistogram();
+            this.executionTime = new LatencyHistogram();
+        }
+
+        /**
+         * Gets the task type name: the task class, followed by the script
+         * hash for script tasks
+         * 
+         * @return Task type name
+         */
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package scheduler.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the TaskScheduler metrics. Durations are in nanoseconds.
+ *
+ */
+public interface SchedulerMetricsMXBean {
+
+    /**
+     * Gets the number of submitted tasks, periodic runs included
+     * 
+     * @return Submitted task count
+     */
+    public long getSubmittedCount();
+
+    /**
+     * Gets the number of tasks started by a worker or by the submitting thread
+     * 
+     * @return Started task count
+     */
+    public long getStartedCount();
+
+    /**
+     * Gets the number of tasks which returned a result
+     * 
+     * @return Completed task count
+     */
+    public long getCompletedCount();
+
+    /**
+     * Gets the number of tasks which threw an exception
+     * 
+     * @return Failed task count
+     */
+    public long getFailedCount();
+
+    /**
+     * Gets the number of tasks waiting for a worker
+     * 
+     * @return Queue depth
+     */
+    public int getQueueDepth();
+
+    /**
+     * Gets the number of tasks running
+     * 
+     * @return Active worker count
+     */
+    public int getActiveWorkerCount();
+
+    /**
+     * Gets the time spent by the tasks waiting for a worker
+     * 
+     * @return Queue wait time histogram
+     */
+    public HistogramSnapshot getWaitTime();
+
+    /**
+     * Gets the time spent by the tasks running
+     * 
+     * @return Execution time histogram
+     */
+    public HistogramSnapshot getExecutionTime();
+
+    /**
+     * Gets the queue wait time by task type: the task class, followed by the
+     * script hash for script tasks
+     * 
+     * @return Queue wait time histograms, by task type
+     */
+    public Map<String, HistogramSnapshot> getWaitTimeByTaskType();
+
+    /**
+     * Gets the execution time by task type: the task class, followed by the
+     * script hash for script tasks
+     * 
+     * @return Execution time histograms, by task type
+     */
+    public Map<String, HistogramSnapshot> getExecutionTimeByTaskType();
+}
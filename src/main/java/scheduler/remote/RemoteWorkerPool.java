@@ -0,0 +1,953 @@
+package scheduler.remote;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import scheduler.exception.SchedulerException;
+import scheduler.task.AbstractScriptTask;
+
+/**
+ * Pool of worker processes running script tasks out of the scheduler JVM, so
+ * that heavy scripts do not share its heap, garbage collector and metaspace,
+ * and the work can use more than one process. The workers are started as
+ * local subprocesses running {@link WorkerMain}, and connect back to the pool
+ * over a loopback socket.
+ * <p>
+ * A single selector thread owns the connections: it pipelines the requests to
+ * the least loaded worker, reads the results, and watches the worker
+ * heartbeats. A worker whose process exits or which stays silent longer than
+ * the heartbeat timeout is killed and replaced, and its tasks are reassigned
+ * to the other workers, at most {@link #MAX_ATTEMPTS} times per task.
+ *
+ */
+public class RemoteWorkerPool implements AutoCloseable {
+
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(RemoteWorkerPool.class);
+
+    /**
+     * Pool number generator, names the selector threads
+     */
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger(1);
+
+    /**
+     * Maximum number of workers a task is sent to, a task killing its
+     * workers is not retried forever
+     */
+    public static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Number of worker start failures in a row after which the pool gives up
+     */
+    private static final int MAX_START_FAILURES = 3;
+
+    /**
+     * Time a started worker has to connect
+     */
+    private static final long STARTUP_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    /**
+     * Environment variable handing the pool token to the workers, so that
+     * other local processes cannot pose as workers
+     */
+    static final String TOKEN_VARIABLE = "SCHEDULER_WORKER_TOKEN";
+
+    /**
+     * Number of task threads of each worker
+     */
+    private final int threadsPerWorker;
+
+    /**
+     * Time without a frame after which a worker is considered dead, in
+     * nanoseconds
+     */
+    private final long heartbeatTimeoutNanos;
+
+    /**
+     * Extra arguments of the worker JVMs
+     */
+    private final List<String> jvmArguments;
+
+    /**
+     * Token the workers present in their first frame
+     */
+    private final String token;
+
+    /**
+     * Socket the workers connect to
+     */
+    private final ServerSocketChannel serverChannel;
+
+    /**
+     * Selector of the pool sockets
+     */
+    private final Selector selector;
+
+    /**
+     * Selector thread
+     */
+    private final Thread selectorThread;
+
+    /**
+     * Worker slots, each one running one process at a time
+     */
+    private final WorkerSlot[] slots;
+
+    /**
+     * Calls submitted since the last selector loop
+     */
+    private final Queue<RemoteCall> submittedCalls;
+
+    /**
+     * Calls cancelled since the last selector loop
+     */
+    private final Queue<RemoteCall> cancelledCalls;
+
+    /**
+     * Calls waiting for a worker. Only accessed by the selector thread.
+     */
+    private final ArrayDeque<RemoteCall> backlog;
+
+    /**
+     * Request id generator
+     */
+    private final AtomicLong requestIds;
+
+    /**
+     * Worker id generator
+     */
+    private final AtomicLong workerIds;
+
+    /**
+     * Number of connected workers
+     */
+    private final AtomicInteger liveWorkerCount;
+
+    /**
+     * Number of calls reassigned after the death of their worker
+     */
+    private final AtomicLong reassignedCount;
+
+    /**
+     * Number of workers started to replace a dead one
+     */
+    private final AtomicLong restartCount;
+
+    /**
+     * Number of worker start failures in a row. Only accessed by the
+     * selector thread.
+     */
+    private int startFailures;
+
+    /**
+     * Set once the workers failed to start too many times in a row
+     */
+    private volatile boolean broken;
+
+    /**
+     * Cleared once the pool is closed
+     */
+    private volatile boolean running;
+
+    /**
+     * Starts a pool of worker processes
+     * 
+     * @param workerCount
+     *            Number of worker processes, must be positive
+     * @param threadsPerWorker
+     *            Number of task threads of each worker, must be positive
+     * @param heartbeatTimeout
+     *            Time without a frame after which a worker is considered dead,
+     *            must be positive; workers send a heartbeat four times per
+     *            timeout
+     * @param unit
+     *            Time unit of the heartbeat timeout
+     * @param jvmArguments
+     *            Extra arguments of the worker JVMs, e.g. memory settings
+     * @throws IOException
+     *             If the pool socket cannot be opened
+     */
+    public RemoteWorkerPool(int workerCount, int threadsPerWorker, long heartbeatTimeout, TimeUnit unit,
+            List<String> jvmArguments) throws IOException {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive: " + workerCount);
+        }
+        if (threadsPerWorker <= 0) {
+            throw new IllegalArgumentException("Threads per worker must be positive: " + threadsPerWorker);
+        }
+        if (heartbeatTimeout <= 0) {
+            throw new IllegalArgumentException("Heartbeat timeout must be positive: " + heartbeatTimeout);
+        }
+        this.threadsPerWorker = threadsPerWorker;
+        this.heartbeatTimeoutNanos = unit.toNanos(heartbeatTimeout);
+        this.jvmArguments = new ArrayList<String>(jvmArguments);
+        byte[] tokenBytes = new byte[16];
+        new SecureRandom().nextBytes(tokenBytes);
+        StringBuilder tokenBuilder = new StringBuilder();
+        for (byte tokenByte : tokenBytes) {
+            tokenBuilder.append(String.format("%02x", tokenByte));
+        }
+        this.token = tokenBuilder.toString();
+        this.submittedCalls = new ConcurrentLinkedQueue<RemoteCall>();
+        this.cancelledCalls = new ConcurrentLinkedQueue<RemoteCall>();
+        this.backlog = new ArrayDeque<RemoteCall>();
+        this.requestIds = new AtomicLong();
+        this.workerIds = new AtomicLong();
+        this.liveWorkerCount = new AtomicInteger();
+        this.reassignedCount = new AtomicLong();
+        this.restartCount = new AtomicLong();
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+        this.running = true;
+        this.slots = new WorkerSlot[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            slots[i] = new WorkerSlot(i);
+            spawn(slots[i]);
+        }
+        this.selectorThread = new Thread(this::select, "scheduler-workers-" + POOL_NUMBER.getAndIncrement());
+        this.selectorThread.setDaemon(true);
+        this.selectorThread.start();
+    }
+
+    /**
+     * Sends a script task to a worker
+     * 
+     * @param task
+     *            Script task, its class must have a constructor taking the
+     *            script
+     * @return <code>CompletableFuture</code> completed with the task result,
+     *         or exceptionally with the task failure. Cancelling it
+     *         interrupts the task on its worker.
+     */
+    public CompletableFuture<Object> submit(AbstractScriptTask task) {
+        return dispatch(task).future;
+    }
+
+    /**
+     * Runs a script task on a worker, waiting for its result. The remote
+     * task is cancelled if the calling thread is interrupted.
+     * 
+     * @param task
+     *            Script task, its class must have a constructor taking the
+     *            script
+     * @return Task result
+     * @throws InterruptedException
+     *             If the calling thread has been interrupted
+     * @throws Exception
+     *             The task failure, or a <code>SchedulerException</code> if
+     *             the task could not be run
+     */
+    public Object call(AbstractScriptTask task) throws Exception {
+        RemoteCall call = dispatch(task);
+        try {
+            return call.future.get();
+        } catch (InterruptedException ie) {
+            call.future.cancel(true);
+            throw ie;
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof Exception) {
+                throw (Exception) ee.getCause();
+            }
+            throw ee;
+        }
+    }
+
+    /**
+     * Queues a call for the selector thread
+     * 
+     * @param task
+     *            Script task
+     * @return Remote call
+     */
+    private RemoteCall dispatch(AbstractScriptTask task) {
+        RemoteCall call = new RemoteCall(requestIds.incrementAndGet(), task);
+        call.future.whenComplete((result, failure) -> {
+            if (failure instanceof CancellationException) {
+                cancelledCalls.add(call);
+                selector.wakeup();
+            }
+        });
+        if (!running || broken) {
+            call.future.completeExceptionally(new SchedulerException(broken ? "Remote workers failed to start"
+                    : "Remote worker pool has been closed"));
+            return call;
+        }
+        try {
+            call.frame = WorkerProtocol.frame(WorkerProtocol.EXECUTE, call.requestId, WorkerProtocol
+                    .encodeTask(task));
+        } catch (IOException e) {
+            call.future.completeExceptionally(new SchedulerException("Failed to encode task " + task, e));
+            return call;
+        }
+        submittedCalls.add(call);
+        selector.wakeup();
+        return call;
+    }
+
+    /**
+     * Selector thread loop
+     */
+    private void select() {
+        long tickMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(heartbeatTimeoutNanos) / 4);
+        try {
+            while (running) {
+                selector.select(tickMillis);
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(connection);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(connection);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        disconnected(connection, e.toString());
+                    }
+                }
+                for (RemoteCall call = cancelledCalls.poll(); null != call; call = cancelledCalls.poll()) {
+                    cancel(call);
+                }
+                for (RemoteCall call = submittedCalls.poll(); null != call; call = submittedCalls.poll()) {
+                    backlog.add(call);
+                }
+                checkWorkers(System.nanoTime());
+                assign();
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Remote worker pool selector failed", e);
+        } finally {
+            running = false;
+            shutdown();
+        }
+    }
+
+    /**
+     * Accepts a worker connection, bound to its slot once its first frame is
+     * read
+     * 
+     * @throws IOException
+     *             If the connection cannot be registered
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (null == channel) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    /**
+     * Reads the available frames of a connection
+     * 
+     * @param connection
+     *            Readable connection
+     * @throws IOException
+     *             If the connection is closed or a frame is invalid
+     */
+    private void read(Connection connection) throws IOException {
+        if (connection.channel.read(connection.readBuffer) < 0) {
+            throw new EOFException("Worker connection closed");
+        }
+        connection.lastReceivedNanos = System.nanoTime();
+        ByteBuffer buffer = connection.readBuffer;
+        buffer.flip();
+        while (buffer.remaining() >= 4) {
+            int length = buffer.getInt(buffer.position());
+            if (length < WorkerProtocol.HEADER_BYTES - 4 || length > WorkerProtocol.MAX_FRAME_BYTES) {
+                throw new IOException("Invalid frame length " + length);
+            }
+            if (buffer.remaining() < 4 + length) {
+                if (buffer.capacity() < 4 + length) {
+                    // Left in write mode, ready for the next read
+                    connection.readBuffer = ByteBuffer.allocate(4 + length).put(buffer);
+                    return;
+                }
+                break;
+            }
+            buffer.getInt();
+            byte type = buffer.get();
+            long requestId = buffer.getLong();
+            ByteBuffer body = buffer.slice();
+            body.limit(length - (WorkerProtocol.HEADER_BYTES - 4));
+            buffer.position(buffer.position() + body.limit());
+            received(connection, type, requestId, body);
+            if (!connection.channel.isOpen()) {
+                return;
+            }
+        }
+        buffer.compact();
+    }
+
+    /**
+     * Handles a frame received from a worker
+     * 
+     * @param connection
+     *            Worker connection
+     * @param type
+     *            Frame type
+     * @param requestId
+     *            Request id, or worker id for HELLO
+     * @param body
+     *            Frame body
+     * @throws IOException
+     *             If the frame is invalid
+     */
+    private void received(Connection connection, byte type, long requestId, ByteBuffer body) throws IOException {
+        if (WorkerProtocol.HELLO == type) {
+            String workerToken = WorkerProtocol.readString(body);
+            for (WorkerSlot slot : slots) {
+                if (slot.workerId == requestId && null == slot.connection && token.equals(workerToken)) {
+                    slot.connection = connection;
+                    connection.slot = slot;
+                    startFailures = 0;
+                    liveWorkerCount.incrementAndGet();
+                    LOGGER.debug("Remote worker " + slot.index + " connected");
+                    return;
+                }
+            }
+            throw new IOException("Unexpected worker " + requestId);
+        }
+        if (null == connection.slot) {
+            throw new IOException("Worker did not say hello");
+        }
+        if (WorkerProtocol.HEARTBEAT == type) {
+            return;
+        }
+        RemoteCall call = connection.slot.inFlight.remove(requestId);
+        if (null == call) {
+            // Cancelled meanwhile
+            return;
+        }
+        try {
+            Object value = WorkerProtocol.readValue(body);
+            if (WorkerProtocol.RESULT == type) {
+                call.future.complete(value);
+            } else if (value instanceof Throwable) {
+                call.future.completeExceptionally((Throwable) value);
+            } else {
+                call.future.completeExceptionally(new SchedulerException("Task " + call.task + " failed: " + value));
+            }
+        } catch (IOException | ClassNotFoundException | BufferUnderflowException e) {
+            call.future.completeExceptionally(new SchedulerException("Failed to decode the outcome of task "
+                    + call.task, e));
+        }
+    }
+
+    /**
+     * Sends a frame to a worker, or queues it if the socket is full
+     * 
+     * @param connection
+     *            Worker connection
+     * @param frame
+     *            Frame
+     * @throws IOException
+     *             If the write fails
+     */
+    private void send(Connection connection, ByteBuffer frame) throws IOException {
+        connection.outbound.add(frame);
+        flush(connection);
+    }
+
+    /**
+     * Writes the queued frames of a connection, until the socket is full
+     * 
+     * @param connection
+     *            Worker connection
+     * @throws IOException
+     *             If the write fails
+     */
+    private void flush(Connection connection) throws IOException {
+        while (!connection.outbound.isEmpty()) {
+            ByteBuffer frame = connection.outbound.peek();
+            connection.channel.write(frame);
+            if (frame.hasRemaining()) {
+                break;
+            }
+            connection.outbound.poll();
+        }
+        connection.key.interestOps(connection.outbound.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ
+                | SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Sends the waiting calls to the least loaded workers
+     */
+    private void assign() {
+        while (!backlog.isEmpty()) {
+            if (broken) {
+                backlog.poll().future.completeExceptionally(new SchedulerException("Remote workers failed to start"));
+                continue;
+            }
+            WorkerSlot target = null;
+            for (WorkerSlot slot : slots) {
+                if (null != slot.connection && (null == target || slot.inFlight.size() < target.inFlight.size())) {
+                    target = slot;
+                }
+            }
+            if (null == target) {
+                return;
+            }
+            RemoteCall call = backlog.poll();
+            if (call.future.isDone()) {
+                continue;
+            }
+            call.slot = target;
+            target.inFlight.put(call.requestId, call);
+            try {
+                send(target.connection, call.frame.duplicate());
+            } catch (IOException e) {
+                // Reassigns the call
+                disconnected(target.connection, e.toString());
+            }
+        }
+    }
+
+    /**
+     * Interrupts a cancelled call on its worker
+     * 
+     * @param call
+     *            Cancelled call
+     */
+    private void cancel(RemoteCall call) {
+        WorkerSlot slot = call.slot;
+        if (null == slot || null == slot.inFlight.remove(call.requestId) || null == slot.connection) {
+            return;
+        }
+        try {
+            send(slot.connection, WorkerProtocol.frame(WorkerProtocol.CANCEL, call.requestId,
+                    WorkerProtocol.NO_BODY));
+        } catch (IOException e) {
+            disconnected(slot.connection, e.toString());
+        }
+    }
+
+    /**
+     * Replaces the dead workers: exited, silent for too long, or not
+     * connected in time
+     * 
+     * @param now
+     *            Current time, from <code>System.nanoTime()</code>
+     */
+    private void checkWorkers(long now) {
+        for (WorkerSlot slot : slots) {
+            Process process = slot.process;
+            if (null != slot.connection) {
+                if (!process.isAlive()) {
+                    workerDied(slot, "process exited with code " + process.exitValue());
+                } else if (now - slot.connection.lastReceivedNanos > heartbeatTimeoutNanos) {
+                    workerDied(slot, "no heartbeat for " + TimeUnit.NANOSECONDS.toMillis(now
+                            - slot.connection.lastReceivedNanos) + "ms");
+                }
+            } else if (!broken
+                    && (null == process || !process.isAlive() || now - slot.startNanos > STARTUP_TIMEOUT_NANOS)) {
+                if (++startFailures >= MAX_START_FAILURES) {
+                    LOGGER.error("Remote workers failed to start " + startFailures + " times in a row, giving up");
+                    broken = true;
+                    if (null != process) {
+                        process.destroyForcibly();
+                    }
+                } else {
+                    workerDied(slot, "failed to start");
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles a closed or failed connection
+     * 
+     * @param connection
+     *            Worker connection
+     * @param reason
+     *            Failure description
+     */
+    private void disconnected(Connection connection, String reason) {
+        connection.close();
+        if (null != connection.slot && connection == connection.slot.connection) {
+            workerDied(connection.slot, reason);
+        }
+    }
+
+    /**
+     * Kills a dead worker, starts a new one and reassigns the calls of the
+     * dead one
+     * 
+     * @param slot
+     *            Worker slot
+     * @param reason
+     *            Failure description
+     */
+    private void workerDied(WorkerSlot slot, String reason) {
+        LOGGER.warn("Remote worker " + slot.index + " lost: " + reason);
+        if (null != slot.connection) {
+            slot.connection.close();
+            slot.connection = null;
+            liveWorkerCount.decrementAndGet();
+        }
+        if (null != slot.process) {
+            slot.process.destroyForcibly();
+        }
+        if (running) {
+            restartCount.incrementAndGet();
+            spawn(slot);
+        }
+        for (RemoteCall call : slot.inFlight.values()) {
+            call.slot = null;
+            if (++call.attempts >= MAX_ATTEMPTS) {
+                call.future.completeExceptionally(new SchedulerException("Task " + call.task + " lost "
+                        + call.attempts + " workers"));
+            } else {
+                reassignedCount.incrementAndGet();
+                backlog.addFirst(call);
+            }
+        }
+        slot.inFlight.clear();
+    }
+
+    /**
+     * Starts the worker process of a slot
+     * 
+     * @param slot
+     *            Worker slot, without process
+     */
+    private void spawn(WorkerSlot slot) {
+        slot.workerId = workerIds.incrementAndGet();
+        slot.startNanos = System.nanoTime();
+        List<String> command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmArguments);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(WorkerMain.class.getName());
+        command.add(String.valueOf(((InetSocketAddress) serverChannel.socket().getLocalSocketAddress()).getPort()));
+        command.add(String.valueOf(slot.workerId));
+        command.add(String.valueOf(threadsPerWorker));
+        command.add(String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toMillis(heartbeatTimeoutNanos) / 4)));
+        ProcessBuilder processBuilder = new ProcessBuilder(command).inheritIO();
+        processBuilder.environment().put(TOKEN_VARIABLE, token);
+        try {
+            slot.process = processBuilder.start();
+        } catch (IOException e) {
+            LOGGER.error("Failed to start remote worker " + slot.index, e);
+            slot.process = null;
+        }
+    }
+
+    /**
+     * Closes the connections, kills the workers and fails the calls left,
+     * once the selector loop is over
+     */
+    private void shutdown() {
+        SchedulerException closedException = new SchedulerException("Remote worker pool has been closed");
+        for (WorkerSlot slot : slots) {
+            if (null != slot.connection) {
+                slot.connection.close();
+                slot.connection = null;
+                liveWorkerCount.decrementAndGet();
+            }
+            if (null != slot.process) {
+                slot.process.destroy();
+            }
+            for (RemoteCall call : slot.inFlight.values()) {
+                call.future.completeExceptionally(closedException);
+            }
+            slot.inFlight.clear();
+        }
+        for (RemoteCall call = submittedCalls.poll(); null != call; call = submittedCalls.poll()) {
+            backlog.add(call);
+        }
+        for (RemoteCall call = backlog.poll(); null != call; call = backlog.poll()) {
+            call.future.completeExceptionally(closedException);
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close the remote worker pool sockets", e);
+        }
+    }
+
+    /**
+     * Gets the number of connected workers
+     * 
+     * @return Live worker count
+     */
+    public int getLiveWorkerCount() {
+        return liveWorkerCount.get();
+    }
+
+    /**
+     * Gets the number of calls reassigned after the death of their worker
+     * 
+     * @return Reassigned call count
+     */
+    public long getReassignedCount() {
+        return reassignedCount.get();
+    }
+
+    /**
+     * Gets the number of workers started to replace a dead one
+     * 
+     * @return Restarted worker count
+     */
+    public long getRestartCount() {
+        return restartCount.get();
+    }
+
+    /**
+     * Gets the current process of a worker slot
+     * 
+     * @param index
+     *            Slot index
+     * @return Worker process, <code>null</code> if it failed to start
+     */
+    Process getWorkerProcess(int index) {
+        return slots[index].process;
+    }
+
+    /**
+     * Stops the selector thread and kills the workers. Calls not finished
+     * yet fail with a <code>SchedulerException</code>. Closing twice has no
+     * effect.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        boolean interrupted = false;
+        while (selectorThread.isAlive()) {
+            try {
+                selectorThread.join();
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[RemoteWorkerPool workers=" + slots.length + ", live=" + getLiveWorkerCount() + ", restarts="
+                + getRestartCount() + "]";
+    }
+
+    /**
+     * Worker slot, running one worker process at a time. Only accessed by
+     * the selector thread, except its process.
+     */
+    private static final class WorkerSlot {
+
+        /**
+         * Slot index
+         */
+        private final int index;
+
+        /**
+         * Calls sent to the worker and not answered yet, by request id
+         */
+        private final Map<Long, RemoteCall> inFlight;
+
+        /**
+         * Current worker process, <code>null</code> if it failed to start
+         */
+        private volatile Process process;
+
+        /**
+         * Id of the current worker, presented in its first frame
+         */
+        private long workerId;
+
+        /**
+         * Start time of the current worker, from <code>System.nanoTime()</code>
+         */
+        private long startNanos;
+
+        /**
+         * Connection of the current worker, <code>null</code> until it is
+         * connected
+         */
+        private Connection connection;
+
+        /**
+         * Constructs a new WorkerSlot
+         * 
+         * @param index
+         *            Slot index
+         */
+        WorkerSlot(int index) {
+            this.index = index;
+            this.inFlight = new HashMap<Long, RemoteCall>();
+        }
+    }
+
+    /**
+     * Socket of a worker. Only accessed by the selector thread.
+     */
+    private static final class Connection {
+
+        /**
+         * Worker socket
+         */
+        private final SocketChannel channel;
+
+        /**
+         * Frames waiting for room in the socket
+         */
+        private final ArrayDeque<ByteBuffer> outbound;
+
+        /**
+         * Selection key of the socket
+         */
+        private SelectionKey key;
+
+        /**
+         * Partially read frames, in write mode between reads
+         */
+        private ByteBuffer readBuffer;
+
+        /**
+         * Worker slot, <code>null</code> until the worker said hello
+         */
+        private WorkerSlot slot;
+
+        /**
+         * Time of the last read, from <code>System.nanoTime()</code>
+         */
+        private long lastReceivedNanos;
+
+        /**
+         * Constructs a new Connection
+         * 
+         * @param channel
+         *            Worker socket
+         */
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.outbound = new ArrayDeque<ByteBuffer>();
+            this.readBuffer = ByteBuffer.allocate(64 * 1024);
+            this.lastReceivedNanos = System.nanoTime();
+        }
+
+        /**
+         * Closes the socket, ignoring failures
+         */
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.debug("Failed to close a worker connection", e);
+            }
+        }
+    }
+
+    /**
+     * Script task sent to the workers
+     */
+    private static final class RemoteCall {
+
+        /**
+         * Request id
+         */
+        private final long requestId;
+
+        /**
+         * Script task
+         */
+        private final AbstractScriptTask task;
+
+        /**
+         * Future completed with the task outcome
+         */
+        private final CompletableFuture<Object> future;
+
+        /**
+         * EXECUTE frame, duplicated for each attempt
+         */
+        private ByteBuffer frame;
+
+        /**
+         * Worker running the call, <code>null</code> while waiting. Only
+         * accessed by the selector thread.
+         */
+        private WorkerSlot slot;
+
+        /**
+         * Number of workers lost while running the call. Only accessed by the
+         * selector thread.
+         */
+        private int attempts;
+
+        /**
+         * Constructs a new RemoteCall
+         * 
+         * @param requestId
+         *            Request id
+         * @param task
+         *            Script task
+         */
+        RemoteCall(long requestId, AbstractScriptTask task) {
+            this.requestId = requestId;
+            this.task = task;
+            this.future = new CompletableFuture<Object>();
+        }
+
+        @Override
+        public String toString() {
+            return "[RemoteCall requestId=" + requestId + ", task=" + task + "]";
+        }
+    }
+}
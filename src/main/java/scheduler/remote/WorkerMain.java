@@ -0,0 +1,236 @@
+package scheduler.remote;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import scheduler.exception.SchedulerException;
+import scheduler.task.AbstractScriptTask;
+
+/**
+ * Entry point of the worker processes started by a {@link RemoteWorkerPool}.
+ * A worker connects to the pool, runs the received script tasks on a fixed
+ * thread pool, and exits once the pool closes the connection.
+ * <p>
+ * Arguments: pool port, worker id, number of task threads and heartbeat
+ * period in milliseconds. The pool token is read from the environment.
+ *
+ */
+public final class WorkerMain {
+
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkerMain.class);
+
+    /**
+     * Connection to the pool, writes are synchronized on it
+     */
+    private final SocketChannel channel;
+
+    /**
+     * Task threads
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Running tasks, by request id
+     */
+    private final Map<Long, FutureTask<Object>> runningTasks;
+
+    /**
+     * Constructs a new WorkerMain
+     * 
+     * @param channel
+     *            Connection to the pool
+     * @param threads
+     *            Number of task threads
+     */
+    private WorkerMain(SocketChannel channel, int threads) {
+        this.channel = channel;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "scheduler-remote-task");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.runningTasks = new ConcurrentHashMap<Long, FutureTask<Object>>();
+    }
+
+    /**
+     * Starts a worker
+     * 
+     * @param args
+     *            Pool port, worker id, number of task threads and heartbeat
+     *            period in milliseconds
+     * @throws IOException
+     *             If the pool cannot be reached
+     */
+    public static void main(String[] args) throws IOException {
+        if (4 != args.length) {
+            System.err.println("Usage: WorkerMain <port> <workerId> <threads> <heartbeatMillis>");
+            System.exit(2);
+        }
+        int port = Integer.parseInt(args[0]);
+        long workerId = Long.parseLong(args[1]);
+        int threads = Integer.parseInt(args[2]);
+        long heartbeatMillis = Long.parseLong(args[3]);
+        String token = System.getenv(RemoteWorkerPool.TOKEN_VARIABLE);
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        channel.socket().setTcpNoDelay(true);
+        WorkerMain worker = new WorkerMain(channel, threads);
+        worker.send(WorkerProtocol.HELLO, workerId, WorkerProtocol.encodeString(null == token ? "" : token));
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scheduler-remote-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleAtFixedRate(() -> {
+            try {
+                worker.send(WorkerProtocol.HEARTBEAT, 0, WorkerProtocol.NO_BODY);
+            } catch (IOException e) {
+                LOGGER.debug("Failed to send a heartbeat", e);
+            }
+        }, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        try {
+            worker.receive();
+        } catch (IOException e) {
+            LOGGER.debug("Connection to the pool lost", e);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Reads the pool requests until the connection is closed
+     * 
+     * @throws IOException
+     *             If the connection fails or a frame is invalid
+     */
+    private void receive() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(WorkerProtocol.HEADER_BYTES);
+        while (true) {
+            header.clear();
+            readFully(header);
+            header.flip();
+            int length = header.getInt();
+            byte type = header.get();
+            long requestId = header.getLong();
+            int bodyLength = length - (WorkerProtocol.HEADER_BYTES - 4);
+            if (bodyLength < 0 || length > WorkerProtocol.MAX_FRAME_BYTES) {
+                throw new IOException("Invalid frame length " + length);
+            }
+            ByteBuffer body = ByteBuffer.allocate(bodyLength);
+            readFully(body);
+            body.flip();
+            if (WorkerProtocol.EXECUTE == type) {
+                execute(requestId, body);
+            } else if (WorkerProtocol.CANCEL == type) {
+                FutureTask<Object> task = runningTasks.remove(requestId);
+                if (null != task) {
+                    task.cancel(true);
+                }
+            } else {
+                throw new IOException("Unexpected frame type " + type);
+            }
+        }
+    }
+
+    /**
+     * Fills a buffer from the connection
+     * 
+     * @param buffer
+     *            Buffer to fill
+     * @throws IOException
+     *             If the connection is closed or fails
+     */
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Pool connection closed");
+            }
+        }
+    }
+
+    /**
+     * Starts a received task, its outcome is sent once it is finished
+     * 
+     * @param requestId
+     *            Request id
+     * @param body
+     *            EXECUTE frame body
+     * @throws IOException
+     *             If the outcome cannot be sent
+     */
+    private void execute(long requestId, ByteBuffer body) throws IOException {
+        AbstractScriptTask task;
+        try {
+            task = WorkerProtocol.decodeTask(body);
+        } catch (IOException | ReflectiveOperationException | RuntimeException e) {
+            send(WorkerProtocol.FAILURE, requestId, WorkerProtocol.encodeFailure(new SchedulerException(
+                    "Failed to decode task", e)));
+            return;
+        }
+        FutureTask<Object> futureTask = new FutureTask<Object>(task) {
+            @Override
+            protected void done() {
+                if (null == runningTasks.remove(requestId)) {
+                    // Cancelled by the pool, which expects no answer
+                    return;
+                }
+                byte type = WorkerProtocol.RESULT;
+                byte[] outcome;
+                try {
+                    outcome = WorkerProtocol.encodeValue(get());
+                } catch (ExecutionException ee) {
+                    type = WorkerProtocol.FAILURE;
+                    outcome = WorkerProtocol.encodeFailure(ee.getCause());
+                } catch (IOException | InterruptedException | RuntimeException e) {
+                    type = WorkerProtocol.FAILURE;
+                    outcome = WorkerProtocol.encodeFailure(new SchedulerException("Failed to encode the result of "
+                            + task, e));
+                }
+                try {
+                    send(type, requestId, outcome);
+                } catch (IOException e) {
+                    LOGGER.debug("Failed to send the outcome of " + task, e);
+                }
+            }
+        };
+        runningTasks.put(requestId, futureTask);
+        executor.execute(futureTask);
+    }
+
+    /**
+     * Sends a frame to the pool
+     * 
+     * @param type
+     *            Frame type
+     * @param requestId
+     *            Request id
+     * @param body
+     *            Frame body
+     * @throws IOException
+     *             If the write fails
+     */
+    private void send(byte type, long requestId, byte[] body) throws IOException {
+        ByteBuffer frame = WorkerProtocol.frame(type, requestId, body);
+        synchronized (channel) {
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+        }
+    }
+}
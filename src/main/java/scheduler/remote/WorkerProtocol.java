@@ -0,0 +1,349 @@
+package scheduler.remote;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import scheduler.exception.SchedulerException;
+import scheduler.task.AbstractScriptTask;
+
+/**
+ * Binary protocol between a {@link RemoteWorkerPool} and its worker
+ * processes. Each frame is its length on 4 bytes, then a type byte, a request
+ * id on 8 bytes and a body. Requests are pipelined: a worker receives new
+ * requests while running the previous ones, and answers in completion order.
+ * <p>
+ * Common values (<code>null</code>, integers, longs, doubles, booleans and
+ * strings) are written as a tag and their raw bytes, other values through
+ * Java serialization.
+ *
+ */
+final class WorkerProtocol {
+
+    /**
+     * First frame of a worker: its id as request id, its token as body
+     */
+    static final byte HELLO = 1;
+
+    /**
+     * Runs a script task: its class name, its script and its bindings
+     */
+    static final byte EXECUTE = 2;
+
+    /**
+     * Task result, the body is the result value
+     */
+    static final byte RESULT = 3;
+
+    /**
+     * Task failure, the body is the exception
+     */
+    static final byte FAILURE = 4;
+
+    /**
+     * Interrupts a running task, without body
+     */
+    static final byte CANCEL = 5;
+
+    /**
+     * Sent periodically by the workers, without body
+     */
+    static final byte HEARTBEAT = 6;
+
+    /**
+     * Frame header size: length, type and request id
+     */
+    static final int HEADER_BYTES = 4 + 1 + 8;
+
+    /**
+     * Largest accepted frame, length excluded
+     */
+    static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * <code>null</code> value tag
+     */
+    private static final byte NULL_VALUE = 0;
+
+    /**
+     * <code>Integer</code> value tag
+     */
+    private static final byte INTEGER_VALUE = 1;
+
+    /**
+     * <code>Long</code> value tag
+     */
+    private static final byte LONG_VALUE = 2;
+
+    /**
+     * <code>Double</code> value tag
+     */
+    private static final byte DOUBLE_VALUE = 3;
+
+    /**
+     * <code>Boolean</code> value tag
+     */
+    private static final byte BOOLEAN_VALUE = 4;
+
+    /**
+     * <code>String</code> value tag
+     */
+    private static final byte STRING_VALUE = 5;
+
+    /**
+     * Serialized value tag
+     */
+    private static final byte SERIALIZED_VALUE = 6;
+
+    /**
+     * Empty body
+     */
+    static final byte[] NO_BODY = new byte[0];
+
+    /**
+     * Static methods only
+     */
+    private WorkerProtocol() {
+    }
+
+    /**
+     * Builds a frame
+     * 
+     * @param type
+     *            Frame type
+     * @param requestId
+     *            Request id
+     * @param body
+     *            Frame body
+     * @return Frame, ready to be written
+     */
+    static ByteBuffer frame(byte type, long requestId, byte[] body) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + body.length);
+        frame.putInt(HEADER_BYTES - 4 + body.length).put(type).putLong(requestId).put(body);
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * Encodes a script task
+     * 
+     * @param task
+     *            Script task
+     * @return EXECUTE frame body
+     * @throws IOException
+     *             If a bound variable is not serializable
+     */
+    static byte[] encodeTask(AbstractScriptTask task) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, task.getClass().getName());
+        writeString(out, task.getScript());
+        Map<String, Object> bindings = task.getBindings();
+        out.writeInt(bindings.size());
+        for (Map.Entry<String, Object> binding : bindings.entrySet()) {
+            writeString(out, binding.getKey());
+            writeValue(out, binding.getValue());
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a script task, creating it through its constructor taking the
+     * script
+     * 
+     * @param body
+     *            EXECUTE frame body
+     * @return Script task
+     * @throws IOException
+     *             If the body is corrupted
+     * @throws ReflectiveOperationException
+     *             If the task class is not available or cannot be created
+     */
+    static AbstractScriptTask decodeTask(ByteBuffer body) throws IOException, ReflectiveOperationException {
+        Class<? extends AbstractScriptTask> taskClass = Class.forName(readString(body)).asSubclass(
+                AbstractScriptTask.class);
+        AbstractScriptTask task = taskClass.getConstructor(String.class).newInstance(readString(body));
+        int bindingCount = body.getInt();
+        for (int i = 0; i < bindingCount; i++) {
+            task.setBinding(readString(body), readValue(body));
+        }
+        return task;
+    }
+
+    /**
+     * Encodes a value
+     * 
+     * @param value
+     *            Value, may be <code>null</code>
+     * @return RESULT frame body
+     * @throws IOException
+     *             If the value is not serializable
+     */
+    static byte[] encodeValue(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeValue(new DataOutputStream(bytes), value);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes a string
+     * 
+     * @param string
+     *            String
+     * @return HELLO frame body
+     */
+    static byte[] encodeString(String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(4 + bytes.length).putInt(bytes.length).put(bytes).array();
+    }
+
+    /**
+     * Encodes a failure, replaced by a <code>SchedulerException</code>
+     * holding its description if it is not serializable
+     * 
+     * @param failure
+     *            Task failure
+     * @return FAILURE frame body
+     */
+    static byte[] encodeFailure(Throwable failure) {
+        try {
+            return encodeValue(failure);
+        } catch (IOException e) {
+            try {
+                return encodeValue(new SchedulerException(failure.toString()));
+            } catch (IOException ioe) {
+                throw new IllegalStateException("SchedulerException is serializable", ioe);
+            }
+        }
+    }
+
+    /**
+     * Writes a string: its UTF-8 length, then its bytes
+     * 
+     * @param out
+     *            Output
+     * @param string
+     *            String
+     * @throws IOException
+     *             Never, written in memory
+     */
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}
+     * 
+     * @param in
+     *            Input
+     * @return String
+     * @throws IOException
+     *             If the length is corrupted
+     */
+    static String readString(ByteBuffer in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a length prefixed byte array
+     * 
+     * @param in
+     *            Input
+     * @return Bytes
+     * @throws IOException
+     *             If the length is corrupted
+     */
+    private static byte[] readBytes(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new StreamCorruptedException("Invalid length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes a tagged value
+     * 
+     * @param out
+     *            Output
+     * @param value
+     *            Value, may be <code>null</code>
+     * @throws IOException
+     *             If the value is not serializable
+     */
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (null == value) {
+            out.writeByte(NULL_VALUE);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER_VALUE);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG_VALUE);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE_VALUE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN_VALUE);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof String) {
+            out.writeByte(STRING_VALUE);
+            writeString(out, (String) value);
+        } else {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+                objectOut.writeObject(value);
+            }
+            out.writeByte(SERIALIZED_VALUE);
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        }
+    }
+
+    /**
+     * Reads a tagged value
+     * 
+     * @param in
+     *            Input
+     * @return Value, may be <code>null</code>
+     * @throws IOException
+     *             If the value is corrupted
+     * @throws ClassNotFoundException
+     *             If the class of a serialized value is not available
+     */
+    static Object readValue(ByteBuffer in) throws IOException, ClassNotFoundException {
+        byte tag = in.get();
+        switch (tag) {
+        case NULL_VALUE:
+            return null;
+        case INTEGER_VALUE:
+            return in.getInt();
+        case LONG_VALUE:
+            return in.getLong();
+        case DOUBLE_VALUE:
+            return in.getDouble();
+        case BOOLEAN_VALUE:
+            return 0 != in.get();
+        case STRING_VALUE:
+            return readString(in);
+        case SERIALIZED_VALUE:
+            try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(readBytes(in)))) {
+                return objectIn.readObject();
+            }
+        default:
+            throw new StreamCorruptedException("Invalid value tag " + tag);
+        }
+    }
+}
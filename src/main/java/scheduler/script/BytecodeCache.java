@@ -0,0 +1,336 @@
+package scheduler.script;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Directory of compiled scripts, so that a restarted process loads their
+ * bytecode instead of compiling them again. Each script is stored in a file
+ * named after the SHA-256 hash of its text and of the compiler version, so
+ * that upgrading the compiler never loads stale bytecode. Files are written
+ * to a temporary file then atomically renamed, and checked on load: a
+ * corrupted file is deleted and counted as a miss.
+ *
+ */
+public class BytecodeCache {
+
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(BytecodeCache.class);
+
+    /**
+     * Cache file extension
+     */
+    private static final String EXTENSION = ".bytecode";
+
+    /**
+     * First bytes of a cache file
+     */
+    private static final int MAGIC = 0x53434243;
+
+    /**
+     * Cache file format version, part of the hash
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Cache directory
+     */
+    private final Path directory;
+
+    /**
+     * Compiler version, part of the hash
+     */
+    private final String compilerVersion;
+
+    /**
+     * Number of loads which found the script
+     */
+    private final AtomicLong hitCount;
+
+    /**
+     * Number of loads which did not find the script
+     */
+    private final AtomicLong missCount;
+
+    /**
+     * Number of stored scripts
+     */
+    private final AtomicLong storeCount;
+
+    /**
+     * Opens a cache directory
+     * 
+     * @param directory
+     *            Cache directory, created if needed
+     * @param compilerVersion
+     *            Compiler name and version, e.g. <code>groovy-2.4.3</code>
+     * @throws IOException
+     *             If the directory cannot be created
+     */
+    public BytecodeCache(Path directory, String compilerVersion) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.compilerVersion = Objects.requireNonNull(compilerVersion, "Compiler version is null");
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.storeCount = new AtomicLong();
+    }
+
+    /**
+     * Loads the compiled classes of a script, and marks them as recently used
+     * 
+     * @param script
+     *            Script text
+     * @return Compiled classes, <code>null</code> if not cached
+     */
+    public ScriptBytecode load(String script) {
+        Path file = fileOf(script);
+        ScriptBytecode bytecode = read(file);
+        if (null == bytecode || !bytecode.getScript().equals(script)) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            LOGGER.debug("Failed to touch " + file, e);
+        }
+        return bytecode;
+    }
+
+    /**
+     * Loads every cached script, reading the files in parallel
+     * 
+     * @param maxScripts
+     *            Maximum number of scripts to load, the most recently used
+     *            first
+     * @return Compiled classes, the most recently used first
+     * @throws IOException
+     *             If the directory cannot be listed
+     */
+    public List<ScriptBytecode> loadAll(int maxScripts) throws IOException {
+        List<Path> files = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Map<Path, Long> lastModified = new LinkedHashMap<Path, Long>();
+        for (Path file : files) {
+            try {
+                lastModified.put(file, Files.getLastModifiedTime(file).toMillis());
+            } catch (IOException e) {
+                // Deleted meanwhile
+                lastModified.put(file, 0L);
+            }
+        }
+        files.sort(Comparator.comparing((Path file) -> lastModified.get(file)).reversed());
+        return files.subList(0, Math.min(maxScripts, files.size())).parallelStream().map(this::read).filter(
+                Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Stores the compiled classes of a script, replacing any previous version
+     * 
+     * @param bytecode
+     *            Compiled classes
+     * @throws IOException
+     *             If the file cannot be written
+     */
+    public void store(ScriptBytecode bytecode) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeBytes(out, bytecode.getScript().getBytes(StandardCharsets.UTF_8));
+        writeBytes(out, bytecode.getMainClassName().getBytes(StandardCharsets.UTF_8));
+        out.writeInt(bytecode.getClasses().size());
+        for (Map.Entry<String, byte[]> compiledClass : bytecode.getClasses().entrySet()) {
+            writeBytes(out, compiledClass.getKey().getBytes(StandardCharsets.UTF_8));
+            writeBytes(out, compiledClass.getValue());
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes.toByteArray());
+        out.writeInt((int) checksum.getValue());
+        Path file = fileOf(bytecode.getScript());
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporaryFile, bytes.toByteArray());
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+        storeCount.incrementAndGet();
+    }
+
+    /**
+     * Reads a cache file, deleting it if corrupted
+     * 
+     * @param file
+     *            Cache file
+     * @return Compiled classes, <code>null</code> if the file does not exist
+     *         or is corrupted
+     */
+    private ScriptBytecode read(Path file) {
+        ByteBuffer in;
+        try {
+            in = ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOGGER.warn("Failed to read " + file, e);
+            return null;
+        }
+        try {
+            if (in.remaining() < 12 || MAGIC != in.getInt() || FORMAT_VERSION != in.getInt()) {
+                throw new IOException("Not a bytecode cache file");
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(in.array(), 0, in.limit() - 4);
+            if ((int) checksum.getValue() != in.getInt(in.limit() - 4)) {
+                throw new IOException("Checksum mismatch");
+            }
+            String script = new String(readBytes(in), StandardCharsets.UTF_8);
+            String mainClassName = new String(readBytes(in), StandardCharsets.UTF_8);
+            int classCount = in.getInt();
+            Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+            for (int i = 0; i < classCount; i++) {
+                classes.put(new String(readBytes(in), StandardCharsets.UTF_8), readBytes(in));
+            }
+            return new ScriptBytecode(script, mainClassName, classes);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            LOGGER.warn("Deleting corrupted bytecode cache file " + file + ": " + e);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ioe) {
+                LOGGER.debug("Failed to delete " + file, ioe);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Writes a length prefixed byte array
+     * 
+     * @param out
+     *            Output
+     * @param bytes
+     *            Bytes
+     * @throws IOException
+     *             Never, written in memory
+     */
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a length prefixed byte array
+     * 
+     * @param in
+     *            Input
+     * @return Bytes
+     * @throws IOException
+     *             If the length is corrupted
+     */
+    private static byte[] readBytes(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException("Invalid length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Gets the cache file of a script
+     * 
+     * @param script
+     *            Script text
+     * @return Cache file, named after the hash of the script
+     */
+    private Path fileOf(String script) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+        digest.update((FORMAT_VERSION + "/" + compilerVersion + "/").getBytes(StandardCharsets.UTF_8));
+        digest.update(script.getBytes(StandardCharsets.UTF_8));
+        StringBuilder name = new StringBuilder();
+        for (byte hashByte : digest.digest()) {
+            name.append(String.format("%02x", hashByte));
+        }
+        return directory.resolve(name.append(EXTENSION).toString());
+    }
+
+    /**
+     * Gets the cache directory
+     * 
+     * @return Cache directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets the number of loads which found the script
+     * 
+     * @return Hit count
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of loads which did not find the script
+     * 
+     * @return Miss count
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of stored scripts
+     * 
+     * @return Store count
+     */
+    public long getStoreCount() {
+        return storeCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "[BytecodeCache directory=" + directory + ", compiler=" + compilerVersion + ", hits=" + hitCount
+                + ", misses=" + missCount + "]";
+    }
+}
@@ -0,0 +1,117 @@
+package scheduler.script;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import scheduler.util.LruCache;
+
+/**
+ * Script engine owned by a {@link ScriptEnginePool}, together with the scripts
+ * it already compiled. Each evaluation gets its own bindings so that tasks do
+ * not share state through the engine.
+ *
+ */
+public class PooledScriptEngine {
+
+    /**
+     * Underlying script engine
+     */
+    private final ScriptEngine engine;
+
+    /**
+     * Scripts compiled by this engine, by script text
+     */
+    private final LruCache<String, CompiledScript> scriptCache;
+
+    /**
+     * Time the engine was last given back to its pool, from
+     * <code>System.nanoTime()</code>
+     */
+    long releasedNanos;
+
+    /**
+     * Constructs a new PooledScriptEngine
+     * 
+     * @param engine
+     *            Underlying script engine, must implement
+     *            <code>Compilable</code>
+     * @param scriptCacheSize
+     *            Maximum number of compiled scripts kept by this engine
+     */
+    public PooledScriptEngine(ScriptEngine engine, int scriptCacheSize) {
+        if (!(engine instanceof Compilable)) {
+            throw new IllegalArgumentException("Script engine " + engine + " cannot compile scripts");
+        }
+        this.engine = engine;
+        this.scriptCache = new LruCache<String, CompiledScript>(scriptCacheSize);
+    }
+
+    /**
+     * Evaluates a script with fresh bindings
+     * 
+     * @param script
+     *            Script to evaluate
+     * @return Script result
+     * @throws ScriptException
+     *             If the script is <code>null</code>, does not compile or fails
+     */
+    public Object eval(String script) throws ScriptException {
+        return eval(script, engine.createBindings());
+    }
+
+    /**
+     * Evaluates a script with the given bindings
+     * 
+     * @param script
+     *            Script to evaluate
+     * @param bindings
+     *            Bindings visible to the script
+     * @return Script result
+     * @throws ScriptException
+     *             If the script is <code>null</code>, does not compile or fails
+     */
+    public Object eval(String script, Bindings bindings) throws ScriptException {
+        return compile(script).eval(bindings);
+    }
+
+    /**
+     * Gets the compiled script from the cache, compiling it on a cache miss
+     * 
+     * @param script
+     *            Script to compile
+     * @return Compiled script
+     * @throws ScriptException
+     *             If the script is <code>null</code> or does not compile
+     */
+    public CompiledScript compile(String script) throws ScriptException {
+        if (null == script) {
+            throw new ScriptException("Script is null");
+        }
+        CompiledScript compiledScript = scriptCache.get(script);
+        if (null == compiledScript) {
+            compiledScript = scriptCache.putIfAbsent(script, ((Compilable) engine).compile(script));
+        }
+        return compiledScript;
+    }
+
+    /**
+     * Gets the underlying script engine
+     * 
+     * @return Script engine
+     */
+    public ScriptEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Gets the scripts compiled by this engine
+     * 
+     * @return Compiled scripts cache
+     */
+    public LruCache<String, CompiledScript> getScriptCache() {
+        return scriptCache;
+    }
+}
@@ -0,0 +1,191 @@
+package scheduler.script;
+
+import groovyjarjarasm.asm.ClassWriter;
+import groovyjarjarasm.asm.MethodVisitor;
+import groovyjarjarasm.asm.Opcodes;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Classes compiled from a script: its main class and the classes of its
+ * closures, as stored by a {@link BytecodeCache}
+ *
+ */
+public final class ScriptBytecode {
+
+    /**
+     * Suffix of the name of the factory class generated for the script class
+     */
+    private static final String FACTORY_SUFFIX = "$Factory";
+
+    /**
+     * Script text
+     */
+    private final String script;
+
+    /**
+     * Name of the script class
+     */
+    private final String mainClassName;
+
+    /**
+     * Class files, by class name
+     */
+    private final Map<String, byte[]> classes;
+
+    /**
+     * Constructs a new ScriptBytecode
+     * 
+     * @param script
+     *            Script text
+     * @param mainClassName
+     *            Name of the script class, one of the given classes
+     * @param classes
+     *            Class files, by class name
+     */
+    public ScriptBytecode(String script, String mainClassName, Map<String, byte[]> classes) {
+        if (!classes.containsKey(mainClassName)) {
+            throw new IllegalArgumentException("Script class " + mainClassName + " not compiled");
+        }
+        this.script = script;
+        this.mainClassName = mainClassName;
+        this.classes = Collections.unmodifiableMap(new LinkedHashMap<String, byte[]>(classes));
+    }
+
+    /**
+     * Gets the script text
+     * 
+     * @return Script text
+     */
+    public String getScript() {
+        return script;
+    }
+
+    /**
+     * Gets the name of the script class
+     * 
+     * @return Main class name
+     */
+    public String getMainClassName() {
+        return mainClassName;
+    }
+
+    /**
+     * Gets the class files
+     * 
+     * @return Unmodifiable map of the class files, by class name
+     */
+    public Map<String, byte[]> getClasses() {
+        return classes;
+    }
+
+    /**
+     * Defines the classes in a class loader of their own, so that they can be
+     * unloaded once unused, together with a generated factory creating the
+     * script class instances: its <code>get()</code> is a plain constructor
+     * call, without reflection.
+     * 
+     * @param <T>
+     *            Type of the script class
+     * @param parent
+     *            Class loader resolving the classes used by the script
+     * @param type
+     *            Type of the script class, which must have a public default
+     *            constructor
+     * @return Factory of script class instances
+     * @throws ReflectiveOperationException
+     *             If the script class cannot be defined
+     * @throws ClassCastException
+     *             If the script class is not of the given type
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Supplier<T> defineFactory(ClassLoader parent, Class<T> type) throws ReflectiveOperationException {
+        String factoryName = mainClassName + FACTORY_SUFFIX;
+        Map<String, byte[]> definedClasses = new HashMap<String, byte[]>(classes);
+        definedClasses.put(factoryName, factoryBytecode(factoryName, mainClassName));
+        ClassLoader classLoader = new BytecodeClassLoader(parent, definedClasses);
+        Class.forName(mainClassName, true, classLoader).asSubclass(type);
+        return (Supplier<T>) Class.forName(factoryName, true, classLoader).getConstructor().newInstance();
+    }
+
+    /**
+     * Generates the class file of a factory implementing
+     * <code>Supplier</code>, whose <code>get()</code> returns a new instance
+     * of the given class
+     * 
+     * @param factoryName
+     *            Name of the factory class
+     * @param className
+     *            Name of the instantiated class
+     * @return Class file
+     */
+    private static byte[] factoryBytecode(String factoryName, String className) {
+        String factoryInternalName = factoryName.replace('.', '/');
+        String classInternalName = className.replace('.', '/');
+        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+                factoryInternalName, null, "java/lang/Object", new String[] { "java/util/function/Supplier" });
+
+        MethodVisitor constructor = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        MethodVisitor get = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "get", "()Ljava/lang/Object;", null, null);
+        get.visitCode();
+        get.visitTypeInsn(Opcodes.NEW, classInternalName);
+        get.visitInsn(Opcodes.DUP);
+        get.visitMethodInsn(Opcodes.INVOKESPECIAL, classInternalName, "<init>", "()V", false);
+        get.visitInsn(Opcodes.ARETURN);
+        get.visitMaxs(0, 0);
+        get.visitEnd();
+
+        classWriter.visitEnd();
+        return classWriter.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        return "[ScriptBytecode mainClass=" + mainClassName + ", classes=" + classes.size() + "]";
+    }
+
+    /**
+     * Class loader defining the classes of a script from their class files
+     */
+    private static final class BytecodeClassLoader extends ClassLoader {
+
+        /**
+         * Class files, by class name
+         */
+        private final Map<String, byte[]> classes;
+
+        /**
+         * Constructs a new BytecodeClassLoader
+         * 
+         * @param parent
+         *            Parent class loader
+         * @param classes
+         *            Class files, by class name
+         */
+        BytecodeClassLoader(ClassLoader parent, Map<String, byte[]> classes) {
+            super(parent);
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (null == bytes) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
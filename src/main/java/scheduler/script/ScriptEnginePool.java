@@ -0,0 +1,311 @@
+package scheduler.script;
+
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+
+import scheduler.util.LruCache;
+
+/**
+ * Pool of script engines. Engines are created on demand up to the pool size,
+ * then callers wait for an engine to be released. An {@link #UNBOUNDED} pool
+ * never makes its callers wait: it grows with the number of concurrent
+ * callers, and drops the engines left idle for longer than its idle timeout.
+ * Each engine comes from its own <code>ScriptEngineManager</code>, so engines
+ * do not share their global bindings either.
+ *
+ * The most recently released engine is handed out first, which keeps the
+ * compiled scripts of a few engines warm when the load is low, and lets the
+ * others go idle.
+ *
+ */
+public class ScriptEnginePool {
+
+    /**
+     * Size of a pool creating as many engines as it has concurrent callers
+     */
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    /**
+     * Name of the engines
+     */
+    private final String engineName;
+
+    /**
+     * Creates the engines
+     */
+    private final Supplier<ScriptEngine> engineFactory;
+
+    /**
+     * Maximum number of engines
+     */
+    private final int maxEngines;
+
+    /**
+     * Maximum number of compiled scripts kept by each engine
+     */
+    private final int scriptCacheSize;
+
+    /**
+     * Engines not currently borrowed
+     */
+    private final BlockingDeque<PooledScriptEngine> idleEngines;
+
+    /**
+     * Every engine created by the pool
+     */
+    private final List<PooledScriptEngine> engines;
+
+    /**
+     * Number of engines created, or being created, and not dropped
+     */
+    private final AtomicInteger createdEngines;
+
+    /**
+     * Time after which an idle engine is dropped, in nanoseconds
+     */
+    private final long idleTimeoutNanos;
+
+    /**
+     * Number of idle engines dropped
+     */
+    private final AtomicLong droppedEngines;
+
+    /**
+     * Compiled scripts cache counters of the dropped engines: hits, misses
+     * and evictions
+     */
+    private final AtomicLongArray droppedScriptCacheCounts;
+
+    /**
+     * Constructs a new ScriptEnginePool
+     * 
+     * @param engineName
+     *            Name of the engines, as given to
+     *            <code>ScriptEngineManager</code>
+     * @param maxEngines
+     *            Maximum number of engines
+     * @param scriptCacheSize
+     *            Maximum number of compiled scripts kept by each engine
+     */
+    public ScriptEnginePool(String engineName, int maxEngines, int scriptCacheSize) {
+        this(engineName, () -> new ScriptEngineManager().getEngineByName(engineName), maxEngines, scriptCacheSize);
+    }
+
+    /**
+     * Constructs a new ScriptEnginePool creating its engines through a
+     * factory, e.g. to customize how the engines compile the scripts
+     * 
+     * @param engineName
+     *            Name of the engines, for the error messages
+     * @param engineFactory
+     *            Creates the engines, the engines must be
+     *            <code>Compilable</code>
+     * @param maxEngines
+     *            Maximum number of engines
+     * @param scriptCacheSize
+     *            Maximum number of compiled scripts kept by each engine
+     */
+    public ScriptEnginePool(String engineName, Supplier<ScriptEngine> engineFactory, int maxEngines,
+            int scriptCacheSize) {
+        this(engineName, engineFactory, maxEngines, scriptCacheSize, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Constructs a new ScriptEnginePool dropping its idle engines, e.g. an
+     * {@link #UNBOUNDED} pool shrinking back once the load decreases
+     * 
+     * @param engineName
+     *            Name of the engines, for the error messages
+     * @param engineFactory
+     *            Creates the engines, the engines must be
+     *            <code>Compilable</code>
+     * @param maxEngines
+     *            Maximum number of engines, {@link #UNBOUNDED} to never wait
+     *            for an engine
+     * @param scriptCacheSize
+     *            Maximum number of compiled scripts kept by each engine
+     * @param idleTimeout
+     *            Time after which an idle engine is dropped, must be positive
+     * @param unit
+     *            Time unit of the idle timeout
+     */
+    public ScriptEnginePool(String engineName, Supplier<ScriptEngine> engineFactory, int maxEngines,
+            int scriptCacheSize, long idleTimeout, TimeUnit unit) {
+        if (maxEngines <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxEngines);
+        }
+        if (idleTimeout <= 0) {
+            throw new IllegalArgumentException("Idle timeout must be positive: " + idleTimeout);
+        }
+        this.engineName = engineName;
+        this.engineFactory = engineFactory;
+        this.maxEngines = maxEngines;
+        this.scriptCacheSize = scriptCacheSize;
+        this.idleEngines = new LinkedBlockingDeque<PooledScriptEngine>();
+        this.engines = new CopyOnWriteArrayList<PooledScriptEngine>();
+        this.createdEngines = new AtomicInteger();
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.droppedEngines = new AtomicLong();
+        this.droppedScriptCacheCounts = new AtomicLongArray(3);
+    }
+
+    /**
+     * Borrows an engine, creating it if the pool is not full yet or waiting
+     * for an engine to be released otherwise. The engine must be given back
+     * through {@link #release(PooledScriptEngine)}.
+     * 
+     * @return Borrowed engine
+     * @throws InterruptedException
+     *             If the current thread has been interrupted while waiting
+     */
+    public PooledScriptEngine borrow() throws InterruptedException {
+        PooledScriptEngine engine = idleEngines.pollFirst();
+        if (null != engine) {
+            return engine;
+        }
+        int created = createdEngines.get();
+        while (created < maxEngines) {
+            if (createdEngines.compareAndSet(created, created + 1)) {
+                return createEngine();
+            }
+            created = createdEngines.get();
+        }
+        return idleEngines.takeFirst();
+    }
+
+    /**
+     * Gives back a borrowed engine, and drops the least recently used engine
+     * if it has been idle for longer than the idle timeout
+     * 
+     * @param engine
+     *            Engine borrowed through {@link #borrow()}
+     */
+    public void release(PooledScriptEngine engine) {
+        long now = System.nanoTime();
+        engine.releasedNanos = now;
+        idleEngines.offerFirst(engine);
+        PooledScriptEngine idleEngine = idleEngines.peekLast();
+        if (null != idleEngine && idleEngine != engine && now - idleEngine.releasedNanos > idleTimeoutNanos
+                && idleEngines.removeLastOccurrence(idleEngine)) {
+            drop(idleEngine);
+        }
+    }
+
+    /**
+     * Drops an idle engine, keeping its counters
+     * 
+     * @param engine
+     *            Engine taken out of the idle engines
+     */
+    private void drop(PooledScriptEngine engine) {
+        engines.remove(engine);
+        createdEngines.decrementAndGet();
+        droppedEngines.incrementAndGet();
+        LruCache<String, CompiledScript> scriptCache = engine.getScriptCache();
+        droppedScriptCacheCounts.addAndGet(0, scriptCache.getHitCount());
+        droppedScriptCacheCounts.addAndGet(1, scriptCache.getMissCount());
+        droppedScriptCacheCounts.addAndGet(2, scriptCache.getEvictionCount());
+    }
+
+    /**
+     * Creates a new engine
+     * 
+     * @return New engine
+     */
+    private PooledScriptEngine createEngine() {
+        ScriptEngine scriptEngine;
+        try {
+            scriptEngine = engineFactory.get();
+        } catch (RuntimeException e) {
+            createdEngines.decrementAndGet();
+            throw e;
+        }
+        if (null == scriptEngine) {
+            createdEngines.decrementAndGet();
+            throw new IllegalStateException("No script engine found for " + engineName);
+        }
+        PooledScriptEngine engine = new PooledScriptEngine(scriptEngine, scriptCacheSize);
+        engines.add(engine);
+        return engine;
+    }
+
+    /**
+     * Gets the maximum number of engines
+     * 
+     * @return Maximum number of engines
+     */
+    public int getMaxEngines() {
+        return maxEngines;
+    }
+
+    /**
+     * Gets the number of engines in the pool, borrowed or idle
+     * 
+     * @return Number of engines
+     */
+    public int getEngineCount() {
+        return engines.size();
+    }
+
+    /**
+     * Gets the number of idle engines dropped so far
+     * 
+     * @return Number of engines dropped
+     */
+    public long getDroppedEngineCount() {
+        return droppedEngines.get();
+    }
+
+    /**
+     * Gets the compiled scripts cache hits, summed over all the engines,
+     * dropped ones included
+     * 
+     * @return Hit count
+     */
+    public long getScriptCacheHitCount() {
+        long hitCount = droppedScriptCacheCounts.get(0);
+        for (PooledScriptEngine engine : engines) {
+            hitCount += engine.getScriptCache().getHitCount();
+        }
+        return hitCount;
+    }
+
+    /**
+     * Gets the compiled scripts cache misses, summed over all the engines,
+     * dropped ones included
+     * 
+     * @return Miss count
+     */
+    public long getScriptCacheMissCount() {
+        long missCount = droppedScriptCacheCounts.get(1);
+        for (PooledScriptEngine engine : engines) {
+            missCount += engine.getScriptCache().getMissCount();
+        }
+        return missCount;
+    }
+
+    /**
+     * Gets the compiled scripts cache evictions, summed over all the engines,
+     * dropped ones included
+     * 
+     * @return Eviction count
+     */
+    public long getScriptCacheEvictionCount() {
+        long evictionCount = droppedScriptCacheCounts.get(2);
+        for (PooledScriptEngine engine : engines) {
+            evictionCount += engine.getScriptCache().getEvictionCount();
+        }
+        return evictionCount;
+    }
+}
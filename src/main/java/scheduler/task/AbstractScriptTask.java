@@ -1,41 +1,39 @@
 package scheduler.task;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
- * Defines an abstract class for running Script Task
+ * Defines an abstract class for running Script Task. Script tasks are
+ * serializable provided their bound variables are serializable too.
  *
  */
-public abstract class AbstractScriptTask implements Task {
+public abstract class AbstractScriptTask extends AbstractTask {
 
     /**
-     * Unique id generator
+     * Serial version UID
      */
-    private static final AtomicInteger UNIQUEID = new AtomicInteger();
+    private static final long serialVersionUID = 6070326917412766447L;
 
     /**
-     * Task unique id
+     * Task script
      */
-    private int taskId;
+    private String script;
 
     /**
-     * Task script
+     * Variables bound in the script, <code>null</code> until one is set.
+     * Guarded by the task.
      */
-    private String script;
+    private Map<String, Object> bindings;
 
     /**
      * Default constructor
      */
     public AbstractScriptTask(String script) {
-        this.taskId = UNIQUEID.getAndIncrement();
         this.script = script;
     }
 
-    @Override
-    public int getId() {
-        return taskId;
-    }
-
     /**
      * Gets the task script
      * 
@@ -45,4 +43,42 @@ public abstract class AbstractScriptTask implements Task {
         return script;
     }
 
+    /**
+     * Binds a variable in the script, e.g. the result of an upstream task of
+     * a <code>TaskGraph</code>
+     * 
+     * @param name
+     *            Variable name
+     * @param value
+     *            Variable value, may be <code>null</code>
+     */
+    public synchronized void setBinding(String name, Object value) {
+        if (null == bindings) {
+            bindings = new HashMap<String, Object>();
+        }
+        bindings.put(name, value);
+    }
+
+    /**
+     * Gets a copy of the variables bound in the script
+     * 
+     * @return Variables by name, empty if none
+     */
+    public synchronized Map<String, Object> getBindings() {
+        if (null == bindings) {
+            return Collections.emptyMap();
+        }
+        return new HashMap<String, Object>(bindings);
+    }
+
+    /**
+     * Tells whether variables are bound in the script, in which case its
+     * result does not only depend on its text
+     * 
+     * @return <code>true</code> if at least one variable is bound
+     */
+    public synchronized boolean hasBindings() {
+        return null != bindings;
+    }
+
 }
@@ -0,0 +1,60 @@
+package scheduler.task;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Defines an abstract class for tasks, giving each one an id unique among all
+ * the tasks of the JVM, whatever their type. Tasks are serializable, so that a
+ * scheduler journal can recover them with their id, provided their state is
+ * serializable too.
+ *
+ */
+public abstract class AbstractTask implements Task, Serializable {
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = -3400582395853914180L;
+
+    /**
+     * Unique id generator, shared by all the task types
+     */
+    private static final AtomicInteger UNIQUEID = new AtomicInteger();
+
+    /**
+     * Task unique id
+     */
+    private int taskId;
+
+    /**
+     * Default constructor, assigning the next id
+     */
+    protected AbstractTask() {
+        this.taskId = UNIQUEID.getAndIncrement();
+    }
+
+    @Override
+    public int getId() {
+        return taskId;
+    }
+
+    /**
+     * Reads a serialized task, and reserves its id so that the tasks created
+     * afterwards in this JVM never reuse it
+     * 
+     * @param in
+     *            Object stream
+     * @throws IOException
+     *             If the task cannot be read
+     * @throws ClassNotFoundException
+     *             If the class of a task field is not available
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        UNIQUEID.accumulateAndGet(taskId + 1, Math::max);
+    }
+
+}
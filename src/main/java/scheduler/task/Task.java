@@ -9,7 +9,8 @@ import java.util.concurrent.Callable;
 public interface Task extends Callable<Object> {
 
     /**
-     * Gets the task id
+     * Gets the task id. The scheduler tracks tasks by id, so two tasks
+     * submitted to the same scheduler must not share an id.
      * 
      * @return Task id
      */
@@ -0,0 +1,248 @@
+package scheduler.task.impl;
+
+import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovySystem;
+import groovy.lang.Script;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.tools.GroovyClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import scheduler.script.BytecodeCache;
+import scheduler.script.ScriptBytecode;
+import scheduler.task.AbstractScriptTask;
+import scheduler.util.LruCache;
+
+/**
+ * Defines a task for computing a Groovy script compiled into a class of its
+ * own. Unlike {@link GroovyTask}, a call does not go through the
+ * <code>ScriptEngine</code> layer: it creates an instance of the compiled
+ * class through a generated factory, without reflection, and runs it
+ * directly, which the JIT compiler can inline. Compiled
+ * classes are shared by all the tasks running the same script, and are
+ * compiled with the same interruption checks as the Groovy tasks.
+ * <p>
+ * The compiled classes can also be kept on disk, in the directory given by
+ * {@link scheduler.SchedulerConfig.Builder#bytecodeCache(Path)}, so that a
+ * restarted process loads them instead of compiling the scripts again: the
+ * scheduler loads the known scripts upfront through {@link #warmUp()}.
+ *
+ */
+public class CompiledGroovyTask extends AbstractScriptTask {
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = 2964130911734574045L;
+
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompiledGroovyTask.class);
+
+    /**
+     * Factories of the compiled script classes, by script text. The size
+     * can be overridden through the
+     * <code>scheduler.groovy.scriptCacheSize</code> system property. Each
+     * class has a class loader of its own, so that an evicted class can be
+     * unloaded.
+     */
+    private static final LruCache<String, Supplier<Script>> SCRIPT_CACHE
+            = new LruCache<String, Supplier<Script>>(Integer.getInteger(
+                    "scheduler.groovy.scriptCacheSize", GroovyTask.DEFAULT_SCRIPT_CACHE_SIZE));
+
+    /**
+     * Script class number generator, names the compiled classes
+     */
+    private static final AtomicLong SCRIPT_NUMBER = new AtomicLong(1);
+
+    /**
+     * Compiled scripts kept on disk, <code>null</code> if none
+     */
+    private static volatile BytecodeCache bytecodeCache;
+
+    /**
+     * Constructs a compiled Groovy task
+     * 
+     * @param groovyScript
+     *            Groovy script to be executed
+     */
+    public CompiledGroovyTask(String groovyScript) {
+        super(groovyScript);
+    }
+
+    /**
+     * Gets the compiled script classes, mainly for monitoring their counters
+     * 
+     * @return Factories of the compiled script classes, by script text
+     */
+    public static LruCache<String, Supplier<Script>> getScriptCache() {
+        return SCRIPT_CACHE;
+    }
+
+    /**
+     * Opens a bytecode cache directory, tied to the running Groovy version
+     * 
+     * @param directory
+     *            Bytecode cache directory, created if needed
+     * @return Bytecode cache, <code>null</code> if the directory cannot be
+     *         created
+     */
+    public static BytecodeCache openBytecodeCache(Path directory) {
+        try {
+            return new BytecodeCache(directory, "groovy-" + GroovySystem.getVersion());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to open the bytecode cache in " + directory + ", scripts will be compiled", e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the compiled scripts kept on disk
+     * 
+     * @return Bytecode cache, <code>null</code> if none
+     */
+    public static BytecodeCache getBytecodeCache() {
+        return bytecodeCache;
+    }
+
+    /**
+     * Replaces the compiled scripts kept on disk
+     * 
+     * @param cache
+     *            Bytecode cache, <code>null</code> to only keep the compiled
+     *            scripts in memory
+     */
+    public static void setBytecodeCache(BytecodeCache cache) {
+        bytecodeCache = cache;
+    }
+
+    /**
+     * Loads the most recently used scripts of the bytecode cache into memory,
+     * in parallel, so that the first tasks running them neither compile nor
+     * load them. Loads at most the size of the in-memory cache.
+     * 
+     * @return Number of scripts loaded, 0 without bytecode cache
+     */
+    public static int warmUp() {
+        BytecodeCache cache = bytecodeCache;
+        if (null == cache) {
+            return 0;
+        }
+        List<ScriptBytecode> scripts;
+        try {
+            scripts = cache.loadAll(SCRIPT_CACHE.getMaxSize());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to list the bytecode cache " + cache, e);
+            return 0;
+        }
+        long warmedCount = scripts.parallelStream().filter(bytecode -> {
+            try {
+                SCRIPT_CACHE.putIfAbsent(bytecode.getScript(), factoryOf(bytecode));
+                return true;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                LOGGER.warn("Failed to load " + bytecode + " from the bytecode cache", e);
+                return false;
+            }
+        }).count();
+        LOGGER.info("Loaded " + warmedCount + " compiled scripts from " + cache);
+        return (int) warmedCount;
+    }
+
+    /**
+     * Gets the factory of the class compiled from a script: from memory, from
+     * the bytecode cache, or by compiling it
+     * 
+     * @param script
+     *            Groovy script
+     * @return Factory of the script class instances
+     * @throws ReflectiveOperationException
+     *             Never, script classes have a default constructor
+     */
+    private static Supplier<Script> compile(String script) throws ReflectiveOperationException {
+        Supplier<Script> factory = SCRIPT_CACHE.get(script);
+        if (null != factory) {
+            return factory;
+        }
+        BytecodeCache cache = bytecodeCache;
+        ScriptBytecode bytecode = null == cache ? null : cache.load(script);
+        if (null != bytecode) {
+            try {
+                return SCRIPT_CACHE.putIfAbsent(script, factoryOf(bytecode));
+            } catch (ReflectiveOperationException | LinkageError e) {
+                LOGGER.warn("Failed to load " + bytecode + " from the bytecode cache, compiling it again", e);
+            }
+        }
+        bytecode = compileBytecode(script);
+        if (null != cache) {
+            try {
+                cache.store(bytecode);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to store " + bytecode + " in the bytecode cache", e);
+            }
+        }
+        return SCRIPT_CACHE.putIfAbsent(script, factoryOf(bytecode));
+    }
+
+    /**
+     * Compiles a script, with interruption checks
+     * 
+     * @param script
+     *            Groovy script
+     * @return Compiled classes
+     */
+    private static ScriptBytecode compileBytecode(String script) {
+        CompilerConfiguration compilerConfiguration = new CompilerConfiguration();
+        compilerConfiguration.addCompilationCustomizers(new GroovyTask.ThreadInterruptCustomizer());
+        GroovyClassLoader classLoader = new GroovyClassLoader(CompiledGroovyTask.class.getClassLoader(),
+                compilerConfiguration);
+        CompilationUnit compilationUnit = new CompilationUnit(compilerConfiguration, null, classLoader);
+        String mainClassName = "CompiledScript" + SCRIPT_NUMBER.getAndIncrement();
+        compilationUnit.addSource(mainClassName + ".groovy", script);
+        compilationUnit.compile(Phases.CLASS_GENERATION);
+        Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+        for (Object compiledClass : compilationUnit.getClasses()) {
+            classes.put(((GroovyClass) compiledClass).getName(), ((GroovyClass) compiledClass).getBytes());
+        }
+        return new ScriptBytecode(script, mainClassName, classes);
+    }
+
+    /**
+     * Defines the compiled classes of a script
+     * 
+     * @param bytecode
+     *            Compiled classes
+     * @return Factory of the script class instances
+     * @throws ReflectiveOperationException
+     *             If the script class cannot be defined
+     */
+    private static Supplier<Script> factoryOf(ScriptBytecode bytecode) throws ReflectiveOperationException {
+        return bytecode.defineFactory(CompiledGroovyTask.class.getClassLoader(), Script.class);
+    }
+
+    @Override
+    public Object call() throws Exception {
+        Script script = compile(getScript()).get();
+        if (hasBindings()) {
+            script.setBinding(new Binding(getBindings()));
+        }
+        return script.run();
+    }
+
+    @Override
+    public String toString() {
+        return "[CompiledGroovyTask=" + getId() + "]";
+    }
+}
@@ -1,26 +1,67 @@
 package scheduler.task.impl;
 
+import groovy.lang.GroovyClassLoader;
+import groovy.transform.ThreadInterrupt;
+
+import java.util.concurrent.TimeUnit;
+
 import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
+import javax.script.SimpleBindings;
 
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.classgen.GeneratorContext;
+import org.codehaus.groovy.control.CompilePhase;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.control.customizers.CompilationCustomizer;
+import org.codehaus.groovy.jsr223.GroovyScriptEngineImpl;
+import org.codehaus.groovy.transform.ThreadInterruptibleASTTransformation;
+
+import scheduler.script.PooledScriptEngine;
+import scheduler.script.ScriptEnginePool;
 import scheduler.task.AbstractScriptTask;
 
 /**
- * Defines a task for computing Groovy script through ScriptEngine
+ * Defines a task for computing Groovy script through ScriptEngine. Each call
+ * borrows an engine from a pool shared by all the Groovy tasks, and engines
+ * compile a given script only once. Scripts are compiled with
+ * {@link ThreadInterrupt} checks, so that interrupting the running thread
+ * stops them at the next loop iteration, method or closure call.
  *
  */
 public class GroovyTask extends AbstractScriptTask {
 
     /**
-     * Script engine
+     * Serial version UID
      */
-    private static ScriptEngine engine;
+    private static final long serialVersionUID = -1874516320569140371L;
 
-    // Set the groovy engine
-    static {
-        ScriptEngineManager scriptEngineManager = new ScriptEngineManager();
-        engine = scriptEngineManager.getEngineByName("groovy");
-    }
+    /**
+     * Default maximum number of compiled scripts kept by each engine, can be
+     * overridden through the <code>scheduler.groovy.scriptCacheSize</code>
+     * system property
+     */
+    public static final int DEFAULT_SCRIPT_CACHE_SIZE = 256;
+
+    /**
+     * Time after which an idle engine is dropped, in seconds
+     */
+    private static final long ENGINE_IDLE_TIMEOUT_SECONDS = 60;
+
+    /**
+     * Script engines pool, shared by every scheduler: unbounded by default, so
+     * that it grows to the number of Groovy tasks running at the same time,
+     * whatever the parallelism of the schedulers, and drops the engines left
+     * idle once the load decreases. The size can be bounded through the
+     * <code>scheduler.groovy.engines</code> system property
+     */
+    private static final ScriptEnginePool ENGINE_POOL = new ScriptEnginePool("groovy", GroovyTask::createEngine,
+            Integer.getInteger("scheduler.groovy.engines", ScriptEnginePool.UNBOUNDED), Integer.getInteger(
+                    "scheduler.groovy.scriptCacheSize", DEFAULT_SCRIPT_CACHE_SIZE), ENGINE_IDLE_TIMEOUT_SECONDS,
+            TimeUnit.SECONDS);
 
     /**
      * Constructs a Groovy task
@@ -32,9 +73,38 @@ public class GroovyTask extends AbstractScriptTask {
         super(groovyScript);
     }
 
+    /**
+     * Creates a Groovy engine compiling the scripts with interruption checks
+     * 
+     * @return New engine
+     */
+    private static ScriptEngine createEngine() {
+        CompilerConfiguration compilerConfiguration = new CompilerConfiguration();
+        compilerConfiguration.addCompilationCustomizers(new ThreadInterruptCustomizer());
+        return new GroovyScriptEngineImpl(new GroovyClassLoader(GroovyTask.class.getClassLoader(),
+                compilerConfiguration));
+    }
+
+    /**
+     * Gets the script engines pool, mainly for monitoring its counters
+     * 
+     * @return Script engines pool
+     */
+    public static ScriptEnginePool getEnginePool() {
+        return ENGINE_POOL;
+    }
+
     @Override
     public Object call() throws Exception {
-        return engine.eval(getScript());
+        PooledScriptEngine engine = ENGINE_POOL.borrow();
+        try {
+            if (!hasBindings()) {
+                return engine.eval(getScript());
+            }
+            return engine.eval(getScript(), new SimpleBindings(getBindings()));
+        } finally {
+            ENGINE_POOL.release(engine);
+        }
     }
 
     @Override
@@ -42,4 +112,31 @@ public class GroovyTask extends AbstractScriptTask {
         return "[GroovyTask=" + getId() + "]";
     }
 
+    /**
+     * Applies the {@link ThreadInterrupt} transformation to every compiled
+     * class, as if the scripts were annotated. Does what
+     * <code>ASTTransformationCustomizer</code> does, without its dynamic
+     * Groovy calls on the annotation.
+     */
+    static final class ThreadInterruptCustomizer extends CompilationCustomizer {
+
+        /**
+         * Annotation with its default members: checks on loops, closures and
+         * method starts of all the classes
+         */
+        private final AnnotationNode annotationNode;
+
+        /**
+         * Constructs a new ThreadInterruptCustomizer
+         */
+        ThreadInterruptCustomizer() {
+            super(CompilePhase.CANONICALIZATION);
+            this.annotationNode = new AnnotationNode(ClassHelper.make(ThreadInterrupt.class));
+        }
+
+        @Override
+        public void call(SourceUnit source, GeneratorContext context, ClassNode classNode) {
+            new ThreadInterruptibleASTTransformation().visit(new ASTNode[] { annotationNode, classNode }, source);
+        }
+    }
 }
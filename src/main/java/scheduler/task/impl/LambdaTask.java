@@ -0,0 +1,48 @@
+package scheduler.task.impl;
+
+import java.util.concurrent.Callable;
+
+import scheduler.task.AbstractTask;
+
+/**
+ * Defines a task running Java code, e.g. a lambda, without any script
+ * machinery. The task is only serializable, and thus journaled, if its
+ * callable is, e.g. a lambda cast to
+ * <code>(Callable&lt;Object&gt; &amp; Serializable)</code>.
+ *
+ */
+public class LambdaTask extends AbstractTask {
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = 5318246570219364412L;
+
+    /**
+     * Code run by the task
+     */
+    private final Callable<?> callable;
+
+    /**
+     * Constructs a task running the given code
+     * 
+     * @param callable
+     *            Code to be executed, its result is the task result
+     */
+    public LambdaTask(Callable<?> callable) {
+        if (null == callable) {
+            throw new IllegalArgumentException("Callable is null");
+        }
+        this.callable = callable;
+    }
+
+    @Override
+    public Object call() throws Exception {
+        return callable.call();
+    }
+
+    @Override
+    public String toString() {
+        return "[LambdaTask=" + getId() + "]";
+    }
+}
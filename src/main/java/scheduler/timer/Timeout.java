@@ -0,0 +1,211 @@
+package scheduler.timer;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Handle on an action scheduled in a {@link TimingWheel}. Also a node of the
+ * wheel bucket holding it, so that both insertion and cancellation are
+ * constant time.
+ *
+ */
+public final class Timeout {
+
+    /**
+     * Waiting for its deadline
+     */
+    private static final int PENDING = 0;
+
+    /**
+     * Cancelled before its deadline
+     */
+    private static final int CANCELLED = 1;
+
+    /**
+     * Deadline reached, the action has been run
+     */
+    private static final int EXPIRED = 2;
+
+    /**
+     * State updater, avoids an atomic object per timeout
+     */
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(
+            Timeout.class, "state");
+
+    /**
+     * Wheel holding the timeout
+     */
+    private final TimingWheel timingWheel;
+
+    /**
+     * Action to run at the deadline
+     */
+    private final Runnable action;
+
+    /**
+     * Deadline, in wheel ticks
+     */
+    final long deadlineTick;
+
+    /**
+     * Current state
+     */
+    private volatile int state;
+
+    /**
+     * Bucket holding the timeout, <code>null</code> if not linked. Only
+     * accessed by the wheel thread.
+     */
+    Bucket bucket;
+
+    /**
+     * Previous timeout of the bucket. Only accessed by the wheel thread.
+     */
+    Timeout previous;
+
+    /**
+     * Next timeout of the bucket. Only accessed by the wheel thread.
+     */
+    Timeout next;
+
+    /**
+     * Constructs a new Timeout
+     * 
+     * @param timingWheel
+     *            Wheel holding the timeout
+     * @param action
+     *            Action to run at the deadline
+     * @param deadlineTick
+     *            Deadline, in wheel ticks
+     */
+    Timeout(TimingWheel timingWheel, Runnable action, long deadlineTick) {
+        this.timingWheel = timingWheel;
+        this.action = action;
+        this.deadlineTick = deadlineTick;
+    }
+
+    /**
+     * Gets the action to run at the deadline
+     * 
+     * @return Action
+     */
+    Runnable getAction() {
+        return action;
+    }
+
+    /**
+     * Cancels the timeout, the action will not run
+     * 
+     * @return <code>true</code> if cancelled, <code>false</code> if already
+     *         cancelled or expired
+     */
+    public boolean cancel() {
+        if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+            return false;
+        }
+        timingWheel.cancelled(this);
+        return true;
+    }
+
+    /**
+     * Marks the timeout as expired, so that it cannot be cancelled anymore
+     * 
+     * @return <code>true</code> if expired, <code>false</code> if already
+     *         cancelled
+     */
+    boolean expire() {
+        return STATE.compareAndSet(this, PENDING, EXPIRED);
+    }
+
+    /**
+     * Tells whether the timeout has been cancelled
+     * 
+     * @return <code>true</code> if cancelled
+     */
+    public boolean isCancelled() {
+        return CANCELLED == state;
+    }
+
+    /**
+     * Tells whether the deadline has been reached and the action run
+     * 
+     * @return <code>true</code> if expired
+     */
+    public boolean isExpired() {
+        return EXPIRED == state;
+    }
+
+    @Override
+    public String toString() {
+        return "[Timeout deadlineTick=" + deadlineTick + ", state=" + state + "]";
+    }
+
+    /**
+     * Doubly linked list of timeouts sharing a wheel slot. Only accessed by
+     * the wheel thread.
+     */
+    static final class Bucket {
+
+        /**
+         * First timeout, <code>null</code> if empty
+         */
+        private Timeout head;
+
+        /**
+         * Last timeout, <code>null</code> if empty
+         */
+        private Timeout tail;
+
+        /**
+         * Appends a timeout
+         * 
+         * @param timeout
+         *            Timeout, not linked
+         */
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.previous = tail;
+            timeout.next = null;
+            if (null == tail) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        /**
+         * Unlinks a timeout
+         * 
+         * @param timeout
+         *            Timeout linked in this bucket
+         */
+        void remove(Timeout timeout) {
+            if (null == timeout.previous) {
+                head = timeout.next;
+            } else {
+                timeout.previous.next = timeout.next;
+            }
+            if (null == timeout.next) {
+                tail = timeout.previous;
+            } else {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        /**
+         * Unlinks all the timeouts
+         * 
+         * @return First timeout of the former list, still chained through
+         *         <code>next</code>; <code>null</code> if empty
+         */
+        Timeout clear() {
+            Timeout first = head;
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package scheduler.timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hierarchical timing wheel running actions after a delay. Each level is a
+ * wheel of buckets: the first level has one bucket per tick, and each bucket
+ * of the next levels spans a whole turn of the previous level. Timeouts land in
+ * the level matching their remaining delay and cascade down to the first level
+ * as their deadline gets closer.
+ *
+ * Scheduling and cancelling a timeout are constant time, whatever the number of
+ * pending timeouts: callers only enqueue it, and a single thread links it into
+ * its bucket, advances the wheels tick by tick and runs the expired actions.
+ * Actions therefore run on that thread and must be short, typically handing
+ * the real work to an executor. Deadlines are rounded up to the next tick.
+ *
+ */
+public class TimingWheel {
+
+    /**
+     * Class logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimingWheel.class);
+
+    /**
+     * Wheel thread number generator
+     */
+    private static final AtomicInteger WHEEL_NUMBER = new AtomicInteger(1);
+
+    /**
+     * Number of buckets per level, as a power of two
+     */
+    private static final int WHEEL_BITS = 8;
+
+    /**
+     * Number of buckets per level
+     */
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    /**
+     * Bucket index mask
+     */
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /**
+     * Number of levels, enough for any positive tick count
+     */
+    private static final int LEVELS = (Long.SIZE - 1 + WHEEL_BITS - 1) / WHEEL_BITS;
+
+    /**
+     * Tick duration, in nanoseconds
+     */
+    private final long tickNanos;
+
+    /**
+     * Time of tick zero, from <code>System.nanoTime()</code>
+     */
+    private final long startNanos;
+
+    /**
+     * Buckets, by level then slot. Only accessed by the wheel thread.
+     */
+    private final Timeout.Bucket[][] wheels;
+
+    /**
+     * Timeouts scheduled but not linked into a bucket yet
+     */
+    private final Queue<Timeout> additions;
+
+    /**
+     * Timeouts cancelled but maybe still linked into a bucket
+     */
+    private final Queue<Timeout> cancellations;
+
+    /**
+     * Number of timeouts neither expired nor cancelled
+     */
+    private final AtomicInteger pendingCount;
+
+    /**
+     * Wheel thread
+     */
+    private final Thread thread;
+
+    /**
+     * Last processed tick. Only accessed by the wheel thread.
+     */
+    private long currentTick;
+
+    /**
+     * Number of timeouts linked into buckets. Only accessed by the wheel
+     * thread.
+     */
+    private int linkedCount;
+
+    /**
+     * Set while the wheel thread waits for a timeout to be scheduled
+     */
+    private volatile boolean idle;
+
+    /**
+     * Cleared once the wheel is stopped
+     */
+    private volatile boolean running;
+
+    /**
+     * Constructs a new TimingWheel. Its thread starts with the first
+     * scheduled timeout.
+     * 
+     * @param tickDuration
+     *            Tick duration, must be positive
+     * @param unit
+     *            Time unit of the tick duration
+     */
+    public TimingWheel(long tickDuration, TimeUnit unit) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive: " + tickDuration);
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.startNanos = System.nanoTime();
+        this.wheels = new Timeout.Bucket[LEVELS][WHEEL_SIZE];
+        for (Timeout.Bucket[] wheel : wheels) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                wheel[slot] = new Timeout.Bucket();
+            }
+        }
+        this.additions = new ConcurrentLinkedQueue<Timeout>();
+        this.cancellations = new ConcurrentLinkedQueue<Timeout>();
+        this.pendingCount = new AtomicInteger();
+        this.thread = new Thread(this::work, "scheduler-timer-" + WHEEL_NUMBER.getAndIncrement());
+        this.thread.setDaemon(true);
+        this.running = true;
+    }
+
+    /**
+     * Schedules an action
+     * 
+     * @param action
+     *            Action to run on the wheel thread
+     * @param delay
+     *            Delay before running the action, run on the next tick if not
+     *            positive
+     * @param unit
+     *            Time unit of the delay
+     * @return Handle for cancelling the action
+     * @throws IllegalStateException
+     *             If the wheel has been stopped
+     */
+    public Timeout schedule(Runnable action, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Timing wheel has been stopped");
+        }
+        long delayNanos = Math.max(0, unit.toNanos(delay));
+        long elapsedNanos = System.nanoTime() - startNanos;
+        // Round up, and keep far deadlines from overflowing
+        long deadlineTick = delayNanos >= Long.MAX_VALUE - elapsedNanos - tickNanos ? Long.MAX_VALUE
+                : (elapsedNanos + delayNanos + tickNanos - 1) / tickNanos;
+        Timeout timeout = new Timeout(this, action, deadlineTick);
+        pendingCount.incrementAndGet();
+        additions.add(timeout);
+        if (!running) {
+            // Stopped meanwhile, unless the stop already cancelled it
+            if (timeout.cancel()) {
+                throw new IllegalStateException("Timing wheel has been stopped");
+            }
+            return timeout;
+        }
+        if (Thread.State.NEW == thread.getState()) {
+            start();
+        }
+        if (idle) {
+            LockSupport.unpark(thread);
+        }
+        return timeout;
+    }
+
+    /**
+     * Starts the wheel thread once
+     */
+    private synchronized void start() {
+        if (running && Thread.State.NEW == thread.getState()) {
+            thread.start();
+        }
+    }
+
+    /**
+     * Queues a cancelled timeout, so that the wheel thread unlinks it
+     * 
+     * @param timeout
+     *            Cancelled timeout
+     */
+    void cancelled(Timeout timeout) {
+        pendingCount.decrementAndGet();
+        cancellations.add(timeout);
+    }
+
+    /**
+     * Gets the number of timeouts neither expired nor cancelled
+     * 
+     * @return Number of pending timeouts
+     */
+    public int size() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Stops the wheel thread and cancels the pending timeouts
+     * 
+     * @return Actions of the cancelled timeouts, which have not been run
+     */
+    public List<Runnable> stop() {
+        synchronized (this) {
+            running = false;
+            if (Thread.State.NEW == thread.getState()) {
+                // Never started, everything is still in the additions
+                return cancelAll();
+            }
+        }
+        LockSupport.unpark(thread);
+        if (Thread.currentThread() != thread) {
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return cancelAll();
+    }
+
+    /**
+     * Cancels the timeouts left once the wheel thread is over
+     * 
+     * @return Actions of the cancelled timeouts
+     */
+    private List<Runnable> cancelAll() {
+        List<Runnable> actions = new ArrayList<Runnable>();
+        for (Timeout timeout = additions.poll(); null != timeout; timeout = additions.poll()) {
+            if (timeout.cancel()) {
+                actions.add(timeout.getAction());
+            }
+        }
+        for (Timeout.Bucket[] wheel : wheels) {
+            for (Timeout.Bucket bucket : wheel) {
+                Timeout timeout = bucket.clear();
+                while (null != timeout) {
+                    Timeout next = timeout.next;
+                    timeout.bucket = null;
+                    timeout.previous = null;
+                    timeout.next = null;
+                    if (timeout.cancel()) {
+                        actions.add(timeout.getAction());
+                    }
+                    timeout = next;
+                }
+            }
+        }
+        cancellations.clear();
+        linkedCount = 0;
+        return actions;
+    }
+
+    /**
+     * Wheel thread loop: waits for the next tick, then processes every tick
+     * elapsed since the last one
+     */
+    private void work() {
+        while (running) {
+            unlinkCancelled();
+            long nowTick = (System.nanoTime() - startNanos) / tickNanos;
+            if (0 == linkedCount) {
+                // Nothing to cascade, skip the idle ticks at once
+                currentTick = Math.max(currentTick, nowTick);
+            }
+            linkAdded();
+            while (currentTick < nowTick) {
+                currentTick++;
+                cascade();
+                expire(wheels[0][(int) currentTick & WHEEL_MASK]);
+            }
+            await();
+        }
+    }
+
+    /**
+     * Parks the wheel thread until the next tick, or until a timeout is
+     * scheduled if none is pending
+     */
+    private void await() {
+        if (0 == linkedCount) {
+            idle = true;
+            if (additions.isEmpty() && running) {
+                LockSupport.park(this);
+            }
+            idle = false;
+        } else {
+            long nextTickNanos = startNanos + (currentTick + 1) * tickNanos;
+            LockSupport.parkNanos(this, nextTickNanos - System.nanoTime());
+        }
+    }
+
+    /**
+     * Unlinks the cancelled timeouts from their bucket
+     */
+    private void unlinkCancelled() {
+        for (Timeout timeout = cancellations.poll(); null != timeout; timeout = cancellations.poll()) {
+            if (null != timeout.bucket) {
+                timeout.bucket.remove(timeout);
+                linkedCount--;
+            }
+        }
+    }
+
+    /**
+     * Links the scheduled timeouts into their bucket
+     */
+    private void linkAdded() {
+        for (Timeout timeout = additions.poll(); null != timeout; timeout = additions.poll()) {
+            if (!timeout.isCancelled()) {
+                link(timeout);
+            }
+        }
+    }
+
+    /**
+     * Links a timeout into the bucket matching its remaining delay, or runs
+     * it if the deadline has been reached
+     * 
+     * @param timeout
+     *            Timeout, not linked
+     */
+    private void link(Timeout timeout) {
+        long remainingTicks = timeout.deadlineTick - currentTick;
+        if (remainingTicks <= 0) {
+            run(timeout);
+            return;
+        }
+        // Level whose bucket span covers the remaining delay
+        int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(remainingTicks)) / WHEEL_BITS;
+        int slot = (int) (timeout.deadlineTick >>> (level * WHEEL_BITS)) & WHEEL_MASK;
+        wheels[level][slot].add(timeout);
+        linkedCount++;
+    }
+
+    /**
+     * Moves down the timeouts of the upper level buckets the current tick
+     * enters, highest level first so that they can cascade several levels at
+     * once
+     */
+    private void cascade() {
+        int level = 1;
+        while (level < LEVELS && 0 == (currentTick & ((1L << (level * WHEEL_BITS)) - 1))) {
+            level++;
+        }
+        for (level--; level > 0; level--) {
+            Timeout.Bucket bucket = wheels[level][(int) (currentTick >>> (level * WHEEL_BITS)) & WHEEL_MASK];
+            Timeout timeout = bucket.clear();
+            while (null != timeout) {
+                Timeout next = timeout.next;
+                timeout.bucket = null;
+                timeout.previous = null;
+                timeout.next = null;
+                linkedCount--;
+                link(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    /**
+     * Runs the timeouts of a first level bucket
+     * 
+     * @param bucket
+     *            Bucket of the current tick
+     */
+    private void expire(Timeout.Bucket bucket) {
+        Timeout timeout = bucket.clear();
+        while (null != timeout) {
+            Timeout next = timeout.next;
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+            linkedCount--;
+            run(timeout);
+            timeout = next;
+        }
+    }
+
+    /**
+     * Runs the action of an expired timeout, unless it has been cancelled
+     * 
+     * @param timeout
+     *            Expired timeout, not linked
+     */
+    private void run(Timeout timeout) {
+        if (!timeout.expire()) {
+            return;
+        }
+        pendingCount.decrementAndGet();
+        try {
+            timeout.getAction().run();
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to run timer action " + timeout.getAction(), e);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package scheduler.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread safe map from primitive <code>int</code> keys to objects. Keys are
+ * spread over segments, each one being an open addressing table guarded by its
+ * own <code>StampedLock</code>: lookups are optimistic and neither lock nor
+ * allocate unless they race with a write on the same segment. Values cannot be
+ * <code>null</code>.
+ *
+ * @param <V>
+ *            Value type
+ */
+public class ConcurrentIntMap<V> {
+
+    /**
+     * Number of segments, must be a power of two
+     */
+    private static final int SEGMENTS = 64;
+
+    /**
+     * Initial and minimum capacity of a segment, must be a power of two
+     */
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * Segments
+     */
+    private final Segment[] segments;
+
+    /**
+     * Constructs a new ConcurrentIntMap
+     */
+    public ConcurrentIntMap() {
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Mixes the key bits, so that dense keys spread over segments and slots
+     * 
+     * @param key
+     *            Key
+     * @return Key hash
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Gets the segment holding a key
+     * 
+     * @param hash
+     *            Key hash
+     * @return Segment
+     */
+    private Segment segmentFor(int hash) {
+        // Top bits select the segment, low bits select the slot
+        return segments[hash >>> (Integer.SIZE - Integer.numberOfTrailingZeros(SEGMENTS))];
+    }
+
+    /**
+     * Gets the value mapped to a key
+     * 
+     * @param key
+     *            Key
+     * @return Value, <code>null</code> if none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.tryOptimisticRead();
+        Object value = segment.find(key, hash);
+        if (!segment.validate(stamp)) {
+            stamp = segment.readLock();
+            try {
+                value = segment.find(key, hash);
+            } finally {
+                segment.unlockRead(stamp);
+            }
+        }
+        return (V) value;
+    }
+
+    /**
+     * Maps a value to a key
+     * 
+     * @param key
+     *            Key
+     * @param value
+     *            Value, not <code>null</code>
+     * @return Previous value, <code>null</code> if none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (null == value) {
+            throw new IllegalArgumentException("Value is null");
+        }
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.writeLock();
+        try {
+            return (V) segment.put(key, hash, value);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes a key if it is mapped to the given value
+     * 
+     * @param key
+     *            Key
+     * @param value
+     *            Expected value, compared by identity
+     * @return <code>true</code> if the key has been removed, <code>false</code>
+     *         otherwise
+     */
+    public boolean remove(int key, V value) {
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.writeLock();
+        try {
+            return segment.remove(key, hash, value);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Gets the number of keys
+     * 
+     * @return Number of keys
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            long stamp = segment.readLock();
+            try {
+                size += segment.size;
+            } finally {
+                segment.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Copies the values, segment by segment
+     * 
+     * @return Values snapshot
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> values = new ArrayList<V>();
+        for (Segment segment : segments) {
+            long stamp = segment.readLock();
+            try {
+                for (Object value : segment.values) {
+                    if (null != value) {
+                        values.add((V) value);
+                    }
+                }
+            } finally {
+                segment.unlockRead(stamp);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Open addressing table with linear probing. Removals shift the following
+     * entries back instead of leaving tombstones.
+     */
+    @SuppressWarnings("serial")
+    private static final class Segment extends StampedLock {
+
+        /**
+         * Keys, by slot
+         */
+        private int[] keys = new int[MIN_CAPACITY];
+
+        /**
+         * Values by slot, <code>null</code> for free slots
+         */
+        private Object[] values = new Object[MIN_CAPACITY];
+
+        /**
+         * Number of used slots
+         */
+        private int size;
+
+        /**
+         * Looks a key up. May run without the lock, so it only reads each
+         * array once and never probes more slots than the table holds.
+         * 
+         * @param key
+         *            Key
+         * @param hash
+         *            Key hash
+         * @return Value, <code>null</code> if none
+         */
+        Object find(int key, int hash) {
+            int[] keys = this.keys;
+            Object[] values = this.values;
+            if (keys.length != values.length) {
+                // Resize in progress, the caller validation fails
+                return null;
+            }
+            int mask = values.length - 1;
+            int slot = hash & mask;
+            for (int probe = 0; probe <= mask; probe++) {
+                Object value = values[slot];
+                if (null == value) {
+                    return null;
+                }
+                if (keys[slot] == key) {
+                    return value;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * Maps a value to a key. Requires the write lock.
+         * 
+         * @param key
+         *            Key
+         * @param hash
+         *            Key hash
+         * @param value
+         *            Value
+         * @return Previous value, <code>null</code> if none
+         */
+        Object put(int key, int hash, Object value) {
+            int mask = values.length - 1;
+            int slot = hash & mask;
+            while (null != values[slot]) {
+                if (keys[slot] == key) {
+                    Object previous = values[slot];
+                    values[slot] = value;
+                    return previous;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+            // Keep the load factor under 1/2
+            if (size > values.length >>> 1) {
+                resize(values.length << 1);
+            }
+            return null;
+        }
+
+        /**
+         * Removes a key if mapped to the given value. Requires the write lock.
+         * 
+         * @param key
+         *            Key
+         * @param hash
+         *            Key hash
+         * @param value
+         *            Expected value
+         * @return <code>true</code> if removed, <code>false</code> otherwise
+         */
+        boolean remove(int key, int hash, Object value) {
+            int mask = values.length - 1;
+            int slot = hash & mask;
+            while (null != values[slot]) {
+                if (keys[slot] == key) {
+                    if (values[slot] != value) {
+                        return false;
+                    }
+                    deleteSlot(slot, mask);
+                    size--;
+                    // Give the memory back once the tasks have been removed
+                    if (values.length > MIN_CAPACITY && size < values.length >>> 3) {
+                        resize(values.length >>> 1);
+                    }
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+
+        /**
+         * Frees a slot and shifts back the entries which probed over it
+         * 
+         * @param slot
+         *            Slot to free
+         * @param mask
+         *            Table mask
+         */
+        private void deleteSlot(int slot, int mask) {
+            int free = slot;
+            int next = (free + 1) & mask;
+            while (null != values[next]) {
+                int home = hash(keys[next]) & mask;
+                // Move the entry if its home slot is not between the free slot
+                // and its current slot
+                if (((next - home) & mask) >= ((next - free) & mask)) {
+                    keys[free] = keys[next];
+                    values[free] = values[next];
+                    free = next;
+                }
+                next = (next + 1) & mask;
+            }
+            values[free] = null;
+        }
+
+        /**
+         * Rehashes the entries in a table of the given capacity. Requires the
+         * write lock.
+         * 
+         * @param capacity
+         *            New capacity, must be a power of two
+         */
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            int[] newKeys = new int[capacity];
+            Object[] newValues = new Object[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldValues.length; i++) {
+                if (null != oldValues[i]) {
+                    int slot = hash(oldKeys[i]) & mask;
+                    while (null != newValues[slot]) {
+                        slot = (slot + 1) & mask;
+                    }
+                    newKeys[slot] = oldKeys[i];
+                    newValues[slot] = oldValues[i];
+                }
+            }
+            keys = newKeys;
+            values = newValues;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package scheduler.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe cache bounded in number of entries, evicting the least recently
+ * used entry first. Keeps hit, miss and eviction counters.
+ *
+ * @param <K>
+ *            Key type
+ * @param <V>
+ *            Value type
+ */
+public class LruCache<K, V> {
+
+    /**
+     * Maximum number of entries
+     */
+    private final int maxSize;
+
+    /**
+     * Entries, in access order
+     */
+    private final LinkedHashMap<K, V> entries;
+
+    /**
+     * Number of lookups which found an entry
+     */
+    private final AtomicLong hitCount;
+
+    /**
+     * Number of lookups which did not find an entry
+     */
+    private final AtomicLong missCount;
+
+    /**
+     * Number of entries evicted to respect the maximum size
+     */
+    private final AtomicLong evictionCount;
+
+    /**
+     * Constructs a new LruCache
+     * 
+     * @param maxSize
+     *            Maximum number of entries, must be positive
+     */
+    public LruCache(final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.evictionCount = new AtomicLong();
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets a cached value and marks it as recently used
+     * 
+     * @param key
+     *            Entry key
+     * @return The cached value, <code>null</code> if not cached
+     */
+    public V get(K key) {
+        V value;
+        synchronized (entries) {
+            value = entries.get(key);
+        }
+        if (null == value) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * Caches a value unless another one has already been cached for the same
+     * key, in which case the cached one is kept
+     * 
+     * @param key
+     *            Entry key
+     * @param value
+     *            Value to cache
+     * @return The value now cached for the key
+     */
+    public V putIfAbsent(K key, V value) {
+        synchronized (entries) {
+            V cached = entries.get(key);
+            if (null != cached) {
+                return cached;
+            }
+            entries.put(key, value);
+            return value;
+        }
+    }
+
+    /**
+     * Removes a cached value
+     * 
+     * @param key
+     *            Entry key
+     * @return The removed value, <code>null</code> if not cached
+     */
+    public V remove(K key) {
+        synchronized (entries) {
+            return entries.remove(key);
+        }
+    }
+
+    /**
+     * Removes all the cached values
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Gets the number of cached values
+     * 
+     * @return Number of cached values
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Gets the maximum number of cached values
+     * 
+     * @return Maximum number of cached values
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Gets the number of lookups which found a value
+     * 
+     * @return Hit count
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of lookups which did not find a value
+     * 
+     * @return Miss count
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of values evicted to respect the maximum size
+     * 
+     * @return Eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "[LruCache size=" + size() + "/" + maxSize + ", hits=" + hitCount + ", misses=" + missCount
+                + ", evictions=" + evictionCount + "]";
+    }
+}
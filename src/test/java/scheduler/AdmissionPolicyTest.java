@@ -0,0 +1,223 @@
+package scheduler;
+
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import scheduler.exception.SchedulerException;
+import scheduler.exception.TaskRejectedException;
+import scheduler.task.impl.GroovyTask;
+
+public class AdmissionPolicyTest {
+    @Rule
+    public Timeout globalTimeout = new Timeout(10000, TimeUnit.MILLISECONDS);
+
+    private TaskScheduler taskScheduler;
+
+    @After
+    public void tearDown() throws Exception {
+        if (null != taskScheduler) {
+            taskScheduler.close();
+        }
+    }
+
+    /**
+     * Creates a single worker scheduler with a queue of two tasks, and keeps
+     * its worker busy
+     */
+    private CompletableFuture<Object> createBusyScheduler(SchedulerConfig.Builder builder) throws SchedulerException,
+            InterruptedException {
+        taskScheduler = new TaskScheduler(builder.parallelism(1).queueCapacity(2).build());
+        CompletableFuture<Object> blockingFuture = taskScheduler.submitTask(new GroovyTask("sleep(300)"));
+        while (taskScheduler.getRemainingQueueCapacity() < 2) {
+            Thread.sleep(1);
+        }
+        return blockingFuture;
+    }
+
+    //
+    //
+    // AdmissionPolicy.REJECT
+    //
+    //
+
+    @Test
+    public void testReject() throws InterruptedException {
+        try {
+            createBusyScheduler(SchedulerConfig.builder().admissionPolicy(AdmissionPolicy.REJECT));
+            taskScheduler.submitTask(new GroovyTask("(1..10).sum()"));
+            taskScheduler.submitTask(new GroovyTask("(1..10).sum()"));
+            Assert.assertEquals(0, taskScheduler.getRemainingQueueCapacity());
+            GroovyTask rejectedTask = new GroovyTask("(1..10).sum()");
+            try {
+                taskScheduler.submitTask(rejectedTask);
+                fail("Should throw a TaskRejectedException");
+            } catch (TaskRejectedException e) {
+                Assert.assertEquals(1, taskScheduler.getRejectedTaskCount());
+                Assert.assertFalse(taskScheduler.getTasksRunning().contains(rejectedTask));
+            }
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTrySubmit() throws InterruptedException {
+        try {
+            CompletableFuture<Object> blockingFuture = createBusyScheduler(SchedulerConfig.builder());
+            Assert.assertTrue(taskScheduler.trySubmit(new GroovyTask("(1..10).sum()")));
+            Assert.assertTrue(taskScheduler.trySubmit(new GroovyTask("(1..10).sum()")));
+            // Does not block, although the policy does
+            Assert.assertFalse(taskScheduler.trySubmit(new GroovyTask("(1..10).sum()")));
+            Assert.assertFalse(blockingFuture.isDone());
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTrySubmitCompletionQueue() throws Exception {
+        createBusyScheduler(SchedulerConfig.builder());
+        CompletionQueue completionQueue = new CompletionQueue();
+        GroovyTask acceptedTask = new GroovyTask("(1..10).sum()");
+        Assert.assertTrue(taskScheduler.trySubmit(acceptedTask, TaskPriority.NORMAL, completionQueue));
+        Assert.assertTrue(taskScheduler.trySubmit(new GroovyTask("(1..10).sum()"), TaskPriority.NORMAL, null));
+        Assert.assertFalse(taskScheduler.trySubmit(new GroovyTask("(1..10).sum()"), TaskPriority.NORMAL,
+                completionQueue));
+        // Only the accepted task is handed back
+        Assert.assertSame(acceptedTask, completionQueue.takeCompleted());
+        Assert.assertNull(completionQueue.pollCompleted(100, TimeUnit.MILLISECONDS));
+    }
+
+    //
+    //
+    // AdmissionPolicy.BLOCK
+    //
+    //
+
+    @Test
+    public void testBlock() throws InterruptedException {
+        try {
+            CompletableFuture<Object> blockingFuture = createBusyScheduler(SchedulerConfig.builder());
+            taskScheduler.submitTask(new GroovyTask("(1..10).sum()"));
+            taskScheduler.submitTask(new GroovyTask("(1..10).sum()"));
+            CompletableFuture<Object> future = taskScheduler.submitTask(new GroovyTask("(1..10).sum()"));
+            // Room has been made by the worker
+            Assert.assertTrue(blockingFuture.isDone());
+            Assert.assertEquals(55, future.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(0, taskScheduler.getRejectedTaskCount());
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testBlockTimeout() throws InterruptedException {
+        try {
+            createBusyScheduler(SchedulerConfig.builder().admissionTimeout(50, TimeUnit.MILLISECONDS));
+            taskScheduler.submitTask(new GroovyTask("(1..10).sum()"));
+            taskScheduler.submitTask(new GroovyTask("(1..10).sum()"));
+            long start = System.nanoTime();
+            try {
+                taskScheduler.submitTask(new GroovyTask("(1..10).sum()"));
+                fail("Should throw a TaskRejectedException");
+            } catch (TaskRejectedException e) {
+                Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+                Assert.assertEquals(1, taskScheduler.getRejectedTaskCount());
+            }
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    //
+    //
+    // AdmissionPolicy.CALLER_RUNS
+    //
+    //
+
+    @Test
+    public void testCallerRuns() throws InterruptedException {
+        try {
+            createBusyScheduler(SchedulerConfig.builder().admissionPolicy(AdmissionPolicy.CALLER_RUNS));
+            taskScheduler.submitTask(new GroovyTask("(1..10).sum()"));
+            taskScheduler.submitTask(new GroovyTask("(1..10).sum()"));
+            GroovyTask callerTask = new GroovyTask("Thread.currentThread()");
+            CompletableFuture<Object> future = taskScheduler.submitTask(callerTask);
+            Assert.assertTrue(future.isDone());
+            Assert.assertSame(Thread.currentThread(), taskScheduler.getTaskResult(callerTask));
+        } catch (SchedulerException | ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    //
+    //
+    // AdmissionPolicy.DROP_OLDEST
+    //
+    //
+
+    @Test
+    public void testDropOldest() throws InterruptedException {
+        try {
+            createBusyScheduler(SchedulerConfig.builder().admissionPolicy(AdmissionPolicy.DROP_OLDEST));
+            GroovyTask droppedTask = new GroovyTask("(1..10).sum()");
+            CompletableFuture<Object> droppedFuture = taskScheduler.submitTask(droppedTask, TaskPriority.LOW);
+            CompletableFuture<Object> normalFuture = taskScheduler.submitTask(new GroovyTask("(1..10).sum()"));
+            CompletableFuture<Object> highFuture = taskScheduler.submitTask(new GroovyTask("(1..10).sum()"),
+                    TaskPriority.HIGH);
+            try {
+                droppedFuture.get(5, TimeUnit.SECONDS);
+                fail("Should throw an ExecutionException");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof TaskRejectedException);
+            }
+            Assert.assertFalse(taskScheduler.getTasksRunning().contains(droppedTask));
+            Assert.assertEquals(55, normalFuture.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(55, highFuture.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1, taskScheduler.getRejectedTaskCount());
+            Assert.assertEquals(2, taskScheduler.getRemainingQueueCapacity());
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDropOldestCompletionQueue() throws Exception {
+        createBusyScheduler(SchedulerConfig.builder().admissionPolicy(AdmissionPolicy.DROP_OLDEST));
+        CompletionQueue completionQueue = new CompletionQueue();
+        GroovyTask droppedTask = new GroovyTask("(1..10).sum()");
+        taskScheduler.submitTask(droppedTask, TaskPriority.LOW, completionQueue);
+        taskScheduler.submitTask(new GroovyTask("(1..10).sum()"));
+        taskScheduler.submitTask(new GroovyTask("(1..10).sum()"), TaskPriority.HIGH);
+        Assert.assertSame(droppedTask, completionQueue.takeCompleted());
+        Assert.assertEquals(TaskState.CANCELLED, taskScheduler.getTaskState(droppedTask));
+    }
+
+    //
+    //
+    // Unbounded queue
+    //
+    //
+
+    @Test
+    public void testUnbounded() {
+        taskScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(1).build());
+        try {
+            for (int i = 0; i < 100; i++) {
+                Assert.assertTrue(taskScheduler.trySubmit(new GroovyTask("(1..10).sum()")));
+            }
+            Assert.assertEquals(Integer.MAX_VALUE, taskScheduler.getRemainingQueueCapacity());
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package scheduler;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import scheduler.task.Task;
+import scheduler.task.impl.GroovyTask;
+
+public class CompletionPublisherTest {
+    @Rule
+    public Timeout globalTimeout = new Timeout(20000, TimeUnit.MILLISECONDS);
+
+    private TaskScheduler taskScheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        taskScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(2).build());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        taskScheduler.close();
+    }
+
+    /**
+     * Subscriber recording its events, requesting nothing by itself
+     */
+    private static class RecordingSubscriber implements Flow.Subscriber<TaskCompletion> {
+        private final LinkedBlockingQueue<TaskCompletion> completions = new LinkedBlockingQueue<TaskCompletion>();
+        private final CountDownLatch subscribed = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscribed.countDown();
+        }
+
+        @Override
+        public void onNext(TaskCompletion completion) {
+            completions.add(completion);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+
+    private RecordingSubscriber subscribe() throws InterruptedException {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        taskScheduler.getCompletionPublisher().subscribe(subscriber);
+        subscriber.subscribed.await();
+        return subscriber;
+    }
+
+    //
+    //
+    // TaskScheduler.getCompletionPublisher()
+    //
+    //
+
+    @Test
+    public void testPublishCompletions() throws Exception {
+        RecordingSubscriber subscriber = subscribe();
+        Set<Task> submittedTasks = new HashSet<Task>();
+        for (int i = 0; i < 20; i++) {
+            GroovyTask task = new GroovyTask("index * 2");
+            task.setBinding("index", i);
+            taskScheduler.submitTask(task);
+            submittedTasks.add(task);
+        }
+        GroovyTask failingTask = new GroovyTask("throw new IllegalStateException('failure')");
+        taskScheduler.submitTask(failingTask);
+        Set<Task> publishedTasks = new HashSet<Task>();
+        for (int i = 0; i < 21; i++) {
+            subscriber.subscription.request(1);
+            TaskCompletion completion = subscriber.completions.take();
+            Assert.assertTrue(publishedTasks.add(completion.getTask()));
+            if (completion.getTask() == failingTask) {
+                Assert.assertTrue(completion.isFailed());
+                Assert.assertEquals(TaskState.FAILED, completion.getState());
+                Assert.assertNotNull(completion.getFailure());
+                Assert.assertNull(completion.getResult());
+            } else {
+                Assert.assertFalse(completion.isFailed());
+                Assert.assertEquals(TaskState.DONE, completion.getState());
+                Assert.assertEquals((Integer) ((GroovyTask) completion.getTask()).getBindings().get("index") * 2,
+                        completion.getResult());
+                // Published once the result is recorded
+                Assert.assertEquals(completion.getResult(), taskScheduler.getTaskResult(completion.getTask()));
+            }
+        }
+        submittedTasks.add(failingTask);
+        Assert.assertEquals(submittedTasks, publishedTasks);
+    }
+
+    @Test
+    public void testPublishBackPressure() throws Exception {
+        RecordingSubscriber subscriber = subscribe();
+        int taskCount = Flow.defaultBufferSize() * 2;
+        List<CompletableFuture<Object>> futures = new ArrayList<CompletableFuture<Object>>();
+        for (int i = 0; i < taskCount; i++) {
+            futures.add(taskScheduler.submitTask(new GroovyTask("1")));
+        }
+        Thread.sleep(500);
+        // The workers wait for the subscriber, which requested nothing
+        Assert.assertTrue(taskScheduler.getTasksDone().size() < taskCount);
+        Assert.assertTrue(subscriber.completions.isEmpty());
+        subscriber.subscription.request(Long.MAX_VALUE);
+        for (CompletableFuture<Object> future : futures) {
+            Assert.assertEquals(1, future.get());
+        }
+        while (subscriber.completions.size() < taskCount) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testPublishCancelledSubscription() throws Exception {
+        RecordingSubscriber subscriber = subscribe();
+        subscriber.subscription.cancel();
+        Assert.assertEquals(1, taskScheduler.submitTask(new GroovyTask("1")).get());
+        Assert.assertTrue(subscriber.completions.isEmpty());
+    }
+
+    @Test
+    public void testPublishClose() throws Exception {
+        RecordingSubscriber subscriber = subscribe();
+        subscriber.subscription.request(1);
+        taskScheduler.submitTask(new GroovyTask("1"));
+        Assert.assertEquals(1, subscriber.completions.take().getResult());
+        taskScheduler.close();
+        subscriber.completed.await();
+        Assert.assertTrue(subscriber.completions.isEmpty());
+    }
+}
@@ -0,0 +1,130 @@
+package scheduler;
+
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+
+import scheduler.exception.SchedulerException;
+import scheduler.task.Task;
+import scheduler.task.impl.GroovyTask;
+
+public class JournalRecoveryTest {
+    @Rule
+    public Timeout globalTimeout = new Timeout(20000, TimeUnit.MILLISECONDS);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Creates a single worker scheduler journaling in the temporary folder
+     */
+    private TaskScheduler createScheduler() {
+        return new TaskScheduler(SchedulerConfig.builder().parallelism(1).journal(temporaryFolder.getRoot().toPath())
+                .journalSync(true).build());
+    }
+
+    //
+    //
+    // TaskScheduler(SchedulerConfig) with a journal
+    //
+    //
+
+    @Test
+    public void testRecovery() throws InterruptedException {
+        GroovyTask doneTask = new GroovyTask("(1..10).sum()");
+        GroovyTask failedTask = new GroovyTask("throw new IllegalStateException()");
+        GroovyTask removedTask = new GroovyTask("1");
+        GroovyTask runningTask = new GroovyTask("sleep(300); 7");
+        GroovyTask queuedTask = new GroovyTask("6 * 7");
+        Class<?> failureClass = null;
+        try {
+            try (TaskScheduler taskScheduler = createScheduler()) {
+                Assert.assertEquals(55, taskScheduler.submitTask(doneTask).get());
+                try {
+                    taskScheduler.submitTask(failedTask).get();
+                    fail("Should throw an ExecutionException");
+                } catch (ExecutionException e) {
+                    failureClass = e.getCause().getClass();
+                }
+                taskScheduler.submitTask(removedTask).get();
+                Assert.assertTrue(taskScheduler.removeTask(removedTask));
+                taskScheduler.submitTask(runningTask);
+                taskScheduler.submitTask(queuedTask);
+                // Closed like a crash: the last two tasks did not finish
+            }
+
+            try (TaskScheduler taskScheduler = createScheduler()) {
+                Task recoveredDoneTask = taskScheduler.getTask(doneTask.getId());
+                Assert.assertNotNull(recoveredDoneTask);
+                Assert.assertEquals(TaskState.DONE, taskScheduler.getTaskState(recoveredDoneTask));
+                Assert.assertEquals(55, taskScheduler.getTaskResult(recoveredDoneTask));
+
+                Task recoveredFailedTask = taskScheduler.getTask(failedTask.getId());
+                Assert.assertEquals(TaskState.FAILED, taskScheduler.getTaskState(recoveredFailedTask));
+                try {
+                    taskScheduler.getTaskResult(recoveredFailedTask);
+                    fail("Should throw an ExecutionException");
+                } catch (ExecutionException e) {
+                    Assert.assertEquals(failureClass, e.getCause().getClass());
+                }
+
+                Assert.assertNull(taskScheduler.getTask(removedTask.getId()));
+
+                // Run again
+                Task recoveredRunningTask = taskScheduler.getTask(runningTask.getId());
+                Task recoveredQueuedTask = taskScheduler.getTask(queuedTask.getId());
+                Assert.assertEquals(2, taskScheduler.getTasksRunning().size());
+                while (!taskScheduler.isTaskDone(recoveredQueuedTask)) {
+                    Thread.sleep(10);
+                }
+                Assert.assertEquals(7, taskScheduler.getTaskResult(recoveredRunningTask));
+                Assert.assertEquals(42, taskScheduler.getTaskResult(recoveredQueuedTask));
+
+                // New tasks never reuse a recovered id
+                GroovyTask newTask = new GroovyTask("1");
+                Assert.assertTrue(newTask.getId() > queuedTask.getId());
+                taskScheduler.removeTask(recoveredDoneTask);
+            }
+
+            try (TaskScheduler taskScheduler = createScheduler()) {
+                Assert.assertNull(taskScheduler.getTask(doneTask.getId()));
+                Assert.assertEquals(3, taskScheduler.getTasksDone().size());
+            }
+        } catch (SchedulerException | ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRecoveryCancelled() throws InterruptedException {
+        GroovyTask runningTask = new GroovyTask("sleep(10000)");
+        try {
+            try (TaskScheduler taskScheduler = createScheduler()) {
+                CompletableFuture<Object> future = taskScheduler.submitTask(runningTask);
+                Assert.assertTrue(future.cancel(true));
+                Assert.assertTrue(taskScheduler.getJournal().getFlushedRecordCount() > 0);
+            }
+            try (TaskScheduler taskScheduler = createScheduler()) {
+                Assert.assertNull(taskScheduler.getTask(runningTask.getId()));
+                Assert.assertTrue(taskScheduler.getTasksRunning().isEmpty());
+            }
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testNotJournaled() {
+        try (TaskScheduler taskScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(1).build())) {
+            Assert.assertNull(taskScheduler.getJournal());
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package scheduler;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PriorityLanesTest {
+
+    private static final class Element {
+        private final String name;
+        private final long enqueueNanos;
+
+        private Element(String name, long enqueueNanos) {
+            this.name = name;
+            this.enqueueNanos = enqueueNanos;
+        }
+    }
+
+    private static PriorityLanes<Element> createLanes(long aging, TimeUnit unit) {
+        return new PriorityLanes<Element>(element -> element.enqueueNanos, unit.toNanos(aging));
+    }
+
+    /**
+     * Shard of the calling thread for the lanes of createShardedLanes()
+     */
+    private final AtomicInteger selectedShard = new AtomicInteger();
+
+    private PriorityLanes<Element> createShardedLanes(long aging, TimeUnit unit) {
+        return new PriorityLanes<Element>(element -> element.enqueueNanos, unit.toNanos(aging), 8,
+                selectedShard::get);
+    }
+
+    private void offerInShard(PriorityLanes<Element> lanes, int shard, Element element, TaskPriority priority) {
+        selectedShard.set(shard);
+        lanes.offer(element, priority);
+    }
+
+    //
+    //
+    // PriorityLanes.poll()
+    //
+    //
+
+    @Test
+    public void testPollEmpty() {
+        Assert.assertNull(createLanes(1, TimeUnit.SECONDS).poll());
+    }
+
+    @Test
+    public void testPollPriorityOrder() {
+        PriorityLanes<Element> lanes = createLanes(1, TimeUnit.HOURS);
+        long now = System.nanoTime();
+        lanes.offer(new Element("low", now), TaskPriority.LOW);
+        lanes.offer(new Element("normal1", now), TaskPriority.NORMAL);
+        lanes.offer(new Element("high", now), TaskPriority.HIGH);
+        lanes.offer(new Element("normal2", now), TaskPriority.NORMAL);
+        Assert.assertEquals(1, lanes.getDepth(TaskPriority.HIGH));
+        Assert.assertEquals(2, lanes.getDepth(TaskPriority.NORMAL));
+        Assert.assertEquals(1, lanes.getDepth(TaskPriority.LOW));
+
+        Assert.assertEquals("high", lanes.poll().name);
+        Assert.assertEquals("normal1", lanes.poll().name);
+        Assert.assertEquals("normal2", lanes.poll().name);
+        Assert.assertEquals("low", lanes.poll().name);
+        Assert.assertNull(lanes.poll());
+        Assert.assertEquals(0, lanes.getDepth(TaskPriority.NORMAL));
+    }
+
+    @Test
+    public void testPollAging() {
+        PriorityLanes<Element> lanes = createLanes(1, TimeUnit.MILLISECONDS);
+        long now = System.nanoTime();
+        // Waited ten aging periods, more than the two levels between the lanes
+        lanes.offer(new Element("low", now - TimeUnit.MILLISECONDS.toNanos(10)), TaskPriority.LOW);
+        lanes.offer(new Element("high", now), TaskPriority.HIGH);
+        Assert.assertEquals("low", lanes.poll().name);
+        Assert.assertEquals("high", lanes.poll().name);
+    }
+
+    @Test
+    public void testPollHugeAging() {
+        PriorityLanes<Element> lanes = createLanes(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        long now = System.nanoTime();
+        lanes.offer(new Element("low", now - TimeUnit.DAYS.toNanos(1)), TaskPriority.LOW);
+        lanes.offer(new Element("high", now), TaskPriority.HIGH);
+        Assert.assertEquals("high", lanes.poll().name);
+    }
+
+    //
+    //
+    // PriorityLanes.remove()
+    //
+    //
+
+    @Test
+    public void testRemove() {
+        PriorityLanes<Element> lanes = createLanes(1, TimeUnit.SECONDS);
+        Element element = new Element("normal", System.nanoTime());
+        lanes.offer(element, TaskPriority.NORMAL);
+        Assert.assertTrue(lanes.remove(element, TaskPriority.NORMAL));
+        Assert.assertFalse(lanes.remove(element, TaskPriority.NORMAL));
+        Assert.assertEquals(0, lanes.getDepth(TaskPriority.NORMAL));
+        Assert.assertNull(lanes.poll());
+    }
+
+    //
+    //
+    // PriorityLanes sharding
+    //
+    //
+
+    @Test
+    public void testShardCount() {
+        Assert.assertEquals(1, createLanes(1, TimeUnit.SECONDS).getShardCount());
+        Assert.assertEquals(8, createShardedLanes(1, TimeUnit.SECONDS).getShardCount());
+        Assert.assertEquals(4, new PriorityLanes<Element>(element -> element.enqueueNanos, 1, 3).getShardCount());
+        Assert.assertEquals(1, new PriorityLanes<Element>(element -> element.enqueueNanos, 1, 0).getShardCount());
+    }
+
+    @Test
+    public void testShardedPollPriorityOrder() {
+        PriorityLanes<Element> lanes = createShardedLanes(1, TimeUnit.HOURS);
+        long now = System.nanoTime();
+        offerInShard(lanes, 0, new Element("low", now - 2), TaskPriority.LOW);
+        offerInShard(lanes, 1, new Element("normal1", now - 1), TaskPriority.NORMAL);
+        offerInShard(lanes, 2, new Element("high", now), TaskPriority.HIGH);
+        offerInShard(lanes, 3, new Element("normal2", now), TaskPriority.NORMAL);
+        Assert.assertEquals(4, lanes.size());
+        Assert.assertEquals(2, lanes.getDepth(TaskPriority.NORMAL));
+
+        // Polled from a shard holding nothing
+        selectedShard.set(5);
+        Assert.assertEquals("high", lanes.poll().name);
+        Assert.assertEquals("normal1", lanes.poll().name);
+        Assert.assertEquals("normal2", lanes.poll().name);
+        Assert.assertEquals("low", lanes.poll().name);
+        Assert.assertNull(lanes.poll());
+        Assert.assertEquals(0, lanes.size());
+    }
+
+    @Test
+    public void testShardedPollAging() {
+        PriorityLanes<Element> lanes = createShardedLanes(1, TimeUnit.MILLISECONDS);
+        long now = System.nanoTime();
+        offerInShard(lanes, 0, new Element("low", now - TimeUnit.MILLISECONDS.toNanos(10)), TaskPriority.LOW);
+        offerInShard(lanes, 1, new Element("high", now), TaskPriority.HIGH);
+        // Polled from a shard holding nothing
+        selectedShard.set(5);
+        Assert.assertEquals("low", lanes.poll().name);
+        Assert.assertEquals("high", lanes.poll().name);
+    }
+
+    @Test
+    public void testShardedPollOwnShardFirst() {
+        PriorityLanes<Element> lanes = createShardedLanes(1, TimeUnit.HOURS);
+        long now = System.nanoTime();
+        offerInShard(lanes, 1, new Element("high", now), TaskPriority.HIGH);
+        offerInShard(lanes, 3, new Element("low", now), TaskPriority.LOW);
+        offerInShard(lanes, 3, new Element("normal", now), TaskPriority.NORMAL);
+        // Polled from shard 3, the other shards only once it is empty
+        Assert.assertEquals("normal", lanes.poll().name);
+        Assert.assertEquals("low", lanes.poll().name);
+        Assert.assertEquals("high", lanes.poll().name);
+        Assert.assertNull(lanes.poll());
+    }
+
+    @Test
+    public void testShardedPollLowest() {
+        PriorityLanes<Element> lanes = createShardedLanes(1, TimeUnit.HOURS);
+        long now = System.nanoTime();
+        offerInShard(lanes, 0, new Element("low2", now), TaskPriority.LOW);
+        offerInShard(lanes, 1, new Element("low1", now - 1), TaskPriority.LOW);
+        offerInShard(lanes, 2, new Element("high", now - 2), TaskPriority.HIGH);
+        Assert.assertEquals("low1", lanes.pollLowest().name);
+        Assert.assertEquals("low2", lanes.pollLowest().name);
+        Assert.assertEquals("high", lanes.pollLowest().name);
+        Assert.assertNull(lanes.pollLowest());
+    }
+
+    @Test
+    public void testShardedFifoWithinShard() {
+        PriorityLanes<Element> lanes = createShardedLanes(1, TimeUnit.HOURS);
+        long now = System.nanoTime();
+        // Queued in that order by the same producer, whatever their times
+        offerInShard(lanes, 4, new Element("first", now), TaskPriority.LOW);
+        offerInShard(lanes, 4, new Element("second", now - 1), TaskPriority.LOW);
+        Assert.assertEquals("first", lanes.pollLowest().name);
+        Assert.assertEquals("second", lanes.pollLowest().name);
+    }
+
+    @Test
+    public void testShardedRemove() {
+        PriorityLanes<Element> lanes = createShardedLanes(1, TimeUnit.SECONDS);
+        Element element = new Element("normal", System.nanoTime());
+        offerInShard(lanes, 6, element, TaskPriority.NORMAL);
+        // Removed by another thread than the producer
+        selectedShard.set(1);
+        Assert.assertTrue(lanes.remove(element, TaskPriority.NORMAL));
+        Assert.assertFalse(lanes.remove(element, TaskPriority.NORMAL));
+        Assert.assertEquals(0, lanes.getDepth(TaskPriority.NORMAL));
+        Assert.assertNull(lanes.poll());
+    }
+
+    @Test
+    public void testShardedConcurrentProducers() throws InterruptedException {
+        // Shards chosen by thread, the assertions do not depend on them
+        PriorityLanes<Element> lanes = new PriorityLanes<Element>(element -> element.enqueueNanos,
+                TimeUnit.SECONDS.toNanos(1), 8);
+        List<Thread> producers = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            final String producerName = "producer" + i;
+            Thread producer = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    lanes.offer(new Element(producerName + "-" + j, System.nanoTime()), TaskPriority.NORMAL);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        Assert.assertEquals(8000, lanes.size());
+        Set<String> names = new HashSet<String>();
+        Element element;
+        while (null != (element = lanes.poll())) {
+            Assert.assertTrue(names.add(element.name));
+        }
+        Assert.assertEquals(8000, names.size());
+        Assert.assertEquals(0, lanes.size());
+    }
+}
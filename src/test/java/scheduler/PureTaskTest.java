@@ -0,0 +1,173 @@
+package scheduler;
+
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import scheduler.exception.SchedulerException;
+import scheduler.task.Task;
+import scheduler.task.impl.GroovyTask;
+
+public class PureTaskTest {
+    @Rule
+    public Timeout globalTimeout = new Timeout(10000, TimeUnit.MILLISECONDS);
+
+    private TaskScheduler taskScheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        taskScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(1).pureTasks(100).build());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        taskScheduler.close();
+    }
+
+    //
+    //
+    // Deduplication
+    //
+    //
+
+    @Test
+    public void testDeduplication() {
+        List<Task> tasks = new ArrayList<Task>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(new GroovyTask("sleep(100); 42"));
+        }
+        try {
+            TaskBatch taskBatch = taskScheduler.submitAll(tasks);
+            Assert.assertTrue(taskBatch.awaitAll(5, TimeUnit.SECONDS));
+            Assert.assertEquals(10, taskBatch.getResults().size());
+            Assert.assertEquals(9, taskScheduler.getDeduplicatedTaskCount());
+            for (Task task : tasks) {
+                Assert.assertEquals(42, taskScheduler.getTaskResult(task));
+            }
+        } catch (SchedulerException | ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDeduplicationFailure() {
+        GroovyTask firstTask = new GroovyTask("sleep(50); throw new IllegalStateException()");
+        GroovyTask secondTask = new GroovyTask("sleep(50); throw new IllegalStateException()");
+        try {
+            CompletableFuture<Object> firstFuture = taskScheduler.submitTask(firstTask);
+            CompletableFuture<Object> secondFuture = taskScheduler.submitTask(secondTask);
+            Throwable firstFailure = firstFuture.handle((result, failure) -> failure).get(5, TimeUnit.SECONDS);
+            Throwable secondFailure = secondFuture.handle((result, failure) -> failure).get(5, TimeUnit.SECONDS);
+            // Both tasks share the failure of the single execution
+            Assert.assertNotNull(firstFailure);
+            Assert.assertSame(firstFailure, secondFailure);
+            Assert.assertEquals(1, taskScheduler.getDeduplicatedTaskCount());
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDeduplicationCancelled() {
+        GroovyTask blockingTask = new GroovyTask("sleep(100)");
+        GroovyTask firstTask = new GroovyTask("(1..10).sum()");
+        GroovyTask secondTask = new GroovyTask("(1..10).sum()");
+        try {
+            taskScheduler.submitTask(blockingTask);
+            CompletableFuture<Object> firstFuture = taskScheduler.submitTask(firstTask);
+            CompletableFuture<Object> secondFuture = taskScheduler.submitTask(secondTask);
+            Assert.assertTrue(taskScheduler.cancel(firstTask, firstFuture));
+            // Runs on its own once the shared execution has been cancelled
+            Assert.assertEquals(55, secondFuture.get(5, TimeUnit.SECONDS));
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    //
+    //
+    // Memoization
+    //
+    //
+
+    @Test
+    public void testMemoization() {
+        GroovyTask firstTask = new GroovyTask("(1..10).sum()");
+        GroovyTask secondTask = new GroovyTask("(1..10).sum()");
+        CompletionQueue completionQueue = new CompletionQueue();
+        try {
+            Assert.assertEquals(55, taskScheduler.submitTask(firstTask).get(5, TimeUnit.SECONDS));
+            CompletableFuture<Object> future = taskScheduler.submitTask(secondTask, completionQueue);
+            // Memoized results are available at once
+            Assert.assertTrue(future.isDone());
+            Assert.assertEquals(55, future.get());
+            Assert.assertSame(secondTask, completionQueue.pollCompleted(0, TimeUnit.SECONDS));
+            Assert.assertEquals(1, taskScheduler.getMemoHitCount());
+            Assert.assertEquals(55, taskScheduler.getTaskResult(secondTask));
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testMemoizationFailure() {
+        try {
+            for (int i = 0; i < 2; i++) {
+                GroovyTask groovyTask = new GroovyTask("This is going to be an error");
+                try {
+                    taskScheduler.submitTask(groovyTask).get(5, TimeUnit.SECONDS);
+                    fail("Should throw an ExecutionException");
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(taskScheduler.getTasksDone().contains(groovyTask));
+                }
+            }
+            // Failures are not memoized
+            Assert.assertEquals(0, taskScheduler.getMemoHitCount());
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testMemoizationBindings() {
+        GroovyTask firstTask = new GroovyTask("x * 2");
+        firstTask.setBinding("x", 1);
+        GroovyTask secondTask = new GroovyTask("x * 2");
+        secondTask.setBinding("x", 2);
+        try {
+            Assert.assertEquals(2, taskScheduler.submitTask(firstTask).get());
+            Assert.assertEquals(4, taskScheduler.submitTask(secondTask).get());
+            Assert.assertEquals(0, taskScheduler.getMemoHitCount());
+        } catch (SchedulerException | InterruptedException | ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testPureTasksDisabled() {
+        TaskScheduler defaultScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(1).build());
+        try {
+            for (int i = 0; i < 2; i++) {
+                Assert.assertEquals(55, defaultScheduler.submitTask(new GroovyTask("(1..10).sum()")).get(5,
+                        TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(0, defaultScheduler.getMemoHitCount());
+            Assert.assertEquals(0, defaultScheduler.getDeduplicatedTaskCount());
+        } catch (Exception e) {
+            fail(e.getMessage());
+        } finally {
+            defaultScheduler.close();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package scheduler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+public class QueuePermitsTest {
+    @Rule
+    public Timeout globalTimeout = new Timeout(10000, TimeUnit.MILLISECONDS);
+
+    /**
+     * Stripe of the calling thread
+     */
+    private final AtomicInteger selectedStripe = new AtomicInteger();
+
+    private QueuePermits createPermits(int capacity) {
+        return new QueuePermits(capacity, 4, selectedStripe::get);
+    }
+
+    //
+    //
+    // QueuePermits.tryAcquire()
+    //
+    //
+
+    @Test
+    public void testTryAcquireOwnStripeFirst() {
+        QueuePermits queuePermits = createPermits(8);
+        Assert.assertEquals(8, queuePermits.availablePermits());
+        selectedStripe.set(2);
+        Assert.assertEquals(2, queuePermits.tryAcquire());
+        Assert.assertEquals(2, queuePermits.tryAcquire());
+        // Own stripe empty, taken from the next ones
+        Assert.assertEquals(3, queuePermits.tryAcquire());
+        Assert.assertEquals(5, queuePermits.availablePermits());
+    }
+
+    @Test
+    public void testTryAcquireCapacity() {
+        QueuePermits queuePermits = createPermits(3);
+        selectedStripe.set(3);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertNotEquals(QueuePermits.NO_PERMIT, queuePermits.tryAcquire());
+        }
+        Assert.assertEquals(QueuePermits.NO_PERMIT, queuePermits.tryAcquire());
+        Assert.assertEquals(0, queuePermits.availablePermits());
+    }
+
+    @Test
+    public void testRelease() {
+        QueuePermits queuePermits = createPermits(1);
+        int stripe = queuePermits.tryAcquire();
+        Assert.assertEquals(QueuePermits.NO_PERMIT, queuePermits.tryAcquire());
+        queuePermits.release(stripe);
+        Assert.assertEquals(1, queuePermits.availablePermits());
+        selectedStripe.set(1);
+        Assert.assertEquals(stripe, queuePermits.tryAcquire());
+    }
+
+    //
+    //
+    // QueuePermits.tryAcquire(long, TimeUnit)
+    //
+    //
+
+    @Test
+    public void testTryAcquireTimeout() throws InterruptedException {
+        QueuePermits queuePermits = createPermits(1);
+        queuePermits.tryAcquire();
+        long start = System.nanoTime();
+        Assert.assertEquals(QueuePermits.NO_PERMIT, queuePermits.tryAcquire(50, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void testTryAcquireWaitsForRelease() throws Exception {
+        QueuePermits queuePermits = createPermits(1);
+        int stripe = queuePermits.tryAcquire();
+        CompletableFuture<Integer> waitingAcquire = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queuePermits.tryAcquire(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ie) {
+                throw new IllegalStateException(ie);
+            }
+        });
+        Thread.sleep(50);
+        Assert.assertFalse(waitingAcquire.isDone());
+        queuePermits.release(stripe);
+        Assert.assertEquals(Integer.valueOf(stripe), waitingAcquire.get());
+    }
+}
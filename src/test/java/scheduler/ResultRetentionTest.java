@@ -0,0 +1,176 @@
+package scheduler;
+
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import scheduler.exception.SchedulerException;
+import scheduler.task.Task;
+import scheduler.task.impl.GroovyTask;
+
+public class ResultRetentionTest {
+    @Rule
+    public Timeout globalTimeout = new Timeout(10000, TimeUnit.MILLISECONDS);
+
+    private TaskScheduler taskScheduler;
+
+    @After
+    public void tearDown() throws Exception {
+        if (null != taskScheduler) {
+            taskScheduler.close();
+        }
+    }
+
+    private void createScheduler(ResultRetentionPolicy retentionPolicy) {
+        taskScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(1).retentionPolicy(retentionPolicy)
+                .build());
+    }
+
+    private List<Task> runTasks(int nbTasks, String script) throws SchedulerException {
+        List<Task> tasks = new ArrayList<Task>();
+        for (int i = 0; i < nbTasks; i++) {
+            tasks.add(new GroovyTask(script));
+        }
+        taskScheduler.submitAll(tasks).awaitAll();
+        return tasks;
+    }
+
+    //
+    //
+    // ResultRetentionPolicy.builder()
+    //
+    //
+
+    @Test
+    public void testUnbounded() {
+        Assert.assertFalse(ResultRetentionPolicy.unbounded().isBounded());
+        Assert.assertTrue(ResultRetentionPolicy.builder().maxResults(1).build().isBounded());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxResults() {
+        ResultRetentionPolicy.builder().maxResults(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTimeToLive() {
+        ResultRetentionPolicy.builder().timeToLive(-1, TimeUnit.SECONDS);
+    }
+
+    //
+    //
+    // Eviction
+    //
+    //
+
+    @Test
+    public void testEvictionSize() {
+        final List<Task> evictedTasks = new ArrayList<Task>();
+        createScheduler(ResultRetentionPolicy.builder().maxResults(10)
+                .evictionListener((task, result, cause) -> {
+                    Assert.assertEquals(55, result);
+                    Assert.assertEquals(EvictionCause.SIZE, cause);
+                    synchronized (evictedTasks) {
+                        evictedTasks.add(task);
+                    }
+                }).build());
+        try {
+            List<Task> tasks = runTasks(30, "(1..10).sum()");
+            taskScheduler.evictResults();
+            Assert.assertEquals(10, taskScheduler.getRetainedResultCount());
+            Assert.assertEquals(10, taskScheduler.getTasksDone().size());
+            Assert.assertEquals(20, taskScheduler.getEvictionCount(EvictionCause.SIZE));
+            synchronized (evictedTasks) {
+                // Oldest results are evicted first
+                Assert.assertEquals(20, evictedTasks.size());
+                Assert.assertTrue(tasks.containsAll(evictedTasks));
+            }
+            Assert.assertTrue(taskScheduler.isTaskDone(tasks.get(29)));
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testEvictionBytes() {
+        createScheduler(ResultRetentionPolicy.builder().maxRetainedBytes(1000).build());
+        try {
+            runTasks(10, "'x' * 100");
+            taskScheduler.evictResults();
+            Assert.assertTrue(taskScheduler.getRetainedResultBytes() <= 1000);
+            Assert.assertTrue(taskScheduler.getEvictionCount(EvictionCause.BYTES) > 0);
+            Assert.assertEquals(taskScheduler.getRetainedResultCount(), taskScheduler.getTasksDone().size());
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testEvictionExpired() throws InterruptedException {
+        createScheduler(ResultRetentionPolicy.builder().timeToLive(50, TimeUnit.MILLISECONDS).build());
+        try {
+            List<Task> tasks = runTasks(5, "(1..10).sum()");
+            Assert.assertEquals(55, taskScheduler.getTaskResult(tasks.get(0)));
+            Thread.sleep(100);
+            Assert.assertEquals(5, taskScheduler.evictResults());
+            Assert.assertEquals(5, taskScheduler.getEvictionCount(EvictionCause.EXPIRED));
+            Assert.assertFalse(taskScheduler.isTaskDone(tasks.get(0)));
+            Assert.assertEquals(0, taskScheduler.getRetainedResultCount());
+            Assert.assertEquals(0, taskScheduler.getRetainedResultBytes());
+        } catch (SchedulerException | ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testEvictionCancelled() {
+        final List<Object> evictedResults = new ArrayList<Object>();
+        createScheduler(ResultRetentionPolicy.builder().maxResults(1)
+                .evictionListener((task, result, cause) -> {
+                    synchronized (evictedResults) {
+                        evictedResults.add(result);
+                    }
+                }).build());
+        try {
+            GroovyTask sleepingTask = new GroovyTask("Thread.sleep(10000)");
+            taskScheduler.submitTask(sleepingTask);
+            Assert.assertTrue(taskScheduler.cancelTask(sleepingTask));
+            Assert.assertEquals(TaskState.CANCELLED, taskScheduler.getTaskState(sleepingTask));
+            Assert.assertEquals(1, taskScheduler.getRetainedResultCount());
+            runTasks(1, "(1..10).sum()");
+            Assert.assertNull(taskScheduler.getTaskState(sleepingTask));
+            Assert.assertEquals(1, taskScheduler.getRetainedResultCount());
+            synchronized (evictedResults) {
+                Assert.assertEquals(1, evictedResults.size());
+                Assert.assertNull(evictedResults.get(0));
+            }
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRemoveTaskReleasesResult() {
+        createScheduler(ResultRetentionPolicy.builder().maxResults(100).build());
+        try {
+            List<Task> tasks = runTasks(5, "(1..10).sum()");
+            Assert.assertEquals(5, taskScheduler.getRetainedResultCount());
+            for (Task task : tasks) {
+                Assert.assertTrue(taskScheduler.removeTask(task));
+            }
+            Assert.assertEquals(0, taskScheduler.getRetainedResultCount());
+            Assert.assertEquals(0, taskScheduler.evictResults());
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+}
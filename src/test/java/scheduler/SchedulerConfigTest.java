@@ -0,0 +1,197 @@
+package scheduler;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import scheduler.task.impl.GroovyTask;
+
+public class SchedulerConfigTest {
+
+    @After
+    public void tearDown() throws Exception {
+        System.clearProperty(SchedulerConfig.EXECUTOR_PROPERTY);
+        System.clearProperty(SchedulerConfig.PARALLELISM_PROPERTY);
+    }
+
+    //
+    //
+    // SchedulerConfig.builder()
+    //
+    //
+
+    @Test
+    public void testBuilderDefaults() {
+        SchedulerConfig config = SchedulerConfig.builder().build();
+        Assert.assertEquals(ExecutorBackend.FIXED, config.getExecutorBackend());
+        Assert.assertEquals(Runtime.getRuntime().availableProcessors(), config.getParallelism());
+        Assert.assertEquals(SchedulerConfig.DEFAULT_AGING_MILLIS, config.getAging(TimeUnit.MILLISECONDS));
+        Assert.assertEquals(SchedulerConfig.DEFAULT_TIMER_TICK_MILLIS, config.getTimerTick(TimeUnit.MILLISECONDS));
+        Assert.assertFalse(config.isPureTasks());
+        Assert.assertFalse(config.isQueueBounded());
+        Assert.assertEquals(AdmissionPolicy.BLOCK, config.getAdmissionPolicy());
+        Assert.assertEquals(0, config.getTaskTimeout(TimeUnit.MILLISECONDS));
+        Assert.assertFalse(config.isJournaled());
+        Assert.assertNull(config.getJournalDirectory());
+        Assert.assertFalse(config.isJournalSync());
+        Assert.assertEquals(0, config.getRemoteWorkers());
+        Assert.assertEquals(SchedulerConfig.DEFAULT_REMOTE_HEARTBEAT_TIMEOUT_MILLIS, config
+                .getRemoteHeartbeatTimeout(TimeUnit.MILLISECONDS));
+        Assert.assertTrue(config.getRemoteWorkerJvmArguments().isEmpty());
+        Assert.assertNull(config.getBytecodeCacheDirectory());
+    }
+
+    @Test
+    public void testBuilder() {
+        SchedulerConfig config = SchedulerConfig.builder().executorBackend(ExecutorBackend.WORK_STEALING)
+                .parallelism(3).aging(2, TimeUnit.SECONDS).timerTick(10, TimeUnit.MILLISECONDS).pureTasks(50)
+                .queueCapacity(1000).admissionPolicy(AdmissionPolicy.CALLER_RUNS).taskTimeout(5, TimeUnit.SECONDS)
+                .build();
+        Assert.assertEquals(ExecutorBackend.WORK_STEALING, config.getExecutorBackend());
+        Assert.assertEquals(3, config.getParallelism());
+        Assert.assertEquals(2000, config.getAging(TimeUnit.MILLISECONDS));
+        Assert.assertEquals(10, config.getTimerTick(TimeUnit.MILLISECONDS));
+        Assert.assertTrue(config.isPureTasks());
+        Assert.assertEquals(50, config.getMemoCacheSize());
+        Assert.assertEquals(1000, config.getQueueCapacity());
+        Assert.assertEquals(AdmissionPolicy.CALLER_RUNS, config.getAdmissionPolicy());
+        Assert.assertEquals(5000, config.getTaskTimeout(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testBuilderJournal() {
+        SchedulerConfig config = SchedulerConfig.builder().journal(Paths.get("journal")).journalSegmentBytes(4096)
+                .journalSync(true).build();
+        Assert.assertTrue(config.isJournaled());
+        Assert.assertEquals(Paths.get("journal"), config.getJournalDirectory());
+        Assert.assertEquals(4096, config.getJournalSegmentBytes());
+        Assert.assertTrue(config.isJournalSync());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderInvalidJournalSegmentBytes() {
+        SchedulerConfig.builder().journalSegmentBytes(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderNullJournal() {
+        SchedulerConfig.builder().journal(null);
+    }
+
+    @Test
+    public void testBuilderBytecodeCache() {
+        SchedulerConfig config = SchedulerConfig.builder().bytecodeCache(Paths.get("bytecode")).build();
+        Assert.assertEquals(Paths.get("bytecode"), config.getBytecodeCacheDirectory());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderNullBytecodeCache() {
+        SchedulerConfig.builder().bytecodeCache(null);
+    }
+
+    @Test
+    public void testBuilderRemoteWorkers() {
+        SchedulerConfig config = SchedulerConfig.builder().remoteWorkers(2).remoteHeartbeatTimeout(1, TimeUnit.SECONDS)
+                .remoteWorkerJvmArguments("-Xmx64m").build();
+        Assert.assertEquals(2, config.getRemoteWorkers());
+        Assert.assertEquals(1000, config.getRemoteHeartbeatTimeout(TimeUnit.MILLISECONDS));
+        Assert.assertEquals(Arrays.asList("-Xmx64m"), config.getRemoteWorkerJvmArguments());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderInvalidRemoteWorkers() {
+        SchedulerConfig.builder().remoteWorkers(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderInvalidRemoteHeartbeatTimeout() {
+        SchedulerConfig.builder().remoteHeartbeatTimeout(0, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderInvalidTaskTimeout() {
+        SchedulerConfig.builder().taskTimeout(0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderInvalidQueueCapacity() {
+        SchedulerConfig.builder().queueCapacity(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderInvalidMemoCacheSize() {
+        SchedulerConfig.builder().pureTasks(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderInvalidTimerTick() {
+        SchedulerConfig.builder().timerTick(0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderInvalidAging() {
+        SchedulerConfig.builder().aging(-1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderInvalidParallelism() {
+        SchedulerConfig.builder().parallelism(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderNullExecutorBackend() {
+        SchedulerConfig.builder().executorBackend(null);
+    }
+
+    //
+    //
+    // SchedulerConfig.fromSystemProperties()
+    //
+    //
+
+    @Test
+    public void testFromSystemProperties() {
+        System.setProperty(SchedulerConfig.EXECUTOR_PROPERTY, "work_stealing");
+        System.setProperty(SchedulerConfig.PARALLELISM_PROPERTY, "7");
+        SchedulerConfig config = SchedulerConfig.fromSystemProperties();
+        Assert.assertEquals(ExecutorBackend.WORK_STEALING, config.getExecutorBackend());
+        Assert.assertEquals(7, config.getParallelism());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromSystemPropertiesInvalidBackend() {
+        System.setProperty(SchedulerConfig.EXECUTOR_PROPERTY, "unknown");
+        SchedulerConfig.fromSystemProperties();
+    }
+
+    //
+    //
+    // ExecutorBackend.create()
+    //
+    //
+
+    @Test
+    public void testExecutorBackends() throws InterruptedException, ExecutionException {
+        for (ExecutorBackend executorBackend : ExecutorBackend.values()) {
+            ExecutorService executorService;
+            try {
+                executorService = executorBackend.create(2);
+            } catch (IllegalStateException ise) {
+                // Virtual threads are not available before Java 21
+                Assert.assertEquals(ExecutorBackend.VIRTUAL_THREADS, executorBackend);
+                continue;
+            }
+            try {
+                Assert.assertEquals(55, executorService.submit(new GroovyTask("(1..10).sum()")).get());
+            } finally {
+                executorService.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package scheduler;
+
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import scheduler.exception.SchedulerException;
+import scheduler.metrics.HistogramSnapshot;
+import scheduler.metrics.MetricsSnapshot;
+import scheduler.metrics.SchedulerMetrics;
+import scheduler.task.impl.GroovyTask;
+
+public class SchedulerMetricsTest {
+    @Rule
+    public Timeout globalTimeout = new Timeout(10000, TimeUnit.MILLISECONDS);
+
+    private TaskScheduler taskScheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        taskScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(2).build());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        taskScheduler.close();
+    }
+
+    //
+    //
+    // TaskScheduler.getMetrics()
+    //
+    //
+
+    @Test
+    public void testCounters() throws InterruptedException {
+        try {
+            List<CompletableFuture<Object>> futures = new ArrayList<CompletableFuture<Object>>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(taskScheduler.submitTask(new GroovyTask("(1.." + i + ").sum()")));
+            }
+            CompletableFuture<Object> failedFuture = taskScheduler.submitTask(new GroovyTask("1/0"));
+            for (CompletableFuture<Object> future : futures) {
+                future.get();
+            }
+            try {
+                failedFuture.get();
+                fail("Should throw an ExecutionException");
+            } catch (ExecutionException e) {
+                // Expected
+            }
+            MetricsSnapshot snapshot = taskScheduler.getMetrics().snapshot();
+            Assert.assertEquals(11, snapshot.getSubmittedCount());
+            Assert.assertEquals(11, snapshot.getStartedCount());
+            Assert.assertEquals(10, snapshot.getCompletedCount());
+            Assert.assertEquals(1, snapshot.getFailedCount());
+            Assert.assertEquals(0, snapshot.getQueueDepth());
+            Assert.assertEquals(0, snapshot.getActiveWorkerCount());
+            Assert.assertEquals(11, snapshot.getWaitTime().getCount());
+            Assert.assertEquals(11, snapshot.getExecutionTime().getCount());
+            Assert.assertTrue(snapshot.getExecutionTime().getMax() > 0);
+        } catch (SchedulerException | ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testByTaskType() throws InterruptedException {
+        try {
+            GroovyTask task = new GroovyTask("(1..10).sum()");
+            taskScheduler.submitTask(task).get();
+            taskScheduler.submitTask(new GroovyTask("(1..10).sum()")).get();
+            taskScheduler.submitTask(new GroovyTask("(1..20).sum()")).get();
+            String taskType = taskScheduler.getMetrics().getTaskTypeMetrics(task).getName();
+            Assert.assertTrue(taskType.startsWith(GroovyTask.class.getName() + "#"));
+            Map<String, HistogramSnapshot> executionTimes = taskScheduler.getMetrics().getExecutionTimeByTaskType();
+            Assert.assertEquals(2, executionTimes.size());
+            Assert.assertEquals(2, executionTimes.get(taskType).getCount());
+            Assert.assertEquals(2, taskScheduler.getMetrics().getWaitTimeByTaskType().size());
+        } catch (SchedulerException | ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTaskTypeLimit() {
+        SchedulerMetrics metrics = new SchedulerMetrics(() -> 0);
+        for (int i = 0; i < SchedulerMetrics.MAX_TASK_TYPES; i++) {
+            Assert.assertNotEquals(SchedulerMetrics.OTHER_TASK_TYPE, metrics.getTaskTypeMetrics(
+                    new GroovyTask("return " + i)).getName());
+        }
+        Assert.assertEquals(SchedulerMetrics.OTHER_TASK_TYPE, metrics.getTaskTypeMetrics(new GroovyTask("return -1"))
+                .getName());
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        taskScheduler.submitTask(new GroovyTask("(1..10).sum()")).get();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName query = new ObjectName("scheduler:type=TaskScheduler,*");
+        boolean found = false;
+        for (ObjectName name : server.queryNames(query, null)) {
+            Long submittedCount = (Long) server.getAttribute(name, "SubmittedCount");
+            CompositeData executionTime = (CompositeData) server.getAttribute(name, "ExecutionTime");
+            if (1 == submittedCount && 1 == (Long) executionTime.get("count")) {
+                found = true;
+            }
+        }
+        Assert.assertTrue(found);
+        int registered = server.queryNames(query, null).size();
+        taskScheduler.close();
+        Assert.assertEquals(registered - 1, server.queryNames(query, null).size());
+    }
+}
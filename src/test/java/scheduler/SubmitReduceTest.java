@@ -0,0 +1,169 @@
+package scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import scheduler.exception.SchedulerException;
+import scheduler.task.Task;
+import scheduler.task.impl.GroovyTask;
+import scheduler.task.impl.LambdaTask;
+
+public class SubmitReduceTest {
+    @Rule
+    public Timeout globalTimeout = new Timeout(20000, TimeUnit.MILLISECONDS);
+
+    private TaskScheduler taskScheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        taskScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(4).build());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        taskScheduler.close();
+    }
+
+    private List<Task> indexTasks(int count) {
+        List<Task> tasks = new ArrayList<Task>();
+        for (int i = 1; i <= count; i++) {
+            final int index = i;
+            tasks.add(new LambdaTask(() -> index));
+        }
+        return tasks;
+    }
+
+    //
+    //
+    // TaskScheduler.submitReduce()
+    //
+    //
+
+    @Test
+    public void testSubmitReduceSum() throws Exception {
+        CompletableFuture<Long> future = taskScheduler.submitReduce(indexTasks(1000),
+                Collectors.summingLong(result -> (Integer) result));
+        Assert.assertEquals(Long.valueOf(1000 * 1001 / 2), future.get());
+    }
+
+    @Test
+    public void testSubmitReduceCount() throws Exception {
+        CompletableFuture<Long> future = taskScheduler.submitReduce(indexTasks(100), Collectors.counting());
+        Assert.assertEquals(Long.valueOf(100), future.get());
+    }
+
+    @Test
+    public void testSubmitReduceCustomCombiner() throws Exception {
+        Collector<Object, int[], Integer> max = Collector.of(() -> new int[] { Integer.MIN_VALUE },
+                (container, result) -> container[0] = Math.max(container[0], (Integer) result), (left, right) -> {
+                    left[0] = Math.max(left[0], right[0]);
+                    return left;
+                }, container -> container[0]);
+        Assert.assertEquals(Integer.valueOf(500), taskScheduler.submitReduce(indexTasks(500), max).get());
+    }
+
+    @Test
+    public void testSubmitReduceGroovyTasks() throws Exception {
+        List<Task> tasks = new ArrayList<Task>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(new GroovyTask("[].sum(3)"));
+        }
+        Assert.assertEquals(Integer.valueOf(60),
+                taskScheduler.submitReduce(tasks, Collectors.summingInt(result -> (Integer) result)).get());
+    }
+
+    @Test
+    public void testSubmitReduceEmpty() throws Exception {
+        CompletableFuture<Long> future = taskScheduler.submitReduce(Collections.<Task> emptyList(),
+                Collectors.counting());
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(Long.valueOf(0), future.get());
+    }
+
+    @Test
+    public void testSubmitReduceNotRetained() throws Exception {
+        List<Task> tasks = indexTasks(200);
+        taskScheduler.submitReduce(tasks, Collectors.counting()).get();
+        // Unregistered right after being folded, possibly after the future
+        while (!taskScheduler.getTasksDone().isEmpty()) {
+            Thread.sleep(10);
+        }
+        Assert.assertNull(taskScheduler.getTaskState(tasks.get(0)));
+    }
+
+    @Test
+    public void testSubmitReduceFailure() throws Exception {
+        List<Task> tasks = new ArrayList<Task>();
+        tasks.add(new LambdaTask(() -> {
+            throw new IllegalStateException("failure");
+        }));
+        for (int i = 0; i < 20; i++) {
+            tasks.add(new GroovyTask("Thread.sleep(10000)"));
+        }
+        CompletableFuture<Long> future = taskScheduler.submitReduce(tasks, Collectors.counting());
+        try {
+            future.get();
+            Assert.fail("Reduction should fail");
+        } catch (ExecutionException ee) {
+            Assert.assertTrue(ee.getCause() instanceof IllegalStateException);
+        }
+        // The other tasks are cancelled instead of sleeping
+        while (!taskScheduler.getTasksRunning().isEmpty()) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testSubmitReduceCancel() throws Exception {
+        List<Task> tasks = new ArrayList<Task>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(new GroovyTask("Thread.sleep(10000)"));
+        }
+        CompletableFuture<Long> future = taskScheduler.submitReduce(tasks, Collectors.counting());
+        Assert.assertTrue(future.cancel(true));
+        try {
+            future.get();
+            Assert.fail("Reduction should be cancelled");
+        } catch (CancellationException ce) {
+            // Expected
+        }
+        while (!taskScheduler.getTasksRunning().isEmpty()) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test(expected = SchedulerException.class)
+    public void testSubmitReduceNullTasks() throws Exception {
+        taskScheduler.submitReduce(null, Collectors.counting());
+    }
+
+    @Test(expected = SchedulerException.class)
+    public void testSubmitReduceNullCollector() throws Exception {
+        taskScheduler.<Object, Long> submitReduce(indexTasks(1), null);
+    }
+
+    @Test
+    public void testSubmitReduceNullTask() throws Exception {
+        try {
+            taskScheduler.submitReduce(Collections.<Task> singletonList(null), Collectors.counting());
+            Assert.fail("Null task should be rejected");
+        } catch (SchedulerException se) {
+            // Expected
+        }
+        Assert.assertTrue(taskScheduler.getTasksRunning().isEmpty());
+    }
+}
@@ -0,0 +1,189 @@
+package scheduler;
+
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import scheduler.exception.SchedulerException;
+import scheduler.task.Task;
+import scheduler.task.impl.GroovyTask;
+
+public class TaskGraphTest {
+    @Rule
+    public Timeout globalTimeout = new Timeout(10000, TimeUnit.MILLISECONDS);
+
+    private TaskScheduler taskScheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        taskScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(2).build());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        taskScheduler.close();
+    }
+
+    //
+    //
+    // TaskScheduler.submitGraph()
+    //
+    //
+
+    @Test
+    public void testSubmitGraphChain() {
+        GroovyTask sumTask = new GroovyTask("(1..10).sum()");
+        GroovyTask doubleTask = new GroovyTask("x * 2");
+        GroovyTask incrementTask = new GroovyTask("y + 1");
+        try {
+            TaskGraph graph = new TaskGraph().addDependency(sumTask, doubleTask, "x").addDependency(doubleTask,
+                    incrementTask, "y");
+            TaskBatch taskBatch = taskScheduler.submitGraph(graph);
+            Assert.assertEquals(3, taskBatch.size());
+            taskBatch.awaitAll();
+            Assert.assertEquals(55, taskScheduler.getTaskResult(sumTask));
+            Assert.assertEquals(110, taskScheduler.getTaskResult(doubleTask));
+            Assert.assertEquals(111, taskScheduler.getTaskResult(incrementTask));
+        } catch (SchedulerException | ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSubmitGraphDiamond() {
+        GroovyTask sourceTask = new GroovyTask("2");
+        GroovyTask leftTask = new GroovyTask("a * 3");
+        GroovyTask rightTask = new GroovyTask("a * 5");
+        GroovyTask joinTask = new GroovyTask("b + c");
+        try {
+            TaskGraph graph = new TaskGraph().addDependency(sourceTask, leftTask, "a")
+                    .addDependency(sourceTask, rightTask, "a").addDependency(leftTask, joinTask, "b")
+                    .addDependency(rightTask, joinTask, "c");
+            TaskBatch taskBatch = taskScheduler.submitGraph(graph);
+            taskBatch.awaitAll();
+            Map<Task, Object> results = taskBatch.getResults();
+            Assert.assertEquals(4, results.size());
+            Assert.assertEquals(16, results.get(joinTask));
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSubmitGraphOrderingOnly() {
+        GroovyTask firstTask = new GroovyTask("sleep(100); 1");
+        GroovyTask secondTask = new GroovyTask("2");
+        try {
+            TaskBatch taskBatch = taskScheduler.submitGraph(new TaskGraph().addDependency(firstTask, secondTask));
+            Assert.assertEquals(TaskState.SUBMITTED, taskScheduler.getTaskState(secondTask));
+            taskBatch.awaitAll();
+            Assert.assertEquals(TaskState.DONE, taskScheduler.getTaskState(secondTask));
+            Assert.assertEquals(firstTask, taskBatch.awaitAny());
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSubmitGraphFailure() {
+        GroovyTask failingTask = new GroovyTask("This is going to be an error");
+        GroovyTask dependentTask = new GroovyTask("x + 1");
+        GroovyTask transitiveTask = new GroovyTask("y + 1");
+        GroovyTask independentTask = new GroovyTask("(1..10).sum()");
+        try {
+            TaskGraph graph = new TaskGraph().addDependency(failingTask, dependentTask, "x")
+                    .addDependency(dependentTask, transitiveTask, "y").addTask(independentTask);
+            TaskBatch taskBatch = taskScheduler.submitGraph(graph);
+            taskBatch.awaitAll();
+            Map<Task, Throwable> failures = taskBatch.getFailures();
+            Assert.assertEquals(3, failures.size());
+            Assert.assertSame(failures.get(failingTask), failures.get(dependentTask));
+            Assert.assertSame(failures.get(failingTask), failures.get(transitiveTask));
+            Assert.assertEquals(55, taskBatch.getResults().get(independentTask));
+            Assert.assertEquals(TaskState.FAILED, taskScheduler.getTaskState(failingTask));
+            Assert.assertEquals(TaskState.CANCELLED, taskScheduler.getTaskState(transitiveTask));
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSubmitGraphCancel() {
+        GroovyTask blockingTask = new GroovyTask("sleep(200); 1");
+        GroovyTask dependentTask = new GroovyTask("x + 1");
+        try {
+            TaskBatch taskBatch = taskScheduler.submitGraph(new TaskGraph().addDependency(blockingTask,
+                    dependentTask, "x"));
+            // The dependent task is short-circuited by the first cancellation
+            Assert.assertEquals(1, taskBatch.cancelAll());
+            taskBatch.awaitAll();
+            Assert.assertTrue(taskBatch.getFailures().get(dependentTask) instanceof CancellationException);
+            Assert.assertFalse(taskScheduler.getTasksRunning().contains(dependentTask));
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSubmitGraphCycle() {
+        GroovyTask firstTask = new GroovyTask("x");
+        GroovyTask secondTask = new GroovyTask("y");
+        try {
+            taskScheduler.submitGraph(new TaskGraph().addDependency(firstTask, secondTask, "y").addDependency(
+                    secondTask, firstTask, "x"));
+            fail("Should throw a SchedulerException");
+        } catch (SchedulerException e) {
+            try {
+                Assert.assertNull(taskScheduler.getTaskState(firstTask));
+                Assert.assertNull(taskScheduler.getTaskState(secondTask));
+            } catch (SchedulerException se) {
+                fail(se.getMessage());
+            }
+        }
+    }
+
+    @Test(expected = SchedulerException.class)
+    public void testSubmitGraphNull() throws SchedulerException {
+        taskScheduler.submitGraph(null);
+        fail("Should throw a SchedulerException");
+    }
+
+    //
+    //
+    // TaskGraph.addDependency()
+    //
+    //
+
+    @Test(expected = SchedulerException.class)
+    public void testAddDependencyBindingNotScript() throws SchedulerException {
+        Task task = new Task() {
+            @Override
+            public Object call() {
+                return null;
+            }
+
+            @Override
+            public int getId() {
+                return -1;
+            }
+        };
+        new TaskGraph().addDependency(new GroovyTask("1"), task, "x");
+        fail("Should throw a SchedulerException");
+    }
+
+    @Test(expected = SchedulerException.class)
+    public void testAddDependencyNull() throws SchedulerException {
+        new TaskGraph().addDependency(null, new GroovyTask("1"));
+        fail("Should throw a SchedulerException");
+    }
+}
@@ -3,8 +3,14 @@ package scheduler;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
@@ -17,7 +23,9 @@ import org.junit.Test;
 import org.junit.rules.Timeout;
 
 import scheduler.exception.SchedulerException;
+import scheduler.task.Task;
 import scheduler.task.impl.GroovyTask;
+import scheduler.task.impl.LambdaTask;
 
 public class TaskSchedulerTest {
     @Rule
@@ -28,12 +36,12 @@ public class TaskSchedulerTest {
 
     @BeforeClass
     public static void setUpBeforeClass() throws Exception {
-        taskScheduler = TaskScheduler.getInstance();
+        taskScheduler = new TaskScheduler();
     }
 
     @AfterClass
     public static void tearDownAfterClass() throws Exception {
-        TaskScheduler.shutdown();
+        taskScheduler.close();
     }
 
     @Before
@@ -57,7 +65,49 @@ public class TaskSchedulerTest {
 
     @Test
     public void testTaskScheduler() {
-        Assert.assertNotNull(taskScheduler);
+        Assert.assertNotNull(TaskScheduler.getInstance());
+        Assert.assertSame(TaskScheduler.getInstance(), TaskScheduler.getInstance());
+        Assert.assertNotSame(TaskScheduler.getInstance(), taskScheduler);
+    }
+
+    //
+    //
+    // TaskScheduler.close()
+    //
+    //
+
+    @Test
+    public void testClose() throws InterruptedException, ExecutionException {
+        TaskScheduler otherScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(1).build());
+        Assert.assertFalse(otherScheduler.isClosed());
+        otherScheduler.close();
+        otherScheduler.close();
+        Assert.assertTrue(otherScheduler.isClosed());
+        try {
+            otherScheduler.submitTask(new GroovyTask("(1..10).sum()"));
+            fail("Should throw a SchedulerException");
+        } catch (SchedulerException e) {
+            // Expected
+        }
+        // Other instances are not affected
+        try {
+            Assert.assertEquals(55, taskScheduler.submitTask(new GroovyTask("(1..10).sum()")).get());
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCloseTryWithResources() throws InterruptedException, ExecutionException {
+        TaskScheduler closedScheduler;
+        try (TaskScheduler otherScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(1).build())) {
+            closedScheduler = otherScheduler;
+            Assert.assertEquals(55, otherScheduler.submitTask(new GroovyTask("(1..10).sum()")).get());
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+            return;
+        }
+        Assert.assertTrue(closedScheduler.isClosed());
     }
 
     //
@@ -78,12 +128,465 @@ public class TaskSchedulerTest {
         }
     }
 
+    @Test
+    public void testSubmitTaskFuture() throws InterruptedException, ExecutionException {
+        GroovyTask groovyTask = groovyTaskList.get(0);
+        final AtomicReference<Object> callbackResult = new AtomicReference<Object>();
+        try {
+            CompletableFuture<Object> future = taskScheduler.submitTask(groovyTask);
+            future.thenAccept(result -> callbackResult.set(result)).get();
+            Assert.assertEquals(55, future.get());
+            Assert.assertEquals(55, callbackResult.get());
+            Assert.assertTrue(taskScheduler.isTaskDone(groovyTask));
+            Assert.assertEquals(55, taskScheduler.getTaskResult(groovyTask));
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void testSubmitTaskFutureTaskError() throws InterruptedException, ExecutionException {
+        try {
+            taskScheduler.submitTask(new GroovyTask("This is going to be an error")).get();
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+        fail("Should throw an ExecutionException");
+    }
+
+    @Test
+    public void testSubmitTaskFutureTaskThrowsError() throws Exception {
+        List<Task> tasks = Arrays.<Task> asList(new GroovyTask("assert 1 == 2"), new LambdaTask(() -> {
+            throw new StackOverflowError();
+        }));
+        for (Task task : tasks) {
+            try {
+                taskScheduler.submitTask(task).get();
+                fail("Should throw an ExecutionException");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof Error);
+            }
+            Assert.assertEquals(TaskState.FAILED, taskScheduler.getTaskState(task));
+            Assert.assertTrue(taskScheduler.removeTask(task));
+        }
+        // The worker survived
+        Assert.assertEquals(55, taskScheduler.submitTask(groovyTaskList.get(0)).get());
+    }
+
+    @Test
+    public void testSubmitTaskNullResult() throws InterruptedException, ExecutionException {
+        GroovyTask groovyTask = new GroovyTask("null");
+        try {
+            Assert.assertNull(taskScheduler.submitTask(groovyTask).get());
+            Assert.assertTrue(taskScheduler.isTaskDone(groovyTask));
+            Assert.assertNull(taskScheduler.getTaskResult(groovyTask));
+            Assert.assertTrue(taskScheduler.removeTask(groovyTask));
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSubmitTaskConcurrentProducers() throws Exception {
+        List<Thread> producers = new ArrayList<Thread>();
+        List<CompletableFuture<Object>> futures = Collections
+                .synchronizedList(new ArrayList<CompletableFuture<Object>>());
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        for (int i = 0; i < 16; i++) {
+            final int index = i;
+            Thread producer = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 50; j++) {
+                        GroovyTask groovyTask = new GroovyTask("index + 1");
+                        groovyTask.setBinding("index", index);
+                        futures.add(taskScheduler.submitTask(groovyTask));
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(16 * 50, futures.size());
+        long total = 0;
+        for (CompletableFuture<Object> future : futures) {
+            total += (Integer) future.get();
+        }
+        // 50 times the sum of 1..16
+        Assert.assertEquals(50 * 136, total);
+    }
+
     @Test(expected = SchedulerException.class)
     public void testSubmitTaskNull() throws SchedulerException {
         taskScheduler.submitTask(null);
         fail("Should throw a SchedulerException");
     }
 
+    //
+    //
+    // TaskScheduler.submitTask(Task, CompletionQueue)
+    //
+    //
+
+    @Test
+    public void testSubmitTaskCompletionQueue() {
+        CompletionQueue completionQueue = new CompletionQueue();
+        try {
+            for (GroovyTask groovyTask : groovyTaskList) {
+                taskScheduler.submitTask(groovyTask, completionQueue);
+            }
+            List<Task> finishedTasks = new ArrayList<Task>();
+            for (int i = 0; i < groovyTaskList.size(); i++) {
+                Task task = completionQueue.takeCompleted();
+                Assert.assertTrue(taskScheduler.isTaskDone(task));
+                Assert.assertEquals(55, taskScheduler.getTaskResult(task));
+                finishedTasks.add(task);
+            }
+            Assert.assertTrue(finishedTasks.containsAll(groovyTaskList));
+            Assert.assertNull(completionQueue.pollCompleted(10, TimeUnit.MILLISECONDS));
+        } catch (SchedulerException | ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCompletionQueueCancelledTask() throws Exception {
+        CompletionQueue completionQueue = new CompletionQueue();
+        GroovyTask sleepingTask = new GroovyTask("Thread.sleep(10000)");
+        CompletableFuture<Object> future = taskScheduler.submitTask(sleepingTask, completionQueue);
+        Assert.assertTrue(taskScheduler.cancelTask(sleepingTask));
+        Assert.assertSame(sleepingTask, completionQueue.takeCompleted());
+        Assert.assertTrue(future.isCancelled());
+        Assert.assertEquals(TaskState.CANCELLED, taskScheduler.getTaskState(sleepingTask));
+        Assert.assertNull(completionQueue.pollCompleted(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testDrainCompleted() {
+        CompletionQueue completionQueue = new CompletionQueue();
+        try {
+            for (GroovyTask groovyTask : groovyTaskList) {
+                taskScheduler.submitTask(groovyTask, completionQueue);
+            }
+            List<Task> finishedTasks = new ArrayList<Task>();
+            int remainingTasks = groovyTaskList.size();
+            while (remainingTasks > 0) {
+                int drained = completionQueue.drainCompleted(finishedTasks, 10);
+                Assert.assertTrue(drained > 0 && drained <= 10);
+                remainingTasks -= drained;
+            }
+            Assert.assertEquals(groovyTaskList.size(), finishedTasks.size());
+            Assert.assertEquals(0, completionQueue.drainCompleted(finishedTasks, 0));
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testPollCompletedTaskError() {
+        CompletionQueue completionQueue = new CompletionQueue();
+        GroovyTask groovyTask = new GroovyTask("This is going to be an error");
+        try {
+            taskScheduler.submitTask(groovyTask, completionQueue);
+            Assert.assertSame(groovyTask, completionQueue.pollCompleted(5, TimeUnit.SECONDS));
+            Assert.assertTrue(taskScheduler.isTaskDone(groovyTask));
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    //
+    //
+    // TaskScheduler.submitTask(Task, TaskPriority, CompletionQueue)
+    //
+    //
+
+    @Test
+    public void testSubmitTaskPriority() {
+        // Single worker and no aging, so the lanes alone decide the order
+        TaskScheduler singleWorkerScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(1)
+                .aging(1, TimeUnit.HOURS).build());
+        try {
+            CompletionQueue completionQueue = new CompletionQueue();
+            GroovyTask blockingTask = new GroovyTask("sleep(200)");
+            GroovyTask lowTask = new GroovyTask("(1..10).sum()");
+            GroovyTask highTask = new GroovyTask("(1..10).sum()");
+            singleWorkerScheduler.submitTask(blockingTask, TaskPriority.NORMAL, completionQueue);
+            while (singleWorkerScheduler.getQueueDepth(TaskPriority.NORMAL) > 0) {
+                Thread.sleep(1);
+            }
+            singleWorkerScheduler.submitTask(lowTask, TaskPriority.LOW, completionQueue);
+            singleWorkerScheduler.submitTask(highTask, TaskPriority.HIGH, completionQueue);
+            Assert.assertEquals(1, singleWorkerScheduler.getQueueDepth(TaskPriority.LOW));
+            Assert.assertEquals(1, singleWorkerScheduler.getQueueDepth(TaskPriority.HIGH));
+
+            Assert.assertSame(blockingTask, completionQueue.pollCompleted(5, TimeUnit.SECONDS));
+            Assert.assertSame(highTask, completionQueue.pollCompleted(5, TimeUnit.SECONDS));
+            Assert.assertSame(lowTask, completionQueue.pollCompleted(5, TimeUnit.SECONDS));
+            Assert.assertEquals(0, singleWorkerScheduler.getQueueDepth(TaskPriority.LOW));
+        } catch (SchedulerException | InterruptedException e) {
+            fail(e.getMessage());
+        } finally {
+            singleWorkerScheduler.close();
+        }
+    }
+
+    @Test(expected = SchedulerException.class)
+    public void testSubmitTaskNullPriority() throws SchedulerException {
+        taskScheduler.submitTask(groovyTaskList.get(0), (TaskPriority) null);
+        fail("Should throw a SchedulerException");
+    }
+
+    //
+    //
+    // TaskScheduler.submitAll()
+    //
+    //
+
+    @Test
+    public void testSubmitAll() {
+        try {
+            TaskBatch taskBatch = taskScheduler.submitAll(groovyTaskList);
+            Assert.assertEquals(groovyTaskList.size(), taskBatch.size());
+            Assert.assertEquals(groovyTaskList, taskBatch.getTasks());
+            Assert.assertNotNull(taskBatch.awaitAny());
+            taskBatch.awaitAll();
+            Assert.assertTrue(taskBatch.isDone());
+            Assert.assertEquals(groovyTaskList.size(), taskBatch.getCompletedCount());
+            Map<Task, Object> results = taskBatch.getResults();
+            Assert.assertEquals(groovyTaskList.size(), results.size());
+            for (Object result : results.values()) {
+                Assert.assertEquals(55, result);
+            }
+            Assert.assertTrue(taskBatch.getFailures().isEmpty());
+            Assert.assertEquals(groovyTaskList.size(), taskBatch.removeAll());
+            Assert.assertFalse(taskScheduler.isTaskDone(groovyTaskList.get(0)));
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSubmitAllTaskError() {
+        GroovyTask groovyTask = new GroovyTask("This is going to be an error");
+        try {
+            TaskBatch taskBatch = taskScheduler.submitAll(Arrays.asList(groovyTask, groovyTaskList.get(0)));
+            Assert.assertTrue(taskBatch.awaitAll(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1, taskBatch.getResults().size());
+            Assert.assertTrue(taskBatch.getFailures().containsKey(groovyTask));
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSubmitAllCancelAll() {
+        List<GroovyTask> sleepingTasks = new ArrayList<GroovyTask>();
+        for (int i = 0; i < 100; i++) {
+            sleepingTasks.add(new GroovyTask("sleep(50)"));
+        }
+        try {
+            TaskBatch taskBatch = taskScheduler.submitAll(sleepingTasks);
+            Assert.assertTrue(taskBatch.cancelAll() > 0);
+            Assert.assertTrue(taskBatch.awaitAll(5, TimeUnit.SECONDS));
+            Assert.assertEquals(100, taskBatch.getResults().size() + taskBatch.getFailures().size());
+            Assert.assertEquals(0, taskBatch.cancelAll());
+            for (Task task : taskBatch.getFailures().keySet()) {
+                Assert.assertFalse(taskScheduler.isTaskDone(task));
+                Assert.assertFalse(taskScheduler.getTasksRunning().contains(task));
+            }
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSubmitAllEmpty() {
+        try {
+            TaskBatch taskBatch = taskScheduler.submitAll(new ArrayList<Task>());
+            Assert.assertTrue(taskBatch.isDone());
+            Assert.assertNull(taskBatch.awaitAny());
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test(expected = SchedulerException.class)
+    public void testSubmitAllNull() throws SchedulerException {
+        taskScheduler.submitAll(null);
+        fail("Should throw a SchedulerException");
+    }
+
+    @Test(expected = SchedulerException.class)
+    public void testSubmitAllNullTask() throws SchedulerException {
+        taskScheduler.submitAll(Arrays.asList(groovyTaskList.get(0), null));
+        fail("Should throw a SchedulerException");
+    }
+
+    //
+    //
+    // TaskScheduler.schedule()
+    //
+    //
+
+    @Test
+    public void testSchedule() {
+        GroovyTask groovyTask = new GroovyTask("(1..10).sum()");
+        try {
+            long start = System.nanoTime();
+            CompletableFuture<Object> future = taskScheduler.schedule(groovyTask, 50, TimeUnit.MILLISECONDS);
+            Assert.assertTrue(taskScheduler.getTasksRunning().contains(groovyTask));
+            Assert.assertEquals(55, future.get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+            Assert.assertEquals(55, taskScheduler.getTaskResult(groovyTask));
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScheduleCancel() throws InterruptedException {
+        GroovyTask groovyTask = new GroovyTask("(1..10).sum()");
+        try {
+            int pendingTimers = taskScheduler.getPendingTimerCount();
+            CompletableFuture<Object> future = taskScheduler.schedule(groovyTask, 50, TimeUnit.MILLISECONDS);
+            Assert.assertTrue(future.cancel(false));
+            Assert.assertEquals(pendingTimers, taskScheduler.getPendingTimerCount());
+            Thread.sleep(100);
+            Assert.assertFalse(taskScheduler.isTaskDone(groovyTask));
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScheduleClosedBeforeDelay() throws Exception {
+        TaskScheduler otherScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(1).build());
+        CompletableFuture<Object> future = otherScheduler.schedule(new GroovyTask("(1..10).sum()"), 1,
+                TimeUnit.HOURS);
+        CompletableFuture<Object> periodicFuture = otherScheduler.scheduleAtFixedRate(new GroovyTask("1"), 1, 1,
+                TimeUnit.HOURS);
+        otherScheduler.close();
+        for (CompletableFuture<Object> closedFuture : Arrays.asList(future, periodicFuture)) {
+            try {
+                closedFuture.get();
+                fail("Should throw an ExecutionException");
+            } catch (ExecutionException e) {
+                // The executor rejection is kept as the cause
+                Assert.assertTrue(e.getCause() instanceof SchedulerException);
+                Assert.assertTrue(e.getCause().getCause() instanceof RejectedExecutionException);
+            }
+        }
+    }
+
+    @Test(expected = SchedulerException.class)
+    public void testScheduleNull() throws SchedulerException {
+        taskScheduler.schedule(null, 1, TimeUnit.SECONDS);
+        fail("Should throw a SchedulerException");
+    }
+
+    //
+    //
+    // TaskScheduler.scheduleAtFixedRate()
+    //
+    //
+
+    @Test
+    public void testScheduleAtFixedRate() throws InterruptedException {
+        final CompletionQueue completionQueue = new CompletionQueue();
+        final GroovyTask groovyTask = new GroovyTask("(1..10).sum()") {
+            @Override
+            public Object call() throws Exception {
+                Object result = super.call();
+                completionQueue.add(this);
+                return result;
+            }
+        };
+        try {
+            CompletableFuture<Object> future = taskScheduler.scheduleAtFixedRate(groovyTask, 0, 20,
+                    TimeUnit.MILLISECONDS);
+            for (int i = 0; i < 3; i++) {
+                Assert.assertSame(groovyTask, completionQueue.pollCompleted(5, TimeUnit.SECONDS));
+            }
+            Assert.assertFalse(future.isDone());
+            Assert.assertTrue(future.cancel(false));
+            // A run may have started before the cancellation
+            Thread.sleep(100);
+            while (completionQueue.size() > 0) {
+                completionQueue.takeCompleted();
+            }
+            Assert.assertNull(completionQueue.pollCompleted(100, TimeUnit.MILLISECONDS));
+            Assert.assertTrue(taskScheduler.isTaskDone(groovyTask));
+            Assert.assertEquals(55, taskScheduler.getTaskResult(groovyTask));
+        } catch (SchedulerException | ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScheduleAtFixedRateTaskError() {
+        GroovyTask groovyTask = new GroovyTask("This is going to be an error");
+        try {
+            CompletableFuture<Object> future = taskScheduler.scheduleAtFixedRate(groovyTask, 0, 20,
+                    TimeUnit.MILLISECONDS);
+            future.get(5, TimeUnit.SECONDS);
+            fail("Should throw an ExecutionException");
+        } catch (ExecutionException e) {
+            try {
+                Assert.assertTrue(taskScheduler.getTasksDone().contains(groovyTask));
+            } catch (SchedulerException se) {
+                fail(se.getMessage());
+            }
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test(expected = SchedulerException.class)
+    public void testScheduleAtFixedRateInvalidPeriod() throws SchedulerException {
+        taskScheduler.scheduleAtFixedRate(groovyTaskList.get(0), 0, 0, TimeUnit.MILLISECONDS);
+        fail("Should throw a SchedulerException");
+    }
+
+    //
+    //
+    // TaskScheduler.scheduleWithFixedDelay()
+    //
+    //
+
+    @Test
+    public void testScheduleWithFixedDelay() {
+        final AtomicReference<Long> lastEnd = new AtomicReference<Long>();
+        final CompletableFuture<Long> minimumGap = new CompletableFuture<Long>();
+        GroovyTask groovyTask = new GroovyTask("sleep(10)") {
+            @Override
+            public Object call() throws Exception {
+                long start = System.nanoTime();
+                Long previousEnd = lastEnd.get();
+                Object result = super.call();
+                lastEnd.set(System.nanoTime());
+                if (null != previousEnd) {
+                    minimumGap.complete(start - previousEnd);
+                }
+                return result;
+            }
+        };
+        try {
+            CompletableFuture<Object> future = taskScheduler.scheduleWithFixedDelay(groovyTask, 0, 30,
+                    TimeUnit.MILLISECONDS);
+            long gap = minimumGap.get(5, TimeUnit.SECONDS);
+            future.cancel(false);
+            Assert.assertTrue(gap >= TimeUnit.MILLISECONDS.toNanos(30));
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
     //
     //
     // TaskScheduler.removeTask()
@@ -126,6 +629,57 @@ public class TaskSchedulerTest {
         }
     }
 
+    //
+    //
+    // TaskScheduler.getTaskState()
+    //
+    //
+
+    @Test
+    public void testGetTaskState() throws InterruptedException {
+        GroovyTask groovyTask = new GroovyTask("(1..10).sum()");
+        GroovyTask failingTask = new GroovyTask("This is going to be an error");
+        try {
+            Assert.assertNull(taskScheduler.getTaskState(groovyTask));
+            taskScheduler.submitTask(groovyTask).get();
+            Assert.assertEquals(TaskState.DONE, taskScheduler.getTaskState(groovyTask));
+            taskScheduler.submitTask(failingTask).handle((result, failure) -> failure).get();
+            Assert.assertEquals(TaskState.FAILED, taskScheduler.getTaskState(failingTask));
+        } catch (SchedulerException | ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGetTaskStateCancelled() throws InterruptedException, ExecutionException {
+        try (TaskScheduler otherScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(1).build())) {
+            GroovyTask blockingTask = new GroovyTask("sleep(200)");
+            GroovyTask waitingTask = new GroovyTask("(1..10).sum()");
+            CompletableFuture<Object> blockingFuture = otherScheduler.submitTask(blockingTask);
+            CompletableFuture<Object> waitingFuture = otherScheduler.submitTask(waitingTask);
+            while (TaskState.RUNNING != otherScheduler.getTaskState(blockingTask)) {
+                Thread.sleep(1);
+            }
+            Assert.assertEquals(TaskState.SUBMITTED, otherScheduler.getTaskState(waitingTask));
+            Assert.assertTrue(waitingFuture.cancel(true));
+            Assert.assertTrue(waitingFuture.isCancelled());
+            Assert.assertFalse(otherScheduler.getTasksRunning().contains(waitingTask));
+            Assert.assertEquals(TaskState.CANCELLED, otherScheduler.getTaskState(waitingTask));
+            Assert.assertEquals(0, otherScheduler.getQueueDepth(TaskPriority.NORMAL));
+            blockingFuture.get();
+            Assert.assertEquals(TaskState.DONE, otherScheduler.getTaskState(blockingTask));
+            Assert.assertFalse(otherScheduler.isTaskDone(waitingTask));
+        } catch (SchedulerException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test(expected = SchedulerException.class)
+    public void testGetTaskStateNull() throws SchedulerException {
+        taskScheduler.getTaskState(null);
+        fail("Should throw a SchedulerException");
+    }
+
     //
     //
     // TaskScheduler.isTaskDone()
@@ -0,0 +1,165 @@
+package scheduler;
+
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import scheduler.exception.SchedulerException;
+import scheduler.exception.TaskTimeoutException;
+import scheduler.task.impl.GroovyTask;
+
+public class TaskTimeoutTest {
+    @Rule
+    public Timeout globalTimeout = new Timeout(10000, TimeUnit.MILLISECONDS);
+
+    private TaskScheduler taskScheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        // A single worker, which a runaway script would hold forever
+        taskScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(1).build());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        taskScheduler.close();
+    }
+
+    /**
+     * Checks that the worker is free again
+     */
+    private void assertWorkerAvailable() throws SchedulerException, InterruptedException, ExecutionException {
+        Assert.assertEquals(55, taskScheduler.submitTask(new GroovyTask("(1..10).sum()")).get());
+    }
+
+    //
+    //
+    // TaskScheduler.submitTask(Task, long, TimeUnit)
+    //
+    //
+
+    @Test
+    public void testSubmitTaskTimeout() throws InterruptedException {
+        GroovyTask loopingTask = new GroovyTask("while (true) {}");
+        try {
+            CompletableFuture<Object> future = taskScheduler.submitTask(loopingTask, 200, TimeUnit.MILLISECONDS);
+            try {
+                future.get();
+                fail("Should throw an ExecutionException");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof TaskTimeoutException);
+            }
+            Assert.assertEquals(TaskState.TIMED_OUT, taskScheduler.getTaskState(loopingTask));
+            Assert.assertFalse(taskScheduler.isTaskDone(loopingTask));
+            Assert.assertTrue(taskScheduler.removeTask(loopingTask));
+            Assert.assertNull(taskScheduler.getTaskState(loopingTask));
+            assertWorkerAvailable();
+        } catch (SchedulerException | ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSubmitTaskTimeoutNotReached() throws InterruptedException {
+        GroovyTask groovyTask = new GroovyTask("(1..10).sum()");
+        try {
+            Assert.assertEquals(55, taskScheduler.submitTask(groovyTask, 5, TimeUnit.SECONDS).get());
+            Assert.assertEquals(TaskState.DONE, taskScheduler.getTaskState(groovyTask));
+            Assert.assertFalse(Thread.currentThread().isInterrupted());
+        } catch (SchedulerException | ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDefaultTimeout() throws InterruptedException {
+        taskScheduler.close();
+        taskScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(1)
+                .taskTimeout(200, TimeUnit.MILLISECONDS).build());
+        try {
+            CompletableFuture<Object> future = taskScheduler.submitTask(new GroovyTask("while (true) {}"));
+            try {
+                future.get();
+                fail("Should throw an ExecutionException");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof TaskTimeoutException);
+            }
+            assertWorkerAvailable();
+        } catch (SchedulerException | ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDefaultTimeoutCompletionQueue() throws Exception {
+        taskScheduler.close();
+        taskScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(1)
+                .taskTimeout(200, TimeUnit.MILLISECONDS).build());
+        CompletionQueue completionQueue = new CompletionQueue();
+        GroovyTask loopingTask = new GroovyTask("while (true) {}");
+        CompletableFuture<Object> future = taskScheduler.submitTask(loopingTask, TaskPriority.NORMAL,
+                completionQueue);
+        Assert.assertSame(loopingTask, completionQueue.takeCompleted());
+        Assert.assertTrue(future.isCompletedExceptionally());
+        Assert.assertEquals(TaskState.TIMED_OUT, taskScheduler.getTaskState(loopingTask));
+        assertWorkerAvailable();
+    }
+
+    @Test(expected = SchedulerException.class)
+    public void testSubmitTaskInvalidTimeout() throws SchedulerException {
+        taskScheduler.submitTask(new GroovyTask("(1..10).sum()"), 0, TimeUnit.MILLISECONDS);
+        fail("Should throw a SchedulerException");
+    }
+
+    //
+    //
+    // TaskScheduler.cancelTask()
+    //
+    //
+
+    @Test
+    public void testCancelTaskRunning() throws InterruptedException {
+        GroovyTask runawayTask = new GroovyTask("while (true) {}");
+        try {
+            CompletableFuture<Object> future = taskScheduler.submitTask(runawayTask);
+            while (TaskState.RUNNING != taskScheduler.getTaskState(runawayTask)) {
+                Thread.sleep(1);
+            }
+            Assert.assertTrue(taskScheduler.cancelTask(runawayTask));
+            Assert.assertTrue(future.isCancelled());
+            Assert.assertFalse(taskScheduler.cancelTask(runawayTask));
+            Assert.assertEquals(TaskState.CANCELLED, taskScheduler.getTaskState(runawayTask));
+            assertWorkerAvailable();
+        } catch (SchedulerException | ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCancelTaskFinished() throws InterruptedException {
+        GroovyTask groovyTask = new GroovyTask("(1..10).sum()");
+        try {
+            Assert.assertFalse(taskScheduler.cancelTask(groovyTask));
+            taskScheduler.submitTask(groovyTask).get();
+            Assert.assertFalse(taskScheduler.cancelTask(groovyTask));
+            Assert.assertEquals(TaskState.DONE, taskScheduler.getTaskState(groovyTask));
+        } catch (SchedulerException | ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test(expected = SchedulerException.class)
+    public void testCancelTaskNull() throws SchedulerException {
+        taskScheduler.cancelTask(null);
+        fail("Should throw a SchedulerException");
+    }
+}
@@ -0,0 +1,267 @@
+package scheduler.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+
+import scheduler.task.Task;
+import scheduler.task.impl.GroovyTask;
+
+public class TaskJournalTest {
+    @Rule
+    public Timeout globalTimeout = new Timeout(20000, TimeUnit.MILLISECONDS);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Lists the segment files of a journal directory
+     */
+    private static List<Path> listFiles(Path directory) throws IOException {
+        List<Path> files = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    //
+    //
+    // TaskJournal.getRecoveredTasks()
+    //
+    //
+
+    @Test
+    public void testRecover() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        GroovyTask doneTask = new GroovyTask("(1..10).sum()");
+        GroovyTask failedTask = new GroovyTask("throw new Exception()");
+        GroovyTask removedTask = new GroovyTask("1");
+        GroovyTask pendingTask = new GroovyTask("2");
+        try (TaskJournal journal = new TaskJournal(directory, 1024 * 1024)) {
+            Assert.assertTrue(journal.getRecoveredTasks().isEmpty());
+            journal.submitted(doneTask);
+            journal.submitted(failedTask);
+            journal.submitted(removedTask);
+            journal.submitted(pendingTask);
+            journal.completed(doneTask.getId(), 55);
+            journal.completed(failedTask.getId(), new ExecutionException(new IllegalStateException("failed")));
+            journal.completed(removedTask.getId(), 1);
+            Assert.assertTrue(journal.awaitFlushed(journal.removed(removedTask.getId())));
+        }
+
+        try (TaskJournal journal = new TaskJournal(directory, 1024 * 1024)) {
+            List<RecoveredTask> recoveredTasks = journal.getRecoveredTasks();
+            Assert.assertEquals(3, recoveredTasks.size());
+
+            RecoveredTask recoveredTask = recoveredTasks.get(0);
+            Assert.assertEquals(doneTask.getId(), recoveredTask.getTask().getId());
+            Assert.assertEquals(doneTask.getScript(), ((GroovyTask) recoveredTask.getTask()).getScript());
+            Assert.assertTrue(recoveredTask.isFinished());
+            Assert.assertEquals(55, recoveredTask.getOutcome());
+
+            recoveredTask = recoveredTasks.get(1);
+            Assert.assertEquals(failedTask.getId(), recoveredTask.getTask().getId());
+            Assert.assertTrue(recoveredTask.isFinished());
+            Assert.assertTrue(recoveredTask.getOutcome() instanceof ExecutionException);
+            Assert.assertTrue(((ExecutionException) recoveredTask.getOutcome())
+                    .getCause() instanceof IllegalStateException);
+
+            recoveredTask = recoveredTasks.get(2);
+            Assert.assertEquals(pendingTask.getId(), recoveredTask.getTask().getId());
+            Assert.assertFalse(recoveredTask.isFinished());
+            Assert.assertNull(recoveredTask.getOutcome());
+        }
+    }
+
+    @Test
+    public void testRecoverTornRecord() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        GroovyTask groovyTask = new GroovyTask("(1..10).sum()");
+        try (TaskJournal journal = new TaskJournal(directory, 1024 * 1024)) {
+            journal.submitted(groovyTask);
+            journal.completed(groovyTask.getId(), 55);
+        }
+        List<Path> segments = listFiles(directory);
+        Assert.assertEquals(1, segments.size());
+        try (FileChannel channel = FileChannel.open(segments.get(0), StandardOpenOption.APPEND)) {
+            // Header of a record the crash cut short
+            channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 1, 0, 42, 42 }));
+        }
+
+        try (TaskJournal journal = new TaskJournal(directory, 1024 * 1024)) {
+            Assert.assertEquals(1, journal.getRecoveredTasks().size());
+            Assert.assertEquals(55, journal.getRecoveredTasks().get(0).getOutcome());
+        }
+    }
+
+    //
+    //
+    // TaskJournal.submitted()
+    //
+    //
+
+    @Test
+    public void testSubmittedNotSerializable() throws IOException {
+        Task task = new Task() {
+            @Override
+            public Object call() throws Exception {
+                return null;
+            }
+
+            @Override
+            public int getId() {
+                return -1;
+            }
+        };
+        try (TaskJournal journal = new TaskJournal(temporaryFolder.getRoot().toPath(), 1024 * 1024)) {
+            Assert.assertEquals(-1, journal.submitted(task));
+            Assert.assertFalse(journal.awaitFlushed(-1));
+        }
+    }
+
+    @Test
+    public void testSubmittedClosed() throws IOException {
+        TaskJournal journal = new TaskJournal(temporaryFolder.getRoot().toPath(), 1024 * 1024);
+        journal.close();
+        Assert.assertEquals(-1, journal.submitted(new GroovyTask("1")));
+        Assert.assertEquals(-1, journal.removed(0));
+        journal.close();
+    }
+
+    //
+    //
+    // TaskJournal.awaitFlushed()
+    //
+    //
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        try (TaskJournal journal = new TaskJournal(temporaryFolder.getRoot().toPath(), 1024 * 1024)) {
+            List<Thread> threads = new ArrayList<Thread>();
+            for (int t = 0; t < 8; t++) {
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        Assert.assertTrue(journal.awaitFlushed(journal.submitted(new GroovyTask("1"))));
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            Assert.assertEquals(800, journal.getFlushedRecordCount());
+            // Waiting submissions share the disk syncs
+            Assert.assertTrue(journal.getCommitCount() < journal.getFlushedRecordCount());
+        }
+    }
+
+    //
+    //
+    // TaskJournal.compact()
+    //
+    //
+
+    @Test
+    public void testCompaction() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        List<GroovyTask> liveTasks = new ArrayList<GroovyTask>();
+        try (TaskJournal journal = new TaskJournal(directory, 4096)) {
+            for (int i = 0; i < 500; i++) {
+                GroovyTask groovyTask = new GroovyTask("return " + i);
+                journal.submitted(groovyTask);
+                journal.completed(groovyTask.getId(), i);
+                if (0 == i % 100) {
+                    liveTasks.add(groovyTask);
+                } else {
+                    journal.removed(groovyTask.getId());
+                }
+            }
+            Assert.assertTrue(journal.awaitFlushed(journal.removed(Integer.MIN_VALUE)));
+            journal.compact();
+            Assert.assertTrue(journal.getCompactionCount() > 0);
+            Assert.assertEquals(2, journal.getSegmentCount());
+        }
+        Assert.assertEquals(2, listFiles(directory).size());
+
+        try (TaskJournal journal = new TaskJournal(directory, 4096)) {
+            List<RecoveredTask> recoveredTasks = journal.getRecoveredTasks();
+            Assert.assertEquals(liveTasks.size(), recoveredTasks.size());
+            for (int i = 0; i < liveTasks.size(); i++) {
+                Assert.assertEquals(liveTasks.get(i).getId(), recoveredTasks.get(i).getTask().getId());
+                Assert.assertEquals(i * 100, recoveredTasks.get(i).getOutcome());
+            }
+        }
+    }
+
+    /**
+     * Journals live tasks until the active segment rolls
+     */
+    private static void fillSegment(TaskJournal journal, List<GroovyTask> liveTasks) {
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            padding.append('x');
+        }
+        int segmentCount = journal.getSegmentCount();
+        while (journal.getSegmentCount() == segmentCount) {
+            GroovyTask groovyTask = new GroovyTask("'" + padding + "'");
+            liveTasks.add(groovyTask);
+            Assert.assertTrue(journal.awaitFlushed(journal.submitted(groovyTask)));
+        }
+    }
+
+    @Test
+    public void testCompactionInterruptedAfterMove() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        GroovyTask removedTask = new GroovyTask("1");
+        List<GroovyTask> liveTasks = new ArrayList<GroovyTask>();
+        try (TaskJournal journal = new TaskJournal(directory, 4096)) {
+            // Submitted in the oldest segment, removed in the newest sealed one
+            journal.submitted(removedTask);
+            fillSegment(journal, liveTasks);
+            journal.removed(removedTask.getId());
+            fillSegment(journal, liveTasks);
+            Assert.assertEquals(3, journal.getSegmentCount());
+            List<Path> segments = listFiles(directory);
+            Collections.sort(segments);
+            Path oldestSegment = segments.get(0);
+            byte[] oldestSegmentBytes = Files.readAllBytes(oldestSegment);
+
+            journal.compact();
+            Assert.assertEquals(1, journal.getCompactionCount());
+            Assert.assertFalse(Files.exists(oldestSegment));
+            // As if the process crashed before deleting the older segments
+            Files.write(oldestSegment, oldestSegmentBytes);
+        }
+
+        try (TaskJournal journal = new TaskJournal(directory, 4096)) {
+            List<RecoveredTask> recoveredTasks = journal.getRecoveredTasks();
+            Assert.assertEquals(liveTasks.size(), recoveredTasks.size());
+            for (int i = 0; i < liveTasks.size(); i++) {
+                Assert.assertEquals(liveTasks.get(i).getId(), recoveredTasks.get(i).getTask().getId());
+                Assert.assertFalse(recoveredTasks.get(i).isFinished());
+            }
+            // The superseded segment is deleted on opening
+            Assert.assertEquals(3, listFiles(directory).size());
+        }
+    }
+}
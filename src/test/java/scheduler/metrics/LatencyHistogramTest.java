@@ -0,0 +1,73 @@
+package scheduler.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    //
+    //
+    // LatencyHistogram.bucketIndex()
+    //
+    //
+
+    @Test
+    public void testBucketIndexPrecision() {
+        for (long value = 0; value < 100000; value += 7) {
+            long highest = LatencyHistogram.highestValue(LatencyHistogram.bucketIndex(value));
+            Assert.assertTrue(highest >= value);
+            Assert.assertTrue(highest - value <= value / 32);
+        }
+        long highest = LatencyHistogram.highestValue(LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+        Assert.assertEquals(Long.MAX_VALUE, highest);
+    }
+
+    @Test
+    public void testBucketIndexMonotonic() {
+        int previous = -1;
+        for (int shift = 0; shift < 63; shift++) {
+            int index = LatencyHistogram.bucketIndex(1L << shift);
+            Assert.assertTrue(index > previous);
+            previous = index;
+        }
+    }
+
+    //
+    //
+    // LatencyHistogram.snapshot()
+    //
+    //
+
+    @Test
+    public void testSnapshotEmpty() {
+        HistogramSnapshot snapshot = new LatencyHistogram().snapshot();
+        Assert.assertEquals(0, snapshot.getCount());
+        Assert.assertEquals(0, snapshot.getP50());
+        Assert.assertEquals(0, snapshot.getMax());
+        Assert.assertEquals(0, snapshot.getMean(), 0);
+    }
+
+    @Test
+    public void testSnapshotPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000L);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(1000, snapshot.getCount());
+        Assert.assertEquals(500500, snapshot.getMean(), 1);
+        Assert.assertEquals(500000, snapshot.getP50(), 500000 / 32);
+        Assert.assertEquals(900000, snapshot.getP90(), 900000 / 32);
+        Assert.assertEquals(990000, snapshot.getP99(), 990000 / 32);
+        Assert.assertEquals(1000000, snapshot.getMax());
+        Assert.assertTrue(snapshot.getP999() <= snapshot.getMax());
+    }
+
+    @Test
+    public void testRecordNegative() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        Assert.assertEquals(1, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMax());
+    }
+}
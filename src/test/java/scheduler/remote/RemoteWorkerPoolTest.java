@@ -0,0 +1,229 @@
+package scheduler.remote;
+
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import scheduler.SchedulerConfig;
+import scheduler.TaskScheduler;
+import scheduler.exception.SchedulerException;
+import scheduler.task.impl.GroovyTask;
+
+public class RemoteWorkerPoolTest {
+    @Rule
+    public Timeout globalTimeout = new Timeout(60000, TimeUnit.MILLISECONDS);
+
+    private RemoteWorkerPool workerPool;
+
+    @After
+    public void tearDown() throws Exception {
+        if (null != workerPool) {
+            workerPool.close();
+        }
+    }
+
+    /**
+     * Gets the module options of the test JVM, needed by Groovy in the
+     * workers as well
+     */
+    private static String[] jvmArguments() {
+        List<String> jvmArguments = new ArrayList<String>();
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("--add-opens")) {
+                jvmArguments.add(argument);
+            }
+        }
+        return jvmArguments.toArray(new String[jvmArguments.size()]);
+    }
+
+    /**
+     * Starts a pool and waits for its workers
+     */
+    private RemoteWorkerPool startPool(int workerCount, int threadsPerWorker) throws Exception {
+        RemoteWorkerPool pool = new RemoteWorkerPool(workerCount, threadsPerWorker, 2000, TimeUnit.MILLISECONDS,
+                Arrays.asList(jvmArguments()));
+        awaitLiveWorkers(pool, workerCount);
+        return pool;
+    }
+
+    private static void awaitLiveWorkers(RemoteWorkerPool pool, int workerCount) throws InterruptedException {
+        while (pool.getLiveWorkerCount() < workerCount) {
+            Thread.sleep(10);
+        }
+    }
+
+    //
+    //
+    // RemoteWorkerPool.call()
+    //
+    //
+
+    @Test
+    public void testCall() throws Exception {
+        workerPool = startPool(1, 1);
+        Assert.assertEquals(55, workerPool.call(new GroovyTask("(1..10).sum()")));
+        GroovyTask boundTask = new GroovyTask("[text: text * count, half: count / 2]");
+        boundTask.setBinding("text", "ab");
+        boundTask.setBinding("count", 3);
+        Assert.assertEquals("{text=ababab, half=1.5}", workerPool.call(boundTask).toString());
+        Assert.assertNull(workerPool.call(new GroovyTask("null")));
+    }
+
+    @Test
+    public void testCallFailure() throws Exception {
+        workerPool = startPool(1, 1);
+        try {
+            workerPool.call(new GroovyTask("throw new IllegalStateException('remote failure')"));
+            fail("Should throw an exception");
+        } catch (Exception e) {
+            Assert.assertTrue(e.toString().contains("remote failure"));
+        }
+        Assert.assertEquals(55, workerPool.call(new GroovyTask("(1..10).sum()")));
+    }
+
+    @Test
+    public void testCallInvalidTask() throws Exception {
+        workerPool = startPool(1, 1);
+        GroovyTask task = new GroovyTask("value");
+        task.setBinding("value", new Object());
+        try {
+            workerPool.call(task);
+            fail("Should throw a SchedulerException");
+        } catch (SchedulerException e) {
+            Assert.assertEquals(1, workerPool.getLiveWorkerCount());
+        }
+    }
+
+    //
+    //
+    // RemoteWorkerPool.submit()
+    //
+    //
+
+    @Test
+    public void testSubmitPipelined() throws Exception {
+        workerPool = startPool(2, 2);
+        List<CompletableFuture<Object>> futures = new ArrayList<CompletableFuture<Object>>();
+        for (int i = 0; i < 40; i++) {
+            GroovyTask task = new GroovyTask("Thread.sleep(20); index * index");
+            task.setBinding("index", i);
+            futures.add(workerPool.submit(task));
+        }
+        for (int i = 0; i < 40; i++) {
+            Assert.assertEquals(i * i, futures.get(i).get());
+        }
+        Assert.assertEquals(0, workerPool.getReassignedCount());
+    }
+
+    @Test
+    public void testSubmitCancel() throws Exception {
+        workerPool = startPool(1, 1);
+        CompletableFuture<Object> future = workerPool.submit(new GroovyTask("while (true) {}"));
+        Thread.sleep(200);
+        Assert.assertTrue(future.cancel(true));
+        // The single task thread of the worker has been interrupted
+        Assert.assertEquals(55, workerPool.call(new GroovyTask("(1..10).sum()")));
+    }
+
+    //
+    //
+    // Worker failures
+    //
+    //
+
+    @Test
+    public void testWorkerKilled() throws Exception {
+        workerPool = startPool(2, 1);
+        List<CompletableFuture<Object>> futures = new ArrayList<CompletableFuture<Object>>();
+        for (int i = 0; i < 2; i++) {
+            futures.add(workerPool.submit(new GroovyTask("Thread.sleep(1000); 7")));
+        }
+        Thread.sleep(300);
+        workerPool.getWorkerProcess(0).destroyForcibly();
+        for (CompletableFuture<Object> future : futures) {
+            Assert.assertEquals(7, future.get());
+        }
+        Assert.assertEquals(1, workerPool.getReassignedCount());
+        Assert.assertEquals(1, workerPool.getRestartCount());
+        awaitLiveWorkers(workerPool, 2);
+        Assert.assertEquals(55, workerPool.call(new GroovyTask("(1..10).sum()")));
+    }
+
+    @Test
+    public void testWorkerKilledByTask() throws Exception {
+        workerPool = startPool(1, 1);
+        try {
+            workerPool.call(new GroovyTask("Runtime.runtime.halt(3)"));
+            fail("Should throw a SchedulerException");
+        } catch (SchedulerException e) {
+            Assert.assertEquals(RemoteWorkerPool.MAX_ATTEMPTS - 1, workerPool.getReassignedCount());
+            Assert.assertEquals(RemoteWorkerPool.MAX_ATTEMPTS, workerPool.getRestartCount());
+        }
+        awaitLiveWorkers(workerPool, 1);
+        Assert.assertEquals(55, workerPool.call(new GroovyTask("(1..10).sum()")));
+    }
+
+    //
+    //
+    // RemoteWorkerPool.close()
+    //
+    //
+
+    @Test
+    public void testClose() throws Exception {
+        workerPool = startPool(1, 1);
+        CompletableFuture<Object> future = workerPool.submit(new GroovyTask("while (true) {}"));
+        Process process = workerPool.getWorkerProcess(0);
+        workerPool.close();
+        try {
+            future.get();
+            fail("Should throw an ExecutionException");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof SchedulerException);
+        }
+        Assert.assertTrue(process.waitFor(10, TimeUnit.SECONDS));
+        Assert.assertEquals(0, workerPool.getLiveWorkerCount());
+        try {
+            workerPool.call(new GroovyTask("(1..10).sum()"));
+            fail("Should throw a SchedulerException");
+        } catch (SchedulerException e) {
+            Assert.assertTrue(e.getMessage().contains("closed"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWorkerCount() throws Exception {
+        workerPool = new RemoteWorkerPool(0, 1, 1, TimeUnit.SECONDS, new ArrayList<String>());
+        fail("Should throw an IllegalArgumentException");
+    }
+
+    //
+    //
+    // TaskScheduler with remote workers
+    //
+    //
+
+    @Test
+    public void testTaskSchedulerRemoteWorkers() throws Exception {
+        try (TaskScheduler taskScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(2)
+                .remoteWorkers(1).remoteWorkerJvmArguments(jvmArguments()).build())) {
+            GroovyTask workerTask = new GroovyTask("null != System.getenv('" + RemoteWorkerPool.TOKEN_VARIABLE
+                    + "')");
+            Assert.assertEquals(true, taskScheduler.submitTask(workerTask).get());
+            Assert.assertEquals(55, taskScheduler.submitTask(new GroovyTask("(1..10).sum()")).get());
+            Assert.assertEquals(1, taskScheduler.getWorkerPool().getLiveWorkerCount());
+        }
+    }
+}
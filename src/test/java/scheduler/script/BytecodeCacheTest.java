@@ -0,0 +1,144 @@
+package scheduler.script;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BytecodeCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path directory;
+    private BytecodeCache bytecodeCache;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = temporaryFolder.getRoot().toPath().resolve("bytecode");
+        bytecodeCache = new BytecodeCache(directory, "test-1");
+    }
+
+    private static ScriptBytecode bytecode(String script) {
+        return new ScriptBytecode(script, "Main", Collections.singletonMap("Main", script.getBytes()));
+    }
+
+    private List<Path> files() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    //
+    //
+    // BytecodeCache.load()
+    //
+    //
+
+    @Test
+    public void testStoreLoad() throws Exception {
+        Assert.assertNull(bytecodeCache.load("script"));
+        bytecodeCache.store(bytecode("script"));
+        ScriptBytecode loaded = bytecodeCache.load("script");
+        Assert.assertEquals("script", loaded.getScript());
+        Assert.assertEquals("Main", loaded.getMainClassName());
+        Assert.assertArrayEquals("script".getBytes(), loaded.getClasses().get("Main"));
+        Assert.assertNull(bytecodeCache.load("other script"));
+        Assert.assertEquals(1, bytecodeCache.getHitCount());
+        Assert.assertEquals(2, bytecodeCache.getMissCount());
+        Assert.assertEquals(1, bytecodeCache.getStoreCount());
+        Assert.assertEquals(1, files().size());
+    }
+
+    @Test
+    public void testLoadOtherCompilerVersion() throws Exception {
+        bytecodeCache.store(bytecode("script"));
+        Assert.assertNull(new BytecodeCache(directory, "test-2").load("script"));
+        Assert.assertNotNull(new BytecodeCache(directory, "test-1").load("script"));
+    }
+
+    @Test
+    public void testLoadCorrupted() throws Exception {
+        bytecodeCache.store(bytecode("script"));
+        Path file = files().get(0);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        Assert.assertNull(bytecodeCache.load("script"));
+        Assert.assertTrue(files().isEmpty());
+    }
+
+    //
+    //
+    // BytecodeCache.loadAll()
+    //
+    //
+
+    @Test
+    public void testLoadAll() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            bytecodeCache.store(bytecode("script" + i));
+        }
+        long now = System.currentTimeMillis();
+        for (Path file : files()) {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(now - 60000));
+        }
+        // Most recently used first
+        Assert.assertNotNull(bytecodeCache.load("script3"));
+        List<ScriptBytecode> loaded = bytecodeCache.loadAll(2);
+        Assert.assertEquals(2, loaded.size());
+        Assert.assertEquals("script3", loaded.get(0).getScript());
+        Assert.assertEquals(5, bytecodeCache.loadAll(10).size());
+    }
+
+    //
+    //
+    // ScriptBytecode.defineFactory()
+    //
+    //
+
+    public static class Product {
+    }
+
+    private static ScriptBytecode productBytecode() throws Exception {
+        try (InputStream classFile = Product.class.getResourceAsStream("BytecodeCacheTest$Product.class")) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read = classFile.read(buffer); read >= 0; read = classFile.read(buffer)) {
+                bytes.write(buffer, 0, read);
+            }
+            return new ScriptBytecode("script", Product.class.getName(), Collections.singletonMap(Product.class
+                    .getName(), bytes.toByteArray()));
+        }
+    }
+
+    @Test
+    public void testDefineFactory() throws Exception {
+        Supplier<Product> factory = productBytecode().defineFactory(getClass().getClassLoader(), Product.class);
+        Product product = factory.get();
+        Assert.assertNotNull(product);
+        Assert.assertNotSame(product, factory.get());
+    }
+
+    @Test(expected = ClassCastException.class)
+    public void testDefineFactoryWrongType() throws Exception {
+        productBytecode().defineFactory(getClass().getClassLoader(), Runnable.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScriptBytecodeMissingMainClass() {
+        new ScriptBytecode("script", "Main", Collections.<String, byte[]> emptyMap());
+    }
+}
@@ -0,0 +1,126 @@
+package scheduler.script;
+
+import static org.junit.Assert.fail;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScriptEnginePoolTest {
+
+    private ScriptEnginePool scriptEnginePool;
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() throws Exception {
+        scriptEnginePool = new ScriptEnginePool("groovy", 2, 16);
+        executorService = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScriptEnginePoolInvalidSize() {
+        new ScriptEnginePool("groovy", 0, 16);
+    }
+
+    @Test
+    public void testBorrow() throws InterruptedException {
+        PooledScriptEngine engine = scriptEnginePool.borrow();
+        scriptEnginePool.release(engine);
+        Assert.assertSame(engine, scriptEnginePool.borrow());
+        Assert.assertEquals(1, scriptEnginePool.getEngineCount());
+    }
+
+    @Test
+    public void testBorrowPoolExhausted() throws InterruptedException, ExecutionException, TimeoutException {
+        PooledScriptEngine firstEngine = scriptEnginePool.borrow();
+        PooledScriptEngine secondEngine = scriptEnginePool.borrow();
+        Assert.assertNotSame(firstEngine, secondEngine);
+
+        Future<PooledScriptEngine> waitingBorrow = executorService.submit(() -> scriptEnginePool.borrow());
+        try {
+            waitingBorrow.get(100, TimeUnit.MILLISECONDS);
+            fail("Should wait for an engine to be released");
+        } catch (TimeoutException te) {
+            Assert.assertEquals(2, scriptEnginePool.getEngineCount());
+        }
+        scriptEnginePool.release(secondEngine);
+        Assert.assertSame(secondEngine, waitingBorrow.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBorrowUnbounded() throws InterruptedException {
+        ScriptEnginePool unboundedPool = new ScriptEnginePool("groovy", () -> new ScriptEngineManager()
+                .getEngineByName("groovy"), ScriptEnginePool.UNBOUNDED, 16, 1, TimeUnit.MINUTES);
+        Set<PooledScriptEngine> engines = new HashSet<PooledScriptEngine>();
+        for (int i = 0; i < 5; i++) {
+            engines.add(unboundedPool.borrow());
+        }
+        Assert.assertEquals(5, engines.size());
+        Assert.assertEquals(5, unboundedPool.getEngineCount());
+    }
+
+    @Test
+    public void testReleaseDropsIdleEngines() throws InterruptedException, ScriptException {
+        ScriptEnginePool unboundedPool = new ScriptEnginePool("groovy", () -> new ScriptEngineManager()
+                .getEngineByName("groovy"), ScriptEnginePool.UNBOUNDED, 16, 200, TimeUnit.MILLISECONDS);
+        PooledScriptEngine firstEngine = unboundedPool.borrow();
+        PooledScriptEngine secondEngine = unboundedPool.borrow();
+        Assert.assertEquals(55, firstEngine.eval("(1..10).sum()"));
+        unboundedPool.release(firstEngine);
+        unboundedPool.release(secondEngine);
+        Assert.assertEquals(2, unboundedPool.getEngineCount());
+
+        Thread.sleep(300);
+        // The most recently released engine is reused, the other one dropped
+        Assert.assertSame(secondEngine, unboundedPool.borrow());
+        unboundedPool.release(secondEngine);
+        Assert.assertEquals(1, unboundedPool.getEngineCount());
+        Assert.assertEquals(1, unboundedPool.getDroppedEngineCount());
+        Assert.assertEquals(1, unboundedPool.getScriptCacheMissCount());
+        Assert.assertSame(secondEngine, unboundedPool.borrow());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScriptEnginePoolInvalidIdleTimeout() {
+        new ScriptEnginePool("groovy", () -> null, 2, 16, 0, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testEvalScriptCache() throws InterruptedException, ScriptException {
+        PooledScriptEngine engine = scriptEnginePool.borrow();
+        Assert.assertEquals(55, engine.eval("(1..10).sum()"));
+        Assert.assertEquals(55, engine.eval("(1..10).sum()"));
+        Assert.assertEquals(1, scriptEnginePool.getScriptCacheMissCount());
+        Assert.assertEquals(1, scriptEnginePool.getScriptCacheHitCount());
+    }
+
+    @Test(expected = ScriptException.class)
+    public void testEvalIsolatedBindings() throws InterruptedException, ScriptException {
+        PooledScriptEngine engine = scriptEnginePool.borrow();
+        Assert.assertEquals(5, engine.eval("x = 5"));
+        engine.eval("x");
+    }
+
+    @Test(expected = ScriptException.class)
+    public void testEvalNull() throws InterruptedException, ScriptException {
+        scriptEnginePool.borrow().eval(null);
+    }
+}
@@ -0,0 +1,162 @@
+package scheduler.task.impl;
+
+import static org.junit.Assert.fail;
+
+import groovy.lang.GroovySystem;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import scheduler.SchedulerConfig;
+import scheduler.TaskScheduler;
+import scheduler.script.BytecodeCache;
+
+public class CompiledGroovyTaskTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private String groovyScript = "(1..10).sum()";
+
+    @After
+    public void tearDown() throws Exception {
+        CompiledGroovyTask.setBytecodeCache(null);
+    }
+
+    @Test
+    public void testCall() throws Exception {
+        Assert.assertEquals(55, new CompiledGroovyTask(groovyScript).call());
+        long missCount = CompiledGroovyTask.getScriptCache().getMissCount();
+        Assert.assertEquals(55, new CompiledGroovyTask(groovyScript).call());
+        // Compiled once
+        Assert.assertEquals(missCount, CompiledGroovyTask.getScriptCache().getMissCount());
+    }
+
+    @Test
+    public void testCallBindings() throws Exception {
+        CompiledGroovyTask task = new CompiledGroovyTask("text * count");
+        task.setBinding("text", "ab");
+        task.setBinding("count", 2);
+        Assert.assertEquals("abab", task.call());
+        task.setBinding("count", 3);
+        Assert.assertEquals("ababab", task.call());
+    }
+
+    @Test
+    public void testCallIsolatedBindings() throws Exception {
+        Assert.assertEquals(5, new CompiledGroovyTask("x = 5").call());
+        try {
+            new CompiledGroovyTask("x").call();
+            fail("Should not see the variable bound by another task");
+        } catch (groovy.lang.MissingPropertyException mpe) {
+            Assert.assertEquals("x", mpe.getProperty());
+        }
+    }
+
+    @Test(expected = CompilationFailedException.class)
+    public void testCallCompilationError() throws Exception {
+        new CompiledGroovyTask("(1..").call();
+        fail("Should throw a CompilationFailedException");
+    }
+
+    @Test
+    public void testCallInterrupted() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(1);
+        try {
+            Future<Object> future = executorService.submit(new CompiledGroovyTask("while (true) {}"));
+            Thread.sleep(200);
+            future.cancel(true);
+            // The worker thread is free again
+            Assert.assertEquals(55, executorService.submit(new CompiledGroovyTask(groovyScript)).get(5,
+                    TimeUnit.SECONDS));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSubmitTask() throws Exception {
+        try (TaskScheduler taskScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(2).build())) {
+            CompletableFuture<Object> compiled = taskScheduler.submitTask(new CompiledGroovyTask(groovyScript));
+            CompletableFuture<Object> lambda = taskScheduler.submitTask(new LambdaTask(() -> 42));
+            Assert.assertEquals(55, compiled.get());
+            Assert.assertEquals(42, lambda.get());
+        } catch (ExecutionException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    //
+    //
+    // CompiledGroovyTask.warmUp()
+    //
+    //
+
+    @Test
+    public void testBytecodeCache() throws Exception {
+        BytecodeCache bytecodeCache = new BytecodeCache(temporaryFolder.getRoot().toPath(), "test");
+        CompiledGroovyTask.setBytecodeCache(bytecodeCache);
+        String script = "[1, 2, 3].collect { it * factor }.sum()";
+        CompiledGroovyTask task = new CompiledGroovyTask(script);
+        task.setBinding("factor", 2);
+        Assert.assertEquals(12, task.call());
+        Assert.assertEquals(1, bytecodeCache.getStoreCount());
+
+        // As after a restart: loaded from disk, not compiled
+        CompiledGroovyTask.getScriptCache().clear();
+        Assert.assertEquals(12, task.call());
+        Assert.assertEquals(1, bytecodeCache.getHitCount());
+        Assert.assertEquals(1, bytecodeCache.getStoreCount());
+
+        CompiledGroovyTask.getScriptCache().clear();
+        Assert.assertEquals(1, CompiledGroovyTask.warmUp());
+        long missCount = CompiledGroovyTask.getScriptCache().getMissCount();
+        Assert.assertEquals(12, task.call());
+        Assert.assertEquals(missCount, CompiledGroovyTask.getScriptCache().getMissCount());
+        Assert.assertEquals(1, bytecodeCache.getHitCount());
+    }
+
+    @Test
+    public void testSchedulerWarmUp() throws Exception {
+        String script = "(1..20).sum()";
+        CompiledGroovyTask.setBytecodeCache(new BytecodeCache(temporaryFolder.getRoot().toPath(),
+                "groovy-" + GroovySystem.getVersion()));
+        Assert.assertEquals(210, new CompiledGroovyTask(script).call());
+
+        // As after a restart: the scheduler loads the script from disk
+        CompiledGroovyTask.setBytecodeCache(null);
+        CompiledGroovyTask.getScriptCache().clear();
+        try (TaskScheduler taskScheduler = new TaskScheduler(SchedulerConfig.builder().parallelism(1)
+                .bytecodeCache(temporaryFolder.getRoot().toPath()).build())) {
+            Assert.assertNotNull(CompiledGroovyTask.getBytecodeCache());
+            while (0 == CompiledGroovyTask.getScriptCache().size()) {
+                Thread.sleep(1);
+            }
+            long missCount = CompiledGroovyTask.getScriptCache().getMissCount();
+            Assert.assertEquals(210, taskScheduler.submitTask(new CompiledGroovyTask(script)).get());
+            Assert.assertEquals(missCount, CompiledGroovyTask.getScriptCache().getMissCount());
+        }
+    }
+
+    @Test
+    public void testWarmUpWithoutBytecodeCache() {
+        Assert.assertEquals(0, CompiledGroovyTask.warmUp());
+    }
+
+    @Test
+    public void testToString() {
+        CompiledGroovyTask task = new CompiledGroovyTask(groovyScript);
+        Assert.assertEquals("[CompiledGroovyTask=" + task.getId() + "]", task.toString());
+    }
+}
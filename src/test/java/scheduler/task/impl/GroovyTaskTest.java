@@ -6,6 +6,8 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import javax.script.ScriptException;
+
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -47,6 +49,17 @@ public class GroovyTaskTest {
 
     }
 
+    @Test
+    public void testCallIsolatedBindings() throws Exception {
+        Assert.assertEquals(5, new GroovyTask("x = 5").call());
+        try {
+            new GroovyTask("x").call();
+            fail("Should not see the variable bound by another task");
+        } catch (ScriptException se) {
+            Assert.assertNotNull(se.getMessage());
+        }
+    }
+
     @Test(expected = ExecutionException.class)
     public void testCallTaskError() throws ExecutionException {
         ExecutorService executorService = Executors.newFixedThreadPool(1);
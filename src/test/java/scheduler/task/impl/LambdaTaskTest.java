@@ -0,0 +1,60 @@
+package scheduler.task.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LambdaTaskTest {
+
+    @Test
+    public void testCall() throws Exception {
+        Assert.assertEquals(55, new LambdaTask(() -> 55).call());
+        Assert.assertNull(new LambdaTask(() -> null).call());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCallError() throws Exception {
+        new LambdaTask(() -> {
+            throw new IllegalStateException("failure");
+        }).call();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLambdaTaskNull() {
+        new LambdaTask(null);
+    }
+
+    @Test
+    public void testGetId() {
+        LambdaTask lambdaTask = new LambdaTask(() -> 1);
+        GroovyTask groovyTask = new GroovyTask("1");
+        // Ids are shared by all the task types
+        Assert.assertEquals(lambdaTask.getId() + 1, groovyTask.getId());
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        LambdaTask lambdaTask = new LambdaTask((Callable<Object> & Serializable) () -> 7);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(lambdaTask);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            LambdaTask readTask = (LambdaTask) in.readObject();
+            Assert.assertEquals(lambdaTask.getId(), readTask.getId());
+            Assert.assertEquals(7, readTask.call());
+        }
+    }
+
+    @Test
+    public void testToString() {
+        LambdaTask lambdaTask = new LambdaTask(() -> 1);
+        Assert.assertEquals("[LambdaTask=" + lambdaTask.getId() + "]", lambdaTask.toString());
+    }
+}
@@ -0,0 +1,130 @@
+package scheduler.timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class TimingWheelTest {
+    @Rule
+    public org.junit.rules.Timeout globalTimeout = new org.junit.rules.Timeout(10000, TimeUnit.MILLISECONDS);
+
+    private TimingWheel timingWheel;
+
+    @Before
+    public void setUp() throws Exception {
+        timingWheel = new TimingWheel(1, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        timingWheel.stop();
+    }
+
+    //
+    //
+    // TimingWheel.schedule()
+    //
+    //
+
+    @Test
+    public void testSchedule() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        Timeout timeout = timingWheel.schedule(latch::countDown, 50, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(1, timingWheel.size());
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertTrue(timeout.isExpired());
+        Assert.assertFalse(timeout.cancel());
+        Assert.assertEquals(0, timingWheel.size());
+    }
+
+    @Test
+    public void testScheduleOrder() throws InterruptedException {
+        final List<Integer> order = new ArrayList<Integer>();
+        final CountDownLatch latch = new CountDownLatch(4);
+        // Spread over several levels, scheduled in reverse order
+        int[] delays = { 600, 300, 20, 0 };
+        for (final int delay : delays) {
+            timingWheel.schedule(() -> {
+                order.add(delay);
+                latch.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        synchronized (order) {
+            Assert.assertEquals(4, order.size());
+            for (int i = 0; i < delays.length; i++) {
+                Assert.assertEquals(delays[delays.length - 1 - i], order.get(i).intValue());
+            }
+        }
+    }
+
+    @Test
+    public void testScheduleMany() throws InterruptedException {
+        final AtomicInteger runCount = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+        int nbTimeouts = 100000;
+        for (int i = 0; i < nbTimeouts; i++) {
+            timingWheel.schedule(() -> {
+                if (runCount.incrementAndGet() == nbTimeouts) {
+                    latch.countDown();
+                }
+            }, i % 500, TimeUnit.MILLISECONDS);
+        }
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, timingWheel.size());
+    }
+
+    //
+    //
+    // Timeout.cancel()
+    //
+    //
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        final AtomicInteger runCount = new AtomicInteger();
+        Timeout timeout = timingWheel.schedule(runCount::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(timeout.cancel());
+        Assert.assertFalse(timeout.cancel());
+        Assert.assertTrue(timeout.isCancelled());
+        Assert.assertEquals(0, timingWheel.size());
+        Thread.sleep(100);
+        Assert.assertEquals(0, runCount.get());
+        Assert.assertFalse(timeout.isExpired());
+    }
+
+    //
+    //
+    // TimingWheel.stop()
+    //
+    //
+
+    @Test
+    public void testStop() {
+        Runnable action = () -> {
+        };
+        timingWheel.schedule(action, 1, TimeUnit.HOURS);
+        timingWheel.schedule(action, 1, TimeUnit.DAYS);
+        List<Runnable> actions = timingWheel.stop();
+        Assert.assertEquals(2, actions.size());
+        Assert.assertSame(action, actions.get(0));
+        Assert.assertEquals(0, timingWheel.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testScheduleStopped() {
+        timingWheel.stop();
+        timingWheel.schedule(() -> {
+        }, 1, TimeUnit.MILLISECONDS);
+    }
+}
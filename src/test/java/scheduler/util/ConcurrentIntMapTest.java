@@ -0,0 +1,104 @@
+package scheduler.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConcurrentIntMapTest {
+
+    private ConcurrentIntMap<String> concurrentIntMap;
+
+    @Before
+    public void setUp() throws Exception {
+        concurrentIntMap = new ConcurrentIntMap<String>();
+    }
+
+    @Test
+    public void testPut() {
+        Assert.assertNull(concurrentIntMap.put(1, "one"));
+        Assert.assertEquals("one", concurrentIntMap.put(1, "uno"));
+        Assert.assertEquals("uno", concurrentIntMap.get(1));
+        Assert.assertNull(concurrentIntMap.get(2));
+        Assert.assertEquals(1, concurrentIntMap.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPutNull() {
+        concurrentIntMap.put(1, null);
+    }
+
+    @Test
+    public void testRemove() {
+        String one = "one";
+        concurrentIntMap.put(1, one);
+        Assert.assertFalse(concurrentIntMap.remove(1, new String("one")));
+        Assert.assertFalse(concurrentIntMap.remove(2, one));
+        Assert.assertTrue(concurrentIntMap.remove(1, one));
+        Assert.assertNull(concurrentIntMap.get(1));
+        Assert.assertEquals(0, concurrentIntMap.size());
+    }
+
+    @Test
+    public void testGrowAndShrink() {
+        List<String> values = new ArrayList<String>();
+        for (int i = -5000; i < 50000; i++) {
+            values.add(Integer.toString(i));
+            concurrentIntMap.put(i, values.get(values.size() - 1));
+        }
+        Assert.assertEquals(values.size(), concurrentIntMap.size());
+        Assert.assertEquals(values.size(), concurrentIntMap.values().size());
+        // Remove every other key, the remaining ones must still be found
+        for (int i = -5000; i < 50000; i += 2) {
+            Assert.assertTrue(concurrentIntMap.remove(i, values.get(i + 5000)));
+        }
+        for (int i = -5000; i < 50000; i++) {
+            Assert.assertEquals(0 == (i & 1) ? null : Integer.toString(i), concurrentIntMap.get(i));
+        }
+        for (int i = -4999; i < 50000; i += 2) {
+            Assert.assertTrue(concurrentIntMap.remove(i, values.get(i + 5000)));
+        }
+        Assert.assertEquals(0, concurrentIntMap.size());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for (int t = 0; t < 4; t++) {
+                final int offset = t * 100000;
+                futures.add(executorService.submit(() -> {
+                    for (int i = offset; i < offset + 20000; i++) {
+                        String value = Integer.toString(i);
+                        concurrentIntMap.put(i, value);
+                        if (value != concurrentIntMap.get(i)) {
+                            return false;
+                        }
+                        if (0 == i % 3 && !concurrentIntMap.remove(i, value)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                Assert.assertTrue(future.get());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+        int expectedSize = 0;
+        for (int t = 0; t < 4; t++) {
+            for (int i = t * 100000; i < t * 100000 + 20000; i++) {
+                expectedSize += 0 == i % 3 ? 0 : 1;
+            }
+        }
+        Assert.assertEquals(expectedSize, concurrentIntMap.size());
+    }
+}
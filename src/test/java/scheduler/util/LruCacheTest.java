@@ -0,0 +1,60 @@
+package scheduler.util;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LruCacheTest {
+
+    private LruCache<String, Integer> lruCache;
+
+    @Before
+    public void setUp() throws Exception {
+        lruCache = new LruCache<String, Integer>(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLruCacheInvalidSize() {
+        new LruCache<String, Integer>(0);
+    }
+
+    @Test
+    public void testGet() {
+        Assert.assertNull(lruCache.get("one"));
+        lruCache.putIfAbsent("one", 1);
+        Assert.assertEquals(Integer.valueOf(1), lruCache.get("one"));
+        Assert.assertEquals(1, lruCache.getHitCount());
+        Assert.assertEquals(1, lruCache.getMissCount());
+    }
+
+    @Test
+    public void testPutIfAbsent() {
+        Assert.assertEquals(Integer.valueOf(1), lruCache.putIfAbsent("one", 1));
+        Assert.assertEquals(Integer.valueOf(1), lruCache.putIfAbsent("one", 2));
+        Assert.assertEquals(1, lruCache.size());
+    }
+
+    @Test
+    public void testEviction() {
+        lruCache.putIfAbsent("one", 1);
+        lruCache.putIfAbsent("two", 2);
+        // "one" becomes the most recently used entry
+        lruCache.get("one");
+        lruCache.putIfAbsent("three", 3);
+        Assert.assertEquals(2, lruCache.size());
+        Assert.assertEquals(1, lruCache.getEvictionCount());
+        Assert.assertNull(lruCache.get("two"));
+        Assert.assertEquals(Integer.valueOf(1), lruCache.get("one"));
+        Assert.assertEquals(Integer.valueOf(3), lruCache.get("three"));
+    }
+
+    @Test
+    public void testRemove() {
+        lruCache.putIfAbsent("one", 1);
+        Assert.assertEquals(Integer.valueOf(1), lruCache.remove("one"));
+        Assert.assertNull(lruCache.remove("one"));
+        lruCache.putIfAbsent("two", 2);
+        lruCache.clear();
+        Assert.assertEquals(0, lruCache.size());
+    }
+}